@@ -25,6 +25,11 @@ import org.apache.hadoop.dynamodb.type.DynamoDBTypeConstants;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+/**
+ * @deprecated Superseded by {@link AttributeValueTypeAdapter}, which handles the same JSON without
+ *     building a JSON tree.
+ */
+@Deprecated
 public class AttributeValueSerializer implements JsonSerializer<AttributeValue> {
 
   @Override
@@ -0,0 +1,259 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package org.apache.hadoop.dynamodb;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.dynamodb.type.DynamoDBTypeConstants;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Streaming counterpart of {@link AttributeValueSerializer} and {@link AttributeValueDeserializer}.
+ * It writes and reads the same JSON, e.g. {"s":"Seattle"} or {"nS":["1","2"]}, without building a
+ * JSON tree for every attribute.
+ */
+public class AttributeValueTypeAdapter extends TypeAdapter<AttributeValue> {
+
+  // Field names in the casing of the AWS SDK for Java 1.x, e.g. "nS" for NS
+  private static final String BINARY_FIELD = toV1FieldCasingStyle(DynamoDBTypeConstants.BINARY);
+  private static final String BINARY_SET_FIELD =
+      toV1FieldCasingStyle(DynamoDBTypeConstants.BINARY_SET);
+  private static final String BOOLEAN_FIELD = toV1FieldCasingStyle(DynamoDBTypeConstants.BOOLEAN);
+  private static final String LIST_FIELD = toV1FieldCasingStyle(DynamoDBTypeConstants.LIST);
+  private static final String MAP_FIELD = toV1FieldCasingStyle(DynamoDBTypeConstants.MAP);
+  private static final String NUMBER_FIELD = toV1FieldCasingStyle(DynamoDBTypeConstants.NUMBER);
+  private static final String NUMBER_SET_FIELD =
+      toV1FieldCasingStyle(DynamoDBTypeConstants.NUMBER_SET);
+  private static final String NULL_FIELD = toV1FieldCasingStyle(DynamoDBTypeConstants.NULL);
+  private static final String STRING_FIELD = toV1FieldCasingStyle(DynamoDBTypeConstants.STRING);
+  private static final String STRING_SET_FIELD =
+      toV1FieldCasingStyle(DynamoDBTypeConstants.STRING_SET);
+
+  @Override
+  public void write(JsonWriter out, AttributeValue attributeValue) throws IOException {
+    if (attributeValue == null) {
+      out.nullValue();
+      return;
+    }
+
+    out.beginObject();
+    switch (attributeValue.type()) {
+      case B:
+        out.name(BINARY_FIELD).value(encode(attributeValue.b()));
+        break;
+      case BOOL:
+        out.name(BOOLEAN_FIELD).value(attributeValue.bool());
+        break;
+      case BS:
+        out.name(BINARY_SET_FIELD).beginArray();
+        for (SdkBytes item : attributeValue.bs()) {
+          out.value(encode(item));
+        }
+        out.endArray();
+        break;
+      case L:
+        out.name(LIST_FIELD).beginArray();
+        for (AttributeValue item : attributeValue.l()) {
+          write(out, item);
+        }
+        out.endArray();
+        break;
+      case M:
+        out.name(MAP_FIELD).beginObject();
+        for (Map.Entry<String, AttributeValue> entry : attributeValue.m().entrySet()) {
+          out.name(entry.getKey());
+          write(out, entry.getValue());
+        }
+        out.endObject();
+        break;
+      case N:
+        out.name(NUMBER_FIELD).value(attributeValue.n());
+        break;
+      case NS:
+        writeStrings(out.name(NUMBER_SET_FIELD), attributeValue.ns());
+        break;
+      case NUL:
+        out.name(NULL_FIELD).value(attributeValue.nul());
+        break;
+      case S:
+        out.name(STRING_FIELD).value(attributeValue.s());
+        break;
+      case SS:
+        writeStrings(out.name(STRING_SET_FIELD), attributeValue.ss());
+        break;
+      default:
+        break;
+    }
+    out.endObject();
+  }
+
+  @Override
+  public AttributeValue read(JsonReader in) throws IOException {
+    JsonToken token = in.peek();
+    if (token == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    if (token != JsonToken.BEGIN_OBJECT) {
+      in.skipValue();
+      return AttributeValue.builder().build();
+    }
+
+    // The first field holding a value wins, as empty collections are skipped
+    AttributeValue result = null;
+    in.beginObject();
+    while (in.hasNext()) {
+      String attributeName = in.nextName();
+      if (result == null) {
+        result = readField(in, attributeName);
+      } else {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+
+    // Return an empty instance as default value.
+    return result != null ? result : AttributeValue.builder().build();
+  }
+
+  private AttributeValue readField(JsonReader in, String attributeName) throws IOException {
+    if (BINARY_FIELD.equalsIgnoreCase(attributeName)) {
+      return AttributeValue.fromB(decode(in));
+    }
+
+    if (BINARY_SET_FIELD.equalsIgnoreCase(attributeName)) {
+      List<SdkBytes> sdkBytesList = new ArrayList<>();
+      in.beginArray();
+      while (in.hasNext()) {
+        sdkBytesList.add(decode(in));
+      }
+      in.endArray();
+      return sdkBytesList.isEmpty() ? null : AttributeValue.fromBs(sdkBytesList);
+    }
+
+    if (BOOLEAN_FIELD.equalsIgnoreCase(attributeName)) {
+      return AttributeValue.fromBool(readBoolean(in));
+    }
+
+    if (NULL_FIELD.equalsIgnoreCase(attributeName)) {
+      return AttributeValue.fromNul(readBoolean(in));
+    }
+
+    if (NUMBER_FIELD.equalsIgnoreCase(attributeName)) {
+      return AttributeValue.fromN(readString(in));
+    }
+
+    if (NUMBER_SET_FIELD.equalsIgnoreCase(attributeName)) {
+      List<String> numberList = readStrings(in);
+      return numberList.isEmpty() ? null : AttributeValue.fromNs(numberList);
+    }
+
+    if (LIST_FIELD.equalsIgnoreCase(attributeName)) {
+      List<AttributeValue> avl = new ArrayList<>();
+      in.beginArray();
+      while (in.hasNext()) {
+        avl.add(read(in));
+      }
+      in.endArray();
+      return avl.isEmpty() ? null : AttributeValue.fromL(avl);
+    }
+
+    if (MAP_FIELD.equalsIgnoreCase(attributeName)) {
+      Map<String, AttributeValue> avm = new HashMap<>();
+      in.beginObject();
+      while (in.hasNext()) {
+        avm.put(in.nextName(), read(in));
+      }
+      in.endObject();
+      return avm.isEmpty() ? null : AttributeValue.fromM(avm);
+    }
+
+    if (STRING_FIELD.equalsIgnoreCase(attributeName)) {
+      return AttributeValue.fromS(readString(in));
+    }
+
+    if (STRING_SET_FIELD.equalsIgnoreCase(attributeName)) {
+      List<String> stringList = readStrings(in);
+      return stringList.isEmpty() ? null : AttributeValue.fromSs(stringList);
+    }
+
+    in.skipValue();
+    return null;
+  }
+
+  private static void writeStrings(JsonWriter out, List<String> strings) throws IOException {
+    out.beginArray();
+    for (String item : strings) {
+      out.value(item);
+    }
+    out.endArray();
+  }
+
+  private static List<String> readStrings(JsonReader in) throws IOException {
+    List<String> strings = new ArrayList<>();
+    in.beginArray();
+    while (in.hasNext()) {
+      strings.add(readString(in));
+    }
+    in.endArray();
+    return strings;
+  }
+
+  private static String readString(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.BOOLEAN) {
+      return Boolean.toString(in.nextBoolean());
+    }
+    // Also reads numbers, in the form they were written in
+    return in.nextString();
+  }
+
+  private static boolean readBoolean(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.BOOLEAN) {
+      return in.nextBoolean();
+    }
+    return Boolean.parseBoolean(in.nextString());
+  }
+
+  private static String encode(SdkBytes sdkBytes) {
+    return Base64.getEncoder().encodeToString(sdkBytes.asByteArrayUnsafe());
+  }
+
+  private static SdkBytes decode(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    String base64String = in.nextString();
+    try {
+      return SdkBytes.fromByteArrayUnsafe(Base64.getDecoder().decode(base64String));
+    } catch (IllegalArgumentException e) {
+      // Not strict base64, e.g. URL safe or with line breaks, which commons-codec also accepts
+      return SdkBytes.fromByteBuffer(DynamoDBUtil.base64StringToByteBuffer(base64String));
+    }
+  }
+
+  private static String toV1FieldCasingStyle(String typeConstant) {
+    return typeConstant.substring(0, 1).toLowerCase() + typeConstant.substring(1).toUpperCase();
+  }
+}
@@ -13,10 +13,16 @@
 
 package org.apache.hadoop.dynamodb;
 
+import static org.apache.hadoop.dynamodb.DynamoDBConstants.DEFAULT_DESCRIBE_TABLE_CACHE_TTL;
 import static org.apache.hadoop.dynamodb.DynamoDBConstants.DEFAULT_MAX_BATCH_SIZE;
+import static org.apache.hadoop.dynamodb.DynamoDBConstants.DEFAULT_MAX_CONCURRENT_BATCH_WRITES;
+import static org.apache.hadoop.dynamodb.DynamoDBConstants.DEFAULT_MAX_IN_FLIGHT_BATCH_BYTES;
 import static org.apache.hadoop.dynamodb.DynamoDBConstants.DEFAULT_MAX_ITEMS_PER_BATCH;
 import static org.apache.hadoop.dynamodb.DynamoDBConstants.DEFAULT_MAX_ITEM_SIZE;
+import static org.apache.hadoop.dynamodb.DynamoDBConstants.DESCRIBE_TABLE_CACHE_TTL;
 import static org.apache.hadoop.dynamodb.DynamoDBConstants.MAX_BATCH_SIZE;
+import static org.apache.hadoop.dynamodb.DynamoDBConstants.MAX_CONCURRENT_BATCH_WRITES;
+import static org.apache.hadoop.dynamodb.DynamoDBConstants.MAX_IN_FLIGHT_BATCH_BYTES;
 import static org.apache.hadoop.dynamodb.DynamoDBConstants.MAX_ITEMS_PER_BATCH;
 import static org.apache.hadoop.dynamodb.DynamoDBConstants.MAX_ITEM_SIZE;
 import static org.apache.hadoop.dynamodb.DynamoDBUtil.getDynamoDBEndpoint;
@@ -30,19 +36,34 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.dynamodb.DynamoDBFibonacciRetryer.RetryResult;
+import org.apache.hadoop.dynamodb.filter.DynamoDBExpressionBuilder;
 import org.apache.hadoop.dynamodb.filter.DynamoDBIndexInfo;
 import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
 import org.apache.hadoop.mapred.Reporter;
@@ -62,6 +83,8 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.Capacity;
@@ -70,6 +93,7 @@ import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
 import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
 import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
 import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
@@ -85,6 +109,8 @@ public class DynamoDBClient {
 
   private static final int DEFAULT_RETRY_DURATION = 10;
   private static final long MAX_BACKOFF_IN_MILLISECONDS = 1000 * 3;
+  // Distinct from the placeholders of the filter expressions carried by query filters
+  private static final String REQUEST_PLACEHOLDER_PREFIX = "r";
   private static final CredentialPairName DYNAMODB_CREDENTIAL_PAIR_NAME =
       new CredentialPairName(
           DynamoDBConstants.DYNAMODB_ACCESS_KEY_CONF,
@@ -102,6 +128,10 @@ public class DynamoDBClient {
           DynamoDBConstants.DEFAULT_SECRET_KEY_CONF,
           DynamoDBConstants.DEFAULT_SESSION_TOKEN_CONF
       );
+  // Table descriptions shared by the clients of the JVM, keyed by the scope of the client that
+  // described the table and the table name
+  private static final Map<List<Object>, CachedTableDescription> tableDescriptionCache =
+      new ConcurrentHashMap<>();
   private final Map<String, List<WriteRequest>> writeBatchMap = new HashMap<>();
   private final DynamoDbClient dynamoDB;
   private int writeBatchMapSizeBytes;
@@ -109,6 +139,19 @@ public class DynamoDBClient {
   private final Configuration config;
   private final long maxBatchSize;
   private final long maxItemByteSize;
+  // Identifies the tables this client can see: clients with an equal scope share descriptions
+  private final Object describeTableScope;
+  private final long describeTableCacheTtl;
+  private volatile boolean retryReadThrottles = true;
+
+  // Pipelined batch writes, only used when more than one batch may be in flight
+  private final int maxConcurrentBatchWrites;
+  private final int maxInFlightBatchBytes;
+  private final List<Future<?>> inFlightBatchWrites = new ArrayList<>();
+  private final Queue<ConsumedCapacity> completedBatchCapacity = new ConcurrentLinkedQueue<>();
+  private final AtomicReference<Throwable> batchWriteFailure = new AtomicReference<>();
+  private ExecutorService batchWriteExecutor;
+  private Semaphore inFlightBatchPermits;
 
   // For unit testing only
   public DynamoDBClient() {
@@ -120,6 +163,10 @@ public class DynamoDBClient {
     config = conf;
     maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
     maxItemByteSize = DEFAULT_MAX_ITEM_SIZE;
+    maxConcurrentBatchWrites = getMaxConcurrentBatchWrites(conf);
+    maxInFlightBatchBytes = getMaxInFlightBatchBytes(conf);
+    describeTableScope = amazonDynamoDBClient;
+    describeTableCacheTtl = getDescribeTableCacheTtl(conf);
   }
 
   public DynamoDBClient(Configuration conf) {
@@ -129,16 +176,46 @@ public class DynamoDBClient {
   public DynamoDBClient(Configuration conf, String region) {
     Preconditions.checkNotNull(conf, "conf cannot be null.");
     config = conf;
-    dynamoDB = getDynamoDBClient(conf, region);
+    String dynamoDBRegion = getDynamoDBRegion(conf, region);
+    dynamoDB = getDynamoDBClient(conf, dynamoDBRegion);
     maxBatchSize = config.getLong(MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
     maxItemByteSize = config.getLong(MAX_ITEM_SIZE, DEFAULT_MAX_ITEM_SIZE);
+    maxConcurrentBatchWrites = getMaxConcurrentBatchWrites(conf);
+    maxInFlightBatchBytes = getMaxInFlightBatchBytes(conf);
+    describeTableScope = getDescribeTableScope(conf, dynamoDBRegion);
+    describeTableCacheTtl = getDescribeTableCacheTtl(conf);
+  }
+
+  /**
+   * Sets whether throttled scans, queries and batch gets are retried within the call. Record
+   * readers turn this off to put throttled requests aside and read other segments in the meantime.
+   */
+  public void setRetryReadThrottles(boolean retryReadThrottles) {
+    this.retryReadThrottles = retryReadThrottles;
   }
 
   public final Map<String, List<WriteRequest>> getWriteBatchMap() {
     return this.writeBatchMap;
   }
 
+  /**
+   * Describes a table. A description obtained within the last
+   * {@link DynamoDBConstants#DESCRIBE_TABLE_CACHE_TTL} milliseconds by any client of the JVM that
+   * has the same endpoint, region and credentials is reused.
+   */
   public TableDescription describeTable(String tableName) {
+    CachedTableDescription cached = tableDescriptionCache.get(getCacheKey(tableName));
+    if (cached != null && !cached.isExpired(System.nanoTime())) {
+      return cached.description;
+    }
+    return refreshTableDescription(tableName);
+  }
+
+  /**
+   * Describes a table, bypassing the table descriptions cached by the clients of the JVM, and
+   * caches the new description.
+   */
+  public TableDescription refreshTableDescription(String tableName) {
     final DescribeTableRequest describeTablesRequest = DescribeTableRequest.builder()
         .tableName(tableName)
         .build();
@@ -149,15 +226,37 @@ public class DynamoDBClient {
             log.info("Describe table output: " + response);
             return response;
           }, null, null);
-      return describeResult.result.table();
+      TableDescription description = describeResult.result.table();
+      if (describeTableCacheTtl > 0) {
+        long now = System.nanoTime();
+        tableDescriptionCache.values().removeIf(entry -> entry.isExpired(now));
+        tableDescriptionCache.put(getCacheKey(tableName), new CachedTableDescription(description,
+            now + TimeUnit.MILLISECONDS.toNanos(describeTableCacheTtl)));
+      }
+      return description;
     } catch (Exception e) {
       throw new RuntimeException("Could not lookup table " + tableName + " in DynamoDB.", e);
     }
   }
 
+  private List<Object> getCacheKey(String tableName) {
+    return Arrays.asList(describeTableScope, tableName);
+  }
+
   public RetryResult<ScanResponse> scanTable(
       String tableName, DynamoDBQueryFilter dynamoDBQueryFilter, Integer segment, Integer
       totalSegments, Map<String, AttributeValue> exclusiveStartKey, long limit, Reporter reporter) {
+    return scanTable(tableName, dynamoDBQueryFilter, segment, totalSegments, exclusiveStartKey,
+        limit, null /* attributesToGet */, reporter);
+  }
+
+  /**
+   * @param attributesToGet top-level attributes to return, or null to return whole items
+   */
+  public RetryResult<ScanResponse> scanTable(
+      String tableName, DynamoDBQueryFilter dynamoDBQueryFilter, Integer segment, Integer
+      totalSegments, Map<String, AttributeValue> exclusiveStartKey, long limit,
+      Collection<String> attributesToGet, Reporter reporter) {
     final ScanRequest.Builder scanRequestBuilder = ScanRequest.builder().tableName(tableName)
         .exclusiveStartKey(exclusiveStartKey)
         .limit(Ints.checkedCast(limit))
@@ -165,16 +264,34 @@ public class DynamoDBClient {
         .totalSegments(totalSegments)
         .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
 
-    if (dynamoDBQueryFilter != null) {
-      Map<String, Condition> scanFilter = dynamoDBQueryFilter.getScanFilter();
-      if (!scanFilter.isEmpty()) {
-        scanRequestBuilder.scanFilter(scanFilter);
+    if (dynamoDBQueryFilter != null && dynamoDBQueryFilter.getFilterExpression() != null) {
+      DynamoDBExpressionBuilder expressions = new DynamoDBExpressionBuilder(
+          REQUEST_PLACEHOLDER_PREFIX);
+      scanRequestBuilder
+          .filterExpression(getFilterExpression(expressions, dynamoDBQueryFilter))
+          .projectionExpression(getProjectionExpression(expressions, attributesToGet));
+      if (!expressions.getAttributeNames().isEmpty()) {
+        scanRequestBuilder.expressionAttributeNames(expressions.getAttributeNames());
+      }
+      if (!expressions.getAttributeValues().isEmpty()) {
+        scanRequestBuilder.expressionAttributeValues(expressions.getAttributeValues());
+      }
+    } else {
+      if (dynamoDBQueryFilter != null) {
+        Map<String, Condition> scanFilter = dynamoDBQueryFilter.getScanFilter();
+        if (!scanFilter.isEmpty()) {
+          scanRequestBuilder.scanFilter(scanFilter);
+        }
+      }
+
+      if (attributesToGet != null && !attributesToGet.isEmpty()) {
+        scanRequestBuilder.attributesToGet(attributesToGet);
       }
     }
 
     final ScanRequest scanRequest = scanRequestBuilder.build();
 
-    RetryResult<ScanResponse> retryResult = getRetryDriver().runWithRetry(() -> {
+    RetryResult<ScanResponse> retryResult = getReadRetryDriver().runWithRetry(() -> {
       log.debug("Executing DynamoDB scan: " + scanRequest);
       return dynamoDB.scan(scanRequest);
     }, reporter, PrintCounter.DynamoDBReadThrottle);
@@ -184,10 +301,19 @@ public class DynamoDBClient {
   public RetryResult<QueryResponse> queryTable(
       String tableName, DynamoDBQueryFilter dynamoDBQueryFilter, Map<String, AttributeValue>
       exclusiveStartKey, long limit, Reporter reporter) {
+    return queryTable(tableName, dynamoDBQueryFilter, exclusiveStartKey, limit,
+        null /* attributesToGet */, reporter);
+  }
+
+  /**
+   * @param attributesToGet top-level attributes to return, or null to return whole items
+   */
+  public RetryResult<QueryResponse> queryTable(
+      String tableName, DynamoDBQueryFilter dynamoDBQueryFilter, Map<String, AttributeValue>
+      exclusiveStartKey, long limit, Collection<String> attributesToGet, Reporter reporter) {
     final QueryRequest.Builder queryRequestBuilder = QueryRequest.builder()
         .tableName(tableName)
         .exclusiveStartKey(exclusiveStartKey)
-        .keyConditions(dynamoDBQueryFilter.getKeyConditions())
         .limit(Ints.checkedCast(limit))
         .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
 
@@ -197,9 +323,30 @@ public class DynamoDBClient {
       queryRequestBuilder.indexName(index.getIndexName());
     }
 
+    if (dynamoDBQueryFilter.getFilterExpression() != null) {
+      DynamoDBExpressionBuilder expressions = new DynamoDBExpressionBuilder(
+          REQUEST_PLACEHOLDER_PREFIX);
+      queryRequestBuilder
+          .keyConditionExpression(expressions.conditions(dynamoDBQueryFilter.getKeyConditions()))
+          .filterExpression(getFilterExpression(expressions, dynamoDBQueryFilter))
+          .projectionExpression(getProjectionExpression(expressions, attributesToGet));
+      if (!expressions.getAttributeNames().isEmpty()) {
+        queryRequestBuilder.expressionAttributeNames(expressions.getAttributeNames());
+      }
+      if (!expressions.getAttributeValues().isEmpty()) {
+        queryRequestBuilder.expressionAttributeValues(expressions.getAttributeValues());
+      }
+    } else {
+      queryRequestBuilder.keyConditions(dynamoDBQueryFilter.getKeyConditions());
+
+      if (attributesToGet != null && !attributesToGet.isEmpty()) {
+        queryRequestBuilder.attributesToGet(attributesToGet);
+      }
+    }
+
     final QueryRequest queryRequest = queryRequestBuilder.build();
 
-    RetryResult<QueryResponse> retryResult = getRetryDriver().runWithRetry(
+    RetryResult<QueryResponse> retryResult = getReadRetryDriver().runWithRetry(
         () -> {
           log.debug("Executing DynamoDB query: " + queryRequest);
           return dynamoDB.query(queryRequest);
@@ -207,6 +354,87 @@ public class DynamoDBClient {
     return retryResult;
   }
 
+  /**
+   * Reads the range key value of the first or the last item the key conditions of a query match.
+   * The rest of the filter is ignored, as it could leave the single item read out.
+   *
+   * @param last whether to read the last item rather than the first one
+   * @return the range key value, or null if the key conditions match no items
+   */
+  public AttributeValue queryRangeKeyBound(String tableName,
+      DynamoDBQueryFilter dynamoDBQueryFilter, String rangeKeyName, boolean last,
+      Reporter reporter) {
+    final QueryRequest.Builder queryRequestBuilder = QueryRequest.builder()
+        .tableName(tableName)
+        .keyConditions(dynamoDBQueryFilter.getKeyConditions())
+        .attributesToGet(rangeKeyName)
+        .scanIndexForward(!last)
+        .limit(1)
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+    if (dynamoDBQueryFilter.getIndex() != null) {
+      queryRequestBuilder.indexName(dynamoDBQueryFilter.getIndex().getIndexName());
+    }
+
+    final QueryRequest queryRequest = queryRequestBuilder.build();
+    QueryResponse response = getReadRetryDriver().runWithRetry(
+        () -> {
+          log.debug("Executing DynamoDB query: " + queryRequest);
+          return dynamoDB.query(queryRequest);
+        }, reporter, PrintCounter.DynamoDBReadThrottle).result;
+    return response.items().isEmpty() ? null : response.items().get(0).get(rangeKeyName);
+  }
+
+  /**
+   * Reads the items with the given primary keys, at most 100 of them. Keys that DynamoDB leaves
+   * unprocessed are returned with the response, for the caller to retry.
+   *
+   * @param attributesToGet top-level attributes to return, or null to return whole items
+   */
+  public RetryResult<BatchGetItemResponse> batchGetItem(String tableName,
+      List<Map<String, AttributeValue>> keys, Collection<String> attributesToGet,
+      Reporter reporter) {
+    final KeysAndAttributes.Builder keysAndAttributesBuilder = KeysAndAttributes.builder()
+        .keys(keys);
+    if (attributesToGet != null && !attributesToGet.isEmpty()) {
+      keysAndAttributesBuilder.attributesToGet(attributesToGet);
+    }
+
+    final BatchGetItemRequest batchGetItemRequest = BatchGetItemRequest.builder()
+        .requestItems(Collections.singletonMap(tableName, keysAndAttributesBuilder.build()))
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+        .build();
+
+    RetryResult<BatchGetItemResponse> retryResult = getReadRetryDriver().runWithRetry(
+        () -> {
+          log.debug("Executing DynamoDB batch get: " + batchGetItemRequest);
+          return dynamoDB.batchGetItem(batchGetItemRequest);
+        }, reporter, PrintCounter.DynamoDBReadThrottle);
+    return retryResult;
+  }
+
+  /**
+   * Renders the scan filter of a query filter as an expression and combines it with the query
+   * filter's own filter expression.
+   */
+  private static String getFilterExpression(DynamoDBExpressionBuilder expressions,
+      DynamoDBQueryFilter dynamoDBQueryFilter) {
+    return DynamoDBExpressionBuilder.and(Arrays.asList(
+        expressions.conditions(dynamoDBQueryFilter.getScanFilter()),
+        expressions.include(dynamoDBQueryFilter.getFilterExpression())));
+  }
+
+  private static String getProjectionExpression(DynamoDBExpressionBuilder expressions,
+      Collection<String> attributesToGet) {
+    if (attributesToGet == null || attributesToGet.isEmpty()) {
+      return null;
+    }
+    List<String> names = new ArrayList<>(attributesToGet.size());
+    for (String attributeName : attributesToGet) {
+      names.add(expressions.name(attributeName));
+    }
+    return String.join(", ", names);
+  }
+
   public BatchWriteItemResponse putBatch(String tableName, Map<String, AttributeValue> item,
                                          long maxItemsPerBatch, Reporter reporter,
                                          boolean deletionMode)
@@ -217,6 +445,7 @@ public class DynamoDBClient {
       throw new RuntimeException("Cannot pass items with size greater than " + maxItemByteSize
           + ". Item with size of " + itemSizeBytes + " was given.");
     }
+    checkBatchWriteFailure();
     maxItemsPerBatch = DynamoDBUtil.getBoundedBatchLimit(config, maxItemsPerBatch);
     BatchWriteItemResponse response = null;
     if (writeBatchMap.containsKey(tableName)) {
@@ -228,7 +457,9 @@ public class DynamoDBClient {
           writeBatchMapSizeBytes + itemSizeBytes > maxBatchSize;
 
       if (writeRequestsForTableAtLimit || totalSizeOfWriteBatchesOverLimit) {
-        response = writeBatch(reporter, itemSizeBytes);
+        response = isPipelinedBatchWrite()
+            ? submitBatch(reporter)
+            : writeBatch(reporter, itemSizeBytes);
       }
     }
     // writeBatchMap could be cleared from writeBatch()
@@ -262,12 +493,18 @@ public class DynamoDBClient {
   }
 
   public void close() {
-    while (!writeBatchMap.isEmpty()) {
-      writeBatch(Reporter.NULL, 0);
-    }
-
-    if (dynamoDB != null) {
-      dynamoDB.close();
+    try {
+      if (isPipelinedBatchWrite()) {
+        drainBatchWrites();
+      } else {
+        while (!writeBatchMap.isEmpty()) {
+          writeBatch(Reporter.NULL, 0);
+        }
+      }
+    } finally {
+      if (dynamoDB != null) {
+        dynamoDB.close();
+      }
     }
   }
 
@@ -387,10 +624,163 @@ public class DynamoDBClient {
     return retryResult.result;
   }
 
+  private boolean isPipelinedBatchWrite() {
+    return maxConcurrentBatchWrites > 1;
+  }
+
+  /**
+   * Hands the current write batch off to the batch write executor and returns immediately, unless
+   * the in-flight byte budget is exhausted, in which case this blocks until enough in-flight
+   * batches have completed.
+   *
+   * @return a response carrying the capacity consumed by batches that completed since the last
+   * call. Unprocessed items are retried by the executor, so the response never has any.
+   */
+  private BatchWriteItemResponse submitBatch(final Reporter reporter) {
+    final Map<String, List<WriteRequest>> batch = new HashMap<>(writeBatchMap);
+    final int permits = Math.max(1, Math.min(writeBatchMapSizeBytes, maxInFlightBatchBytes));
+    writeBatchMap.clear();
+    writeBatchMapSizeBytes = 0;
+
+    if (inFlightBatchPermits == null) {
+      inFlightBatchPermits = new Semaphore(maxInFlightBatchBytes);
+      batchWriteExecutor = Executors.newFixedThreadPool(maxConcurrentBatchWrites,
+          new BatchWriterThreadFactory());
+      log.info("Pipelining batch writes with " + maxConcurrentBatchWrites + " batches and "
+          + maxInFlightBatchBytes + " bytes in flight");
+    }
+
+    try {
+      inFlightBatchPermits.acquire(permits);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for in-flight batch writes", e);
+    }
+
+    inFlightBatchWrites.removeIf(Future::isDone);
+    inFlightBatchWrites.add(batchWriteExecutor.submit(() -> {
+      try {
+        completedBatchCapacity.addAll(writeBatchUntilProcessed(batch, reporter));
+      } catch (Throwable t) {
+        batchWriteFailure.compareAndSet(null, t);
+      } finally {
+        inFlightBatchPermits.release(permits);
+      }
+    }));
+
+    List<ConsumedCapacity> consumedCapacity = new ArrayList<>();
+    ConsumedCapacity capacity;
+    while ((capacity = completedBatchCapacity.poll()) != null) {
+      consumedCapacity.add(capacity);
+    }
+    return BatchWriteItemResponse.builder()
+        .consumedCapacity(consumedCapacity)
+        .build();
+  }
+
+  /**
+   * Writes a batch on a batch writer thread, retrying unprocessed items with exponential backoff
+   * until all of them have been written.
+   */
+  private List<ConsumedCapacity> writeBatchUntilProcessed(Map<String, List<WriteRequest>> batch,
+      Reporter reporter) throws InterruptedException {
+    List<ConsumedCapacity> consumedCapacity = new ArrayList<>();
+    Map<String, List<WriteRequest>> pending = batch;
+    int retries = 0;
+    while (!pending.isEmpty()) {
+      pauseExponentially(retries);
+      final BatchWriteItemRequest batchWriteItemRequest = BatchWriteItemRequest.builder()
+          .requestItems(pending)
+          .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES)
+          .build();
+      BatchWriteItemResponse result = getRetryDriver().runWithRetry(
+          () -> dynamoDB.batchWriteItem(batchWriteItemRequest), reporter,
+          PrintCounter.DynamoDBWriteThrottle).result;
+
+      if (result.consumedCapacity() != null) {
+        consumedCapacity.addAll(result.consumedCapacity());
+      }
+      pending = result.unprocessedItems();
+      if (!pending.isEmpty()) {
+        retries++;
+        log.debug("BatchWriteItem left unprocessed items for " + pending.keySet() + ", now at "
+            + retries + " retries");
+      }
+    }
+    return consumedCapacity;
+  }
+
+  /**
+   * Submits the last partial batch and waits for every in-flight batch to complete. The batches
+   * drain concurrently on the batch writer threads.
+   */
+  private void drainBatchWrites() {
+    if (!writeBatchMap.isEmpty()) {
+      submitBatch(Reporter.NULL);
+    }
+    try {
+      for (Future<?> batchWrite : inFlightBatchWrites) {
+        batchWrite.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while draining in-flight batch writes", e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      inFlightBatchWrites.clear();
+      if (batchWriteExecutor != null) {
+        batchWriteExecutor.shutdownNow();
+      }
+    }
+    checkBatchWriteFailure();
+  }
+
+  private void checkBatchWriteFailure() {
+    Throwable failure = batchWriteFailure.get();
+    if (failure != null) {
+      throw new RuntimeException("Pipelined batch write failed", failure);
+    }
+  }
+
+  private static int getMaxConcurrentBatchWrites(Configuration conf) {
+    if (conf == null) {
+      return DEFAULT_MAX_CONCURRENT_BATCH_WRITES;
+    }
+    return Math.max(1, conf.getInt(MAX_CONCURRENT_BATCH_WRITES,
+        DEFAULT_MAX_CONCURRENT_BATCH_WRITES));
+  }
+
+  private static int getMaxInFlightBatchBytes(Configuration conf) {
+    long bytes = conf == null ? DEFAULT_MAX_IN_FLIGHT_BATCH_BYTES
+        : conf.getLong(MAX_IN_FLIGHT_BATCH_BYTES, DEFAULT_MAX_IN_FLIGHT_BATCH_BYTES);
+    return Ints.saturatedCast(Math.max(1, bytes));
+  }
+
+  private static long getDescribeTableCacheTtl(Configuration conf) {
+    return conf == null ? DEFAULT_DESCRIBE_TABLE_CACHE_TTL
+        : conf.getLong(DESCRIBE_TABLE_CACHE_TTL, DEFAULT_DESCRIBE_TABLE_CACHE_TTL);
+  }
+
+  private static Object getDescribeTableScope(Configuration conf, String region) {
+    String accessKey = conf.get(DYNAMODB_CREDENTIAL_PAIR_NAME.getAccessKeyName());
+    if (Strings.isNullOrEmpty(accessKey)) {
+      accessKey = conf.get(DEFAULT_CREDENTIAL_PAIR_NAME.getAccessKeyName());
+    }
+    return Arrays.asList(region, getDynamoDBEndpoint(conf, region), accessKey,
+        conf.get(DynamoDBConstants.CUSTOM_CREDENTIALS_PROVIDER_CONF),
+        conf.get(DynamoDBConstants.CUSTOM_CLIENT_BUILDER_TRANSFORMER));
+  }
+
   private DynamoDBFibonacciRetryer getRetryDriver() {
     return new DynamoDBFibonacciRetryer(Duration.standardMinutes(DEFAULT_RETRY_DURATION));
   }
 
+  private DynamoDBFibonacciRetryer getReadRetryDriver() {
+    return new DynamoDBFibonacciRetryer(Duration.standardMinutes(DEFAULT_RETRY_DURATION),
+        retryReadThrottles);
+  }
+
   private void pauseExponentially(int retries) throws InterruptedException {
     if (retries == 0) {
       return;
@@ -524,4 +914,31 @@ public class DynamoDBClient {
     final String HTTP_PROTOCOL = "http://";
     return URI.create(HTTP_PROTOCOL + proxyHost + ":" + proxyPort);
   }
+
+  private static final class CachedTableDescription {
+
+    private final TableDescription description;
+    private final long expirationNanos;
+
+    CachedTableDescription(TableDescription description, long expirationNanos) {
+      this.description = description;
+      this.expirationNanos = expirationNanos;
+    }
+
+    boolean isExpired(long nanos) {
+      return nanos - expirationNanos >= 0;
+    }
+  }
+
+  private static class BatchWriterThreadFactory implements ThreadFactory {
+
+    private static final AtomicInteger threadId = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "BatchWriter-" + threadId.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
 }
@@ -38,6 +38,8 @@ public interface DynamoDBConstants {
   String DYNAMODB_TYPE_MAPPING = "dynamodb.type.mapping";
   String DYNAMODB_NULL_SERIALIZATION = "dynamodb.null.serialization";
   String DYNAMODB_TABLE_KEY_NAMES = "dynamodb.table.keyNames";
+  // Key schema and secondary indexes of the table, described once when the job is planned
+  String DYNAMODB_TABLE_SCHEMA = "dynamodb.table.schema";
 
   String DYNAMODB_TABLE_KEY_NAMES_SEPARATOR = ",";
 
@@ -69,6 +71,12 @@ public interface DynamoDBConstants {
   String ITEM_COUNT = "dynamodb.item.count";
   String TABLE_SIZE_BYTES = "dynamodb.table.size-bytes";
   String MAX_MAP_TASKS = "dynamodb.max.map.tasks";
+  // Number of map tasks the cluster runs at once, computed when the job is submitted so that tasks
+  // do not each query the resource manager
+  String CLUSTER_MAP_CAPACITY = "dynamodb.cluster.map.capacity";
+  // Optional file the cluster map capacity is also written to. Tasks read it again whenever they
+  // recalculate their throughput, so rewriting it adjusts the throughput of a running job.
+  String CLUSTER_MAP_CAPACITY_FILE = "dynamodb.cluster.map.capacity.file";
   String DEFAULT_THROUGHPUT_PERCENTAGE = "0.5";
   String DEFAULT_THROUGHPUT_AUTOSCALING = "true";
   String BILLING_MODE_PROVISIONED = BillingMode.PROVISIONED.toString();
@@ -78,6 +86,19 @@ public interface DynamoDBConstants {
   String MAX_BATCH_SIZE = "dynamodb.max.batch.size";
   String MAX_ITEMS_PER_BATCH = "dynamodb.max.batch.items";
 
+  // Number of BatchWriteItem requests a record writer keeps in flight. With the default of 1,
+  // batches are written synchronously on the calling thread.
+  String MAX_CONCURRENT_BATCH_WRITES = "dynamodb.write.batch.concurrency";
+  int DEFAULT_MAX_CONCURRENT_BATCH_WRITES = 1;
+  // Upper bound on the bytes held by batches that have been handed off but not yet written
+  String MAX_IN_FLIGHT_BATCH_BYTES = "dynamodb.write.batch.inflight.bytes";
+  long DEFAULT_MAX_IN_FLIGHT_BATCH_BYTES = 64 * 1024 * 1024;
+
+  // How long a table description is reused by the clients of a JVM before DescribeTable is called
+  // again. 0 disables the cache.
+  String DESCRIBE_TABLE_CACHE_TTL = "dynamodb.describe.table.cache.ttl.ms";
+  long DEFAULT_DESCRIBE_TABLE_CACHE_TTL = 60 * 1000;
+
   String DELETION_MODE = "dynamodb.deletion.mode";
   boolean DEFAULT_DELETION_MODE = false;
 
@@ -93,6 +114,7 @@ public interface DynamoDBConstants {
   long DEFAULT_MAX_ITEM_SIZE = 400 * 1024;
   long DEFAULT_MAX_BATCH_SIZE = 16 * 1024 * 1024;
   long DEFAULT_MAX_ITEMS_PER_BATCH = 25;
+  int MAX_KEYS_PER_BATCH_GET = 100;
 
   double READ_EVENTUALLY_TO_STRONGLY_CONSISTENT_FACTOR = 2;
 
@@ -106,10 +128,84 @@ public interface DynamoDBConstants {
   long MAX_BYTES_PER_SEGMENT = 100 * 1024L * 1024L; // At most 100 MB per segment
   double MIN_IO_PER_SEGMENT = 100.0;
 
+  // Largest number of hash key values a query is fanned out to, running one Query per value,
+  // rather than scanning the table
+  String MAX_QUERY_FAN_OUT = "dynamodb.query.fanout.max";
+  int DEFAULT_MAX_QUERY_FAN_OUT = 1000;
+
+  // Number of Query requests a query with a range key BETWEEN condition is split into, each
+  // reading a partition of the range in a segment of its own
+  String QUERY_RANGE_SEGMENTS = "dynamodb.query.range.segments";
+  int DEFAULT_QUERY_RANGE_SEGMENTS = 1;
+
+  // Largest number of primary keys that are read with BatchGetItem when the predicate fixes all
+  // the key attributes, rather than querying or scanning the table
+  String MAX_BATCH_GET_KEYS = "dynamodb.batchget.keys.max";
+  int DEFAULT_MAX_BATCH_GET_KEYS = 10000;
+
+  // Upper bound on the read workers, i.e. concurrent Scan/Query requests, of a record reader
+  String MAX_READ_WORKERS = "dynamodb.read.workers.max";
+  int DEFAULT_MAX_READ_WORKERS = 30;
+  // Class of the ConcurrencyController that decides how many read workers a record reader runs
+  String READ_CONCURRENCY_CONTROLLER = "dynamodb.read.concurrency.controller";
+  // Expected latency of a read request, from which the initial number of read workers is derived
+  String READ_LATENCY_ESTIMATE = "dynamodb.read.latency.estimate.ms";
+  long DEFAULT_READ_LATENCY_ESTIMATE = 50;
+
   int PSCAN_SEGMENT_BATCH_SIZE = 50;
   int PSCAN_MULTIPLEXER_CAPACITY = 600;
+  // Estimated item bytes a record reader buffers before its workers are throttled. When unset, a
+  // fraction of the maximum heap is used, as decoded items take several times their size in memory.
+  String PSCAN_MULTIPLEXER_CAPACITY_BYTES = "dynamodb.read.buffer.bytes";
+  double DEFAULT_PSCAN_MULTIPLEXER_HEAP_FRACTION = 0.05;
   int RATE_CONTROLLER_WINDOW_SIZE_SEC = 5;
 
+  // Directory the running tasks of a job lease their share of its read capacity in, so that the
+  // capacity of the tasks that finished is taken over by the others. When unset, each task reads at
+  // the share of the segments of its split.
+  String READ_CAPACITY_LEASE_DIR = "dynamodb.read.capacity.lease.dir";
+  String READ_CAPACITY_LEASE_INTERVAL = "dynamodb.read.capacity.lease.interval.ms";
+  long DEFAULT_READ_CAPACITY_LEASE_INTERVAL = 30 * 1000;
+
+  // Directory shared by the jobs that read or write the same table at the same time. When set, the
+  // lowest of their throughput percentages is the share of the table capacity all those jobs use
+  // together, which is divided between the jobs in proportion to their weight.
+  String TABLE_CAPACITY_LEASE_DIR = "dynamodb.table.capacity.lease.dir";
+  String TABLE_CAPACITY_LEASE_WEIGHT = "dynamodb.table.capacity.lease.weight";
+  double DEFAULT_TABLE_CAPACITY_LEASE_WEIGHT = 1.0;
+  String TABLE_CAPACITY_LEASE_INTERVAL = "dynamodb.table.capacity.lease.interval.ms";
+  long DEFAULT_TABLE_CAPACITY_LEASE_INTERVAL = 60 * 1000;
+
+  // Group of the state the record readers of a job share in the directories below, i.e. the
+  // directory each of them is kept under, which is deleted once the job is over with
+  // ReadStateDirs#deleteGroup. Defaults to the Hive query ID, or else to the job ID.
+  String READ_STATE_GROUP = "dynamodb.read.state.group";
+
+  // Directory the record readers of a scan checkpoint the progress of their segments to, one file
+  // per split, so that a retried task resumes its segments where the failed attempt left off.
+  // Items the failed attempt handed out after its last checkpoint are read again, and those before
+  // are not, so this is only meant for jobs whose output is written as the items are processed,
+  // e.g. copies to another table, rather than committed when the task succeeds. Jobs with reducers
+  // or a file output format are rejected when they are planned. An item only counts as processed
+  // once the record reader is asked for the next item or row batch.
+  String SCAN_CHECKPOINT_DIR = "dynamodb.scan.checkpoint.dir";
+  String SCAN_CHECKPOINT_INTERVAL = "dynamodb.scan.checkpoint.interval.ms";
+  long DEFAULT_SCAN_CHECKPOINT_INTERVAL = 60 * 1000;
+
+  // Directory the record readers of a scan claim their segments in. When set, the table is split
+  // into more segments than there are splits, and a record reader that is done with the segments
+  // of its split claims segments of other splits nobody started yet. Claims are owned by task
+  // attempts, so the task attempt ID must be set in the configuration of the record readers.
+  String SCAN_SEGMENT_CLAIM_DIR = "dynamodb.scan.segments.claim.dir";
+  // Number of segments per map task a scan is split into when segments are claimed
+  String SCAN_SEGMENTS_PER_MAPPER = "dynamodb.scan.segments.per.mapper";
+  int DEFAULT_SCAN_SEGMENTS_PER_MAPPER = 8;
+
+  // Whether a record reader splits the segments it has not started scanning when it has fewer
+  // segments left than read workers
+  String SCAN_SEGMENT_SUBDIVISION = "dynamodb.scan.segments.subdivide";
+  boolean DEFAULT_SCAN_SEGMENT_SUBDIVISION = true;
+
   String EXPORT_FORMAT_VERSION = "dynamodb.export.format.version";
   String DEFAULT_AWS_REGION = Region.US_EAST_1.toString();
 
@@ -25,6 +25,7 @@ import org.apache.hadoop.mapred.Reporter;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Duration;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.exception.SdkException;
 
@@ -46,6 +47,7 @@ public class DynamoDBFibonacciRetryer {
   }
 
   private final Duration retryPeriod;
+  private final boolean retryThrottles;
   private final Random random = new Random(System.currentTimeMillis());
   private volatile boolean isShutdown;
   private int fib1 = 0;
@@ -53,7 +55,34 @@ public class DynamoDBFibonacciRetryer {
   private int retryCount;
 
   public DynamoDBFibonacciRetryer(Duration retryPeriod) {
+    this(retryPeriod, true);
+  }
+
+  /**
+   * @param retryThrottles whether throttled calls are retried. If not, throttling exceptions are
+   *                       thrown right away, for the caller to back off without blocking.
+   */
+  public DynamoDBFibonacciRetryer(Duration retryPeriod, boolean retryThrottles) {
     this.retryPeriod = retryPeriod;
+    this.retryThrottles = retryThrottles;
+  }
+
+  /**
+   * @return whether the exception, or one of its causes, is a throttling exception of DynamoDB
+   */
+  public static boolean isThrottleException(Throwable exception) {
+    for (Throwable e = exception; e != null; e = e.getCause()) {
+      if (e instanceof AwsServiceException) {
+        AwsErrorDetails details = ((AwsServiceException) e).awsErrorDetails();
+        if (details != null && throttleErrorCodes.contains(details.errorCode())) {
+          return true;
+        }
+      }
+      if (e.getCause() == e) {
+        break;
+      }
+    }
+    return false;
   }
 
   /*
@@ -99,7 +128,9 @@ public class DynamoDBFibonacciRetryer {
       if (exception instanceof AwsServiceException) {
         AwsServiceException ase = (AwsServiceException) exception;
         if (throttleErrorCodes.contains(ase.awsErrorDetails().errorCode())) {
-          // Retry exception
+          if (!retryThrottles) {
+            throw new RuntimeException(exception);
+          }
         } else if (internalErrorStatusCodes.contains(
             ase.awsErrorDetails().sdkHttpResponse().statusCode())) {
           // Retry exception
@@ -14,6 +14,7 @@
 package org.apache.hadoop.dynamodb;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
 import com.google.gson.reflect.TypeToken;
 import java.io.ByteArrayInputStream;
 import java.io.DataInput;
@@ -21,11 +22,15 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
-import java.lang.Math;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 public class DynamoDBItemWritable implements Writable, Serializable {
@@ -38,6 +43,22 @@ public class DynamoDBItemWritable implements Writable, Serializable {
   static final String END_OF_TEXT = Character.toString((char) 03);
   private static final char FIRST_MAGIC_BYTES = 0x0001;
   private static final byte NEXT_MAGIC_BYTE = 0x00;
+  // Follows FIRST_MAGIC_BYTES in the binary format, which is what write() produces
+  private static final byte BINARY_MAGIC_BYTE = (byte) 0xb1;
+  private static final byte BINARY_FORMAT_VERSION = 1;
+
+  // Type tags of the attribute values in the binary format
+  private static final byte NULL_VALUE_TAG = 0;
+  private static final byte STRING_TAG = 1;
+  private static final byte NUMBER_TAG = 2;
+  private static final byte BINARY_TAG = 3;
+  private static final byte STRING_SET_TAG = 4;
+  private static final byte NUMBER_SET_TAG = 5;
+  private static final byte BINARY_SET_TAG = 6;
+  private static final byte MAP_TAG = 7;
+  private static final byte LIST_TAG = 8;
+  private static final byte BOOLEAN_TAG = 9;
+  private static final byte NULL_TAG = 10;
 
   private Map<String, AttributeValue> dynamoDBItem;
 
@@ -55,41 +76,50 @@ public class DynamoDBItemWritable implements Writable, Serializable {
   // format itself and make sure that's backward compatible.
   @Override
   public void readFields(DataInput in) throws IOException {
-    readFieldsStream(readStringFromDataInput(in));
+    char firstBytes = in.readChar();
+    if (firstBytes == FIRST_MAGIC_BYTES) {
+      byte nextByte = in.readByte();
+      if (nextByte == BINARY_MAGIC_BYTE) {
+        readBinary(in);
+        return;
+      }
+      readFieldsStream(readStringFromDataInput(in, firstBytes, nextByte));
+    } else {
+      readFieldsStream(readStringFromDataInput(in, firstBytes));
+    }
   }
 
   // Reads what might be either the result of a single call to
   // DataOutput.writeUTF() (serialized with a previous version of this class) or
-  // the current chunked format.  DataOutput.writeUTF8 writes a two byte length
+  // the chunked format.  DataOutput.writeUTF8 writes a two byte length
   // (in number of bytes) field, and then writes "modified UTF8" to encode the
   // string.  Crucially, in that modified UTF8 format the null character
   // '\u0000' is always written with two bytes.  Thus the sequence 00000000
   // 00000001 00000000 will not occur as a result of DataOutput.writeUTF and so
-  // we use it as a magic sequence signifying the chunked format.
-  private String readStringFromDataInput(DataInput in) throws IOException {
-    byte[] data;
-    char firstBytes = in.readChar();
-
-    if (firstBytes == FIRST_MAGIC_BYTES) {
-      byte nextByte = in.readByte();
-      if (nextByte == NEXT_MAGIC_BYTE) {
-        // After those three magic bytes the real input begins
-        return readChunks(in);
-      } else {
-        data = new byte[3];
-        data[0] = (byte) (firstBytes >> 8);
-        data[1] = (byte) firstBytes;
-        data[2] = nextByte;
-      }
-    } else {
-      data = new byte[firstBytes + 2];
-      data[0] = (byte) (firstBytes >> 8);
-      data[1] = (byte) firstBytes;
-      in.readFully(data, 2, firstBytes);
+  // we use it as a magic sequence signifying the chunked format.  Likewise a
+  // single byte above 0x7f is never a whole modified UTF8 string, and the
+  // binary format starts with 00000000 00000001 10110001.
+  private String readStringFromDataInput(DataInput in, char firstBytes, byte nextByte)
+      throws IOException {
+    if (nextByte == NEXT_MAGIC_BYTE) {
+      // After those three magic bytes the real input begins
+      return readChunks(in);
     }
 
-    // In case the read bytes are not from the new input format, back up and
+    // In case the read bytes are not from the chunked format, back up and
     // return the result readUTF would have returned
+    byte[] data = new byte[3];
+    data[0] = (byte) (firstBytes >> 8);
+    data[1] = (byte) firstBytes;
+    data[2] = nextByte;
+    return new DataInputStream(new ByteArrayInputStream(data)).readUTF();
+  }
+
+  private String readStringFromDataInput(DataInput in, char firstBytes) throws IOException {
+    byte[] data = new byte[firstBytes + 2];
+    data[0] = (byte) (firstBytes >> 8);
+    data[1] = (byte) firstBytes;
+    in.readFully(data, 2, firstBytes);
     return new DataInputStream(new ByteArrayInputStream(data)).readUTF();
   }
 
@@ -105,21 +135,180 @@ public class DynamoDBItemWritable implements Writable, Serializable {
 
   @Override
   public void write(DataOutput out) throws IOException {
-    String whole = writeStream();
-    int chunkSize = 1 << 14;
-    int chunks = whole.length() / chunkSize;
-    if (whole.length() % chunkSize != 0) {
-      chunks += 1;
+    out.writeChar(FIRST_MAGIC_BYTES);
+    out.writeByte(BINARY_MAGIC_BYTE);
+    out.writeByte(BINARY_FORMAT_VERSION);
+
+    // The number of attributes is shifted by one so that a null item can be told apart
+    if (dynamoDBItem == null) {
+      WritableUtils.writeVInt(out, 0);
+      return;
     }
+    WritableUtils.writeVInt(out, dynamoDBItem.size() + 1);
+    writeAttributes(out, dynamoDBItem);
+  }
 
-    out.writeChar(FIRST_MAGIC_BYTES);
-    out.write(new byte[]{NEXT_MAGIC_BYTE});
+  private void readBinary(DataInput in) throws IOException {
+    byte version = in.readByte();
+    if (version != BINARY_FORMAT_VERSION) {
+      throw new IOException("Unsupported item format version " + version);
+    }
+
+    int size = WritableUtils.readVInt(in);
+    dynamoDBItem = size == 0 ? null : readAttributes(in, size - 1);
+  }
+
+  private static void writeAttributes(DataOutput out, Map<String, AttributeValue> attributes)
+      throws IOException {
+    for (Map.Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+      Text.writeString(out, attribute.getKey());
+      writeAttributeValue(out, attribute.getValue());
+    }
+  }
 
-    out.writeInt(chunks);
-    for (int c = 0; c < chunks; c++) {
-      String chunk = whole.substring(c * chunkSize, Math.min((c + 1) * chunkSize, whole.length()));
-      out.writeUTF(chunk);
+  private static Map<String, AttributeValue> readAttributes(DataInput in, int size)
+      throws IOException {
+    Map<String, AttributeValue> attributes = new HashMap<>(Math.max(4, size * 4 / 3 + 1));
+    for (int i = 0; i < size; i++) {
+      attributes.put(Text.readString(in), readAttributeValue(in));
     }
+    return attributes;
+  }
+
+  /**
+   * Writes an attribute value, which may be null, in the binary format of {@link #write}.
+   */
+  public static void writeAttributeValue(DataOutput out, AttributeValue value)
+      throws IOException {
+    if (value == null) {
+      out.writeByte(NULL_VALUE_TAG);
+      return;
+    }
+
+    switch (value.type()) {
+      case S:
+        out.writeByte(STRING_TAG);
+        Text.writeString(out, value.s());
+        break;
+      case N:
+        out.writeByte(NUMBER_TAG);
+        Text.writeString(out, value.n());
+        break;
+      case B:
+        out.writeByte(BINARY_TAG);
+        writeBytes(out, value.b());
+        break;
+      case SS:
+        out.writeByte(STRING_SET_TAG);
+        writeStrings(out, value.ss());
+        break;
+      case NS:
+        out.writeByte(NUMBER_SET_TAG);
+        writeStrings(out, value.ns());
+        break;
+      case BS:
+        out.writeByte(BINARY_SET_TAG);
+        WritableUtils.writeVInt(out, value.bs().size());
+        for (SdkBytes bytes : value.bs()) {
+          writeBytes(out, bytes);
+        }
+        break;
+      case M:
+        out.writeByte(MAP_TAG);
+        WritableUtils.writeVInt(out, value.m().size());
+        writeAttributes(out, value.m());
+        break;
+      case L:
+        out.writeByte(LIST_TAG);
+        WritableUtils.writeVInt(out, value.l().size());
+        for (AttributeValue element : value.l()) {
+          writeAttributeValue(out, element);
+        }
+        break;
+      case BOOL:
+        out.writeByte(BOOLEAN_TAG);
+        out.writeBoolean(value.bool());
+        break;
+      case NUL:
+        out.writeByte(NULL_TAG);
+        out.writeBoolean(value.nul());
+        break;
+      default:
+        throw new IOException("Unsupported attribute value " + value);
+    }
+  }
+
+  /**
+   * Reads an attribute value written by {@link #writeAttributeValue(DataOutput, AttributeValue)}.
+   */
+  public static AttributeValue readAttributeValue(DataInput in) throws IOException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NULL_VALUE_TAG:
+        return null;
+      case STRING_TAG:
+        return AttributeValue.fromS(Text.readString(in));
+      case NUMBER_TAG:
+        return AttributeValue.fromN(Text.readString(in));
+      case BINARY_TAG:
+        return AttributeValue.fromB(readBytes(in));
+      case STRING_SET_TAG:
+        return AttributeValue.fromSs(readStrings(in));
+      case NUMBER_SET_TAG:
+        return AttributeValue.fromNs(readStrings(in));
+      case BINARY_SET_TAG: {
+        int size = WritableUtils.readVInt(in);
+        List<SdkBytes> bytes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          bytes.add(readBytes(in));
+        }
+        return AttributeValue.fromBs(bytes);
+      }
+      case MAP_TAG:
+        return AttributeValue.fromM(readAttributes(in, WritableUtils.readVInt(in)));
+      case LIST_TAG: {
+        int size = WritableUtils.readVInt(in);
+        List<AttributeValue> elements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          elements.add(readAttributeValue(in));
+        }
+        return AttributeValue.fromL(elements);
+      }
+      case BOOLEAN_TAG:
+        return AttributeValue.fromBool(in.readBoolean());
+      case NULL_TAG:
+        return AttributeValue.fromNul(in.readBoolean());
+      default:
+        throw new IOException("Unknown attribute value type tag " + tag);
+    }
+  }
+
+  private static void writeStrings(DataOutput out, List<String> strings) throws IOException {
+    WritableUtils.writeVInt(out, strings.size());
+    for (String string : strings) {
+      Text.writeString(out, string);
+    }
+  }
+
+  private static List<String> readStrings(DataInput in) throws IOException {
+    int size = WritableUtils.readVInt(in);
+    List<String> strings = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      strings.add(Text.readString(in));
+    }
+    return strings;
+  }
+
+  private static void writeBytes(DataOutput out, SdkBytes bytes) throws IOException {
+    byte[] array = bytes.asByteArrayUnsafe();
+    WritableUtils.writeVInt(out, array.length);
+    out.write(array);
+  }
+
+  private static SdkBytes readBytes(DataInput in) throws IOException {
+    byte[] array = new byte[WritableUtils.readVInt(in)];
+    in.readFully(array);
+    return SdkBytes.fromByteArrayUnsafe(array);
   }
 
   public void readFieldsStream(String string) {
@@ -133,6 +322,21 @@ public class DynamoDBItemWritable implements Writable, Serializable {
     return gson.toJson(dynamoDBItem, type);
   }
 
+  /**
+   * Appends the JSON returned by {@link #writeStream()} to a writer, without building the string.
+   */
+  public void writeStream(Appendable writer) throws IOException {
+    Gson gson = DynamoDBUtil.getGson();
+    try {
+      gson.toJson(dynamoDBItem, type, writer);
+    } catch (JsonIOException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   public Map<String, AttributeValue> getItem() {
     return dynamoDBItem;
   }
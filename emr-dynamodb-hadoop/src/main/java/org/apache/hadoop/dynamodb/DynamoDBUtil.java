@@ -20,9 +20,11 @@ import static org.apache.hadoop.dynamodb.DynamoDBConstants.MAX_ITEMS_PER_BATCH;
 import com.google.common.base.Strings;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializationContext;
@@ -54,6 +56,10 @@ import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.internal.util.EC2MetadataUtils;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.LocalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
 import software.amazon.awssdk.services.dynamodb.model.TableDescription;
 
 public final class DynamoDBUtil {
@@ -62,6 +68,18 @@ public final class DynamoDBUtil {
   private static final Log log = LogFactory.getLog(DynamoDBUtil.class);
   private static final Gson gson;
 
+  // Field names of the serialized table schema, following the DescribeTable response
+  private static final String TABLE_NAME_FIELD = "TableName";
+  private static final String KEY_SCHEMA_FIELD = "KeySchema";
+  private static final String ATTRIBUTE_NAME_FIELD = "AttributeName";
+  private static final String KEY_TYPE_FIELD = "KeyType";
+  private static final String LOCAL_SECONDARY_INDEXES_FIELD = "LocalSecondaryIndexes";
+  private static final String GLOBAL_SECONDARY_INDEXES_FIELD = "GlobalSecondaryIndexes";
+  private static final String INDEX_NAME_FIELD = "IndexName";
+  private static final String PROJECTION_FIELD = "Projection";
+  private static final String PROJECTION_TYPE_FIELD = "ProjectionType";
+  private static final String NON_KEY_ATTRIBUTES_FIELD = "NonKeyAttributes";
+
   static {
     GsonBuilder gsonBuilder = new GsonBuilder();
     /* We hand serialize/deserialize ByteBuffer objects. */
@@ -69,8 +87,7 @@ public final class DynamoDBUtil {
     gsonBuilder.registerTypeAdapter(ByteBuffer.class, new ByteBufferDeserializer());
     gsonBuilder.registerTypeAdapter(SdkBytes.class, new SdkBytesSerializer());
     gsonBuilder.registerTypeAdapter(SdkBytes.class, new SdkBytesDeserializer());
-    gsonBuilder.registerTypeAdapter(AttributeValue.class, new AttributeValueSerializer());
-    gsonBuilder.registerTypeAdapter(AttributeValue.class, new AttributeValueDeserializer());
+    gsonBuilder.registerTypeAdapter(AttributeValue.class, new AttributeValueTypeAdapter());
 
     gson = gsonBuilder.disableHtmlEscaping().create();
   }
@@ -144,7 +161,76 @@ public final class DynamoDBUtil {
     return gson;
   }
 
-  static int getItemSizeBytes(Map<String, AttributeValue> item) {
+  /**
+   * Serializes the key schema and secondary indexes of a table, i.e. the part of its description
+   * that does not change while a job runs, so that tasks do not need to describe the table again.
+   *
+   * @param description table description returned by DescribeTable
+   * @return JSON representation of the table schema
+   */
+  public static String serializeTableSchema(TableDescription description) {
+    JsonObject schema = new JsonObject();
+    schema.addProperty(TABLE_NAME_FIELD, description.tableName());
+    schema.add(KEY_SCHEMA_FIELD, serializeKeySchema(description.keySchema()));
+    if (description.hasLocalSecondaryIndexes()) {
+      JsonArray indexes = new JsonArray();
+      for (LocalSecondaryIndexDescription index : description.localSecondaryIndexes()) {
+        indexes.add(serializeIndex(index.indexName(), index.keySchema(), index.projection()));
+      }
+      schema.add(LOCAL_SECONDARY_INDEXES_FIELD, indexes);
+    }
+    if (description.hasGlobalSecondaryIndexes()) {
+      JsonArray indexes = new JsonArray();
+      for (GlobalSecondaryIndexDescription index : description.globalSecondaryIndexes()) {
+        indexes.add(serializeIndex(index.indexName(), index.keySchema(), index.projection()));
+      }
+      schema.add(GLOBAL_SECONDARY_INDEXES_FIELD, indexes);
+    }
+    return gson.toJson(schema);
+  }
+
+  /**
+   * Reverses {@link #serializeTableSchema(TableDescription)}. The returned description only
+   * carries the table name, key schema and secondary indexes.
+   *
+   * @param json JSON representation of the table schema
+   * @return table description holding the table schema
+   */
+  public static TableDescription deserializeTableSchema(String json) {
+    JsonObject schema = gson.fromJson(json, JsonObject.class);
+    TableDescription.Builder description = TableDescription.builder()
+        .keySchema(deserializeKeySchema(schema.getAsJsonArray(KEY_SCHEMA_FIELD)));
+    if (schema.has(TABLE_NAME_FIELD)) {
+      description.tableName(schema.get(TABLE_NAME_FIELD).getAsString());
+    }
+    if (schema.has(LOCAL_SECONDARY_INDEXES_FIELD)) {
+      List<LocalSecondaryIndexDescription> indexes = new ArrayList<>();
+      for (JsonElement element : schema.getAsJsonArray(LOCAL_SECONDARY_INDEXES_FIELD)) {
+        JsonObject index = element.getAsJsonObject();
+        indexes.add(LocalSecondaryIndexDescription.builder()
+            .indexName(index.get(INDEX_NAME_FIELD).getAsString())
+            .keySchema(deserializeKeySchema(index.getAsJsonArray(KEY_SCHEMA_FIELD)))
+            .projection(deserializeProjection(index.getAsJsonObject(PROJECTION_FIELD)))
+            .build());
+      }
+      description.localSecondaryIndexes(indexes);
+    }
+    if (schema.has(GLOBAL_SECONDARY_INDEXES_FIELD)) {
+      List<GlobalSecondaryIndexDescription> indexes = new ArrayList<>();
+      for (JsonElement element : schema.getAsJsonArray(GLOBAL_SECONDARY_INDEXES_FIELD)) {
+        JsonObject index = element.getAsJsonObject();
+        indexes.add(GlobalSecondaryIndexDescription.builder()
+            .indexName(index.get(INDEX_NAME_FIELD).getAsString())
+            .keySchema(deserializeKeySchema(index.getAsJsonArray(KEY_SCHEMA_FIELD)))
+            .projection(deserializeProjection(index.getAsJsonObject(PROJECTION_FIELD)))
+            .build());
+      }
+      description.globalSecondaryIndexes(indexes);
+    }
+    return description.build();
+  }
+
+  public static int getItemSizeBytes(Map<String, AttributeValue> item) {
     try {
       int itemSize = 0;
       for (Entry<String, AttributeValue> entry : item.entrySet()) {
@@ -359,6 +445,64 @@ public final class DynamoDBUtil {
     return Math.max(splitSize, averageItemSize * approxItemCountPerSplit);
   }
 
+  private static JsonObject serializeIndex(String indexName, List<KeySchemaElement> keySchema,
+      Projection projection) {
+    JsonObject index = new JsonObject();
+    index.addProperty(INDEX_NAME_FIELD, indexName);
+    index.add(KEY_SCHEMA_FIELD, serializeKeySchema(keySchema));
+    JsonObject serializedProjection = new JsonObject();
+    if (projection != null) {
+      serializedProjection.addProperty(PROJECTION_TYPE_FIELD, projection.projectionTypeAsString());
+      if (projection.hasNonKeyAttributes()) {
+        JsonArray nonKeyAttributes = new JsonArray();
+        projection.nonKeyAttributes().forEach(nonKeyAttributes::add);
+        serializedProjection.add(NON_KEY_ATTRIBUTES_FIELD, nonKeyAttributes);
+      }
+    }
+    index.add(PROJECTION_FIELD, serializedProjection);
+    return index;
+  }
+
+  private static JsonArray serializeKeySchema(List<KeySchemaElement> keySchema) {
+    JsonArray elements = new JsonArray();
+    for (KeySchemaElement keySchemaElement : keySchema) {
+      JsonObject element = new JsonObject();
+      element.addProperty(ATTRIBUTE_NAME_FIELD, keySchemaElement.attributeName());
+      element.addProperty(KEY_TYPE_FIELD, keySchemaElement.keyTypeAsString());
+      elements.add(element);
+    }
+    return elements;
+  }
+
+  private static List<KeySchemaElement> deserializeKeySchema(JsonArray elements) {
+    List<KeySchemaElement> keySchema = new ArrayList<>();
+    for (JsonElement element : elements) {
+      JsonObject keySchemaElement = element.getAsJsonObject();
+      KeySchemaElement.Builder builder = KeySchemaElement.builder()
+          .attributeName(keySchemaElement.get(ATTRIBUTE_NAME_FIELD).getAsString());
+      if (keySchemaElement.has(KEY_TYPE_FIELD)) {
+        builder.keyType(keySchemaElement.get(KEY_TYPE_FIELD).getAsString());
+      }
+      keySchema.add(builder.build());
+    }
+    return keySchema;
+  }
+
+  private static Projection deserializeProjection(JsonObject projection) {
+    if (!projection.has(PROJECTION_TYPE_FIELD)) {
+      return null;
+    }
+    Projection.Builder builder = Projection.builder()
+        .projectionType(projection.get(PROJECTION_TYPE_FIELD).getAsString());
+    if (projection.has(NON_KEY_ATTRIBUTES_FIELD)) {
+      List<String> nonKeyAttributes = new ArrayList<>();
+      projection.getAsJsonArray(NON_KEY_ATTRIBUTES_FIELD)
+          .forEach(attribute -> nonKeyAttributes.add(attribute.getAsString()));
+      builder.nonKeyAttributes(nonKeyAttributes);
+    }
+    return builder.build();
+  }
+
   /**
    * Since ByteBuffer does not have a no-arg constructor we hand serialize/deserialize them.
    */
@@ -16,7 +16,7 @@ package org.apache.hadoop.dynamodb;
 /*
  * These are a list of counters printed at the end of each Map Reduce job.
  */
-enum PrintCounter {
+public enum PrintCounter {
 
   DynamoDBReadThrottle("DynamoDB", "RetriedReadExceptions"), DynamoDBWriteThrottle("DynamoDB",
       "RetriedWriteExceptions");
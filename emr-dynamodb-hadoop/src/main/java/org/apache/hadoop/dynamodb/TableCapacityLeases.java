@@ -0,0 +1,213 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+
+/**
+ * Shares the capacity of a table between the jobs reading or writing it at the same time. The
+ * tasks of a job hold lease files in a directory per table and operation, which record the
+ * weight and the throughput percentage of the job. The jobs share the lowest of their percentages,
+ * each in proportion to its weight, so the budget of the table does not depend on which job asks.
+ * Leases are renewed in the background, so they do not depend on how often the capacity is
+ * recalculated. Jobs whose
+ * tasks all stopped renewing their leases are no longer counted, and their lease files are
+ * deleted.
+ */
+public class TableCapacityLeases {
+
+  private static final Log log = LogFactory.getLog(TableCapacityLeases.class);
+
+  // Separates the job from the task attempt in the name of a lease file
+  private static final char JOB_SEPARATOR = '.';
+  // Number of renewal intervals after which the lease of a task that stopped renewing it expires
+  private static final int LEASE_EXPIRY_INTERVALS = 3;
+
+  private final FileSystem fs;
+  private final Path dir;
+  private final String jobId;
+  private final Path leaseFile;
+  private final double weight;
+  private final double throughputPercent;
+  private final long renewalIntervalMs;
+  private final AbstractTimeSource time;
+  private final ScheduledExecutorService renewer;
+  private long lastRenewalNano;
+  private boolean renewed;
+  private boolean closed;
+  private double percent;
+
+  TableCapacityLeases(FileSystem fs, Path dir, String jobId, String taskId, double weight,
+      double throughputPercent, long renewalIntervalMs, AbstractTimeSource time) {
+    this.fs = fs;
+    this.dir = dir;
+    this.jobId = jobId;
+    this.leaseFile = new Path(dir, jobId + JOB_SEPARATOR + taskId);
+    this.weight = weight;
+    this.throughputPercent = throughputPercent;
+    this.percent = throughputPercent;
+    this.renewalIntervalMs = renewalIntervalMs;
+    this.time = time;
+    this.renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "TableCapacityLeaseRenewer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    renewer.scheduleAtFixedRate(this::renewShare, renewalIntervalMs, renewalIntervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return the leases of the task on the capacity of a table, or null if
+   *         {@link DynamoDBConstants#TABLE_CAPACITY_LEASE_DIR} is not set
+   */
+  public static TableCapacityLeases open(JobConf conf, String tableName,
+      DynamoDBOperationType operationType, double throughputPercent, AbstractTimeSource time)
+      throws IOException {
+    String dir = conf.get(DynamoDBConstants.TABLE_CAPACITY_LEASE_DIR);
+    if (dir == null) {
+      return null;
+    }
+
+    Path tableDir = new Path(new Path(dir, tableName),
+        operationType.name().toLowerCase(Locale.ROOT));
+    String jobId = conf.get(MRJobConfig.ID);
+    String taskId = conf.get(MRJobConfig.TASK_ATTEMPT_ID);
+    if (jobId == null || taskId == null) {
+      throw new IOException("Table capacity leases are held by task attempts, but "
+          + MRJobConfig.ID + " or " + MRJobConfig.TASK_ATTEMPT_ID + " is not set");
+    }
+    double weight = conf.getDouble(DynamoDBConstants.TABLE_CAPACITY_LEASE_WEIGHT,
+        DynamoDBConstants.DEFAULT_TABLE_CAPACITY_LEASE_WEIGHT);
+    if (weight <= 0) {
+      throw new IllegalArgumentException("Invalid capacity lease weight: " + weight);
+    }
+    long renewalIntervalMs = conf.getLong(DynamoDBConstants.TABLE_CAPACITY_LEASE_INTERVAL,
+        DynamoDBConstants.DEFAULT_TABLE_CAPACITY_LEASE_INTERVAL);
+    return new TableCapacityLeases(tableDir.getFileSystem(conf), tableDir,
+        jobId.replace(JOB_SEPARATOR, '_'), taskId, weight, throughputPercent, renewalIntervalMs,
+        time);
+  }
+
+  /**
+   * Renews the lease of the task if the background renewal fell behind.
+   *
+   * @return the throughput percentage of the table the job may use. The previous percentage is
+   *         kept if the lease could not be renewed.
+   */
+  public synchronized double getThroughputPercent() {
+    if (!renewed || time.getTimeSinceMs(lastRenewalNano) >= renewalIntervalMs) {
+      renewShare();
+    }
+    return percent;
+  }
+
+  private synchronized void renewShare() {
+    if (closed) {
+      return;
+    }
+    renewed = true;
+    lastRenewalNano = time.getNanoTime();
+    try {
+      percent = renew();
+      log.info("Throughput percent shared with the other jobs: " + percent);
+    } catch (IOException e) {
+      log.warn("Could not renew the table capacity lease, keeping a percent of " + percent, e);
+    }
+  }
+
+  double renew() throws IOException {
+    try (FSDataOutputStream out = fs.create(leaseFile, true)) {
+      out.writeDouble(weight);
+      out.writeDouble(throughputPercent);
+    }
+
+    FileStatus[] statuses = fs.listStatus(dir);
+    long renewedAt = 0;
+    for (FileStatus status : statuses) {
+      if (status.getPath().getName().equals(leaseFile.getName())) {
+        renewedAt = status.getModificationTime();
+      }
+    }
+
+    // The weight of each job with an unexpired lease, read from the first lease file of the job
+    Map<String, Double> jobWeights = new HashMap<>();
+    jobWeights.put(jobId, weight);
+    double tablePercent = throughputPercent;
+    for (FileStatus status : statuses) {
+      String name = status.getPath().getName();
+      int separator = name.indexOf(JOB_SEPARATOR);
+      if (separator < 0) {
+        continue;
+      }
+      if (status.getModificationTime() < renewedAt - renewalIntervalMs * LEASE_EXPIRY_INTERVALS) {
+        deleteExpiredLease(status.getPath());
+        continue;
+      }
+      if (jobWeights.containsKey(name.substring(0, separator))) {
+        continue;
+      }
+      try (FSDataInputStream in = fs.open(status.getPath())) {
+        jobWeights.put(name.substring(0, separator), in.readDouble());
+        tablePercent = Math.min(tablePercent, in.readDouble());
+      } catch (IOException e) {
+        // The lease expired and was cleaned up, or is being rewritten
+        log.debug("Could not read the capacity lease " + status.getPath(), e);
+      }
+    }
+
+    double totalWeight = 0;
+    for (double jobWeight : jobWeights.values()) {
+      totalWeight += jobWeight;
+    }
+    log.debug("Jobs sharing " + tablePercent + " of the table capacity: " + jobWeights);
+    return tablePercent * weight / totalWeight;
+  }
+
+  private void deleteExpiredLease(Path lease) {
+    try {
+      fs.delete(lease, false);
+    } catch (IOException e) {
+      // Another task deleted it first, or will delete it on its next renewal
+      log.debug("Could not delete the expired capacity lease " + lease, e);
+    }
+  }
+
+  /**
+   * Stops renewing the lease of the task and gives it up.
+   */
+  public void close() throws IOException {
+    renewer.shutdown();
+    synchronized (this) {
+      closed = true;
+      fs.delete(leaseFile, false);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.filter;
+
+import java.util.Collections;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * A DynamoDB condition expression together with the attribute name and value placeholders it
+ * references.
+ */
+public class DynamoDBExpression {
+
+  private final String expression;
+  private final Map<String, String> attributeNames;
+  private final Map<String, AttributeValue> attributeValues;
+
+  public DynamoDBExpression(String expression, Map<String, String> attributeNames,
+      Map<String, AttributeValue> attributeValues) {
+    this.expression = expression;
+    this.attributeNames = Collections.unmodifiableMap(attributeNames);
+    this.attributeValues = Collections.unmodifiableMap(attributeValues);
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  public Map<String, String> getAttributeNames() {
+    return attributeNames;
+  }
+
+  public Map<String, AttributeValue> getAttributeValues() {
+    return attributeValues;
+  }
+
+  @Override
+  public String toString() {
+    return expression + " names: " + attributeNames + " values: " + attributeValues;
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.Condition;
+
+/**
+ * Allocates expression attribute name and value placeholders and renders legacy {@link Condition}
+ * maps as expressions. DynamoDB rejects requests mixing legacy parameters (ScanFilter,
+ * KeyConditions, AttributesToGet) with expression parameters, so once a request carries an
+ * expression every other parameter has to be rendered through the same builder.
+ *
+ * <p>Placeholders are named after the given prefix, so expressions built by builders with
+ * different prefixes can be combined with {@link #include(DynamoDBExpression)}.
+ */
+public class DynamoDBExpressionBuilder {
+
+  private final String prefix;
+  private final Map<String, String> attributeNames = new HashMap<>();
+  private final Map<String, String> namePlaceholders = new HashMap<>();
+  private final Map<String, AttributeValue> attributeValues = new HashMap<>();
+  private int nameCount;
+  private int valueCount;
+
+  public DynamoDBExpressionBuilder(String prefix) {
+    this.prefix = prefix;
+  }
+
+  /**
+   * @return the placeholder standing for the given attribute name, allocating it on first use
+   */
+  public String name(String attributeName) {
+    String placeholder = namePlaceholders.get(attributeName);
+    if (placeholder == null) {
+      placeholder = "#" + prefix + nameCount++;
+      namePlaceholders.put(attributeName, placeholder);
+      attributeNames.put(placeholder, attributeName);
+    }
+    return placeholder;
+  }
+
+  /**
+   * @return a new placeholder standing for the given value
+   */
+  public String value(AttributeValue attributeValue) {
+    String placeholder = ":" + prefix + valueCount++;
+    attributeValues.put(placeholder, attributeValue);
+    return placeholder;
+  }
+
+  /**
+   * Renders a legacy condition the way DynamoDB documents its expression equivalent.
+   */
+  public String condition(String attributeName, Condition condition) {
+    String name = name(attributeName);
+    List<AttributeValue> values = condition.attributeValueList();
+    switch (condition.comparisonOperator()) {
+      case EQ:
+        return name + " = " + value(values.get(0));
+      case NE:
+        return name + " <> " + value(values.get(0));
+      case LE:
+        return name + " <= " + value(values.get(0));
+      case LT:
+        return name + " < " + value(values.get(0));
+      case GE:
+        return name + " >= " + value(values.get(0));
+      case GT:
+        return name + " > " + value(values.get(0));
+      case BETWEEN:
+        return name + " BETWEEN " + value(values.get(0)) + " AND " + value(values.get(1));
+      case BEGINS_WITH:
+        return "begins_with(" + name + ", " + value(values.get(0)) + ")";
+      case CONTAINS:
+        return "contains(" + name + ", " + value(values.get(0)) + ")";
+      case NOT_CONTAINS:
+        return "NOT contains(" + name + ", " + value(values.get(0)) + ")";
+      case NULL:
+        return "attribute_not_exists(" + name + ")";
+      case NOT_NULL:
+        return "attribute_exists(" + name + ")";
+      case IN:
+        List<String> placeholders = new ArrayList<>(values.size());
+        for (AttributeValue attributeValue : values) {
+          placeholders.add(value(attributeValue));
+        }
+        return name + " IN (" + String.join(", ", placeholders) + ")";
+      default:
+        throw new IllegalArgumentException("Unsupported comparison operator: "
+            + condition.comparisonOperatorAsString());
+    }
+  }
+
+  /**
+   * @return the conjunction of the given conditions, or null if there are none
+   */
+  public String conditions(Map<String, Condition> conditions) {
+    List<String> expressions = new ArrayList<>(conditions.size());
+    for (Entry<String, Condition> entry : conditions.entrySet()) {
+      expressions.add(condition(entry.getKey(), entry.getValue()));
+    }
+    return and(expressions);
+  }
+
+  /**
+   * Adopts the placeholders of an expression built elsewhere. Its attribute name placeholders are
+   * reused by later calls to {@link #name(String)}.
+   *
+   * @return the expression string, or null if the expression is null
+   */
+  public String include(DynamoDBExpression expression) {
+    if (expression == null) {
+      return null;
+    }
+    for (Entry<String, String> entry : expression.getAttributeNames().entrySet()) {
+      String existing = attributeNames.putIfAbsent(entry.getKey(), entry.getValue());
+      if (existing != null && !existing.equals(entry.getValue())) {
+        throw new IllegalArgumentException("Conflicting attribute name placeholder: "
+            + entry.getKey());
+      }
+      namePlaceholders.putIfAbsent(entry.getValue(), entry.getKey());
+    }
+    for (Entry<String, AttributeValue> entry : expression.getAttributeValues().entrySet()) {
+      if (attributeValues.putIfAbsent(entry.getKey(), entry.getValue()) != null) {
+        throw new IllegalArgumentException("Conflicting attribute value placeholder: "
+            + entry.getKey());
+      }
+    }
+    return expression.getExpression();
+  }
+
+  public Map<String, String> getAttributeNames() {
+    return attributeNames;
+  }
+
+  public Map<String, AttributeValue> getAttributeValues() {
+    return attributeValues;
+  }
+
+  public DynamoDBExpression build(String expression) {
+    return new DynamoDBExpression(expression, new HashMap<>(attributeNames),
+        new HashMap<>(attributeValues));
+  }
+
+  /**
+   * @return the conjunction of the non-null expressions, or null if there are none
+   */
+  public static String and(List<String> expressions) {
+    return join(expressions, " AND ");
+  }
+
+  /**
+   * @return the disjunction of the non-null expressions, or null if there are none
+   */
+  public static String or(List<String> expressions) {
+    return join(expressions, " OR ");
+  }
+
+  private static String join(List<String> expressions, String operator) {
+    List<String> operands = new ArrayList<>(expressions.size());
+    for (String expression : expressions) {
+      if (expression != null) {
+        operands.add(expression);
+      }
+    }
+    if (operands.isEmpty()) {
+      return null;
+    }
+    if (operands.size() == 1) {
+      return operands.get(0);
+    }
+    StringBuilder sb = new StringBuilder();
+    for (String operand : operands) {
+      if (sb.length() > 0) {
+        sb.append(operator);
+      }
+      sb.append('(').append(operand).append(')');
+    }
+    return sb.toString();
+  }
+}
@@ -13,16 +13,50 @@
 
 package org.apache.hadoop.dynamodb.filter;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
+import org.apache.hadoop.dynamodb.key.DynamoDBKey;
+import org.apache.hadoop.dynamodb.type.DynamoDBTypeFactory;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ComparisonOperator;
 import software.amazon.awssdk.services.dynamodb.model.Condition;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
 
-public class DynamoDBQueryFilter {
+/**
+ * The DynamoDB requests a predicate is pushed down into. The filter is compiled once when the job
+ * is planned, and written to the splits so that the record readers use it as is.
+ */
+public class DynamoDBQueryFilter implements Writable {
 
   private final Map<String, Condition> keyConditions = new HashMap<>();
   private final Map<String, Condition> scanFilter = new HashMap<>();
 
   private DynamoDBIndexInfo index;
+  private DynamoDBExpression filterExpression;
+  private String hashKeyName;
+  private List<AttributeValue> hashKeyValues = Collections.emptyList();
+  private List<Map<String, AttributeValue>> batchGetKeys = Collections.emptyList();
+  private String rangeKeyName;
+  private List<AttributeValue> rangeKeyBoundaries = Collections.emptyList();
+
+  // Set on the Query of a range key partition, which may also read the last item of the previous
+  // one, the first item of the next one, or an item at an exclusive bound of the range
+  private String segmentKeyName;
+  private DynamoDBKey segmentStartKey;
+  private DynamoDBKey segmentEndKey;
 
   public DynamoDBIndexInfo getIndex() {
     return index;
@@ -47,4 +81,415 @@ public class DynamoDBQueryFilter {
   public void addScanFilter(DynamoDBFilter filter) {
     this.scanFilter.put(filter.getColumnName(), filter.getDynamoDBCondition());
   }
+
+  /**
+   * @return a filter expression to apply on top of the key conditions and the scan filter, or
+   *         null if there is none
+   */
+  public DynamoDBExpression getFilterExpression() {
+    return filterExpression;
+  }
+
+  public void setFilterExpression(DynamoDBExpression filterExpression) {
+    this.filterExpression = filterExpression;
+  }
+
+  /**
+   * Fans the query out to one Query per hash key value. The key conditions then only hold the
+   * conditions shared by all of them.
+   */
+  public void setHashKeyValues(String hashKeyName, List<AttributeValue> hashKeyValues) {
+    this.hashKeyName = hashKeyName;
+    this.hashKeyValues = Collections.unmodifiableList(new ArrayList<>(hashKeyValues));
+  }
+
+  public List<AttributeValue> getHashKeyValues() {
+    return hashKeyValues;
+  }
+
+  /**
+   * Splits the query into one Query per partition of its range key condition, which must be a
+   * BETWEEN condition on a number or string range key.
+   *
+   * @return whether the query was split
+   */
+  public boolean setRangeKeyPartitions(String rangeKeyName, int partitions) {
+    Condition condition = keyConditions.get(rangeKeyName);
+    if (partitions < 2 || !hashKeyValues.isEmpty() || condition == null
+        || condition.comparisonOperator() != ComparisonOperator.BETWEEN) {
+      return false;
+    }
+    return setRangeKeyBoundaries(rangeKeyName, condition.attributeValueList().get(0),
+        condition.attributeValueList().get(1), partitions);
+  }
+
+  /**
+   * Splits the query into one Query per partition of the range key values between first and
+   * last, the smallest and the largest range key values of the items its key conditions match.
+   * This splits queries on the hash key alone, or with a range key condition of one bound. The
+   * first and the last partitions keep the bounds of that condition, or have none, so items
+   * written after first and last were read are still read.
+   *
+   * @return whether the query was split
+   */
+  public boolean setRangeKeyPartitions(String rangeKeyName, AttributeValue first,
+      AttributeValue last, int partitions) {
+    if (partitions < 2 || !hashKeyValues.isEmpty() || keyConditions.isEmpty()) {
+      return false;
+    }
+    return setRangeKeyBoundaries(rangeKeyName, first, last, partitions);
+  }
+
+  private boolean setRangeKeyBoundaries(String rangeKeyName, AttributeValue lower,
+      AttributeValue upper, int partitions) {
+    List<AttributeValue> boundaries = DynamoDBRangeKeyPartitioner.getBoundaries(lower, upper,
+        partitions);
+    if (boundaries == null || boundaries.size() < 3) {
+      return false;
+    }
+    this.rangeKeyName = rangeKeyName;
+    this.rangeKeyBoundaries = Collections.unmodifiableList(boundaries);
+    return true;
+  }
+
+  public List<AttributeValue> getRangeKeyBoundaries() {
+    return rangeKeyBoundaries;
+  }
+
+  /**
+   * Reads the items with the given primary keys with BatchGetItem. This takes precedence over the
+   * key conditions, and the other conditions are left to the caller to apply.
+   */
+  public void setBatchGetKeys(List<Map<String, AttributeValue>> batchGetKeys) {
+    this.batchGetKeys = Collections.unmodifiableList(new ArrayList<>(batchGetKeys));
+  }
+
+  public List<Map<String, AttributeValue>> getBatchGetKeys() {
+    return batchGetKeys;
+  }
+
+  /**
+   * @return the keys of the BatchGetItem request reading the given segment
+   */
+  public List<Map<String, AttributeValue>> getBatchGetKeys(int segment) {
+    int from = segment * DynamoDBConstants.MAX_KEYS_PER_BATCH_GET;
+    return batchGetKeys.subList(from,
+        Math.min(from + DynamoDBConstants.MAX_KEYS_PER_BATCH_GET, batchGetKeys.size()));
+  }
+
+  public boolean isBatchGet() {
+    return !batchGetKeys.isEmpty();
+  }
+
+  public boolean isQuery() {
+    return !keyConditions.isEmpty() || !hashKeyValues.isEmpty();
+  }
+
+  /**
+   * @return the number of BatchGetItem or Query requests this filter results in, each of them
+   *         read as a segment
+   */
+  public int getSegmentCount() {
+    if (isBatchGet()) {
+      return (batchGetKeys.size() + DynamoDBConstants.MAX_KEYS_PER_BATCH_GET - 1)
+          / DynamoDBConstants.MAX_KEYS_PER_BATCH_GET;
+    }
+    if (!rangeKeyBoundaries.isEmpty()) {
+      return rangeKeyBoundaries.size() - 1;
+    }
+    return Math.max(1, hashKeyValues.size());
+  }
+
+  /**
+   * @return the filter of the Query reading the given segment
+   */
+  public DynamoDBQueryFilter getSegmentQuery(int segment) {
+    if (hashKeyValues.isEmpty() && rangeKeyBoundaries.isEmpty()) {
+      return this;
+    }
+    DynamoDBQueryFilter query = new DynamoDBQueryFilter();
+    query.keyConditions.putAll(keyConditions);
+    if (!hashKeyValues.isEmpty()) {
+      query.keyConditions.put(hashKeyName, Condition.builder()
+          .comparisonOperator(ComparisonOperator.EQ)
+          .attributeValueList(hashKeyValues.get(segment))
+          .build());
+    } else {
+      setRangeKeyPartition(query, segment);
+    }
+    query.scanFilter.putAll(scanFilter);
+    query.index = index;
+    query.filterExpression = filterExpression;
+    return query;
+  }
+
+  /*
+   * Sets the range key condition of the Query of a partition. The partitions share their
+   * boundaries, as DynamoDB only supports inclusive ranges. The first and the last partitions
+   * extend to the bounds of the range key condition of the query, which are left open when it
+   * has none, as the boundaries may have been sampled from the items the table held when the job
+   * was planned.
+   */
+  private void setRangeKeyPartition(DynamoDBQueryFilter query, int segment) {
+    Condition condition = keyConditions.get(rangeKeyName);
+    ComparisonOperator operator = condition == null ? null : condition.comparisonOperator();
+    AttributeValue start = rangeKeyBoundaries.get(segment);
+    AttributeValue end = rangeKeyBoundaries.get(segment + 1);
+    if (segment == 0) {
+      start = operator == ComparisonOperator.BETWEEN || operator == ComparisonOperator.GE
+          || operator == ComparisonOperator.GT ? condition.attributeValueList().get(0) : null;
+      if (operator == ComparisonOperator.GT) {
+        query.segmentStartKey = getRangeKey(start);
+      }
+    }
+    if (segment + 2 < rangeKeyBoundaries.size()) {
+      query.segmentEndKey = getRangeKey(end);
+    } else {
+      end = operator == ComparisonOperator.BETWEEN || operator == ComparisonOperator.LE
+          || operator == ComparisonOperator.LT
+          ? condition.attributeValueList().get(condition.attributeValueList().size() - 1) : null;
+      if (operator == ComparisonOperator.LT) {
+        query.segmentEndKey = getRangeKey(end);
+      }
+    }
+    if (query.segmentStartKey != null || query.segmentEndKey != null) {
+      query.segmentKeyName = rangeKeyName;
+    }
+    Condition.Builder partition = Condition.builder();
+    if (start == null) {
+      partition.comparisonOperator(ComparisonOperator.LE).attributeValueList(end);
+    } else if (end == null) {
+      partition.comparisonOperator(ComparisonOperator.GE).attributeValueList(start);
+    } else {
+      partition.comparisonOperator(ComparisonOperator.BETWEEN).attributeValueList(start, end);
+    }
+    query.keyConditions.put(rangeKeyName, partition.build());
+  }
+
+  private static DynamoDBKey getRangeKey(AttributeValue value) {
+    return value.n() != null
+        ? DynamoDBTypeFactory.NUMBER_TYPE.getKey(value.n())
+        : DynamoDBTypeFactory.STRING_TYPE.getKey(value.s());
+  }
+
+  /**
+   * @param attributes the attributes to get, or null to get whole items
+   * @return the attributes a Query needs to get for {@link #getSegmentItems(List)}
+   */
+  public Collection<String> getSegmentAttributes(Collection<String> attributes) {
+    if (segmentKeyName == null || attributes == null || attributes.isEmpty()
+        || attributes.contains(segmentKeyName)) {
+      return attributes;
+    }
+    List<String> segmentAttributes = new ArrayList<>(attributes);
+    segmentAttributes.add(segmentKeyName);
+    return segmentAttributes;
+  }
+
+  /**
+   * @return the items a Query read that belong to its segment
+   */
+  public List<Map<String, AttributeValue>> getSegmentItems(
+      List<Map<String, AttributeValue>> items) {
+    if (segmentStartKey == null && segmentEndKey == null) {
+      return items;
+    }
+    List<Map<String, AttributeValue>> segmentItems = new ArrayList<>(items.size());
+    for (Map<String, AttributeValue> item : items) {
+      AttributeValue rangeKey = item.get(segmentKeyName);
+      if (rangeKey == null || (!isSegmentKey(segmentStartKey, rangeKey)
+          && !isSegmentKey(segmentEndKey, rangeKey))) {
+        segmentItems.add(item);
+      }
+    }
+    return segmentItems;
+  }
+
+  private static boolean isSegmentKey(DynamoDBKey segmentKey, AttributeValue rangeKey) {
+    return segmentKey != null && segmentKey.compareValue(rangeKey) == 0;
+  }
+
+  /**
+   * Writes the filter, but not the segment keys of the filter of a segment query, which are
+   * derived from the boundaries of the range key partitions by {@link #getSegmentQuery(int)}.
+   */
+  @Override
+  public void write(DataOutput out) throws IOException {
+    writeConditions(out, keyConditions);
+    writeConditions(out, scanFilter);
+    writeIndex(out, index);
+    out.writeBoolean(filterExpression != null);
+    if (filterExpression != null) {
+      Text.writeString(out, filterExpression.getExpression());
+      WritableUtils.writeVInt(out, filterExpression.getAttributeNames().size());
+      for (Map.Entry<String, String> name : filterExpression.getAttributeNames().entrySet()) {
+        Text.writeString(out, name.getKey());
+        Text.writeString(out, name.getValue());
+      }
+      writeAttributes(out, filterExpression.getAttributeValues());
+    }
+    writeNullableString(out, hashKeyName);
+    writeAttributeValues(out, hashKeyValues);
+    WritableUtils.writeVInt(out, batchGetKeys.size());
+    for (Map<String, AttributeValue> key : batchGetKeys) {
+      writeAttributes(out, key);
+    }
+    writeNullableString(out, rangeKeyName);
+    writeAttributeValues(out, rangeKeyBoundaries);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    keyConditions.clear();
+    keyConditions.putAll(readConditions(in));
+    scanFilter.clear();
+    scanFilter.putAll(readConditions(in));
+    index = readIndex(in);
+    filterExpression = null;
+    if (in.readBoolean()) {
+      String expression = Text.readString(in);
+      int size = WritableUtils.readVInt(in);
+      Map<String, String> attributeNames = new HashMap<>();
+      for (int i = 0; i < size; i++) {
+        attributeNames.put(Text.readString(in), Text.readString(in));
+      }
+      filterExpression = new DynamoDBExpression(expression, attributeNames, readAttributes(in));
+    }
+    hashKeyName = readNullableString(in);
+    hashKeyValues = Collections.unmodifiableList(readAttributeValues(in));
+    int size = WritableUtils.readVInt(in);
+    List<Map<String, AttributeValue>> keys = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      keys.add(readAttributes(in));
+    }
+    batchGetKeys = Collections.unmodifiableList(keys);
+    rangeKeyName = readNullableString(in);
+    rangeKeyBoundaries = Collections.unmodifiableList(readAttributeValues(in));
+    segmentKeyName = null;
+    segmentStartKey = null;
+    segmentEndKey = null;
+  }
+
+  private static void writeConditions(DataOutput out, Map<String, Condition> conditions)
+      throws IOException {
+    WritableUtils.writeVInt(out, conditions.size());
+    for (Map.Entry<String, Condition> condition : conditions.entrySet()) {
+      Text.writeString(out, condition.getKey());
+      Text.writeString(out, condition.getValue().comparisonOperatorAsString());
+      writeAttributeValues(out, condition.getValue().attributeValueList());
+    }
+  }
+
+  private static Map<String, Condition> readConditions(DataInput in) throws IOException {
+    int size = WritableUtils.readVInt(in);
+    Map<String, Condition> conditions = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      String columnName = Text.readString(in);
+      Condition.Builder condition = Condition.builder().comparisonOperator(Text.readString(in));
+      List<AttributeValue> values = readAttributeValues(in);
+      // NULL and NOT_NULL conditions are sent without a value list
+      if (!values.isEmpty()) {
+        condition.attributeValueList(values);
+      }
+      conditions.put(columnName, condition.build());
+    }
+    return conditions;
+  }
+
+  private static void writeIndex(DataOutput out, DynamoDBIndexInfo index) throws IOException {
+    out.writeBoolean(index != null);
+    if (index == null) {
+      return;
+    }
+    Text.writeString(out, index.getIndexName());
+    WritableUtils.writeVInt(out, index.getIndexSchema().size());
+    for (KeySchemaElement element : index.getIndexSchema()) {
+      Text.writeString(out, element.attributeName());
+      Text.writeString(out, element.keyTypeAsString());
+    }
+    Projection projection = index.getIndexProjection();
+    out.writeBoolean(projection != null);
+    if (projection != null) {
+      writeNullableString(out, projection.projectionTypeAsString());
+      WritableUtils.writeVInt(out, projection.nonKeyAttributes().size());
+      for (String attribute : projection.nonKeyAttributes()) {
+        Text.writeString(out, attribute);
+      }
+    }
+  }
+
+  private static DynamoDBIndexInfo readIndex(DataInput in) throws IOException {
+    if (!in.readBoolean()) {
+      return null;
+    }
+    String indexName = Text.readString(in);
+    int size = WritableUtils.readVInt(in);
+    List<KeySchemaElement> indexSchema = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      indexSchema.add(KeySchemaElement.builder()
+          .attributeName(Text.readString(in))
+          .keyType(Text.readString(in))
+          .build());
+    }
+    Projection projection = null;
+    if (in.readBoolean()) {
+      Projection.Builder builder = Projection.builder().projectionType(readNullableString(in));
+      int attributeCount = WritableUtils.readVInt(in);
+      if (attributeCount > 0) {
+        List<String> nonKeyAttributes = new ArrayList<>(attributeCount);
+        for (int i = 0; i < attributeCount; i++) {
+          nonKeyAttributes.add(Text.readString(in));
+        }
+        builder.nonKeyAttributes(nonKeyAttributes);
+      }
+      projection = builder.build();
+    }
+    return new DynamoDBIndexInfo(indexName, indexSchema, projection);
+  }
+
+  private static void writeAttributes(DataOutput out, Map<String, AttributeValue> attributes)
+      throws IOException {
+    WritableUtils.writeVInt(out, attributes.size());
+    for (Map.Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+      Text.writeString(out, attribute.getKey());
+      DynamoDBItemWritable.writeAttributeValue(out, attribute.getValue());
+    }
+  }
+
+  private static Map<String, AttributeValue> readAttributes(DataInput in) throws IOException {
+    int size = WritableUtils.readVInt(in);
+    Map<String, AttributeValue> attributes = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      attributes.put(Text.readString(in), DynamoDBItemWritable.readAttributeValue(in));
+    }
+    return attributes;
+  }
+
+  private static void writeAttributeValues(DataOutput out, List<AttributeValue> values)
+      throws IOException {
+    WritableUtils.writeVInt(out, values.size());
+    for (AttributeValue value : values) {
+      DynamoDBItemWritable.writeAttributeValue(out, value);
+    }
+  }
+
+  private static List<AttributeValue> readAttributeValues(DataInput in) throws IOException {
+    int size = WritableUtils.readVInt(in);
+    List<AttributeValue> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add(DynamoDBItemWritable.readAttributeValue(in));
+    }
+    return values;
+  }
+
+  private static void writeNullableString(DataOutput out, String string) throws IOException {
+    out.writeBoolean(string != null);
+    if (string != null) {
+      Text.writeString(out, string);
+    }
+  }
+
+  private static String readNullableString(DataInput in) throws IOException {
+    return in.readBoolean() ? Text.readString(in) : null;
+  }
 }
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.filter;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Splits a range of range key values into contiguous partitions of about equal width. Numbers
+ * are interpolated numerically, and strings over the first few characters after their common
+ * prefix, which spreads them evenly when the values are spread evenly within the range.
+ */
+final class DynamoDBRangeKeyPartitioner {
+
+  // DynamoDB numbers have up to 38 significant digits
+  private static final MathContext NUMBER_PRECISION = new MathContext(38);
+  // Number of characters following the common prefix that string boundaries are made of
+  private static final int STRING_DIGITS = 3;
+  private static final int STRING_DIGIT_BASE = Character.MAX_VALUE + 1;
+
+  private DynamoDBRangeKeyPartitioner() {
+  }
+
+  /**
+   * @return the increasing boundaries of the partitions, starting with lower and ending with
+   *         upper, or null if the values can not be partitioned. There may be fewer partitions
+   *         than requested when the range is too narrow.
+   */
+  static List<AttributeValue> getBoundaries(AttributeValue lower, AttributeValue upper,
+      int partitions) {
+    if (lower.n() != null && upper.n() != null) {
+      return getNumberBoundaries(new BigDecimal(lower.n()), new BigDecimal(upper.n()),
+          partitions);
+    }
+    if (lower.s() != null && upper.s() != null) {
+      return getStringBoundaries(lower.s(), upper.s(), partitions);
+    }
+    return null;
+  }
+
+  private static List<AttributeValue> getNumberBoundaries(BigDecimal lower, BigDecimal upper,
+      int partitions) {
+    if (lower.compareTo(upper) >= 0) {
+      return null;
+    }
+    BigDecimal width = upper.subtract(lower).divide(BigDecimal.valueOf(partitions),
+        NUMBER_PRECISION);
+    List<AttributeValue> boundaries = new ArrayList<>(partitions + 1);
+    BigDecimal previous = lower;
+    boundaries.add(AttributeValue.fromN(lower.toPlainString()));
+    for (int i = 1; i < partitions; i++) {
+      BigDecimal boundary = lower.add(width.multiply(BigDecimal.valueOf(i)), NUMBER_PRECISION);
+      if (boundary.compareTo(previous) > 0 && boundary.compareTo(upper) < 0) {
+        boundaries.add(AttributeValue.fromN(boundary.stripTrailingZeros().toPlainString()));
+        previous = boundary;
+      }
+    }
+    boundaries.add(AttributeValue.fromN(upper.toPlainString()));
+    return boundaries;
+  }
+
+  private static List<AttributeValue> getStringBoundaries(String lower, String upper,
+      int partitions) {
+    if (lower.compareTo(upper) >= 0) {
+      return null;
+    }
+    int prefixLength = 0;
+    while (prefixLength < lower.length() && lower.charAt(prefixLength) == upper.charAt(
+        prefixLength)) {
+      prefixLength++;
+    }
+    // DynamoDB compares the UTF-8 bytes of strings, which orders the characters past the
+    // surrogates differently than Java does
+    if (hasSurrogate(lower, prefixLength) || hasSurrogate(upper, prefixLength)) {
+      return null;
+    }
+    String prefix = lower.substring(0, prefixLength);
+    long lowerDigits = getStringDigits(lower, prefixLength);
+    long upperDigits = getStringDigits(upper, prefixLength);
+
+    List<AttributeValue> boundaries = new ArrayList<>(partitions + 1);
+    String previous = lower;
+    boundaries.add(AttributeValue.fromS(lower));
+    for (int i = 1; i < partitions; i++) {
+      long digits = lowerDigits + (upperDigits - lowerDigits) * i / partitions;
+      String boundary = prefix + toString(digits);
+      if (boundary.compareTo(previous) > 0 && boundary.compareTo(upper) < 0) {
+        boundaries.add(AttributeValue.fromS(boundary));
+        previous = boundary;
+      }
+    }
+    boundaries.add(AttributeValue.fromS(upper));
+    return boundaries;
+  }
+
+  private static boolean hasSurrogate(String value, int from) {
+    for (int i = from; i < Math.min(value.length(), from + STRING_DIGITS); i++) {
+      if (Character.isSurrogate(value.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long getStringDigits(String value, int from) {
+    long digits = 0;
+    for (int i = from; i < from + STRING_DIGITS; i++) {
+      digits = digits * STRING_DIGIT_BASE + (i < value.length() ? value.charAt(i) : 0);
+    }
+    return digits;
+  }
+
+  private static String toString(long digits) {
+    char[] chars = new char[STRING_DIGITS];
+    for (int i = STRING_DIGITS - 1; i >= 0; i--) {
+      chars[i] = (char) (digits % STRING_DIGIT_BASE);
+      digits /= STRING_DIGIT_BASE;
+    }
+    // Boundaries must be valid strings, so characters are moved past the surrogates
+    for (int i = 0; i < STRING_DIGITS; i++) {
+      if (Character.isSurrogate(chars[i])) {
+        chars[i] = (char) (Character.MAX_SURROGATE + 1);
+        for (int j = i + 1; j < STRING_DIGITS; j++) {
+          chars[j] = 0;
+        }
+        break;
+      }
+    }
+    int length = STRING_DIGITS;
+    while (length > 0 && chars[length - 1] == 0) {
+      length--;
+    }
+    return new String(chars, 0, length);
+  }
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.filter;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Reads the range key values a query spans when it is planned, so that queries without bounds of
+ * their own can be split into partitions of the range.
+ */
+public interface DynamoDBRangeKeySampler {
+
+  /**
+   * @param last whether to read the largest range key value rather than the smallest one
+   * @return the smallest or largest range key value of the items the key conditions of the query
+   *         match, or null if they match none
+   */
+  AttributeValue getRangeKeyBound(DynamoDBQueryFilter query, String rangeKeyName, boolean last);
+}
@@ -13,18 +13,27 @@
 
 package org.apache.hadoop.dynamodb.preader;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.preader.RateController.RequestLimit;
 import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.util.ReflectionUtils;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 /**
@@ -36,27 +45,31 @@ public abstract class AbstractReadManager {
 
   protected static final Log log = LogFactory.getLog(AbstractReadManager.class);
 
-  // This defines the lower bound of what we try to stay within. Not the same
-  // as RateController.MIN_RCU_PER_REQ which defines the absolute smallest
-  // request we are willing to make.
-  private static final int MIN_RCU_PER_REQ = 2;
-
   private static final int MIN_WORKER_COUNT = 1;
-  private static final int MAX_WORKER_COUNT = 30;
-  private static final int INITIAL_WORKER_COUNT = MIN_WORKER_COUNT;
   private static final int EVALUATION_FREQ_MS = DynamoDBConstants.RATE_CONTROLLER_WINDOW_SIZE_SEC
       * 1000;
+  // Backoff of throttled requests, which fail once they have been throttled for as long as the
+  // DynamoDB client retries other errors
+  private static final long THROTTLE_BACKOFF_UNIT_MS = 50;
+  private static final long MAX_THROTTLE_BACKOFF_MS = 30 * 1000;
+  private static final long MAX_THROTTLE_DURATION_MS = 10 * 60 * 1000;
   protected final DynamoDBRecordReaderContext context;
   protected final RateController rateController;
   protected final AbstractTimeSource time;
   // In the query case, there is only one read quest.
   protected final Deque<AbstractRecordReadRequest> readRequestQueue = new ConcurrentLinkedDeque<>();
+  // Throttled requests, waiting for their backoff to expire
+  private final DelayQueue<ThrottledReadRequest> throttledRequests = new DelayQueue<>();
+  private final Random random = new Random();
   protected final AtomicInteger segmentsRemaining = new AtomicInteger(0);
-  protected final Queue<ReadWorker> workers = new ArrayBlockingQueue<>(MAX_WORKER_COUNT);
+  protected final int maxWorkerCount;
+  protected final Queue<ReadWorker> workers;
+  private final ConcurrencyController concurrencyController;
   private final List<Report> reportedStats = new ArrayList<>();
   private final Object reportStatsLock = new Object();
   private final PageResultMultiplexer<Map<String, AttributeValue>> pageMux;
   private long lastEvaluatedTimeNano;
+  private final AtomicLong lastRateRefreshNano;
 
   public AbstractReadManager(RateController rateController, AbstractTimeSource time,
       DynamoDBRecordReaderContext context) {
@@ -64,11 +77,18 @@ public abstract class AbstractReadManager {
     this.rateController = rateController;
     this.time = time;
     this.lastEvaluatedTimeNano = time.getNanoTime();
+    this.lastRateRefreshNano = new AtomicLong(lastEvaluatedTimeNano);
     this.pageMux = context.getPageResultMultiplexer();
+    this.maxWorkerCount = getMaxWorkerCount(context.getConf());
+    this.workers = new ArrayBlockingQueue<>(maxWorkerCount);
+    this.concurrencyController = createConcurrencyController(context.getConf());
 
     initializeReadRequests();
 
-    for (int i = 0; i < INITIAL_WORKER_COUNT; i++) {
+    int initialWorkerCount = concurrencyController.getInitialWorkerCount(
+        rateController.getTargetRate(), getLatencyEstimateMs(context.getConf()), maxWorkerCount);
+    log.info("Starting " + initialWorkerCount + " worker(s)");
+    for (int i = 0; i < initialWorkerCount; i++) {
       addWorker();
     }
   }
@@ -82,9 +102,41 @@ public abstract class AbstractReadManager {
   }
 
   public AbstractRecordReadRequest dequeueReadRequest() {
+    ThrottledReadRequest throttled;
+    while ((throttled = throttledRequests.poll()) != null) {
+      readRequestQueue.addLast(throttled.request);
+    }
     return readRequestQueue.poll();
   }
 
+  /**
+   * Puts a throttled request aside until its backoff expires, rather than having the worker sleep
+   * on it, so that the worker reads other segments in the meantime. The rate controller is told
+   * about the throttle, and the throttle counts as a retry in the evaluation of the worker count.
+   *
+   * @param req the throttled request
+   * @param lim the limit the request was sent with
+   * @return whether the request was put aside, or has been throttled for too long and should fail
+   */
+  boolean deferThrottledReadRequest(AbstractRecordReadRequest req, RequestLimit lim) {
+    long nowNano = time.getNanoTime();
+    final int throttles = req.recordThrottle(nowNano);
+    if (time.getTimeDeltaMs(req.getFirstThrottleNano(), nowNano) > MAX_THROTTLE_DURATION_MS) {
+      log.error("Request throttled for more than " + MAX_THROTTLE_DURATION_MS + " ms, giving up");
+      return false;
+    }
+
+    rateController.throttled(lim.readCapacityUnits);
+    report(lim.readCapacityUnits, lim.readCapacityUnits, 0, 1);
+
+    long backoffMs = getThrottleBackoffMs(throttles);
+    log.warn("Read request throttled " + throttles + " time(s) in a row, retrying in " + backoffMs
+        + " ms");
+    throttledRequests.add(new ThrottledReadRequest(req,
+        nowNano + TimeUnit.MILLISECONDS.toNanos(backoffMs)));
+    return true;
+  }
+
   /**
    * @param permittedReadUnits How many RCU the worker was allocated by the rate controller
    * @param consumedReadUnits  How many RCU the worker actually consumed
@@ -92,13 +144,21 @@ public abstract class AbstractReadManager {
    * @param retries            Number of throttles
    */
   public void report(double permittedReadUnits, double consumedReadUnits, int items, int retries) {
+    report(permittedReadUnits, consumedReadUnits, items, retries, 0 /* latencyMs */);
+  }
+
+  /**
+   * @param latencyMs How long the request took, or 0 if it is not known
+   */
+  public void report(double permittedReadUnits, double consumedReadUnits, int items, int retries,
+      long latencyMs) {
     rateController.adjust(permittedReadUnits, consumedReadUnits, items);
 
-    boolean addWorker = false;
-    boolean removeWorker = false;
+    int workersToAdd = 0;
+    int workersToRemove = 0;
 
     synchronized (reportStatsLock) {
-      reportedStats.add(new Report(consumedReadUnits, items, retries));
+      reportedStats.add(new Report(consumedReadUnits, items, retries, latencyMs));
 
       long deltaMs = time.getTimeSinceMs(lastEvaluatedTimeNano);
       if (deltaMs < EVALUATION_FREQ_MS) {
@@ -115,29 +175,93 @@ public abstract class AbstractReadManager {
       double rcuPerSecond = (sum.readUnits * 1000) / deltaMs;
       recordEvaluationStats(reportCount, rcuPerRequest, rcuPerSecond);
 
-      // Remove a worker if we're achieving our throughput with very low
-      // iops requests. There's benefit in doing slightly larger requests.
-      if (rcuPerRequest < MIN_RCU_PER_REQ && rcuPerSecond * 1.1 > rateController.getTargetRate()) {
-        removeWorker = true;
-      } else if (rcuPerSecond * 1.1 <= rateController.getTargetRate()) {
-        if (sum.retries > 0) {
-          log.warn("Not achieving throughput, but not adding workers due to retries (throttles or"
-              + " 500s) (cnt=" + sum.retries + ")");
-          // Add a worker if we're not achieving our throughput and getting no throttles/retries.
-        } else {
-          addWorker = true;
-        }
+      int delta = concurrencyController.evaluate(new ConcurrencyController.Evaluation(
+          rateController.getTargetRate(), rcuPerSecond, rcuPerRequest, reportCount, sum.retries,
+          getAverageLatencyMs(), workers.size(), maxWorkerCount));
+      if (delta > 0) {
+        // Always try at least one, so that hitting the ceiling gets logged
+        workersToAdd = Math.max(1, Math.min(delta, maxWorkerCount - workers.size()));
+      } else {
+        workersToRemove = -delta;
       }
       reportedStats.clear();
       lastEvaluatedTimeNano = time.getNanoTime();
     }
 
-    if (removeWorker) {
-      log.info("Removing a worker");
-      removeWorker();
-    } else if (addWorker) {
-      log.info("Adding a worker");
-      addWorker();
+    if (workersToRemove > 0) {
+      log.info("Removing " + workersToRemove + " worker(s)");
+      for (int i = 0; i < workersToRemove; i++) {
+        removeWorker();
+      }
+    } else if (workersToAdd > 0) {
+      log.info("Adding " + workersToAdd + " worker(s)");
+      for (int i = 0; i < workersToAdd; i++) {
+        addWorker();
+      }
+    }
+
+    maybeRefreshTargetRate();
+  }
+
+  /**
+   * Recalculates the target rate of the task once the refresh interval passed, and reads at the
+   * new rate from then on.
+   */
+  private void maybeRefreshTargetRate() {
+    long intervalMs = getRateRefreshIntervalMs();
+    long lastRefreshNano = lastRateRefreshNano.get();
+    if (intervalMs <= 0 || time.getTimeSinceMs(lastRefreshNano) < intervalMs
+        || !lastRateRefreshNano.compareAndSet(lastRefreshNano, time.getNanoTime())) {
+      return;
+    }
+
+    try {
+      rateController.setTargetRate(Math.max(1, refreshTargetRate()));
+    } catch (IOException e) {
+      log.warn("Could not refresh the target rate, keeping the current rate", e);
+    }
+  }
+
+  /**
+   * @return how often the target rate of the task is recalculated, or 0 if it is fixed
+   */
+  protected long getRateRefreshIntervalMs() {
+    if (context.getCapacityBroker() != null) {
+      return context.getConf().getLong(DynamoDBConstants.READ_CAPACITY_LEASE_INTERVAL,
+          DynamoDBConstants.DEFAULT_READ_CAPACITY_LEASE_INTERVAL);
+    }
+    return context.getTaskIopsCalculator() != null ? context.getRateRefreshIntervalMs() : 0;
+  }
+
+  /**
+   * Called every {@link #getRateRefreshIntervalMs()} to recalculate the target rate of the task.
+   * By default the task renews its lease on the read capacity of the job, and reads at the rate of
+   * its new share.
+   *
+   * @return the new target rate
+   */
+  protected double refreshTargetRate() throws IOException {
+    CapacityBroker broker = context.getCapacityBroker();
+    if (broker == null) {
+      return context.getTaskIopsCalculator().calculateTargetIops();
+    }
+    double share = broker.renew(segmentsRemaining.get());
+    return Math.floor(context.getJobIopsCalculator().calculateTargetIops() * share);
+  }
+
+  /**
+   * Hands the share of the task of the read capacity of the job over to the tasks still running,
+   * once it read all its segments.
+   */
+  private void endCapacityLease() {
+    CapacityBroker broker = context.getCapacityBroker();
+    if (broker == null) {
+      return;
+    }
+    try {
+      broker.end();
+    } catch (IOException e) {
+      log.warn("Could not end the read capacity lease, its share is kept until it expires", e);
     }
   }
 
@@ -147,11 +271,14 @@ public abstract class AbstractReadManager {
    * @param segment the segment to be marked as completed
    */
   void markSegmentComplete(int segment) {
+    beforeSegmentComplete(segment);
     int remaining = segmentsRemaining.decrementAndGet();
 
     log.info("Segment " + segment + " complete. Remaining segments: " + remaining);
 
-    if (remaining == 0) {
+    if (remaining == 0 && !afterLastSegmentComplete()) {
+      endCapacityLease();
+
       // signal the multiplexer that it should start draining pages.
       pageMux.setDraining(true);
 
@@ -178,6 +305,26 @@ public abstract class AbstractReadManager {
 
   protected abstract void initializeReadRequests();
 
+  /**
+   * Called when a segment has been fully read, before it is counted as complete. Read managers that
+   * pick up more segments while reading queue them up here, so that the reader does not finish.
+   *
+   * @param segment the segment that was read
+   */
+  protected void beforeSegmentComplete(int segment) {
+  }
+
+  /**
+   * Called when the last segment queued up is complete, before the record reader is told that all
+   * the segments were read. Segments queued up here must be counted in {@link #segmentsRemaining}
+   * before any of them is.
+   *
+   * @return whether more segments were queued up
+   */
+  protected boolean afterLastSegmentComplete() {
+    return false;
+  }
+
   protected void recordEvaluationStats(int reportCnt, double rcuPerRequest, double rcuPerSecond) {
     log.info("Evaluating rcuPerRequest=" + rcuPerRequest + ", rcuPerSecond=" + rcuPerSecond + ", "
         + "reportCnt=" + reportCnt + ", workers=" + workers.size());
@@ -207,6 +354,49 @@ public abstract class AbstractReadManager {
     }
   }
 
+  /**
+   * Fibonacci backoff with jitter, as used by the DynamoDB client when it retries in place.
+   */
+  private long getThrottleBackoffMs(int throttles) {
+    long fib1 = 0;
+    long fib2 = 1;
+    for (int i = 0; i < throttles && fib2 * THROTTLE_BACKOFF_UNIT_MS < MAX_THROTTLE_BACKOFF_MS;
+        i++) {
+      long sum = fib1 + fib2;
+      fib1 = fib2;
+      fib2 = sum;
+    }
+    long jitter = (long) (random.nextDouble() * fib1 * THROTTLE_BACKOFF_UNIT_MS * 2);
+    return Math.min(fib2 * THROTTLE_BACKOFF_UNIT_MS + jitter, MAX_THROTTLE_BACKOFF_MS);
+  }
+
+  private static int getMaxWorkerCount(JobConf conf) {
+    int maxWorkerCount = conf == null ? DynamoDBConstants.DEFAULT_MAX_READ_WORKERS
+        : conf.getInt(DynamoDBConstants.MAX_READ_WORKERS,
+            DynamoDBConstants.DEFAULT_MAX_READ_WORKERS);
+    return Math.max(maxWorkerCount, MIN_WORKER_COUNT);
+  }
+
+  private static ConcurrencyController createConcurrencyController(JobConf conf) {
+    String controllerClass = conf == null ? null
+        : conf.get(DynamoDBConstants.READ_CONCURRENCY_CONTROLLER);
+    if (controllerClass == null) {
+      return new AimdConcurrencyController();
+    }
+    try {
+      return (ConcurrencyController) ReflectionUtils.newInstance(Class.forName(controllerClass),
+          conf);
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException("Concurrency controller not found: " + controllerClass, e);
+    }
+  }
+
+  private static double getLatencyEstimateMs(JobConf conf) {
+    return conf == null ? DynamoDBConstants.DEFAULT_READ_LATENCY_ESTIMATE
+        : conf.getLong(DynamoDBConstants.READ_LATENCY_ESTIMATE,
+            DynamoDBConstants.DEFAULT_READ_LATENCY_ESTIMATE);
+  }
+
   private Report getReportedSum() {
     double readUnits = 0;
     int items = 0;
@@ -217,7 +407,40 @@ public abstract class AbstractReadManager {
       items += r.items;
       retries += r.retries;
     }
-    return new Report(readUnits, items, retries);
+    return new Report(readUnits, items, retries, 0 /* latencyMs */);
+  }
+
+  private double getAverageLatencyMs() {
+    long latencyMs = 0;
+    int requests = 0;
+    for (Report r : reportedStats) {
+      if (r.latencyMs > 0) {
+        latencyMs += r.latencyMs;
+        requests++;
+      }
+    }
+    return requests == 0 ? 0 : (double) latencyMs / requests;
+  }
+
+  private class ThrottledReadRequest implements Delayed {
+
+    private final AbstractRecordReadRequest request;
+    private final long retryTimeNano;
+
+    ThrottledReadRequest(AbstractRecordReadRequest request, long retryTimeNano) {
+      this.request = request;
+      this.retryTimeNano = retryTimeNano;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(retryTimeNano - time.getNanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(retryTimeNano, ((ThrottledReadRequest) other).retryTimeNano);
+    }
   }
 
   private static class Report {
@@ -225,11 +448,13 @@ public abstract class AbstractReadManager {
     public final double readUnits;
     public final int items;
     public final int retries;
+    public final long latencyMs;
 
-    public Report(double readUnits, int items, int retries) {
+    public Report(double readUnits, int items, int retries, long latencyMs) {
       this.readUnits = readUnits;
       this.items = items;
       this.retries = retries;
+      this.latencyMs = latencyMs;
     }
   }
 
@@ -15,6 +15,9 @@ package org.apache.hadoop.dynamodb.preader;
 
 import java.util.Map;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.DynamoDBFibonacciRetryer;
+import org.apache.hadoop.dynamodb.DynamoDBUtil;
+import org.apache.hadoop.dynamodb.PrintCounter;
 import org.apache.hadoop.dynamodb.preader.RateController.RequestLimit;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
@@ -27,6 +30,10 @@ public abstract class AbstractRecordReadRequest {
   protected final int segment;
   protected final String tableName;
 
+  // Backoff state of a request that is put aside when throttled, and picked up again later
+  private int throttles;
+  private long firstThrottleNano;
+
   public AbstractRecordReadRequest(AbstractReadManager readMgr, DynamoDBRecordReaderContext
       context, int segment, Map<String, AttributeValue> lastEvaluatedKey) {
     this.readMgr = readMgr;
@@ -38,20 +45,48 @@ public abstract class AbstractRecordReadRequest {
 
   public void read(RequestLimit lim) {
     signalProgress();
+    long startNano = readMgr.time.getNanoTime();
     PageResults<Map<String, AttributeValue>> pageResults = readNextPage(lim);
+    final long latencyMs = readMgr.time.getTimeSinceMs(startNano);
+    if (pageResults.isFailed()
+        && DynamoDBFibonacciRetryer.isThrottleException(pageResults.exception)
+        && readMgr.deferThrottledReadRequest(this, lim)) {
+      context.getReporter().incrCounter(PrintCounter.DynamoDBReadThrottle.getGroup(),
+          PrintCounter.DynamoDBReadThrottle.getName(), 1);
+      return;
+    }
     addPageToMultiplexer(pageResults);
-    reportMetrics(lim, pageResults);
+    reportMetrics(lim, pageResults, latencyMs);
     enqueueNextPageOrCompleteSegment(pageResults);
   }
 
   private void reportMetrics(RequestLimit lim,
-      PageResults<Map<String, AttributeValue>> pageResults) {
+      PageResults<Map<String, AttributeValue>> pageResults, long latencyMs) {
     if (!pageResults.isFailed()) {
       readMgr.report(lim.readCapacityUnits, pageResults.consumedRcu, pageResults.items.size(),
-          pageResults.retries);
+          pageResults.retries, latencyMs);
     }
   }
 
+  /**
+   * Records that the request was throttled.
+   *
+   * @return the number of times in a row the request was throttled
+   */
+  int recordThrottle(long nowNano) {
+    if (throttles++ == 0) {
+      firstThrottleNano = nowNano;
+    }
+    return throttles;
+  }
+
+  /**
+   * @return when the request was first throttled, if {@link #recordThrottle(long)} was called
+   */
+  long getFirstThrottleNano() {
+    return firstThrottleNano;
+  }
+
   private void signalProgress() {
     context.getReporter().progress();
   }
@@ -61,6 +96,13 @@ public abstract class AbstractRecordReadRequest {
 
   protected abstract PageResults<Map<String, AttributeValue>> fetchPage(RequestLimit lim);
 
+  /**
+   * @return whether the segment has more to read after the given page
+   */
+  protected boolean hasNextPage(PageResults<Map<String, AttributeValue>> pageResults) {
+    return pageResults.lastEvaluatedKey != null;
+  }
+
   private PageResults<Map<String, AttributeValue>> readNextPage(RequestLimit lim) {
     try {
       return fetchPage(lim);
@@ -70,14 +112,26 @@ public abstract class AbstractRecordReadRequest {
   }
 
   private void addPageToMultiplexer(PageResults<Map<String, AttributeValue>> pageResults) {
-    if (!context.getPageResultMultiplexer().addPageResults(pageResults)) {
+    if (!context.getPageResultMultiplexer().addPageResults(pageResults,
+        getPageSizeBytes(pageResults))) {
       throw new RuntimeException("Interrupted while adding to the page mux. Aborting.");
     }
   }
 
+  private static long getPageSizeBytes(PageResults<Map<String, AttributeValue>> pageResults) {
+    if (pageResults.isFailed()) {
+      return 0;
+    }
+    long sizeBytes = 0;
+    for (Map<String, AttributeValue> item : pageResults.items) {
+      sizeBytes += DynamoDBUtil.getItemSizeBytes(item);
+    }
+    return sizeBytes;
+  }
+
   private void enqueueNextPageOrCompleteSegment(
       PageResults<Map<String, AttributeValue>> pageResults) {
-    if (pageResults.lastEvaluatedKey != null) {
+    if (hasNextPage(pageResults)) {
       // Schedule the next page read for this segment
       readMgr.enqueueReadRequestToTail(buildNextReadRequest(pageResults));
     } else {
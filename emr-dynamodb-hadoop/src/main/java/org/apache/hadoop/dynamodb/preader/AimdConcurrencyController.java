@@ -0,0 +1,86 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Additive increase, multiplicative decrease of the worker count, with a slow start. Until the
+ * first sign of congestion, the worker count grows by the share of the target rate not achieved
+ * yet, at most doubling per evaluation. From then on, it grows by one worker per evaluation, and is
+ * cut when requests are throttled. A growing latency holds it, as the table is then queueing the
+ * requests rather than reading them faster. The lowest latency seen creeps up every evaluation, so
+ * that a latency that stays higher, like that of larger items, is eventually taken as the norm.
+ */
+public class AimdConcurrencyController implements ConcurrencyController {
+
+  private static final Log log = LogFactory.getLog(AimdConcurrencyController.class);
+
+  private static final double DECREASE_FACTOR = 0.7;
+  // Share of the requests that may be retried before the worker count is cut
+  private static final double RETRY_TOLERANCE = 0.05;
+  // Latency, relative to the lowest one seen, above which the worker count is held
+  private static final double LATENCY_TOLERANCE = 2.0;
+  // Share by which the lowest latency seen rises every evaluation
+  private static final double MIN_LATENCY_DECAY = 0.05;
+  // This defines the lower bound of what we try to stay within. Not the same
+  // as RateController.MIN_RCU_PER_REQ which defines the absolute smallest
+  // request we are willing to make.
+  private static final int MIN_RCU_PER_REQ = 2;
+
+  private boolean slowStart = true;
+  private double minLatencyMs = Double.MAX_VALUE;
+
+  @Override
+  public int evaluate(Evaluation evaluation) {
+    if (evaluation.latencyMs > 0) {
+      minLatencyMs = Math.min(minLatencyMs * (1 + MIN_LATENCY_DECAY), evaluation.latencyMs);
+    }
+
+    if (evaluation.getRetryRatio() > RETRY_TOLERANCE) {
+      slowStart = false;
+      int workers = Math.max(1, (int) (evaluation.workers * DECREASE_FACTOR));
+      log.warn("Reducing workers due to retries (throttles or 500s) (cnt=" + evaluation.retries
+          + ")");
+      return workers - evaluation.workers;
+    }
+
+    if (evaluation.isAchievingTarget()) {
+      slowStart = false;
+      // Remove a worker if we're achieving our throughput with very low
+      // iops requests. There's benefit in doing slightly larger requests.
+      return evaluation.rcuPerRequest < MIN_RCU_PER_REQ ? -1 : 0;
+    }
+
+    if (evaluation.latencyMs > minLatencyMs * LATENCY_TOLERANCE) {
+      slowStart = false;
+      log.info("Not achieving throughput, but not adding workers as latency grew from "
+          + minLatencyMs + " to " + evaluation.latencyMs + " ms");
+      return 0;
+    }
+
+    if (evaluation.retries > 0 || !slowStart) {
+      slowStart = false;
+      return 1;
+    }
+
+    // Assuming each worker contributes about the same throughput, grow the pool by the share of
+    // the target rate that is not achieved yet
+    int current = Math.max(evaluation.workers, 1);
+    double missingShare = evaluation.rcuPerSecond > 0
+        ? evaluation.targetRate / evaluation.rcuPerSecond - 1 : Double.MAX_VALUE;
+    return Math.max(1, (int) Math.ceil(Math.min(current, current * missingShare)));
+  }
+}
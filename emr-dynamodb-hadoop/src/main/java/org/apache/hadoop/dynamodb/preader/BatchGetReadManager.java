@@ -0,0 +1,46 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+import java.util.List;
+import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
+import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
+
+public class BatchGetReadManager extends AbstractReadManager {
+
+  public BatchGetReadManager(RateController rateController, AbstractTimeSource time,
+      DynamoDBRecordReaderContext context) {
+    super(rateController, time, context);
+  }
+
+  @Override
+  protected void initializeReadRequests() {
+    // Each segment is a group of keys small enough for a single BatchGetItem request
+    DynamoDBQueryFilter filter = context.getSplit().getFilterPushdown();
+    int totalSegments = context.getSplit().getTotalSegments();
+    if (totalSegments != filter.getSegmentCount()) {
+      String errorMsg = "Expect " + filter.getSegmentCount() + " segment(s) for batch get "
+          + "(received " + totalSegments + ")";
+      log.error(errorMsg);
+      throw new RuntimeException(errorMsg);
+    }
+    List<Integer> segments = context.getSplit().getSegments();
+    segmentsRemaining.set(segments.size());
+
+    for (Integer segment : segments) {
+      enqueueReadRequestToTail(new BatchGetRecordReadRequest(this, context, segment,
+          filter.getBatchGetKeys(segment)));
+    }
+  }
+}
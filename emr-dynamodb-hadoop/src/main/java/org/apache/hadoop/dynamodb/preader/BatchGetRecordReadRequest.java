@@ -0,0 +1,123 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.hadoop.dynamodb.DynamoDBFibonacciRetryer.RetryResult;
+import org.apache.hadoop.dynamodb.preader.RateController.RequestLimit;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+/**
+ * Reads the items of a group of primary keys with BatchGetItem. Every request reads as many keys
+ * as the rate controller permits items, and the keys it did not read, including the keys
+ * DynamoDB left unprocessed, are read by the next request of the segment. Unprocessed keys are
+ * retried with an exponential backoff.
+ */
+public class BatchGetRecordReadRequest extends AbstractRecordReadRequest {
+
+  private static final long MAX_BACKOFF_MS = 3000;
+
+  private final List<Map<String, AttributeValue>> keys;
+  // Number of preceding requests in a row that left keys unprocessed
+  private final int unprocessedRetries;
+
+  private List<Map<String, AttributeValue>> remainingKeys = Collections.emptyList();
+  private int nextUnprocessedRetries;
+
+  public BatchGetRecordReadRequest(AbstractReadManager readMgr,
+      DynamoDBRecordReaderContext context, int segment, List<Map<String, AttributeValue>> keys) {
+    this(readMgr, context, segment, keys, 0);
+  }
+
+  private BatchGetRecordReadRequest(AbstractReadManager readMgr,
+      DynamoDBRecordReaderContext context, int segment, List<Map<String, AttributeValue>> keys,
+      int unprocessedRetries) {
+    super(readMgr, context, segment, null /* lastEvaluatedKey */);
+    this.keys = keys;
+    this.unprocessedRetries = unprocessedRetries;
+  }
+
+  @VisibleForTesting
+  List<Map<String, AttributeValue>> getKeys() {
+    return keys;
+  }
+
+  @Override
+  protected AbstractRecordReadRequest buildNextReadRequest(PageResults<Map<String,
+      AttributeValue>> pageResults) {
+    return new BatchGetRecordReadRequest(readMgr, context, segment, remainingKeys,
+        nextUnprocessedRetries);
+  }
+
+  @Override
+  protected boolean hasNextPage(PageResults<Map<String, AttributeValue>> pageResults) {
+    return !pageResults.isFailed() && !remainingKeys.isEmpty();
+  }
+
+  @Override
+  protected PageResults<Map<String, AttributeValue>> fetchPage(RequestLimit lim) {
+    pauseExponentially(unprocessedRetries);
+
+    int keyCount = Math.min(keys.size(), Math.max(1, lim.items));
+    RetryResult<BatchGetItemResponse> retryResult = context.getClient().batchGetItem(tableName,
+        keys.subList(0, keyCount), context.getAttributes(), context.getReporter());
+    BatchGetItemResponse response = retryResult.result;
+
+    KeysAndAttributes unprocessed = response.unprocessedKeys().get(tableName);
+    List<Map<String, AttributeValue>> unprocessedKeys = unprocessed == null
+        ? Collections.emptyList() : unprocessed.keys();
+    List<Map<String, AttributeValue>> nextKeys = new ArrayList<>(unprocessedKeys);
+    nextKeys.addAll(keys.subList(keyCount, keys.size()));
+    remainingKeys = nextKeys;
+    nextUnprocessedRetries = unprocessedKeys.isEmpty() ? 0 : unprocessedRetries + 1;
+
+    List<Map<String, AttributeValue>> items = response.responses().get(tableName);
+    return new PageResults<>(items == null ? Collections.emptyList() : items,
+        null /* lastEvaluatedKey */,
+        getConsumedCapacityUnits(response),
+        retryResult.retries);
+  }
+
+  private static double getConsumedCapacityUnits(BatchGetItemResponse response) {
+    double consumed = 0;
+    for (ConsumedCapacity consumedCapacity : response.consumedCapacity()) {
+      if (consumedCapacity.capacityUnits() != null) {
+        consumed += consumedCapacity.capacityUnits();
+      }
+    }
+    return consumed;
+  }
+
+  private static void pauseExponentially(int retries) {
+    if (retries == 0) {
+      return;
+    }
+    long scaleFactor = 500 + new Random().nextInt(100);
+    long delay = Math.min((long) (Math.pow(2, retries) * scaleFactor) / 4, MAX_BACKOFF_MS);
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while backing off unprocessed keys", e);
+    }
+  }
+}
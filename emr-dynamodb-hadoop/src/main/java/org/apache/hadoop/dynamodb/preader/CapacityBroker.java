@@ -0,0 +1,54 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+import java.io.IOException;
+
+/**
+ * Shares the read capacity of a job between its tasks. Each task starts with the share of its
+ * split, and leases it periodically. Once a task read all its segments it ends its lease, and its
+ * share is taken over by the tasks still running, in proportion to the segments they have left. A
+ * task that fails does not end its lease, so that its share is kept for its next attempt.
+ */
+public interface CapacityBroker {
+
+  /**
+   * Renews the lease of the task.
+   *
+   * @param remainingSegments the number of segments the task has left to read
+   * @return the fraction of the read capacity of the job the task may use until its next renewal
+   */
+  double renew(int remainingSegments) throws IOException;
+
+  /**
+   * Ends the lease of the task, which read all its segments.
+   */
+  void end() throws IOException;
+
+  /**
+   * @param staticShare       the share of the split of the task
+   * @param remainingSegments the number of segments the task has left to read
+   * @param endedShares       the sum of the shares of the splits of the tasks that ended
+   * @param activeSegments    the number of segments the tasks still running, including this one,
+   *                          have left to read
+   * @return the fraction of the read capacity of the job the task may use
+   */
+  static double getShare(double staticShare, int remainingSegments, double endedShares,
+      long activeSegments) {
+    if (activeSegments <= 0) {
+      return staticShare;
+    }
+    return staticShare + endedShares * remainingSegments / activeSegments;
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+/**
+ * Decides how many read workers a read manager runs. The read manager asks for the initial count
+ * when it starts, and evaluates the statistics of the requests read since the last evaluation
+ * periodically.
+ */
+public interface ConcurrencyController {
+
+  /**
+   * By Little's law, the number of requests in flight needed to read at the target rate, when each
+   * request reads up to the largest number of read units the rate controller hands out.
+   *
+   * @param targetRate RCU per second the record reader reads at
+   * @param latencyMs  expected latency of a request
+   * @param maxWorkers upper bound on the worker count
+   */
+  default int getInitialWorkerCount(double targetRate, double latencyMs, int maxWorkers) {
+    int workers = getWorkersForRate(targetRate, RateController.MAX_RCU_PER_REQ, latencyMs);
+    return Math.max(1, Math.min(workers, maxWorkers));
+  }
+
+  /**
+   * @return the number of workers to add, or to remove if negative
+   */
+  int evaluate(Evaluation evaluation);
+
+  /**
+   * @return the number of requests in flight that read at the given rate
+   */
+  static int getWorkersForRate(double rate, double rcuPerRequest, double latencyMs) {
+    if (rate <= 0 || rcuPerRequest <= 0 || latencyMs <= 0) {
+      return 1;
+    }
+    return (int) Math.ceil(rate * latencyMs / 1000 / rcuPerRequest);
+  }
+
+  /**
+   * Statistics of the requests read during an evaluation window.
+   */
+  final class Evaluation {
+
+    public final double targetRate;
+    public final double rcuPerSecond;
+    public final double rcuPerRequest;
+    public final int requests;
+    public final int retries;
+    // Average latency of the requests that reported one, or 0 if none did
+    public final double latencyMs;
+    public final int workers;
+    public final int maxWorkers;
+
+    public Evaluation(double targetRate, double rcuPerSecond, double rcuPerRequest, int requests,
+        int retries, double latencyMs, int workers, int maxWorkers) {
+      this.targetRate = targetRate;
+      this.rcuPerSecond = rcuPerSecond;
+      this.rcuPerRequest = rcuPerRequest;
+      this.requests = requests;
+      this.retries = retries;
+      this.latencyMs = latencyMs;
+      this.workers = workers;
+      this.maxWorkers = maxWorkers;
+    }
+
+    /**
+     * @return whether the workers read at least at the target rate, within the 10% the rate
+     *         controller may go over
+     */
+    public boolean isAchievingTarget() {
+      return rcuPerSecond * 1.1 > targetRate;
+    }
+
+    public double getRetryRatio() {
+      return requests == 0 ? 0 : (double) retries / requests;
+    }
+  }
+}
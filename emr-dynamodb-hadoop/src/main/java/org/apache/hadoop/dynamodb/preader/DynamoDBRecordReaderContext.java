@@ -16,6 +16,7 @@ package org.apache.hadoop.dynamodb.preader;
 import java.util.Collection;
 import java.util.Map;
 import org.apache.hadoop.dynamodb.DynamoDBClient;
+import org.apache.hadoop.dynamodb.IopsCalculator;
 import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
@@ -31,6 +32,12 @@ public class DynamoDBRecordReaderContext {
   private Collection<String> attributes;
   private double averageItemSize;
   private PageResultMultiplexer<Map<String, AttributeValue>> pageMux;
+  private ScanCheckpoint scanCheckpoint;
+  private SegmentClaims segmentClaims;
+  private CapacityBroker capacityBroker;
+  private IopsCalculator jobIopsCalculator;
+  private IopsCalculator taskIopsCalculator;
+  private long rateRefreshIntervalMs;
 
   public PageResultMultiplexer<Map<String, AttributeValue>> getPageResultMultiplexer() {
     return pageMux;
@@ -40,6 +47,73 @@ public class DynamoDBRecordReaderContext {
     this.pageMux = pageMux;
   }
 
+  /**
+   * @return the checkpoint scan segments are resumed from and record their progress to, or null if
+   *         checkpointing is off
+   */
+  public ScanCheckpoint getScanCheckpoint() {
+    return scanCheckpoint;
+  }
+
+  public void setScanCheckpoint(ScanCheckpoint scanCheckpoint) {
+    this.scanCheckpoint = scanCheckpoint;
+  }
+
+  /**
+   * @return the claims scan segments are assigned through, or null if the segments of the split
+   *         are scanned
+   */
+  public SegmentClaims getSegmentClaims() {
+    return segmentClaims;
+  }
+
+  public void setSegmentClaims(SegmentClaims segmentClaims) {
+    this.segmentClaims = segmentClaims;
+  }
+
+  /**
+   * @return the broker the task leases its share of the read capacity of the job from, or null if
+   *         the task reads at a fixed rate
+   */
+  public CapacityBroker getCapacityBroker() {
+    return capacityBroker;
+  }
+
+  /**
+   * @param jobIopsCalculator calculates the read capacity of the whole job, which is shared
+   *                          according to the leases
+   */
+  public void setCapacityBroker(CapacityBroker capacityBroker, IopsCalculator jobIopsCalculator) {
+    this.capacityBroker = capacityBroker;
+    this.jobIopsCalculator = jobIopsCalculator;
+  }
+
+  public IopsCalculator getJobIopsCalculator() {
+    return jobIopsCalculator;
+  }
+
+  /**
+   * @return calculates the read capacity of the task when it does not lease it from a broker, or
+   *         null if the task reads at a fixed rate
+   */
+  public IopsCalculator getTaskIopsCalculator() {
+    return taskIopsCalculator;
+  }
+
+  /**
+   * @param rateRefreshIntervalMs how often the read manager recalculates the read capacity of the
+   *                              task
+   */
+  public void setTaskIopsCalculator(IopsCalculator taskIopsCalculator,
+      long rateRefreshIntervalMs) {
+    this.taskIopsCalculator = taskIopsCalculator;
+    this.rateRefreshIntervalMs = rateRefreshIntervalMs;
+  }
+
+  public long getRateRefreshIntervalMs() {
+    return rateRefreshIntervalMs;
+  }
+
   public DynamoDBSplit getSplit() {
     return split;
   }
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+
+/**
+ * Shares the read capacity between the tasks of a job through a lease file per task attempt, whose
+ * name holds the split of the task, the attempt, the number of segments of the split, and the
+ * number the attempt has left to read or that it ended. An attempt renews its lease by writing the
+ * file, and lists the files to learn about the others. Modification times are compared to that of
+ * the attempt's own file, so that they are all taken from the clock of the file system.
+ *
+ * Leases that expired are those of failed attempts, whose share is kept for the next attempt of
+ * their task. Attempts of a task running at the same time, e.g. speculative ones, split the share
+ * of the task. Once one of them ended, the share of the task is handed over to the other tasks,
+ * and the attempts of the task still running read at the lowest rate until they are killed.
+ */
+public class FileSystemCapacityBroker implements CapacityBroker {
+
+  private static final Log log = LogFactory.getLog(FileSystemCapacityBroker.class);
+
+  private static final String LEASE_FILE_PREFIX = "lease-";
+  private static final String ENDED_FILE_PREFIX = "ended-";
+  // Number of renewal intervals after which the lease of a task that stopped renewing it expires
+  private static final int LEASE_EXPIRY_INTERVALS = 3;
+
+  private final FileSystem fs;
+  private final Path dir;
+  private final int splitId;
+  private final String attempt;
+  private final int splitSegments;
+  private final int totalSegments;
+  private final long expiryMs;
+  private Path leaseFile;
+
+  FileSystemCapacityBroker(FileSystem fs, Path dir, DynamoDBSplit split, String attempt,
+      long renewalIntervalMs) {
+    this.fs = fs;
+    this.dir = dir;
+    this.splitId = split.getSplitId();
+    this.attempt = attempt;
+    this.splitSegments = split.getSegments().size();
+    this.totalSegments = split.getTotalSegments();
+    this.expiryMs = renewalIntervalMs * LEASE_EXPIRY_INTERVALS;
+  }
+
+  /**
+   * @return the broker of the task attempt reading a split, or null if
+   *         {@link DynamoDBConstants#READ_CAPACITY_LEASE_DIR} is not set
+   */
+  public static FileSystemCapacityBroker open(JobConf conf, DynamoDBSplit split)
+      throws IOException {
+    Path runDir = ReadStateDirs.getRunDir(conf, DynamoDBConstants.READ_CAPACITY_LEASE_DIR, split);
+    if (runDir == null) {
+      return null;
+    }
+
+    String attempt = conf.get(MRJobConfig.TASK_ATTEMPT_ID);
+    if (attempt == null) {
+      throw new IOException("Leasing read capacity requires the task attempt ID in "
+          + MRJobConfig.TASK_ATTEMPT_ID);
+    }
+    long renewalIntervalMs = conf.getLong(DynamoDBConstants.READ_CAPACITY_LEASE_INTERVAL,
+        DynamoDBConstants.DEFAULT_READ_CAPACITY_LEASE_INTERVAL);
+    return new FileSystemCapacityBroker(runDir.getFileSystem(conf), runDir, split,
+        attempt.replace('-', '_'), renewalIntervalMs);
+  }
+
+  @Override
+  public synchronized double renew(int remainingSegments) throws IOException {
+    Path renewed = new Path(dir, LEASE_FILE_PREFIX + splitId + "-" + attempt + "-"
+        + splitSegments + "-" + remainingSegments);
+    fs.create(renewed, true).close();
+    if (leaseFile != null && !leaseFile.equals(renewed)) {
+      fs.delete(leaseFile, false);
+    }
+    leaseFile = renewed;
+
+    FileStatus[] statuses = fs.listStatus(dir);
+    long renewedAt = 0;
+    for (FileStatus status : statuses) {
+      if (status.getPath().getName().equals(renewed.getName())) {
+        renewedAt = status.getModificationTime();
+      }
+    }
+
+    // The segments of the splits of the tasks that ended, and the latest unexpired lease of each
+    // attempt of the other tasks, since attempts leave their earlier leases behind
+    Map<Integer, Integer> endedTasks = new HashMap<>();
+    Map<Integer, Map<String, FileStatus>> liveAttempts = new HashMap<>();
+    for (FileStatus status : statuses) {
+      String[] lease = parse(status.getPath());
+      if (lease == null) {
+        continue;
+      }
+      int task = Integer.parseInt(lease[1]);
+      if (isEnded(status.getPath())) {
+        endedTasks.put(task, Integer.parseInt(lease[3]));
+      } else if (status.getModificationTime() >= renewedAt - expiryMs) {
+        Map<String, FileStatus> attempts = liveAttempts.computeIfAbsent(task,
+            key -> new HashMap<>());
+        FileStatus latest = attempts.get(lease[2]);
+        if (latest == null || status.getModificationTime() > latest.getModificationTime()) {
+          attempts.put(lease[2], status);
+        }
+      }
+    }
+
+    if (endedTasks.containsKey(splitId)) {
+      log.info("Another attempt of the task read all its segments, its share was handed over");
+      return 0;
+    }
+
+    double endedShares = 0;
+    for (int segments : endedTasks.values()) {
+      endedShares += (double) segments / totalSegments;
+    }
+    // The segments each task still running has left, as of the latest lease of its attempts
+    long activeSegments = 0;
+    for (Map.Entry<Integer, Map<String, FileStatus>> task : liveAttempts.entrySet()) {
+      if (endedTasks.containsKey(task.getKey())) {
+        continue;
+      }
+      FileStatus latest = null;
+      for (FileStatus status : task.getValue().values()) {
+        if (latest == null || status.getModificationTime() > latest.getModificationTime()) {
+          latest = status;
+        }
+      }
+      activeSegments += Long.parseLong(parse(latest.getPath())[4]);
+    }
+    double share = CapacityBroker.getShare((double) splitSegments / totalSegments,
+        remainingSegments, endedShares, activeSegments)
+        / Math.max(1, liveAttempts.getOrDefault(splitId, Collections.emptyMap()).size());
+    log.debug("Renewed the capacity lease, share: " + share + ", ended shares: " + endedShares
+        + ", segments left to the active tasks: " + activeSegments);
+    return share;
+  }
+
+  @Override
+  public synchronized void end() throws IOException {
+    fs.create(new Path(dir, ENDED_FILE_PREFIX + splitId + "-" + attempt + "-" + splitSegments),
+        true).close();
+    if (leaseFile != null) {
+      fs.delete(leaseFile, false);
+    }
+  }
+
+  /**
+   * @return the prefix, split ID, attempt, segments of the split and remaining segments of a lease
+   *         file, the latter missing for ended leases, or null if it is not a lease file
+   */
+  private static String[] parse(Path path) {
+    String name = path.getName();
+    if (!name.startsWith(LEASE_FILE_PREFIX) && !name.startsWith(ENDED_FILE_PREFIX)) {
+      return null;
+    }
+    return name.split("-");
+  }
+
+  private static boolean isEnded(Path path) {
+    return path.getName().startsWith(ENDED_FILE_PREFIX);
+  }
+}
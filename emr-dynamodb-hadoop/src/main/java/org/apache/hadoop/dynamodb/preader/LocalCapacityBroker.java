@@ -0,0 +1,69 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+import java.util.Map;
+
+/**
+ * Shares the read capacity between the tasks of a JVM, which hold their leases in a common map.
+ */
+public class LocalCapacityBroker implements CapacityBroker {
+
+  private final Map<String, LocalCapacityBroker> leases;
+  private final String taskId;
+  private final double staticShare;
+  // Guarded by leases
+  private int remainingSegments;
+  private boolean ended;
+
+  /**
+   * @param leases      the leases of the tasks by task ID, shared with the brokers of the other
+   *                    tasks
+   * @param staticShare the share of the split of the task
+   */
+  public LocalCapacityBroker(Map<String, LocalCapacityBroker> leases, String taskId,
+      double staticShare) {
+    this.leases = leases;
+    this.taskId = taskId;
+    this.staticShare = staticShare;
+  }
+
+  @Override
+  public double renew(int remainingSegments) {
+    synchronized (leases) {
+      this.remainingSegments = remainingSegments;
+      leases.put(taskId, this);
+      double endedShares = 0;
+      long activeSegments = 0;
+      for (LocalCapacityBroker lease : leases.values()) {
+        if (lease.ended) {
+          endedShares += lease.staticShare;
+        } else {
+          activeSegments += lease.remainingSegments;
+        }
+      }
+      return CapacityBroker.getShare(staticShare, remainingSegments, endedShares,
+          activeSegments);
+    }
+  }
+
+  @Override
+  public void end() {
+    synchronized (leases) {
+      ended = true;
+      remainingSegments = 0;
+      leases.put(taskId, this);
+    }
+  }
+}
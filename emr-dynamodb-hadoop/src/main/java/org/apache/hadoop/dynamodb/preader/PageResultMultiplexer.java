@@ -14,11 +14,14 @@
 package org.apache.hadoop.dynamodb.preader;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -26,36 +29,71 @@ import org.apache.commons.logging.LogFactory;
  * A multiplexer that interleaves items from multiple scan/query page results.
  *
  * The next() method will walk through pages in the buffer and return a single item a time. next()
- * will block if the number of pages is smaller than batchSize.
+ * will block if the number of pages is smaller than batchSize, unless the buffer is saturated.
+ *
+ * Producers hand pages over through a lock-free queue and only touch the consumer lock to wake up
+ * a consumer that is actually waiting. Consumers round-robin over a private deque, so returning an
+ * item neither allocates nor contends with producers.
+ *
+ * Besides the hard page capacity, the buffer has a soft budget on the estimated bytes of the items
+ * it holds. Pages are always admitted, but once the budget is nearly used up {@link
+ * #isSaturated()} reports it, so that workers stop issuing reads instead of blocking on a full
+ * buffer.
  */
 public class PageResultMultiplexer<V> {
 
   private static final Log log = LogFactory.getLog(PageResultMultiplexer.class);
 
+  private static final int STATS_LOG_INTERVAL = 10000;
+  private static final double SATURATION_THRESHOLD = 0.9;
+
   private final int batchSize;
   private final int capacity;
-  private final BlockingQueue<PageResults<V>> pages;
+  private final long saturatedPageCount;
+  private final long saturatedBytes;
+  // Pages added by producers that no consumer has picked up yet
+  private final Queue<PageResults<V>> incomingPages = new ConcurrentLinkedQueue<>();
+  // Pages being multiplexed, guarded by consumerLock
+  private final ArrayDeque<PageResults<V>> activePages;
+  private final Semaphore freeSlots;
   private final AtomicInteger pageCount = new AtomicInteger();
-  private final Object removeItemLock = new Object();
+  private final AtomicLong bufferedBytes = new AtomicLong();
+  private final AtomicInteger waitingConsumers = new AtomicInteger();
+  private final ReentrantLock consumerLock = new ReentrantLock();
+  private final Condition pagesAvailable = consumerLock.newCondition();
 
   private long itemsReturned = 0;
   private volatile boolean draining = false;
-  private volatile Iterator<PageResults<V>> pageIterator;
 
   public PageResultMultiplexer(int batchSize, int capacity) {
+    this(batchSize, capacity, Long.MAX_VALUE);
+  }
+
+  public PageResultMultiplexer(int batchSize, int capacity, long capacityBytes) {
     this.batchSize = batchSize;
     this.capacity = capacity;
-    this.pages = new LinkedBlockingQueue<>(capacity);
-    this.pageIterator = pages.iterator();
+    this.saturatedPageCount = Math.max(1, (long) (capacity * SATURATION_THRESHOLD));
+    this.saturatedBytes = Math.max(1, (long) (capacityBytes * SATURATION_THRESHOLD));
+    this.activePages = new ArrayDeque<>(capacity);
+    this.freeSlots = new Semaphore(capacity);
   }
 
   public boolean addPageResults(PageResults<V> page) {
-    // Order: add page, increment counter
-    boolean admitted = pages.offer(page);
-    if (!admitted) {
+    return addPageResults(page, 0);
+  }
+
+  /**
+   * Adds a page to the buffer, blocking while the buffer is at its page capacity.
+   *
+   * @param page      the page to multiplex
+   * @param sizeBytes estimated size of the items in the page
+   * @return false if interrupted while waiting for free capacity
+   */
+  public boolean addPageResults(PageResults<V> page, long sizeBytes) {
+    if (!freeSlots.tryAcquire()) {
       try {
-        log.info("Blocking on page add, mux full.");
-        pages.put(page);
+        log.debug("Blocking on page add, mux full.");
+        freeSlots.acquire();
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
         log.error("Page add was interrupted");
@@ -63,46 +101,62 @@ public class PageResultMultiplexer<V> {
       }
     }
 
-    pageCount.incrementAndGet();
-    log.info("Added a page. Page count: " + pageCount.get());
+    // Order: account bytes, add page, increment counter, wake up consumers
+    page.sizeBytes = sizeBytes;
+    long bytes = bufferedBytes.addAndGet(sizeBytes);
+    incomingPages.offer(page);
+    int count = pageCount.incrementAndGet();
+    if (log.isDebugEnabled()) {
+      log.debug("Added a page. Page count: " + count + ", buffered bytes: " + bytes);
+    }
+    if (waitingConsumers.get() > 0) {
+      signalConsumers();
+    }
 
     return true;
   }
 
   public V next() throws IOException {
-    if (itemsReturned % 10000 == 0) {
-      log.info("Pagemux stats: items=" + itemsReturned + ", pages=" + pageCount.get() + ", cap="
-          + capacity);
-    }
+    consumerLock.lock();
+    try {
+      if (itemsReturned % STATS_LOG_INTERVAL == 0) {
+        log.info("Pagemux stats: items=" + itemsReturned + ", pages=" + pageCount.get() + ", cap="
+            + capacity + ", bytes=" + bufferedBytes.get());
+      }
 
-    synchronized (removeItemLock) {
       // Now, this could block for a while as we wait for enough pages to
       // multiplex. As long as we're really doing work in the background (
       // scans/queries), then the dynamodb client/retrier will tick the
       // reporter to signal liveness.
-      waitForMuxCondition();
+      awaitPages(batchSize);
 
       // Loop until we find the queue in draining mode and empty
       while (!(draining && pageCount.get() == 0)) {
-        PageResults<V> nextPage;
-        try {
-          nextPage = pageIterator.next();
-        } catch (NoSuchElementException e) {
-          pageIterator = pages.iterator();
+        transferIncomingPages();
+
+        PageResults<V> nextPage = activePages.pollFirst();
+        if (nextPage == null) {
+          awaitPages(1);
           continue;
         }
 
         if (nextPage.exception != null) {
+          activePages.addFirst(nextPage);
           throw new IOException(nextPage.exception);
         }
 
         V nextItem = nextPage.next();
 
-        // Remove the page if we've emptied it
-        if (!nextPage.hasMore()) {
-          // Order: lower counter, remove page
+        if (nextPage.hasMore()) {
+          activePages.addLast(nextPage);
+        } else {
+          // Order: lower counter, release bytes, free the slot
           pageCount.decrementAndGet();
-          pageIterator.remove();
+          bufferedBytes.addAndGet(-nextPage.sizeBytes);
+          freeSlots.release();
+          if (nextPage.consumedCallback != null) {
+            nextPage.consumedCallback.run();
+          }
         }
 
         if (nextItem != null) {
@@ -110,23 +164,72 @@ public class PageResultMultiplexer<V> {
           return nextItem;
         }
       }
+    } finally {
+      consumerLock.unlock();
     }
 
     return null;
   }
 
+  /**
+   * @return true if the buffer is close to its page or byte capacity, in which case producers
+   *     should hold off issuing more reads until the consumer catches up
+   */
+  public boolean isSaturated() {
+    return pageCount.get() >= saturatedPageCount || bufferedBytes.get() >= saturatedBytes;
+  }
+
   public void setDraining(boolean draining) {
     this.draining = draining;
+    signalConsumers();
   }
 
-  private void waitForMuxCondition() {
-    while (pageCount.get() < batchSize && !draining) {
-      try {
-        log.info("Sleeping on consumption condition, pagecount = " + pageCount.get());
-        Thread.sleep(100);
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
+  /**
+   * Moves newly added pages behind the ones already being multiplexed, so that pages are visited
+   * in the order they were added. Must be called while holding consumerLock.
+   */
+  private void transferIncomingPages() {
+    PageResults<V> page;
+    while ((page = incomingPages.poll()) != null) {
+      activePages.addLast(page);
+    }
+  }
+
+  /**
+   * Blocks until at least minPages pages are buffered, the buffer is saturated or the multiplexer
+   * is draining. Must be called while holding consumerLock.
+   */
+  private void awaitPages(int minPages) {
+    if (canConsume(minPages)) {
+      return;
+    }
+
+    // Producers check waitingConsumers after bumping pageCount, so registering before the
+    // re-check below guarantees that one of the two sides notices the other.
+    waitingConsumers.incrementAndGet();
+    try {
+      while (!canConsume(minPages)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Waiting on consumption condition, pagecount = " + pageCount.get());
+        }
+        pagesAvailable.awaitUninterruptibly();
       }
+    } finally {
+      waitingConsumers.decrementAndGet();
+    }
+  }
+
+  private boolean canConsume(int minPages) {
+    // A saturated buffer must be consumed even below batchSize, as producers are throttled
+    return pageCount.get() >= minPages || draining || (pageCount.get() > 0 && isSaturated());
+  }
+
+  private void signalConsumers() {
+    consumerLock.lock();
+    try {
+      pagesAvailable.signalAll();
+    } finally {
+      consumerLock.unlock();
     }
   }
 }
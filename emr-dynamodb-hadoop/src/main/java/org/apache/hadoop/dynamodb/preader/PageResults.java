@@ -26,6 +26,11 @@ public class PageResults<V> {
   public final int retries;
   public final Exception exception;
 
+  // Estimated size of the items, set when the page is added to a multiplexer
+  volatile long sizeBytes;
+  // Called by the multiplexer once all the items of the page have been returned
+  volatile Runnable consumedCallback;
+
   private volatile int pos;
 
   public PageResults(List<V> items, V lastEvaluatedKey, double consumedRcu, int retries) {
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+/**
+ * Scales the worker count with a PID controller on the relative error between the target and the
+ * achieved rate. Retries count as a negative error in proportion to the share of the requests that
+ * were retried, so that the worker count settles where the table stops throttling. Errors within
+ * the 10% the rate controller may go over are ignored, and the integral decays while the target is
+ * achieved, so that the pool does not keep growing once it is large enough.
+ */
+public class PidConcurrencyController implements ConcurrencyController {
+
+  private static final double KP = 0.8;
+  private static final double KI = 0.2;
+  private static final double KD = 0.1;
+  private static final double MAX_INTEGRAL = 3;
+  private static final double DEADBAND = 0.1;
+  private static final double INTEGRAL_DECAY = 0.5;
+  // This defines the lower bound of what we try to stay within. Not the same
+  // as RateController.MIN_RCU_PER_REQ which defines the absolute smallest
+  // request we are willing to make.
+  private static final int MIN_RCU_PER_REQ = 2;
+
+  private double integral;
+  private double lastError;
+
+  @Override
+  public int evaluate(Evaluation evaluation) {
+    if (evaluation.targetRate <= 0) {
+      return 0;
+    }
+
+    double error = (evaluation.targetRate - evaluation.rcuPerSecond) / evaluation.targetRate;
+    if (evaluation.retries > 0) {
+      error = Math.min(error, 0) - evaluation.getRetryRatio();
+    } else if (Math.abs(error) < DEADBAND) {
+      error = 0;
+    }
+
+    if (error == 0) {
+      integral *= INTEGRAL_DECAY;
+    } else {
+      integral = Math.max(-MAX_INTEGRAL, Math.min(integral + error, MAX_INTEGRAL));
+    }
+    double derivative = error - lastError;
+    lastError = error;
+    double output = KP * error + KI * integral + KD * derivative;
+
+    if (error == 0 && evaluation.rcuPerRequest < MIN_RCU_PER_REQ) {
+      // Fewer, larger requests read at the same rate
+      return -1;
+    }
+
+    // At most halve or double the pool per evaluation
+    int current = Math.max(evaluation.workers, 1);
+    int workers = (int) Math.round(current * Math.max(0.5, Math.min(1 + output, 2)));
+    return Math.max(workers, 1) - evaluation.workers;
+  }
+}
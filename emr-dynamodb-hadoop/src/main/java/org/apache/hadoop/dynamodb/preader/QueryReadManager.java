@@ -13,6 +13,7 @@
 
 package org.apache.hadoop.dynamodb.preader;
 
+import java.util.List;
 import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
 
 public class QueryReadManager extends AbstractReadManager {
@@ -24,16 +25,22 @@ public class QueryReadManager extends AbstractReadManager {
 
   @Override
   protected void initializeReadRequests() {
+    // Each segment is read by its own Query, which is a single one unless the query is fanned out
+    // over several hash key values
     int totalSegments = context.getSplit().getTotalSegments();
-    if (totalSegments != 1) {
-      String errorMsg = "Expect 1 segment for query (received " + context.getSplit()
-          .getTotalSegments() + ")";
+    int queryCount = context.getSplit().getFilterPushdown().getSegmentCount();
+    if (totalSegments != queryCount) {
+      String errorMsg = "Expect " + queryCount + " segment(s) for query (received "
+          + totalSegments + ")";
       log.error(errorMsg);
       throw new RuntimeException(errorMsg);
     }
-    segmentsRemaining.set(totalSegments);
+    List<Integer> segments = context.getSplit().getSegments();
+    segmentsRemaining.set(segments.size());
 
-    enqueueReadRequestToTail(new QueryRecordReadRequest(this, context, null /* lastEvaluatedKey
-    */));
+    for (Integer segment : segments) {
+      enqueueReadRequestToTail(new QueryRecordReadRequest(this, context, segment,
+          null /* lastEvaluatedKey */));
+    }
   }
 }
@@ -15,6 +15,7 @@ package org.apache.hadoop.dynamodb.preader;
 
 import java.util.Map;
 import org.apache.hadoop.dynamodb.DynamoDBFibonacciRetryer.RetryResult;
+import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
 import org.apache.hadoop.dynamodb.preader.RateController.RequestLimit;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
@@ -23,25 +24,32 @@ public class QueryRecordReadRequest extends AbstractRecordReadRequest {
 
   public QueryRecordReadRequest(AbstractReadManager readMgr, DynamoDBRecordReaderContext context,
                                 Map<String, AttributeValue> lastEvaluatedKey) {
-    super(readMgr, context, 0 /* segment */, lastEvaluatedKey);
+    this(readMgr, context, 0 /* segment */, lastEvaluatedKey);
+  }
+
+  public QueryRecordReadRequest(AbstractReadManager readMgr, DynamoDBRecordReaderContext context,
+                                int segment, Map<String, AttributeValue> lastEvaluatedKey) {
+    super(readMgr, context, segment, lastEvaluatedKey);
   }
 
   @Override
   protected AbstractRecordReadRequest buildNextReadRequest(PageResults<Map<String,
           AttributeValue>> pageResults) {
-    return new QueryRecordReadRequest(readMgr, context, pageResults.lastEvaluatedKey);
+    return new QueryRecordReadRequest(readMgr, context, segment, pageResults.lastEvaluatedKey);
   }
 
   @Override
   protected PageResults<Map<String, AttributeValue>> fetchPage(RequestLimit lim) {
     // Read from DynamoDB
-    RetryResult<QueryResponse> retryResult = context.getClient().queryTable(tableName, context
-            .getSplit().getFilterPushdown(), lastEvaluatedKey, lim.items, context.getReporter());
+    DynamoDBQueryFilter query = context.getSplit().getFilterPushdown().getSegmentQuery(segment);
+    RetryResult<QueryResponse> retryResult = context.getClient().queryTable(tableName, query,
+        lastEvaluatedKey, lim.items, query.getSegmentAttributes(context.getAttributes()),
+        context.getReporter());
 
     QueryResponse response = retryResult.result;
     int retries = retryResult.retries;
 
-    return new PageResults<>(response.items(),
+    return new PageResults<>(query.getSegmentItems(response.items()),
         // Default value of QueryResponse.lastEvaluatedKey is changed from NULL to
         // SdkAutoConstructMap in AWS SDK 2.x.
         // Translate the default value to NULL here, to keep this assumption in other classes.
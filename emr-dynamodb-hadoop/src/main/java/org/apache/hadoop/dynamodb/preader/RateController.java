@@ -13,6 +13,7 @@
 
 package org.apache.hadoop.dynamodb.preader;
 
+import java.util.function.BooleanSupplier;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
@@ -21,7 +22,7 @@ import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
 public class RateController {
 
   static final double MIN_RCU_PER_REQ = 1;
-  private static final double MAX_RCU_PER_REQ = 25;
+  static final double MAX_RCU_PER_REQ = 25;
   private static final Log log = LogFactory.getLog(RateController.class);
   private static final double ITEM_SIZE_SMOOTH_FACTOR = 0.7;
 
@@ -29,16 +30,29 @@ public class RateController {
   private static final double MIN_ITEM_SIZE = 1.0;
   private static final double MAX_ITEM_SIZE = 400 * 1024;
 
-  private final double targetRate;
+  private final int windowSize;
   private final TokenBucket bucket;
+  private final BooleanSupplier backpressure;
   private double avgItemSizeBytes;
+  private volatile double targetRate;
 
   public RateController(AbstractTimeSource time, double targetRate, int windowSize, double
       avgItemSizeBytes) {
+    this(time, targetRate, windowSize, avgItemSizeBytes, () -> false);
+  }
+
+  /**
+   * @param backpressure signals that the consumer is falling behind, e.g. because the page buffer
+   *                     is saturated. No tokens are handed out while it returns true.
+   */
+  public RateController(AbstractTimeSource time, double targetRate, int windowSize, double
+      avgItemSizeBytes, BooleanSupplier backpressure) {
     this.targetRate = targetRate;
+    this.windowSize = windowSize;
+    this.backpressure = backpressure;
     this.avgItemSizeBytes = Math.min(Math.max(avgItemSizeBytes, MIN_ITEM_SIZE), MAX_ITEM_SIZE);;
 
-    double capacity = Math.max(targetRate * windowSize, MIN_RCU_PER_REQ);
+    double capacity = getBucketCapacity(targetRate);
     this.bucket = new TokenBucket(targetRate, capacity, time);
 
     log.info("Rate controller initialized. target rate=" + targetRate + ", bucket capacity="
@@ -46,6 +60,11 @@ public class RateController {
   }
 
   RequestLimit getNextRequestLimit() {
+    // Hold off before acquiring tokens, so that a throttled worker does not sit on them
+    if (backpressure.getAsBoolean()) {
+      return RequestLimit.ZERO;
+    }
+
     double rcu = bucket.acquire(MIN_RCU_PER_REQ, MAX_RCU_PER_REQ);
     if (rcu < MIN_RCU_PER_REQ) {
       return RequestLimit.ZERO;
@@ -82,10 +101,38 @@ public class RateController {
     }
   }
 
+  /**
+   * Called when a request was throttled. DynamoDB does not charge for it, but rather than returning
+   * the tokens the request was permitted, as many more are taken from the bucket, which slows all
+   * the workers down while the table is being throttled.
+   */
+  void throttled(double permittedReadUnits) {
+    double tokens = bucket.forceUpdate(-permittedReadUnits);
+    log.debug("Request throttled, permittedReadUnits=" + permittedReadUnits + ", tokens="
+        + tokens);
+  }
+
   double getTargetRate() {
     return targetRate;
   }
 
+  /**
+   * Changes the rate tokens are handed out at, e.g. when the task is given a larger share of the
+   * read capacity of the job.
+   */
+  void setTargetRate(double targetRate) {
+    if (targetRate == this.targetRate) {
+      return;
+    }
+    log.info("Changing target rate from " + this.targetRate + " to " + targetRate);
+    this.targetRate = targetRate;
+    bucket.setRate(targetRate, getBucketCapacity(targetRate));
+  }
+
+  private double getBucketCapacity(double targetRate) {
+    return Math.max(targetRate * windowSize, MIN_RCU_PER_REQ);
+  }
+
   double getAvgItemSize() {
     return avgItemSizeBytes;
   }
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+import java.io.IOException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+
+/**
+ * Locates the state the record readers of a job share, e.g. scan checkpoints, on the file system.
+ * Each planning of the splits gets a directory of its own, under the directory of its group
+ * ({@link DynamoDBConstants#READ_STATE_GROUP}), so that neither another job nor another scan in
+ * the same query sees it. The group is deleted with {@link #deleteGroup} once the job is over.
+ */
+public final class ReadStateDirs {
+
+  private static final Log log = LogFactory.getLog(ReadStateDirs.class);
+
+  // Settings of the directories that hold state scoped by group
+  private static final String[] STATE_DIRS = {DynamoDBConstants.SCAN_CHECKPOINT_DIR,
+      DynamoDBConstants.SCAN_SEGMENT_CLAIM_DIR, DynamoDBConstants.READ_CAPACITY_LEASE_DIR};
+
+  private ReadStateDirs() {
+  }
+
+  /**
+   * @return the directory the record reader of the split keeps the state of the given setting in,
+   *         or null if the setting is not set
+   */
+  public static Path getRunDir(Configuration conf, String dirKey, DynamoDBSplit split) {
+    String dir = conf.get(dirKey);
+    if (dir == null) {
+      return null;
+    }
+    if (split.getRunId() == null) {
+      throw new IllegalArgumentException("The split was not planned by a DynamoDB input format, "
+          + "so it cannot use " + dirKey);
+    }
+
+    String group = getGroup(conf);
+    Path groupDir = group == null ? new Path(dir) : new Path(dir, group);
+    return new Path(groupDir, split.getRunId());
+  }
+
+  /**
+   * @return the group of the state of the job, or null if it has none
+   */
+  public static String getGroup(Configuration conf) {
+    String group = conf.get(DynamoDBConstants.READ_STATE_GROUP);
+    return group == null ? conf.get(MRJobConfig.ID) : group;
+  }
+
+  /**
+   * Deletes the state of a group in all the configured directories. Called once the job, or every
+   * job of the group, committed or failed.
+   */
+  public static void deleteGroup(Configuration conf, String group) throws IOException {
+    for (String dirKey : STATE_DIRS) {
+      String dir = conf.get(dirKey);
+      if (dir != null) {
+        Path groupDir = new Path(dir, group);
+        if (groupDir.getFileSystem(conf).delete(groupDir, true)) {
+          log.info("Deleted the read state in " + groupDir);
+        }
+      }
+    }
+  }
+}
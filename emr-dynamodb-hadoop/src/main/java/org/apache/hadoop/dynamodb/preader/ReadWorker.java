@@ -65,7 +65,7 @@ public class ReadWorker extends Thread {
 
     AbstractRecordReadRequest req = readMgr.dequeueReadRequest();
     if (req == null) {
-      log.info("Worker found read request queue empty, sleeping.");
+      log.debug("Worker found read request queue empty, sleeping.");
       Thread.sleep(getSleepTime());
       return;
     }
@@ -73,7 +73,7 @@ public class ReadWorker extends Thread {
     // Find the limit for the next request
     RequestLimit lim = readMgr.rateController.getNextRequestLimit();
     if (lim == RateController.RequestLimit.ZERO) {
-      log.info("No read token from rate controller. Putting the request back");
+      log.debug("No read token from rate controller. Putting the request back");
       readMgr.enqueueReadRequestToHead(req);
       Thread.sleep(getSleepTime());
       return;
@@ -0,0 +1,278 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
+import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
+import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Progress of the scan segments of a split, periodically written to a file so that a retried task
+ * resumes each segment after the last page its failed attempt handed out entirely.
+ *
+ * A page only counts once all its items have been returned by the record reader, the pages before
+ * it in its segment did too, and the caller of the record reader acknowledged them by asking for
+ * the next item or row batch. Only acknowledged progress is persisted. Items returned after the
+ * last checkpoint are read again by the next attempt, so the guarantee is at-least-once.
+ */
+public class ScanCheckpoint {
+
+  private static final Log log = LogFactory.getLog(ScanCheckpoint.class);
+
+  private static final int FORMAT_VERSION = 1;
+  // Output format of jobs set up through the mapred API
+  private static final String OLD_OUTPUT_FORMAT_CLASS = "mapred.output.format.class";
+
+  private final FileSystem fs;
+  private final Path path;
+  private final Path tempPath;
+  private final AbstractTimeSource time;
+  private final long intervalMs;
+  // Guarded by this
+  private final Map<Integer, SegmentProgress> segments = new HashMap<>();
+  // Progress of the segments up to the items the caller acknowledged, guarded by this
+  private final Map<Integer, SegmentProgress> acknowledged = new HashMap<>();
+  private boolean pending;
+  private boolean dirty;
+  private long lastPersistedNano;
+
+  ScanCheckpoint(FileSystem fs, Path path, AbstractTimeSource time, long intervalMs) {
+    this.fs = fs;
+    this.path = path;
+    this.tempPath = path.suffix(".tmp");
+    this.time = time;
+    this.intervalMs = intervalMs;
+    this.lastPersistedNano = time.getNanoTime();
+  }
+
+  /**
+   * Opens the checkpoint of a split and loads the progress a previous attempt persisted.
+   *
+   * @return the checkpoint, or null if {@link DynamoDBConstants#SCAN_CHECKPOINT_DIR} is not set
+   */
+  public static ScanCheckpoint open(JobConf conf, DynamoDBSplit split, AbstractTimeSource time)
+      throws IOException {
+    // Attempts of a task share the checkpoint of their split, other runs do not
+    Path runDir = ReadStateDirs.getRunDir(conf, DynamoDBConstants.SCAN_CHECKPOINT_DIR, split);
+    if (runDir == null) {
+      return null;
+    }
+
+    Path path = new Path(runDir, "split-" + split.getSplitId());
+    ScanCheckpoint checkpoint = new ScanCheckpoint(path.getFileSystem(conf), path, time,
+        conf.getLong(DynamoDBConstants.SCAN_CHECKPOINT_INTERVAL,
+            DynamoDBConstants.DEFAULT_SCAN_CHECKPOINT_INTERVAL));
+    checkpoint.load();
+    return checkpoint;
+  }
+
+  /**
+   * Checks that a job being planned writes the items it reads as it processes them. A retried task
+   * skips the items its failed attempt read before the checkpoint, so they are lost if the output
+   * of the failed attempt was discarded, as is the output of map tasks feeding reducers, or of
+   * tasks writing files that are committed when they succeed. Jobs that do not name their output
+   * format, e.g. Spark jobs, are not checked.
+   *
+   * @throws IllegalArgumentException if {@link DynamoDBConstants#SCAN_CHECKPOINT_DIR} is set for a
+   *                                  job that commits its output or has reducers
+   */
+  public static void checkJob(JobConf conf) {
+    if (conf.get(DynamoDBConstants.SCAN_CHECKPOINT_DIR) == null) {
+      return;
+    }
+    Class<?> outputFormat = conf.getClass(OLD_OUTPUT_FORMAT_CLASS,
+        conf.getClass(MRJobConfig.OUTPUT_FORMAT_CLASS_ATTR, null));
+    if (outputFormat == null) {
+      return;
+    }
+    if (conf.getNumReduceTasks() > 0
+        || org.apache.hadoop.mapred.FileOutputFormat.class.isAssignableFrom(outputFormat)
+        || org.apache.hadoop.mapreduce.lib.output.FileOutputFormat.class
+            .isAssignableFrom(outputFormat)) {
+      throw new IllegalArgumentException(DynamoDBConstants.SCAN_CHECKPOINT_DIR + " is only "
+          + "supported by map-only jobs that write the items as they read them, but the job has "
+          + conf.getNumReduceTasks() + " reducer(s) and writes with " + outputFormat.getName()
+          + ". The items a failed task read would be lost when the task is retried.");
+    }
+  }
+
+  /**
+   * @return the key to resume the segment from, or null to scan it from the start
+   */
+  public synchronized Map<String, AttributeValue> getLastEvaluatedKey(int segment) {
+    SegmentProgress progress = acknowledged.get(segment);
+    return progress == null ? null : progress.lastEvaluatedKey;
+  }
+
+  /**
+   * @return whether all the items of the segment were handed out by a previous attempt
+   */
+  public synchronized boolean isComplete(int segment) {
+    SegmentProgress progress = acknowledged.get(segment);
+    return progress != null && progress.complete;
+  }
+
+  /**
+   * Records that all the items of a page were returned by the record reader.
+   *
+   * @param segment          the segment of the page
+   * @param page             the number of the page in the segment, counted from the first page
+   *                         read by this attempt
+   * @param lastEvaluatedKey the last evaluated key of the page, null for the last page
+   * @param items            the number of items in the page
+   */
+  synchronized void pageConsumed(int segment, long page, Map<String, AttributeValue>
+      lastEvaluatedKey, int items) {
+    SegmentProgress progress = segments.computeIfAbsent(segment, s -> new SegmentProgress());
+    progress.consumedPages.put(page, new ConsumedPage(lastEvaluatedKey, items));
+    ConsumedPage next;
+    while ((next = progress.consumedPages.remove(progress.nextPage)) != null) {
+      progress.lastEvaluatedKey = next.lastEvaluatedKey;
+      progress.complete = next.lastEvaluatedKey == null;
+      progress.items += next.items;
+      progress.nextPage++;
+      pending = true;
+    }
+  }
+
+  /**
+   * Records that the items returned by the record reader so far have been processed, so that the
+   * pages they completed are persisted with the next checkpoint.
+   */
+  public synchronized void acknowledge() {
+    if (!pending) {
+      return;
+    }
+    for (Map.Entry<Integer, SegmentProgress> entry : segments.entrySet()) {
+      acknowledged.put(entry.getKey(), entry.getValue().copy());
+    }
+    pending = false;
+    dirty = true;
+  }
+
+  /**
+   * Persists the acknowledged progress if it changed and was last persisted longer than the
+   * checkpoint interval ago.
+   */
+  public void maybePersist() throws IOException {
+    if (time.getTimeSinceMs(lastPersistedNano) >= intervalMs) {
+      persist();
+    }
+  }
+
+  /**
+   * Persists the acknowledged progress if it changed.
+   */
+  public void persist() throws IOException {
+    Map<Integer, SegmentProgress> snapshot = new HashMap<>();
+    synchronized (this) {
+      lastPersistedNano = time.getNanoTime();
+      if (!dirty) {
+        return;
+      }
+      snapshot.putAll(acknowledged);
+      dirty = false;
+    }
+
+    try (DataOutputStream out = fs.create(tempPath, true)) {
+      out.writeInt(FORMAT_VERSION);
+      WritableUtils.writeVInt(out, snapshot.size());
+      for (Map.Entry<Integer, SegmentProgress> entry : snapshot.entrySet()) {
+        SegmentProgress progress = entry.getValue();
+        WritableUtils.writeVInt(out, entry.getKey());
+        out.writeBoolean(progress.complete);
+        WritableUtils.writeVLong(out, progress.items);
+        new DynamoDBItemWritable(progress.lastEvaluatedKey).write(out);
+      }
+    }
+    // The temporary file is complete, and is loaded if the rename does not happen
+    fs.delete(path, false);
+    if (!fs.rename(tempPath, path)) {
+      throw new IOException("Could not rename " + tempPath + " to " + path);
+    }
+    log.info("Persisted the scan checkpoint of " + snapshot.size() + " segment(s) to " + path);
+  }
+
+  private void load() throws IOException {
+    Path source = fs.exists(path) ? path : fs.exists(tempPath) ? tempPath : null;
+    if (source == null) {
+      return;
+    }
+
+    try (DataInputStream in = fs.open(source)) {
+      int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("Unsupported scan checkpoint version " + version + " in " + source);
+      }
+      int size = WritableUtils.readVInt(in);
+      for (int i = 0; i < size; i++) {
+        final int segment = WritableUtils.readVInt(in);
+        SegmentProgress progress = new SegmentProgress();
+        progress.complete = in.readBoolean();
+        progress.items = WritableUtils.readVLong(in);
+        DynamoDBItemWritable key = new DynamoDBItemWritable();
+        key.readFields(in);
+        progress.lastEvaluatedKey = key.getItem();
+        segments.put(segment, progress);
+        acknowledged.put(segment, progress.copy());
+        log.info("Resuming segment " + segment + " from " + source + ": complete="
+            + progress.complete + ", items read before=" + progress.items);
+      }
+    }
+  }
+
+  private static class SegmentProgress {
+
+    private Map<String, AttributeValue> lastEvaluatedKey;
+    private boolean complete;
+    private long items;
+    // Pages of this attempt consumed ahead of the pages before them
+    private final TreeMap<Long, ConsumedPage> consumedPages = new TreeMap<>();
+    private long nextPage;
+
+    SegmentProgress copy() {
+      SegmentProgress copy = new SegmentProgress();
+      copy.lastEvaluatedKey = lastEvaluatedKey;
+      copy.complete = complete;
+      copy.items = items;
+      return copy;
+    }
+  }
+
+  private static class ConsumedPage {
+
+    private final Map<String, AttributeValue> lastEvaluatedKey;
+    private final int items;
+
+    ConsumedPage(Map<String, AttributeValue> lastEvaluatedKey, int items) {
+      this.lastEvaluatedKey = lastEvaluatedKey;
+      this.items = items;
+    }
+  }
+}
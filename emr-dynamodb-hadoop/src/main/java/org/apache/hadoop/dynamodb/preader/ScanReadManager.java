@@ -13,6 +13,7 @@
 
 package org.apache.hadoop.dynamodb.preader;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,16 +31,49 @@ import software.amazon.awssdk.services.dynamodb.model.Condition;
 
 public class ScanReadManager extends AbstractReadManager {
 
+  private Optional<DynamoDBQueryFilter> scanFilter;
+
   public ScanReadManager(RateController rateController, AbstractTimeSource time,
       DynamoDBRecordReaderContext context) {
     super(rateController, time, context);
   }
 
+  /**
+   * Splits a segment that has not been started in two when there are fewer segments left than
+   * workers, so that the end of the scan is not read by a single worker. The other half is queued
+   * up for an idle worker, and may be split again when it is taken.
+   */
+  @Override
+  public AbstractRecordReadRequest dequeueReadRequest() {
+    AbstractRecordReadRequest req = super.dequeueReadRequest();
+    if (!(req instanceof ScanRecordReadRequest) || !isSubdividing()
+        || segmentsRemaining.get() >= workers.size()) {
+      return req;
+    }
+
+    ScanRecordReadRequest scanReq = (ScanRecordReadRequest) req;
+    if (!scanReq.canSubdivide()) {
+      return req;
+    }
+    log.info("Subdividing segment " + scanReq.segment + " of " + scanReq.getTotalSegments());
+    // Counted before it is queued, so that the reader does not finish in between
+    segmentsRemaining.incrementAndGet();
+    enqueueReadRequestToHead(scanReq.subdivide(1));
+    return scanReq.subdivide(0);
+  }
+
+  private boolean isSubdividing() {
+    // The checkpoint records the progress of the segments of the split only
+    return context.getScanCheckpoint() == null
+        && context.getConf().getBoolean(DynamoDBConstants.SCAN_SEGMENT_SUBDIVISION,
+        DynamoDBConstants.DEFAULT_SCAN_SEGMENT_SUBDIVISION);
+  }
+
   @Override
   protected void initializeReadRequests() {
     // Create a temporary copy of the segments, as we're about to shuffle it
-    List<Integer> shuffleSgments = new ArrayList<>(context.getSplit().getSegments());
-    if (shuffleSgments.isEmpty()) {
+    List<Integer> shuffleSgments = new ArrayList<>(getInitialSegments());
+    if (shuffleSgments.isEmpty() && context.getSegmentClaims() == null) {
       String errorMsg = "0 segment. Need at least one segment to work with.";
       log.error(errorMsg);
       throw new RuntimeException(errorMsg);
@@ -54,12 +88,16 @@ public class ScanReadManager extends AbstractReadManager {
     segmentsRemaining.set(shuffleSgments.size());
 
     // Set a Scan query filter to skip expired records if the configuration
-    // provides the TTL attribute name
+    // provides the TTL attribute name, on top of the filter pushed down with the split
+    DynamoDBQueryFilter filterPushdown = context.getSplit().getFilterPushdown();
+    boolean hasFilterPushdown = filterPushdown != null
+        && (!filterPushdown.getScanFilter().isEmpty()
+        || filterPushdown.getFilterExpression() != null);
     Optional<DynamoDBQueryFilter> maybeScanFilter =
         Optional.ofNullable(context.getConf().get(DynamoDBConstants.TTL_ATTRIBUTE_NAME))
             .map(attributeName -> {
               long now = Instant.now().getEpochSecond();
-              DynamoDBQueryFilter filter = new DynamoDBQueryFilter();
+              DynamoDBQueryFilter filter = newScanFilter(filterPushdown);
               filter.addScanFilter(new DynamoDBFilter() {
                 @Override
                 public String getColumnName() {
@@ -87,11 +125,121 @@ public class ScanReadManager extends AbstractReadManager {
               });
               return filter;
             });
+    if (!maybeScanFilter.isPresent() && hasFilterPushdown) {
+      maybeScanFilter = Optional.of(newScanFilter(filterPushdown));
+    }
+    scanFilter = maybeScanFilter;
+
+    if (shuffleSgments.isEmpty()) {
+      // Other record readers claimed all the segments
+      log.info("No segments left to claim");
+      if (!afterLastSegmentComplete()) {
+        context.getPageResultMultiplexer().setDraining(true);
+      }
+      return;
+    }
 
     // Queue up segment scan requests
     for (Integer segment : shuffleSgments) {
-      enqueueReadRequestToTail(new ScanRecordReadRequest(this, context, segment, maybeScanFilter,
-          null /* lastEvaluatedKey */));
+      enqueueSegment(segment);
+    }
+  }
+
+  @Override
+  protected void beforeSegmentComplete(int segment) {
+    SegmentClaims claims = context.getSegmentClaims();
+    if (claims == null) {
+      return;
+    }
+
+    // Keep a segment per worker queued up as long as there are unclaimed segments
+    while (segmentsRemaining.get() <= Math.max(workers.size(), 1)) {
+      Integer claimed;
+      try {
+        claimed = claims.claimNextSegment();
+      } catch (IOException e) {
+        log.warn("Could not claim another segment", e);
+        return;
+      }
+      if (claimed == null) {
+        return;
+      }
+      // Counted before it is queued, so that the reader does not finish in between
+      segmentsRemaining.incrementAndGet();
+      enqueueSegment(claimed);
+    }
+  }
+
+  /**
+   * Reads the segments other attempts of the task claimed, since this attempt may be the one that
+   * commits.
+   */
+  @Override
+  protected boolean afterLastSegmentComplete() {
+    SegmentClaims claims = context.getSegmentClaims();
+    if (claims == null) {
+      return false;
+    }
+
+    List<Integer> segments;
+    try {
+      segments = claims.finish();
+    } catch (IOException e) {
+      // The record reader fails, rather than miss segments of its task
+      context.getPageResultMultiplexer().addPageResults(new PageResults<>(e));
+      return false;
+    }
+    if (segments.isEmpty()) {
+      return false;
+    }
+    segmentsRemaining.addAndGet(segments.size());
+    for (int segment : segments) {
+      enqueueSegment(segment);
+    }
+    return true;
+  }
+
+  private List<Integer> getInitialSegments() {
+    SegmentClaims claims = context.getSegmentClaims();
+    if (claims == null) {
+      return context.getSplit().getSegments();
+    }
+    try {
+      List<Integer> segments = claims.claimInitialSegments();
+      if (segments.isEmpty()) {
+        Integer claimed = claims.claimNextSegment();
+        if (claimed != null) {
+          segments.add(claimed);
+        }
+      }
+      return segments;
+    } catch (IOException e) {
+      throw new RuntimeException("Could not claim scan segments", e);
+    }
+  }
+
+  /**
+   * Queues up the scan of a segment, resuming it where a previous attempt checkpointed it.
+   */
+  private void enqueueSegment(int segment) {
+    ScanCheckpoint checkpoint = context.getScanCheckpoint();
+    if (checkpoint == null) {
+      enqueueReadRequestToTail(new ScanRecordReadRequest(this, context, segment,
+          scanFilter, null /* lastEvaluatedKey */));
+    } else if (checkpoint.isComplete(segment)) {
+      markSegmentComplete(segment);
+    } else {
+      enqueueReadRequestToTail(new ScanRecordReadRequest(this, context, segment,
+          scanFilter, checkpoint.getLastEvaluatedKey(segment)));
+    }
+  }
+
+  private static DynamoDBQueryFilter newScanFilter(DynamoDBQueryFilter filterPushdown) {
+    DynamoDBQueryFilter filter = new DynamoDBQueryFilter();
+    if (filterPushdown != null) {
+      filter.getScanFilter().putAll(filterPushdown.getScanFilter());
+      filter.setFilterExpression(filterPushdown.getFilterExpression());
     }
+    return filter;
   }
 }
@@ -15,6 +15,7 @@ package org.apache.hadoop.dynamodb.preader;
 
 import java.util.Map;
 import java.util.Optional;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.DynamoDBFibonacciRetryer.RetryResult;
 import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
 import org.apache.hadoop.dynamodb.preader.RateController.RequestLimit;
@@ -25,35 +26,72 @@ public class ScanRecordReadRequest extends AbstractRecordReadRequest {
 
   /** Optional ScanFilter to add to Scan requests */
   final Optional<DynamoDBQueryFilter> maybeScanFilter;
+  // Number of the page in the segment, counted from the first page read by this task attempt
+  private final long page;
+  // Number of segments the table is divided into for this request, which is larger than that of
+  // the split once the segment of the split is subdivided
+  private final int totalSegments;
 
   @Deprecated
   public ScanRecordReadRequest(AbstractReadManager readMgr, DynamoDBRecordReaderContext context,
       int segment, Map<String, AttributeValue> lastEvaluatedKey) {
-    super(readMgr, context, segment, lastEvaluatedKey);
-    this.maybeScanFilter = Optional.empty();
+    this(readMgr, context, segment, Optional.empty(), lastEvaluatedKey);
   }
 
   public ScanRecordReadRequest(AbstractReadManager readMgr, DynamoDBRecordReaderContext context,
       int segment, Optional<DynamoDBQueryFilter> maybeScanFilter,
       Map<String, AttributeValue> lastEvaluatedKey) {
+    this(readMgr, context, segment, context.getSplit().getTotalSegments(), maybeScanFilter,
+        lastEvaluatedKey, 0);
+  }
+
+  private ScanRecordReadRequest(AbstractReadManager readMgr, DynamoDBRecordReaderContext context,
+      int segment, int totalSegments, Optional<DynamoDBQueryFilter> maybeScanFilter,
+      Map<String, AttributeValue> lastEvaluatedKey, long page) {
     super(readMgr, context, segment, lastEvaluatedKey);
     this.maybeScanFilter = maybeScanFilter;
+    this.page = page;
+    this.totalSegments = totalSegments;
+  }
+
+  /**
+   * @return whether the scan of the segment has not started yet, so that it can be subdivided
+   */
+  boolean canSubdivide() {
+    return page == 0 && lastEvaluatedKey == null
+        && totalSegments <= DynamoDBConstants.MAX_SCAN_SEGMENTS / 2;
+  }
+
+  /**
+   * Segments are ranges of the hash of the partition key, so segment s of N covers the same items
+   * as segments 2s and 2s+1 of 2N.
+   *
+   * @param half 0 or 1
+   * @return the request scanning the given half of the segment
+   */
+  ScanRecordReadRequest subdivide(int half) {
+    return new ScanRecordReadRequest(readMgr, context, 2 * segment + half, 2 * totalSegments,
+        maybeScanFilter, null /* lastEvaluatedKey */, 0);
+  }
+
+  int getTotalSegments() {
+    return totalSegments;
   }
 
   @Override
   protected AbstractRecordReadRequest buildNextReadRequest(PageResults<Map<String,
       AttributeValue>> pageResults) {
-    return new ScanRecordReadRequest(readMgr, context, segment, maybeScanFilter,
-        pageResults.lastEvaluatedKey);
+    return new ScanRecordReadRequest(readMgr, context, segment, totalSegments, maybeScanFilter,
+        pageResults.lastEvaluatedKey, page + 1);
   }
 
   @Override
   protected PageResults<Map<String, AttributeValue>> fetchPage(RequestLimit lim) {
     // Read from DynamoDB
     RetryResult<ScanResponse> retryResult = context.getClient()
-            .scanTable(tableName, maybeScanFilter.orElse(null), segment,
-                context.getSplit().getTotalSegments(), lastEvaluatedKey, lim.items,
-                context.getReporter());
+            .scanTable(tableName, maybeScanFilter.orElse(null), segment, totalSegments,
+                lastEvaluatedKey, lim.items,
+                context.getAttributes(), context.getReporter());
 
     ScanResponse response = retryResult.result;
     int retries = retryResult.retries;
@@ -62,13 +100,20 @@ public class ScanRecordReadRequest extends AbstractRecordReadRequest {
     if (response.consumedCapacity() != null) {
       consumedCapacityUnits = response.consumedCapacity().capacityUnits();
     }
-    return new PageResults<>(response.items(),
+    PageResults<Map<String, AttributeValue>> pageResults = new PageResults<>(response.items(),
         // Default value of ScanResponse.lastEvaluatedKey is changed from NULL to
         // SdkAutoConstructMap in AWS SDK 2.x.
         // Translate the default value to NULL here, to keep this assumption in other classes.
         response.hasLastEvaluatedKey() ? response.lastEvaluatedKey() : null,
         consumedCapacityUnits,
         retries);
+
+    ScanCheckpoint checkpoint = context.getScanCheckpoint();
+    if (checkpoint != null) {
+      pageResults.consumedCallback = () -> checkpoint.pageConsumed(segment, page,
+          pageResults.lastEvaluatedKey, pageResults.items.size());
+    }
+    return pageResults;
   }
 
 }
@@ -0,0 +1,313 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.dynamodb.preader;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileAlreadyExistsException;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.TaskAttemptID;
+import org.apache.hadoop.mapred.TaskID;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+
+/**
+ * Assigns the scan segments of a job to the record readers dynamically. A record reader claims a
+ * segment by creating its claim file, which only one of them can, and which holds the ID of its
+ * task attempt. It starts with the segments of its split, and claims segments of other splits that
+ * nobody claimed yet when it runs out of work, so that fast mappers take over the work of slow
+ * ones.
+ *
+ * The segments belong to the task, which any of its attempts may commit, so each attempt reads
+ * all the segments claimed by the attempts of its task. A claim is first recorded in the journal
+ * of the task. When an attempt runs out of segments it seals the journal, after which no attempt
+ * of the task claims more, and reads the journaled segments that other attempts of its task
+ * claimed, or, if it sealed it, that nobody did. A later attempt takes over the claims of the
+ * task, and scans the segments again or resumes them from the {@link ScanCheckpoint} of the split.
+ */
+public class SegmentClaims {
+
+  private static final Log log = LogFactory.getLog(SegmentClaims.class);
+
+  private static final String CLAIM_FILE_PREFIX = "segment-";
+  // Time to wait for the attempt that created a claim file to write its ID in it
+  private static final long OWNER_WAIT_MS = 10 * 1000;
+  private static final long OWNER_POLL_MS = 100;
+
+  private final FileSystem fs;
+  private final Path dir;
+  private final String owner;
+  private final TaskID task;
+  private final Path journalDir;
+  private final Path sealFile;
+  private final List<Integer> homeSegments;
+  // Segments of the job that may be claimed, in the order this record reader tries them
+  private final List<Integer> candidates;
+  // Guarded by this
+  private final Set<Integer> claimedByAnyone = new HashSet<>();
+  private final Set<Integer> claimedByTask = new HashSet<>();
+  private int nextCandidate;
+  private boolean sealed;
+  private boolean finished;
+
+  SegmentClaims(FileSystem fs, Path dir, TaskAttemptID attempt, DynamoDBSplit split,
+      Set<Integer> excludedSegments) {
+    this.fs = fs;
+    this.dir = dir;
+    this.owner = attempt.toString();
+    this.task = attempt.getTaskID();
+    this.journalDir = new Path(new Path(dir, "tasks"), task.toString());
+    this.sealFile = new Path(new Path(dir, "sealed"), task.toString());
+    this.homeSegments = split.getSegments();
+    this.candidates = new ArrayList<>();
+    for (int segment = 0; segment < split.getTotalSegments(); segment++) {
+      if (!excludedSegments.contains(segment)) {
+        candidates.add(segment);
+      }
+    }
+    // Start stealing at the segments of the next split, so that readers do not all contend for the
+    // same ones. The generator hands segments out round-robin.
+    Collections.rotate(candidates, -(split.getSplitId() + 1));
+  }
+
+  /**
+   * @return the claims of the record reader of a split, or null if
+   *         {@link DynamoDBConstants#SCAN_SEGMENT_CLAIM_DIR} is not set
+   */
+  public static SegmentClaims open(JobConf conf, DynamoDBSplit split) throws IOException {
+    Path runDir = ReadStateDirs.getRunDir(conf, DynamoDBConstants.SCAN_SEGMENT_CLAIM_DIR, split);
+    if (runDir == null) {
+      return null;
+    }
+
+    String attempt = conf.get(MRJobConfig.TASK_ATTEMPT_ID);
+    if (attempt == null) {
+      throw new IOException("Claiming scan segments requires the task attempt ID in "
+          + MRJobConfig.TASK_ATTEMPT_ID);
+    }
+    Set<Integer> excludedSegments = new HashSet<>();
+    for (int segment : conf.getInts(DynamoDBConstants.EXCLUDED_SCAN_SEGMENTS)) {
+      excludedSegments.add(segment);
+    }
+    return new SegmentClaims(runDir.getFileSystem(conf), runDir, TaskAttemptID.forName(attempt),
+        split, excludedSegments);
+  }
+
+  /**
+   * Claims the segments this record reader starts with: those claimed by earlier attempts of the
+   * task, those in the journal of the task that nobody claimed, and those of its split that nobody
+   * claimed yet.
+   */
+  public synchronized List<Integer> claimInitialSegments() throws IOException {
+    fs.mkdirs(journalDir);
+    for (FileStatus status : fs.listStatus(dir)) {
+      int segment = getSegment(status.getPath());
+      if (segment >= 0) {
+        claimedByAnyone.add(segment);
+      }
+    }
+    List<FileStatus> journal = Arrays.asList(fs.listStatus(journalDir));
+    // Journaled segments nobody claimed may only be claimed until the task is sealed, which is
+    // looked for once they are listed
+    sealed = fs.exists(sealFile);
+    List<Integer> claimed = adoptJournaledSegments(journal, !sealed);
+    if (!claimed.isEmpty()) {
+      log.info("Taking over the segments claimed by other attempts of the task: " + claimed);
+    }
+
+    for (int segment : homeSegments) {
+      if (claim(segment)) {
+        claimed.add(segment);
+      }
+    }
+    log.info("Claimed segments: " + claimed);
+    return claimed;
+  }
+
+  /**
+   * @return a segment nobody claimed yet, now claimed by this record reader, or null if there is
+   *         none left
+   */
+  public synchronized Integer claimNextSegment() throws IOException {
+    while (nextCandidate < candidates.size() && !sealed) {
+      int segment = candidates.get(nextCandidate++);
+      if (claim(segment)) {
+        log.info("Claimed segment " + segment + " of another split");
+        return segment;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Seals the journal of the task once this record reader read all its segments, so that no
+   * attempt of the task claims more.
+   *
+   * @return the segments claimed by other attempts of the task that this record reader has not
+   *         read, now to be read too, or an empty list if it was called before
+   */
+  public synchronized List<Integer> finish() throws IOException {
+    if (finished) {
+      return Collections.emptyList();
+    }
+    finished = true;
+    sealed = true;
+    fs.mkdirs(sealFile.getParent());
+    boolean sealedHere = createFile(sealFile);
+
+    // Attempts journal their claims before they look for the seal, so every claim of the task is
+    // listed here or was given up. The attempt that sealed the task claims the journaled segments
+    // nobody claimed, which the attempts that journaled them may still be about to do.
+    List<FileStatus> journal = Arrays.asList(fs.listStatus(journalDir));
+    List<Integer> remaining = adoptJournaledSegments(journal, sealedHere);
+    if (!remaining.isEmpty()) {
+      log.info("Reading the segments other attempts of the task claimed: " + remaining);
+    }
+    return remaining;
+  }
+
+  /**
+   * Takes over the segments in the journal of the task that other attempts of the task claimed.
+   *
+   * @param claimUnclaimed whether to claim the journaled segments that nobody claimed
+   * @return the segments taken over
+   */
+  private List<Integer> adoptJournaledSegments(List<FileStatus> journal, boolean claimUnclaimed)
+      throws IOException {
+    List<Integer> adopted = new ArrayList<>();
+    for (FileStatus status : journal) {
+      int segment = getSegment(status.getPath());
+      if (segment < 0 || claimedByTask.contains(segment)) {
+        continue;
+      }
+      boolean claimed = (claimUnclaimed && !claimedByAnyone.contains(segment)
+          && tryClaim(segment)) || (fs.exists(getClaimFile(segment)) && isOwnedByTask(segment));
+      if (claimed) {
+        claimedByTask.add(segment);
+        adopted.add(segment);
+      }
+    }
+    return adopted;
+  }
+
+  /**
+   * Journals a claim of the task, then claims the segment unless the task was sealed.
+   */
+  private boolean claim(int segment) throws IOException {
+    if (claimedByAnyone.contains(segment) || sealed) {
+      return false;
+    }
+    createFile(new Path(journalDir, CLAIM_FILE_PREFIX + segment));
+    if (fs.exists(sealFile)) {
+      log.info("Another attempt of the task sealed its claims");
+      sealed = true;
+      return false;
+    }
+    if (!tryClaim(segment)) {
+      return false;
+    }
+    claimedByTask.add(segment);
+    return true;
+  }
+
+  private boolean tryClaim(int segment) throws IOException {
+    claimedByAnyone.add(segment);
+    try (FSDataOutputStream out = fs.create(getClaimFile(segment), false)) {
+      out.writeUTF(owner);
+      return true;
+    } catch (FileAlreadyExistsException e) {
+      return false;
+    } catch (IOException e) {
+      // Not all file systems throw FileAlreadyExistsException
+      if (fs.exists(getClaimFile(segment))) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * @return whether the file was created, rather than already there
+   */
+  private boolean createFile(Path path) throws IOException {
+    try {
+      fs.create(path, false).close();
+      return true;
+    } catch (IOException e) {
+      if (!fs.exists(path)) {
+        throw e;
+      }
+      return false;
+    }
+  }
+
+  private boolean isOwnedByTask(int segment) throws IOException {
+    String claimOwner = readOwner(getClaimFile(segment));
+    try {
+      return task.equals(TaskAttemptID.forName(claimOwner).getTaskID());
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private String readOwner(Path path) throws IOException {
+    long deadline = System.currentTimeMillis() + OWNER_WAIT_MS;
+    while (true) {
+      try (FSDataInputStream in = fs.open(path)) {
+        return in.readUTF();
+      } catch (EOFException e) {
+        // The claim file was created, and its owner is still writing it
+        if (System.currentTimeMillis() > deadline) {
+          throw new IOException("No owner was written to " + path, e);
+        }
+      }
+      try {
+        Thread.sleep(OWNER_POLL_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while reading " + path);
+      }
+    }
+  }
+
+  private Path getClaimFile(int segment) {
+    return new Path(dir, CLAIM_FILE_PREFIX + segment);
+  }
+
+  private static int getSegment(Path path) {
+    String name = path.getName();
+    return name.startsWith(CLAIM_FILE_PREFIX)
+        ? Integer.parseInt(name.substring(CLAIM_FILE_PREFIX.length())) : -1;
+  }
+
+  @Override
+  public String toString() {
+    return "SegmentClaims" + Arrays.asList(dir, owner);
+  }
+}
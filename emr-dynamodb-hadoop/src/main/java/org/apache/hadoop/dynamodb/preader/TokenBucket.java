@@ -17,8 +17,8 @@ import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
 
 class TokenBucket {
 
-  private final double rate; // refill rate in milliseconds
-  private final double capacity;
+  private double rate; // refill rate in milliseconds
+  private double capacity;
   private final AbstractTimeSource time;
 
   private double tokens;
@@ -48,6 +48,16 @@ class TokenBucket {
     return 0.0f;
   }
 
+  /**
+   * Changes the refill rate and capacity. The tokens refilled so far are added at the old rate.
+   */
+  synchronized void setRate(double refillRateInSeconds, double capacity) {
+    refill();
+    this.rate = refillRateInSeconds / 1000.0;
+    this.capacity = capacity;
+    tokens = Math.min(tokens, capacity);
+  }
+
   /**
    * Update the number of tokens in the bucket based. Caps at the bucket capacity, but allows
    * taking the bucket into deficit.
@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.apache.commons.logging.Log;
@@ -24,11 +25,14 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.DynamoDBUtil;
+import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
 import org.apache.hadoop.dynamodb.preader.DynamoDBRecordReaderContext;
+import org.apache.hadoop.dynamodb.preader.ScanCheckpoint;
+import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
 import org.apache.hadoop.dynamodb.split.DynamoDBSplitGenerator;
+import org.apache.hadoop.dynamodb.util.ClusterMapCapacity;
 import org.apache.hadoop.mapred.InputFormat;
 import org.apache.hadoop.mapred.InputSplit;
-import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.Reporter;
 
@@ -53,6 +57,9 @@ public abstract class AbstractDynamoDBInputFormat<K, V> implements InputFormat<K
       throw new RuntimeException("Invalid read percentage: " + readPercentage);
     }
     log.info("Read percentage: " + readPercentage);
+    ScanCheckpoint.checkJob(conf);
+    // Computed once here for all the tasks of the job
+    configureClusterMapCapacity(conf);
 
     double maxReadThroughputAllocated = ((double) conf.getLong(DynamoDBConstants.READ_THROUGHPUT,
         1));
@@ -70,8 +77,9 @@ public abstract class AbstractDynamoDBInputFormat<K, V> implements InputFormat<K
     }
 
     long tableSizeBytes = conf.getLong(DynamoDBConstants.TABLE_SIZE_BYTES, 1);
+    DynamoDBQueryFilter queryFilter = getQueryFilter(conf);
     int numTotalSegments = getNumSegments(configuredReadThroughput, (int)
-        maxWriteThroughputAllocated, tableSizeBytes, conf);
+        maxWriteThroughputAllocated, tableSizeBytes, conf, queryFilter);
 
     Set<Integer> excludedSegments =
         Arrays.stream(conf.getInts(DynamoDBConstants.EXCLUDED_SCAN_SEGMENTS))
@@ -85,11 +93,48 @@ public abstract class AbstractDynamoDBInputFormat<K, V> implements InputFormat<K
             .collect(Collectors.toList());
 
     int numEffectiveSegments = segments.size();
-    int numMappers = getNumMappers(numEffectiveSegments, configuredReadThroughput, conf);
+    int numMappers = getNumMappers(numEffectiveSegments, configuredReadThroughput, conf,
+        queryFilter);
+
+    if (isClaimingSegments(conf, queryFilter, excludedSegments)) {
+      // Split the table into more segments than mappers, so that the segments of a slow mapper are
+      // taken over by the others
+      int segmentsPerMapper = Math.max(1, conf.getInt(DynamoDBConstants.SCAN_SEGMENTS_PER_MAPPER,
+          DynamoDBConstants.DEFAULT_SCAN_SEGMENTS_PER_MAPPER));
+      numTotalSegments = (int) Math.min(Math.max((long) numMappers * segmentsPerMapper,
+          numTotalSegments), DynamoDBConstants.MAX_SCAN_SEGMENTS);
+      segments = IntStream.range(0, numTotalSegments).boxed().collect(Collectors.toList());
+      numEffectiveSegments = numTotalSegments;
+    }
 
     log.info("Using " + numEffectiveSegments + " segments across " + numMappers + " mappers");
 
-    return getSplitGenerator().generateSplits(numMappers, numTotalSegments, segments, conf);
+    InputSplit[] splits = getSplitGenerator().generateSplits(numMappers, numTotalSegments,
+        segments, conf, queryFilter);
+    // The record readers of these splits share state that the readers of other plannings of the
+    // job, e.g. another scan of the table in the same query, must not see
+    String runId = UUID.randomUUID().toString();
+    for (InputSplit split : splits) {
+      ((DynamoDBSplit) split).setRunId(runId);
+    }
+    return splits;
+  }
+
+  /**
+   * Compiles the filter pushed down into the DynamoDB requests. It is called once when the job is
+   * planned, and the record readers get it from their split.
+   *
+   * @return the filter, or null if no predicate is pushed down
+   */
+  protected DynamoDBQueryFilter getQueryFilter(JobConf conf) throws IOException {
+    return null;
+  }
+
+  private static boolean isClaimingSegments(JobConf conf, DynamoDBQueryFilter queryFilter,
+      Set<Integer> excludedSegments) {
+    return conf.get(DynamoDBConstants.SCAN_SEGMENT_CLAIM_DIR) != null
+        && excludedSegments.isEmpty()
+        && (queryFilter == null || (!queryFilter.isBatchGet() && !queryFilter.isQuery()));
   }
 
   protected DynamoDBRecordReaderContext buildDynamoDBRecordReaderContext(InputSplit split,
@@ -98,15 +143,31 @@ public abstract class AbstractDynamoDBInputFormat<K, V> implements InputFormat<K
 
     context.setConf(conf);
     context.setSplit(split);
-    context.setClient(new DynamoDBClient(conf));
+    DynamoDBClient client = new DynamoDBClient(conf);
+    // The read manager backs off from throttled requests without blocking its workers
+    client.setRetryReadThrottles(false);
+    context.setClient(client);
     context.setAverageItemSize(conf.getFloat(DynamoDBConstants.AVG_ITEM_SIZE, 0.0f));
     context.setReporter(reporter);
 
     return context;
   }
 
+  /**
+   * @deprecated Superseded by
+   *     {@link #getNumSegments(int, int, long, JobConf, DynamoDBQueryFilter)}, which takes the
+   *     filter compiled once by {@link #getSplits(JobConf, int)}
+   */
+  @Deprecated
   protected int getNumSegments(int tableNormalizedReadThroughput, int
       tableNormalizedWriteThroughput, long currentTableSizeBytes, JobConf conf) throws IOException {
+    return getNumSegments(tableNormalizedReadThroughput, tableNormalizedWriteThroughput,
+        currentTableSizeBytes, conf, getQueryFilter(conf));
+  }
+
+  protected int getNumSegments(int tableNormalizedReadThroughput, int
+      tableNormalizedWriteThroughput, long currentTableSizeBytes, JobConf conf,
+      DynamoDBQueryFilter queryFilter) throws IOException {
     // Check for segment count overrides
     int numSegments = conf.getInt(DynamoDBConstants.SCAN_SEGMENTS, -1);
     if (numSegments >= 1) {
@@ -139,8 +200,18 @@ public abstract class AbstractDynamoDBInputFormat<K, V> implements InputFormat<K
     return numSegments;
   }
 
+  /**
+   * @deprecated Superseded by {@link #getNumMappers(int, int, JobConf, DynamoDBQueryFilter)},
+   *     which takes the filter compiled once by {@link #getSplits(JobConf, int)}
+   */
+  @Deprecated
   protected int getNumMappers(int numSegments, int configuredReadThroughput, JobConf conf)
       throws IOException {
+    return getNumMappers(numSegments, configuredReadThroughput, conf, getQueryFilter(conf));
+  }
+
+  protected int getNumMappers(int numSegments, int configuredReadThroughput, JobConf conf,
+      DynamoDBQueryFilter queryFilter) throws IOException {
     log.info("Number of segments: " + numSegments);
     log.info("Configured read throughput: " + configuredReadThroughput);
 
@@ -170,17 +241,25 @@ public abstract class AbstractDynamoDBInputFormat<K, V> implements InputFormat<K
     return new DynamoDBSplitGenerator();
   }
 
-  private int getMaxClusterMapTasks(final JobConf conf) throws IOException {
-    int maxClusterMapTasks = Integer.MAX_VALUE;
-    if (DynamoDBUtil.isYarnEnabled(conf)) {
-      final JobClient jobClient = new JobClient(conf);
-      maxClusterMapTasks = DynamoDBUtil.calcMaxMapTasks(jobClient);
-      if (maxClusterMapTasks < 1) {
-        throw new RuntimeException("Number of map tasks configured for the cluster less than 1. Map"
-          + " tasks: " + maxClusterMapTasks);
-      }
+  /**
+   * Computes the number of map tasks the cluster can run at once and stores it in the job
+   * configuration, so that the tasks of the job do not each ask the resource manager for it.
+   */
+  private void configureClusterMapCapacity(JobConf conf) {
+    if (!DynamoDBUtil.isYarnEnabled(conf)
+        || conf.getInt(DynamoDBConstants.CLUSTER_MAP_CAPACITY, 0) > 0) {
+      return;
     }
-    return maxClusterMapTasks;
+    try {
+      ClusterMapCapacity.store(conf, calculateClusterMapCapacity(conf));
+    } catch (IOException | RuntimeException e) {
+      // The tasks that need it ask the resource manager themselves
+      log.warn("Exception calculating cluster map capacity", e);
+    }
+  }
+
+  int calculateClusterMapCapacity(JobConf conf) throws IOException {
+    return DynamoDBUtil.calcMaxMapTasks(DynamoDBUtil.createJobClient(conf));
   }
 
 }
@@ -13,8 +13,6 @@
 
 package org.apache.hadoop.dynamodb.read;
 
-import static org.apache.hadoop.dynamodb.DynamoDBUtil.createJobClient;
-
 import java.io.IOException;
 import java.util.Map;
 import org.apache.commons.logging.Log;
@@ -22,13 +20,17 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
-import org.apache.hadoop.dynamodb.IopsCalculator;
 import org.apache.hadoop.dynamodb.preader.AbstractReadManager;
+import org.apache.hadoop.dynamodb.preader.BatchGetReadManager;
+import org.apache.hadoop.dynamodb.preader.CapacityBroker;
 import org.apache.hadoop.dynamodb.preader.DynamoDBRecordReaderContext;
+import org.apache.hadoop.dynamodb.preader.FileSystemCapacityBroker;
 import org.apache.hadoop.dynamodb.preader.PageResultMultiplexer;
 import org.apache.hadoop.dynamodb.preader.QueryReadManager;
 import org.apache.hadoop.dynamodb.preader.RateController;
+import org.apache.hadoop.dynamodb.preader.ScanCheckpoint;
 import org.apache.hadoop.dynamodb.preader.ScanReadManager;
+import org.apache.hadoop.dynamodb.preader.SegmentClaims;
 import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
 import org.apache.hadoop.dynamodb.util.TimeSource;
 import org.apache.hadoop.mapred.RecordReader;
@@ -59,7 +61,10 @@ public abstract class AbstractDynamoDBRecordReader<K, V> implements RecordReader
   private final PageResultMultiplexer<Map<String, AttributeValue>> pageMux;
   private final AbstractReadManager readMgr;
   private final DynamoDBRecordReaderContext context;
+  private final TimeSource time = new TimeSource();
+  private final ReadIopsCalculator iopsCalculator;
   protected volatile long readItemCount;
+  private int itemsSinceAcknowledged;
 
   public AbstractDynamoDBRecordReader(DynamoDBRecordReaderContext context) {
     this.context = context;
@@ -71,14 +76,28 @@ public abstract class AbstractDynamoDBRecordReader<K, V> implements RecordReader
     this.reporter = context.getReporter();
 
     int numSegments = split.getSegments().size();
-    if (numSegments != 1 && isQuery()) {
+    if (numSegments != 1 && isQuery() && split.getFilterPushdown().getSegmentCount() == 1) {
       throw new IllegalArgumentException("Query should always result in one segment");
     }
 
     this.pageMux = new PageResultMultiplexer<>(DynamoDBConstants.PSCAN_SEGMENT_BATCH_SIZE,
-        DynamoDBConstants.PSCAN_MULTIPLEXER_CAPACITY);
+        DynamoDBConstants.PSCAN_MULTIPLEXER_CAPACITY, getMultiplexerCapacityBytes());
     this.context.setPageResultMultiplexer(this.pageMux);
+    if (!split.getFilterPushdown().isBatchGet() && !isQuery()) {
+      try {
+        this.context.setScanCheckpoint(ScanCheckpoint.open(context.getConf(), split, time));
+      } catch (IOException e) {
+        throw new RuntimeException("Could not load the scan checkpoint", e);
+      }
+      try {
+        this.context.setSegmentClaims(SegmentClaims.open(context.getConf(), split));
+      } catch (IOException e) {
+        throw new RuntimeException("Could not open the scan segment claims", e);
+      }
+    }
 
+    this.iopsCalculator = new ReadIopsCalculator(context.getConf(), client, tableName,
+        split.getTotalSegments(), split.getSegments().size(), time);
     this.readMgr = initReadManager();
 
     printInitInfo();
@@ -101,9 +120,8 @@ public abstract class AbstractDynamoDBRecordReader<K, V> implements RecordReader
 
   @Override
   public boolean next(K key, V value) throws IOException {
-    reporter.progress();
-
-    Map<String, AttributeValue> item = pageMux.next();
+    acknowledgeItems();
+    Map<String, AttributeValue> item = nextItem();
     if (item != null) {
       convertDynamoDBItemToValue(item, value);
       return true;
@@ -112,11 +130,46 @@ public abstract class AbstractDynamoDBRecordReader<K, V> implements RecordReader
     return false;
   }
 
+  /**
+   * Records that the items returned so far have been processed, which the caller of the record
+   * reader signals by asking for the next value, so that the scan checkpoint may include them. Must
+   * be called at the start of {@link #next}, before the items of the value are taken.
+   */
+  protected void acknowledgeItems() throws IOException {
+    ScanCheckpoint checkpoint = context.getScanCheckpoint();
+    if (checkpoint != null) {
+      checkpoint.acknowledge();
+      checkpoint.maybePersist();
+    }
+    itemsSinceAcknowledged = 0;
+  }
+
+  /**
+   * Takes the next item read by the workers, blocking until one is available.
+   *
+   * @return the next item, or {@code null} once all the segments of the split have been read
+   */
+  protected Map<String, AttributeValue> nextItem() throws IOException {
+    reporter.progress();
+    Map<String, AttributeValue> item = pageMux.next();
+    ScanCheckpoint checkpoint = context.getScanCheckpoint();
+    if (item != null) {
+      itemsSinceAcknowledged++;
+    } else if (checkpoint != null && itemsSinceAcknowledged == 0) {
+      // Nothing is left to process, so the end of the segments can be persisted right away.
+      // Otherwise it is once the last items are acknowledged.
+      checkpoint.acknowledge();
+      checkpoint.persist();
+    }
+    return item;
+  }
+
   @Override
   public void close() throws IOException {
     log.info("Closing down record reader");
 
     readMgr.shutdown();
+    iopsCalculator.close();
     client.close();
 
     // Note that there is no guarantee that the read workers have pushed all
@@ -142,27 +195,51 @@ public abstract class AbstractDynamoDBRecordReader<K, V> implements RecordReader
   protected abstract void convertDynamoDBItemToValue(DynamoDBItemWritable item, V toValue);
 
   private AbstractReadManager initReadManager() {
-    // Calculate target rate. Currently this is only done at task startup
-    // time, but we could have this refresh every x minutes so that changes
-    // in table provisioning could be reflected.
-    IopsCalculator iopsCalculator = new ReadIopsCalculator(createJobClient(context.getConf()),
-        client, tableName, split.getTotalSegments(), split.getSegments().size());
     double targetRate = iopsCalculator.calculateTargetIops();
+    CapacityBroker capacityBroker = openCapacityBroker();
+    if (capacityBroker != null) {
+      // The task starts at the share of its split, and takes over the shares of the tasks that
+      // end as the read manager renews its lease
+      context.setCapacityBroker(capacityBroker, iopsCalculator::calculateJobIops);
+    } else if (context.getConf().get(DynamoDBConstants.TABLE_CAPACITY_LEASE_DIR) != null) {
+      // The share of the split is recalculated as other jobs start and finish reading the table
+      context.setTaskIopsCalculator(iopsCalculator, context.getConf().getLong(
+          DynamoDBConstants.TABLE_CAPACITY_LEASE_INTERVAL,
+          DynamoDBConstants.DEFAULT_TABLE_CAPACITY_LEASE_INTERVAL));
+    }
 
     // Set up the read manager, which will read from input segments and into
     // the output page multiplexer
-    TimeSource time = new TimeSource();
     RateController rateController = new RateController(time, targetRate, DynamoDBConstants
-        .RATE_CONTROLLER_WINDOW_SIZE_SEC, context.getAverageItemSize());
+        .RATE_CONTROLLER_WINDOW_SIZE_SEC, context.getAverageItemSize(), pageMux::isSaturated);
 
+    if (split.getFilterPushdown().isBatchGet()) {
+      return new BatchGetReadManager(rateController, time, context);
+    }
     if (isQuery()) {
       return new QueryReadManager(rateController, time, context);
     }
     return new ScanReadManager(rateController, time, context);
   }
 
+  private CapacityBroker openCapacityBroker() {
+    try {
+      return FileSystemCapacityBroker.open(context.getConf(), split);
+    } catch (IOException e) {
+      log.warn("Could not open the read capacity broker, reading at the share of the split", e);
+      return null;
+    }
+  }
+
+  private long getMultiplexerCapacityBytes() {
+    long defaultCapacityBytes = (long) (Runtime.getRuntime().maxMemory()
+        * DynamoDBConstants.DEFAULT_PSCAN_MULTIPLEXER_HEAP_FRACTION);
+    return context.getConf().getLong(DynamoDBConstants.PSCAN_MULTIPLEXER_CAPACITY_BYTES,
+        defaultCapacityBytes);
+  }
+
   private boolean isQuery() {
-    return split.getFilterPushdown().getKeyConditions().size() > 0;
+    return split.getFilterPushdown().isQuery();
   }
 
   private void printInitInfo() {
@@ -170,5 +247,6 @@ public abstract class AbstractDynamoDBRecordReader<K, V> implements RecordReader
     log.info("Segment count of this mapper: " + split.getSegments().size());
     log.info("Segments of this mapper: " + split.getSegments());
     log.info("Approximate item count of this mapper: " + approxTotalItemCount);
+    log.info("Page buffer capacity in bytes: " + getMultiplexerCapacityBytes());
   }
 }
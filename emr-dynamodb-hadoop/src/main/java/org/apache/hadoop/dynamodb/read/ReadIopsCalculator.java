@@ -13,11 +13,16 @@
 
 package org.apache.hadoop.dynamodb.read;
 
+import java.io.IOException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.DynamoDBOperationType;
 import org.apache.hadoop.dynamodb.IopsCalculator;
+import org.apache.hadoop.dynamodb.TableCapacityLeases;
+import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
+import org.apache.hadoop.dynamodb.util.TimeSource;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 import software.amazon.awssdk.services.dynamodb.model.BillingMode;
@@ -29,18 +34,27 @@ public class ReadIopsCalculator implements IopsCalculator {
   private static final Log log = LogFactory.getLog(ReadIopsCalculator.class);
 
   private final DynamoDBClient dynamoDBClient;
-  private final JobClient jobClient;
   private final JobConf jobConf;
   private final String tableName;
 
   private final double throughputPercent;
+  private final TableCapacityLeases tableCapacityLeases;
   private final int totalSegments;
   private final int localSegments;
 
   public ReadIopsCalculator(JobClient jobClient, DynamoDBClient dynamoDBClient, String tableName,
       int totalSegments, int localSegments) {
-    this.jobConf = (JobConf) jobClient.getConf();
-    this.jobClient = jobClient;
+    this((JobConf) jobClient.getConf(), dynamoDBClient, tableName, totalSegments, localSegments);
+  }
+
+  public ReadIopsCalculator(JobConf jobConf, DynamoDBClient dynamoDBClient, String tableName,
+      int totalSegments, int localSegments) {
+    this(jobConf, dynamoDBClient, tableName, totalSegments, localSegments, new TimeSource());
+  }
+
+  public ReadIopsCalculator(JobConf jobConf, DynamoDBClient dynamoDBClient, String tableName,
+      int totalSegments, int localSegments, AbstractTimeSource time) {
+    this.jobConf = jobConf;
 
     this.dynamoDBClient = dynamoDBClient;
     this.tableName = tableName;
@@ -52,9 +66,22 @@ public class ReadIopsCalculator implements IopsCalculator {
 
     log.info("Table name: " + tableName);
     log.info("Throughput percent: " + throughputPercent);
+    this.tableCapacityLeases = openTableCapacityLeases(jobConf, tableName, throughputPercent,
+        time);
   }
 
   public long calculateTargetIops() {
+    long throughputPerTask = Math.max((long) ((double) calculateJobIops() / totalSegments
+        * localSegments), 1);
+
+    log.info("Throughput per task for table " + tableName + " : " + throughputPerTask);
+    return throughputPerTask;
+  }
+
+  /**
+   * @return the read capacity all the tasks of the job may use together
+   */
+  public long calculateJobIops() {
     double configuredThroughput;
     // Always fetch throughput from DDB if auto-scaling is enabled or not specified
     if (Boolean.parseBoolean(jobConf.get(DynamoDBConstants.READ_THROUGHPUT_AUTOSCALING))
@@ -63,13 +90,37 @@ public class ReadIopsCalculator implements IopsCalculator {
     } else {
       configuredThroughput = Double.parseDouble(jobConf.get(DynamoDBConstants.READ_THROUGHPUT));
     }
-    double calculatedThroughput = Math.floor(configuredThroughput * throughputPercent);
+    double percent = throughputPercent;
+    if (tableCapacityLeases != null) {
+      // The percentage is shared with the other jobs reading the table
+      percent = tableCapacityLeases.getThroughputPercent();
+    }
+    return (long) Math.floor(configuredThroughput * percent);
+  }
 
-    long throughputPerTask = Math.max((long) (calculatedThroughput / totalSegments
-        * localSegments), 1);
+  /**
+   * Gives up the lease of the task on the capacity of the table, if it holds one.
+   */
+  public void close() {
+    if (tableCapacityLeases == null) {
+      return;
+    }
+    try {
+      tableCapacityLeases.close();
+    } catch (IOException e) {
+      log.warn("Could not give up the table capacity lease, it is kept until it expires", e);
+    }
+  }
 
-    log.info("Throughput per task for table " + tableName + " : " + throughputPerTask);
-    return throughputPerTask;
+  private static TableCapacityLeases openTableCapacityLeases(JobConf jobConf, String tableName,
+      double throughputPercent, AbstractTimeSource time) {
+    try {
+      return TableCapacityLeases.open(jobConf, tableName, DynamoDBOperationType.READ,
+          throughputPercent, time);
+    } catch (IOException e) {
+      log.warn("Could not open the table capacity leases, using the whole throughput percent", e);
+      return null;
+    }
   }
 
   protected double getThroughput() {
@@ -30,6 +30,7 @@ public class DynamoDBSegmentsSplit implements DynamoDBSplit {
   private int totalSegments;
   private long estimateLength;
   private DynamoDBQueryFilter filterPushdown;
+  private String runId;
 
   public DynamoDBSegmentsSplit() {
     this.segments = new ArrayList<>();
@@ -60,8 +61,12 @@ public class DynamoDBSegmentsSplit implements DynamoDBSplit {
       this.segments.add(in.readInt());
     }
     totalSegments = in.readInt();
-    filterPushdown = new DynamoDBQueryFilter();
     estimateLength = in.readLong();
+    filterPushdown = new DynamoDBQueryFilter();
+    if (in.readBoolean()) {
+      filterPushdown.readFields(in);
+    }
+    runId = in.readBoolean() ? in.readUTF() : null;
   }
 
   @Override
@@ -74,6 +79,14 @@ public class DynamoDBSegmentsSplit implements DynamoDBSplit {
     }
     out.writeInt(totalSegments);
     out.writeLong(estimateLength);
+    out.writeBoolean(filterPushdown != null);
+    if (filterPushdown != null) {
+      filterPushdown.write(out);
+    }
+    out.writeBoolean(runId != null);
+    if (runId != null) {
+      out.writeUTF(runId);
+    }
   }
 
   @Override
@@ -110,4 +123,14 @@ public class DynamoDBSegmentsSplit implements DynamoDBSplit {
   public void setDynamoDBFilterPushdown(DynamoDBQueryFilter filterPushdown) {
     this.filterPushdown = filterPushdown;
   }
+
+  @Override
+  public String getRunId() {
+    return runId;
+  }
+
+  @Override
+  public void setRunId(String runId) {
+    this.runId = runId;
+  }
 }
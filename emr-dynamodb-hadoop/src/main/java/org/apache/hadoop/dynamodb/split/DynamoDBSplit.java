@@ -29,4 +29,12 @@ public interface DynamoDBSplit extends InputSplit {
   DynamoDBQueryFilter getFilterPushdown();
 
   void setDynamoDBFilterPushdown(DynamoDBQueryFilter filterPushdown);
+
+  /**
+   * @return the ID shared by the splits of one planning of the job, which scopes the state their
+   *         record readers share, or null if the splits were not planned by the input format
+   */
+  String getRunId();
+
+  void setRunId(String runId);
 }
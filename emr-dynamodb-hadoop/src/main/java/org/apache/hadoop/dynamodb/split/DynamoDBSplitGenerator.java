@@ -19,6 +19,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.DynamoDBUtil;
+import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
@@ -29,6 +30,15 @@ public class DynamoDBSplitGenerator {
 
   public InputSplit[] generateSplits(int maxClusterMapTasks, int numTotalSegments,
                                      List<Integer> segments, JobConf conf) {
+    return generateSplits(maxClusterMapTasks, numTotalSegments, segments, conf, null);
+  }
+
+  /**
+   * @param queryFilter the filter pushed down into the requests reading the segments, which is
+   *                    written to every split, or null if there is none
+   */
+  public InputSplit[] generateSplits(int maxClusterMapTasks, int numTotalSegments,
+      List<Integer> segments, JobConf conf, DynamoDBQueryFilter queryFilter) {
     // Note: this can be different from 'numTotalSegments' because some segments may have been
     // excluded
     int numEffectiveSegments = segments.size();
@@ -59,7 +69,7 @@ public class DynamoDBSplitGenerator {
       log.info("Assigning " + segmentsPerSplit.get(i).size() + " segments to mapper " + i + ": "
           + segmentsPerSplit.get(i));
       splits[i] = createDynamoDBSplit(getInputPath(conf), approxItemCountPerSplit, i,
-          segmentsPerSplit.get(i), numTotalSegments, estimateLength);
+          segmentsPerSplit.get(i), numTotalSegments, estimateLength, queryFilter);
     }
 
     return splits;
@@ -70,9 +80,10 @@ public class DynamoDBSplitGenerator {
   }
 
   protected DynamoDBSplit createDynamoDBSplit(Path path, long approxItemCount, int splitId,
-      List<Integer> segments, int totalSegments, long estimateLength) {
+      List<Integer> segments, int totalSegments, long estimateLength,
+      DynamoDBQueryFilter queryFilter) {
     return new DynamoDBSegmentsSplit(path, approxItemCount, splitId, segments,
-      totalSegments, estimateLength, null);
+      totalSegments, estimateLength, queryFilter);
   }
 
 }
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package org.apache.hadoop.dynamodb.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.DynamoDBUtil;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
+
+/**
+ * Number of map tasks the cluster can run at once. It is computed once, when the job is submitted,
+ * and carried to the tasks in the job configuration, so that tasks do not each query the resource
+ * manager. When {@link DynamoDBConstants#CLUSTER_MAP_CAPACITY_FILE} is set, the capacity is also
+ * written to that file, which tasks read again whenever they recalculate their throughput.
+ */
+public final class ClusterMapCapacity {
+
+  private static final Log log = LogFactory.getLog(ClusterMapCapacity.class);
+
+  /**
+   * Computes the cluster map capacity from the resource manager, unless the job configuration
+   * already carries it, and stores it in the job configuration.
+   *
+   * @param conf configuration of the job being submitted
+   * @return the cluster map capacity
+   */
+  public static int configure(JobConf conf) throws IOException {
+    int capacity = conf.getInt(DynamoDBConstants.CLUSTER_MAP_CAPACITY, 0);
+    if (capacity > 0) {
+      return capacity;
+    }
+
+    capacity = DynamoDBUtil.calcMaxMapTasks(DynamoDBUtil.createJobClient(conf));
+    store(conf, capacity);
+    return capacity;
+  }
+
+  /**
+   * Stores a cluster map capacity in the job configuration, and in the capacity file if one is
+   * configured.
+   *
+   * @param conf configuration of the job being submitted
+   * @param capacity the cluster map capacity
+   */
+  public static void store(JobConf conf, int capacity) throws IOException {
+    log.info("Cluster map capacity: " + capacity);
+    conf.setInt(DynamoDBConstants.CLUSTER_MAP_CAPACITY, capacity);
+
+    String capacityFile = conf.get(DynamoDBConstants.CLUSTER_MAP_CAPACITY_FILE);
+    if (capacityFile != null) {
+      Path path = new Path(capacityFile);
+      try (OutputStream out = path.getFileSystem(conf).create(path, true)) {
+        out.write(Integer.toString(capacity).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  /**
+   * Returns the cluster map capacity computed when the job was submitted, or the one in the
+   * capacity file if it is configured and readable.
+   *
+   * @param conf configuration of the running job
+   * @return the cluster map capacity, or 0 if it was not computed when the job was submitted
+   */
+  public static int get(JobConf conf) {
+    String capacityFile = conf.get(DynamoDBConstants.CLUSTER_MAP_CAPACITY_FILE);
+    if (capacityFile != null) {
+      try {
+        int capacity = read(conf, new Path(capacityFile));
+        if (capacity > 0) {
+          return capacity;
+        }
+      } catch (IOException | NumberFormatException e) {
+        log.warn("Could not read cluster map capacity from " + capacityFile, e);
+      }
+    }
+    return conf.getInt(DynamoDBConstants.CLUSTER_MAP_CAPACITY, 0);
+  }
+
+  private static int read(JobConf conf, Path path) throws IOException {
+    FileSystem fs = path.getFileSystem(conf);
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(fs.open(path), StandardCharsets.UTF_8))) {
+      String line = reader.readLine();
+      return line == null ? 0 : Integer.parseInt(line.trim());
+    }
+  }
+
+  private ClusterMapCapacity() {
+  }
+
+}
@@ -14,13 +14,27 @@
 package org.apache.hadoop.dynamodb.write;
 
 import java.io.IOException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.dynamodb.DynamoDBUtil;
+import org.apache.hadoop.dynamodb.util.ClusterMapCapacity;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.OutputFormat;
 
 public abstract class AbstractDynamoDBOutputFormat<K, V> implements OutputFormat<K, V> {
 
+  private static final Log log = LogFactory.getLog(AbstractDynamoDBOutputFormat.class);
+
   @Override
-  public void checkOutputSpecs(FileSystem arg0, JobConf arg1) throws IOException {
+  public void checkOutputSpecs(FileSystem ignored, JobConf job) throws IOException {
+    // Computed once here for all the record writers of the job
+    if (DynamoDBUtil.isYarnEnabled(job)) {
+      try {
+        ClusterMapCapacity.configure(job);
+      } catch (IOException e) {
+        log.warn("Exception calculating cluster map capacity", e);
+      }
+    }
   }
 }
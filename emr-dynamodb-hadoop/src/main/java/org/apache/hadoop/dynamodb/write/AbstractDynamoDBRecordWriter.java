@@ -14,7 +14,6 @@
 package org.apache.hadoop.dynamodb.write;
 
 import static org.apache.hadoop.dynamodb.DynamoDBConstants.DEFAULT_AVERAGE_ITEM_SIZE_IN_BYTES;
-import static org.apache.hadoop.dynamodb.DynamoDBUtil.createJobClient;
 
 import java.io.IOException;
 import java.util.List;
@@ -25,7 +24,6 @@ import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
 import org.apache.hadoop.dynamodb.DynamoDBOperationType;
 import org.apache.hadoop.dynamodb.DynamoDBUtil;
-import org.apache.hadoop.dynamodb.IopsCalculator;
 import org.apache.hadoop.dynamodb.IopsController;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.RecordWriter;
@@ -57,6 +55,7 @@ public abstract class AbstractDynamoDBRecordWriter<K, V> implements RecordWriter
   private final DynamoDBClient client;
   private final Progressable progressable;
   private final String tableName;
+  private WriteIopsCalculator iopsCalculator;
   private IopsController iopsController;
   private long permissibleWritesPerSecond;
   private Reporter reporter;
@@ -84,8 +83,7 @@ public abstract class AbstractDynamoDBRecordWriter<K, V> implements RecordWriter
     deletionMode = jobConf.getBoolean(DynamoDBConstants.DELETION_MODE,
         DynamoDBConstants.DEFAULT_DELETION_MODE);
 
-    IopsCalculator iopsCalculator = new WriteIopsCalculator(createJobClient(jobConf), client,
-        tableName);
+    iopsCalculator = new WriteIopsCalculator(jobConf, client, tableName);
     iopsController = new IopsController(iopsCalculator, DEFAULT_AVERAGE_ITEM_SIZE_IN_BYTES,
         DynamoDBOperationType.WRITE);
     permissibleWritesPerSecond = iopsController.getTargetItemsPerSecond();
@@ -142,6 +140,7 @@ public abstract class AbstractDynamoDBRecordWriter<K, V> implements RecordWriter
 
   @Override
   public void close(Reporter reporter) throws IOException {
+    iopsCalculator.close();
     client.close();
     log.info(totalItemsWritten + " total items written");
   }
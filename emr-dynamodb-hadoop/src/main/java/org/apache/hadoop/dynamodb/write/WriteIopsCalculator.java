@@ -16,8 +16,13 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.DynamoDBOperationType;
 import org.apache.hadoop.dynamodb.DynamoDBUtil;
 import org.apache.hadoop.dynamodb.IopsCalculator;
+import org.apache.hadoop.dynamodb.TableCapacityLeases;
+import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
+import org.apache.hadoop.dynamodb.util.ClusterMapCapacity;
+import org.apache.hadoop.dynamodb.util.TimeSource;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 import software.amazon.awssdk.services.dynamodb.model.BillingMode;
@@ -33,11 +38,23 @@ public class WriteIopsCalculator implements IopsCalculator {
   private final JobConf jobConf;
   private final String tableName;
 
-  private final int maxParallelTasks;
+  private final String taskId;
+  private final int totalMapTasks;
   private final double throughputPercent;
+  private final TableCapacityLeases tableCapacityLeases;
+  private int maxParallelTasks;
+
+  public WriteIopsCalculator(JobConf jobConf, DynamoDBClient dynamoDBClient, String tableName) {
+    this(null, jobConf, dynamoDBClient, tableName, new TimeSource());
+  }
 
   public WriteIopsCalculator(JobClient jobClient, DynamoDBClient dynamoDBClient, String tableName) {
-    this.jobConf = (JobConf) jobClient.getConf();
+    this(jobClient, (JobConf) jobClient.getConf(), dynamoDBClient, tableName, new TimeSource());
+  }
+
+  private WriteIopsCalculator(JobClient jobClient, JobConf jobConf, DynamoDBClient dynamoDBClient,
+      String tableName, AbstractTimeSource time) {
+    this.jobConf = jobConf;
     this.jobClient = jobClient;
 
     this.dynamoDBClient = dynamoDBClient;
@@ -48,14 +65,16 @@ public class WriteIopsCalculator implements IopsCalculator {
 
     log.info("Table name: " + tableName);
     log.info("Throughput percent: " + throughputPercent);
+    this.tableCapacityLeases = openTableCapacityLeases(jobConf, tableName, throughputPercent,
+        time);
 
-    String taskId = jobConf.get("mapreduce.task.attempt.id");
+    taskId = jobConf.get("mapreduce.task.attempt.id");
     log.info("Task Id: " + taskId);
 
     log.info("Number of mappers from config: " + jobConf.getNumMapTasks());
     log.info("Number of reducers from config: " + jobConf.getNumReduceTasks());
 
-    final int totalMapTasks = jobConf.getNumMapTasks();
+    totalMapTasks = jobConf.getNumMapTasks();
     log.info("Total map tasks: " + totalMapTasks);
 
     if (Strings.isNullOrEmpty(taskId)) {
@@ -70,6 +89,8 @@ public class WriteIopsCalculator implements IopsCalculator {
   }
 
   public long calculateTargetIops() {
+    refreshMaxParallelTasks();
+
     double configuredThroughput;
     // Always fetch throughput from DDB if auto-scaling is enabled
     if (Boolean.parseBoolean(jobConf.get(DynamoDBConstants.WRITE_THROUGHPUT_AUTOSCALING))
@@ -78,7 +99,12 @@ public class WriteIopsCalculator implements IopsCalculator {
     } else {
       configuredThroughput = Double.parseDouble(jobConf.get(DynamoDBConstants.WRITE_THROUGHPUT));
     }
-    double calculatedThroughput = Math.floor(configuredThroughput * throughputPercent);
+    double percent = throughputPercent;
+    if (tableCapacityLeases != null) {
+      // The percentage is shared with the other jobs writing the table
+      percent = tableCapacityLeases.getThroughputPercent();
+    }
+    double calculatedThroughput = Math.floor(configuredThroughput * percent);
     long throughputPerTask = Math.max((long) (calculatedThroughput / maxParallelTasks), 1);
 
     log.info("Throughput per task for table " + tableName + " : " + throughputPerTask);
@@ -86,14 +112,62 @@ public class WriteIopsCalculator implements IopsCalculator {
   }
 
   int calculateMaxMapTasks(int totalMapTasks) {
+    int clusterMapCapacity = ClusterMapCapacity.get(jobConf);
+    if (clusterMapCapacity > 0) {
+      return clusterMapCapacity;
+    }
+
+    // The capacity was not computed when the job was submitted, ask the resource manager
     try {
-      return DynamoDBUtil.calcMaxMapTasks(jobClient);
+      return DynamoDBUtil.calcMaxMapTasks(jobClient != null ? jobClient
+          : DynamoDBUtil.createJobClient(jobConf));
     } catch (IOException e) {
       log.warn("Exception calculating max map tasks", e);
     }
     return totalMapTasks;
   }
 
+  /**
+   * Picks up a cluster map capacity written to the capacity file since the last calculation.
+   */
+  private void refreshMaxParallelTasks() {
+    if (Strings.isNullOrEmpty(taskId) || !DynamoDBUtil.isYarnEnabled(jobConf)
+        || jobConf.get(DynamoDBConstants.CLUSTER_MAP_CAPACITY_FILE) == null) {
+      return;
+    }
+    int clusterMapCapacity = ClusterMapCapacity.get(jobConf);
+    if (clusterMapCapacity > 0
+        && Math.min(clusterMapCapacity, totalMapTasks) != maxParallelTasks) {
+      maxParallelTasks = Math.min(clusterMapCapacity, totalMapTasks);
+      log.info("Max parallel map tasks: " + maxParallelTasks);
+    }
+  }
+
+  /**
+   * Gives up the lease of the task on the capacity of the table, if it holds one.
+   */
+  public void close() {
+    if (tableCapacityLeases == null) {
+      return;
+    }
+    try {
+      tableCapacityLeases.close();
+    } catch (IOException e) {
+      log.warn("Could not give up the table capacity lease, it is kept until it expires", e);
+    }
+  }
+
+  private static TableCapacityLeases openTableCapacityLeases(JobConf jobConf, String tableName,
+      double throughputPercent, AbstractTimeSource time) {
+    try {
+      return TableCapacityLeases.open(jobConf, tableName, DynamoDBOperationType.WRITE,
+          throughputPercent, time);
+    } catch (IOException e) {
+      log.warn("Could not open the table capacity leases, using the whole throughput percent", e);
+      return null;
+    }
+  }
+
   protected double getThroughput() {
     TableDescription tableDescription = dynamoDBClient.describeTable(tableName);
     if (tableDescription.billingModeSummary() == null
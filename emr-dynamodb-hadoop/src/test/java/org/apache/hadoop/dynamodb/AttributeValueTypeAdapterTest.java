@@ -0,0 +1,94 @@
+package org.apache.hadoop.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+public class AttributeValueTypeAdapterTest {
+
+  // The tree model serializers the type adapter replaces, as DynamoDBUtil registered them
+  @SuppressWarnings("deprecation")
+  private static final Gson TREE_GSON = new GsonBuilder()
+      .registerTypeAdapter(SdkBytes.class, (JsonSerializer<SdkBytes>) (bytes, type, context) ->
+          new JsonPrimitive(DynamoDBUtil.base64EncodeByteArray(bytes.asByteArray())))
+      .registerTypeAdapter(SdkBytes.class, (JsonDeserializer<SdkBytes>) (json, type, context) ->
+          SdkBytes.fromByteBuffer(DynamoDBUtil.base64StringToByteBuffer(json.getAsString())))
+      .registerTypeAdapter(AttributeValue.class, new AttributeValueSerializer())
+      .registerTypeAdapter(AttributeValue.class, new AttributeValueDeserializer())
+      .disableHtmlEscaping()
+      .create();
+  private static final Gson GSON = DynamoDBUtil.getGson();
+
+  @Test
+  public void testSerializationMatchesTreeModel() throws Exception {
+    Map<String, AttributeValue> nested = new LinkedHashMap<>();
+    nested.put("b", AttributeValue.fromB(SdkBytes.fromByteArray(new byte[]{0, 1, (byte) 0xfe})));
+    nested.put("null", AttributeValue.fromNul(true));
+    nested.put("skipped", null);
+    Map<String, AttributeValue> item = new LinkedHashMap<>();
+    item.put("s", AttributeValue.fromS("<café> \"quoted\"\n "));
+    item.put("n", AttributeValue.fromN("-1.5E+10"));
+    item.put("bool", AttributeValue.fromBool(true));
+    item.put("ss", AttributeValue.fromSs(Arrays.asList("a", "")));
+    item.put("ns", AttributeValue.fromNs(Collections.singletonList("1")));
+    item.put("bs", AttributeValue.fromBs(Arrays.asList(
+        SdkBytes.fromByteArray(new byte[0]), SdkBytes.fromByteArray(new byte[100]))));
+    item.put("m", AttributeValue.fromM(nested));
+    item.put("l", AttributeValue.fromL(Arrays.asList(AttributeValue.fromN("1"), null,
+        AttributeValue.fromL(Collections.emptyList()))));
+    item.put("empty", AttributeValue.builder().build());
+
+    String expected = TREE_GSON.toJson(item, DynamoDBItemWritable.type);
+    assertEquals(expected, GSON.toJson(item, DynamoDBItemWritable.type));
+
+    StringWriter writer = new StringWriter();
+    new DynamoDBItemWritable(item).writeStream(writer);
+    assertEquals(expected, writer.toString());
+  }
+
+  @Test
+  public void testDeserializationMatchesTreeModel() {
+    String[] values = {
+        "{\"s\":\"Seattle\"}",
+        "{\"S\":\"Seattle\"}",
+        "{\"n\":12.50}",
+        "{\"nS\":[],\"s\":\"first non empty field wins\",\"n\":\"1\"}",
+        "{\"sS\":[\"a\",1,true]}",
+        "{\"bOOL\":\"true\"}",
+        "{\"nULL\":true}",
+        "{\"b\":\"AAH+\"}",
+        "{\"b\":\"AAH-\"}",
+        "{\"bS\":[\"AA==\",\"\"]}",
+        "{\"m\":{\"a\":{\"s\":\"x\"},\"b\":null,\"c\":{\"l\":[{\"n\":\"1\"},null]}}}",
+        "{\"m\":{},\"l\":[]}",
+        "{\"unknown\":{\"s\":\"x\"}}",
+        "{}",
+        "\"not an object\"",
+        "null",
+    };
+    for (String value : values) {
+      String json = "{\"attribute\":" + value + "}";
+      Map<String, AttributeValue> expected = TREE_GSON.fromJson(json, DynamoDBItemWritable.type);
+      Map<String, AttributeValue> actual = GSON.fromJson(json, DynamoDBItemWritable.type);
+      assertEquals(json, normalize(expected), normalize(actual));
+    }
+  }
+
+  // SdkBytes compare by identity of their buffers, so compare the serialized forms instead
+  private static String normalize(Map<String, AttributeValue> item) {
+    return TREE_GSON.toJson(new HashMap<>(item), DynamoDBItemWritable.type);
+  }
+}
@@ -21,20 +21,26 @@ import com.google.common.collect.ImmutableMap;
 
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.dynamodb.filter.DynamoDBExpression;
+import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
 import org.hamcrest.core.Is;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.lang.reflect.Field;
 import java.util.List;
 import java.util.Map;
@@ -52,7 +58,16 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.Capacity;
+import software.amazon.awssdk.services.dynamodb.model.ComparisonOperator;
+import software.amazon.awssdk.services.dynamodb.model.Condition;
 import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
 import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 public class DynamoDBClientTest {
@@ -384,6 +399,192 @@ public class DynamoDBClientTest {
         client.putBatch("dummyTable", item, 1, null, true));
   }
 
+  @Test
+  public void testDescribeTableIsCachedAcrossClients() {
+    Mockito.when(mockClient.describeTable(Mockito.<DescribeTableRequest>any()))
+        .thenReturn(DescribeTableResponse.builder()
+            .table(TableDescription.builder().tableName("dummyTable").itemCount(1L).build())
+            .build())
+        .thenReturn(DescribeTableResponse.builder()
+            .table(TableDescription.builder().tableName("dummyTable").itemCount(2L).build())
+            .build());
+
+    Assert.assertEquals(1L, (long) client.describeTable("dummyTable").itemCount());
+    Assert.assertEquals(1L,
+        (long) new DynamoDBClient(mockClient, conf).describeTable("dummyTable").itemCount());
+    Mockito.verify(mockClient, Mockito.times(1))
+        .describeTable(Mockito.<DescribeTableRequest>any());
+
+    Assert.assertEquals(2L, (long) client.refreshTableDescription("dummyTable").itemCount());
+    Assert.assertEquals(2L, (long) client.describeTable("dummyTable").itemCount());
+    Mockito.verify(mockClient, Mockito.times(2))
+        .describeTable(Mockito.<DescribeTableRequest>any());
+  }
+
+  @Test
+  public void testDescribeTableCacheCanBeDisabled() {
+    conf.setLong(DynamoDBConstants.DESCRIBE_TABLE_CACHE_TTL, 0);
+    client = new DynamoDBClient(mockClient, conf);
+    Mockito.when(mockClient.describeTable(Mockito.<DescribeTableRequest>any()))
+        .thenReturn(DescribeTableResponse.builder()
+            .table(TableDescription.builder().tableName("dummyTable").build())
+            .build());
+
+    client.describeTable("dummyTable");
+    client.describeTable("dummyTable");
+    Mockito.verify(mockClient, Mockito.times(2))
+        .describeTable(Mockito.<DescribeTableRequest>any());
+  }
+
+  @Test
+  public void testPipelinedPutBatchWritesAllItemsOnClose() throws Exception {
+    conf.setInt(DynamoDBConstants.MAX_CONCURRENT_BATCH_WRITES, 4);
+    client = new DynamoDBClient(mockClient, conf);
+
+    AtomicInteger itemsWritten = new AtomicInteger();
+    AtomicBoolean leftUnprocessed = new AtomicBoolean();
+    Mockito
+        .when(mockClient.batchWriteItem(Mockito.<BatchWriteItemRequest>any()))
+        .thenAnswer(i -> {
+          BatchWriteItemRequest request = (BatchWriteItemRequest) i.getArguments()[0];
+          // Leave the first batch unprocessed once to exercise the retry path
+          if (leftUnprocessed.compareAndSet(false, true)) {
+            return BatchWriteItemResponse.builder()
+                .unprocessedItems(request.requestItems())
+                .build();
+          }
+          for (List<WriteRequest> requests : request.requestItems().values()) {
+            itemsWritten.addAndGet(requests.size());
+          }
+          return BatchWriteItemResponse.builder()
+              .consumedCapacity(ConsumedCapacity.builder()
+                  .table(Capacity.builder().capacityUnits(1.0).build())
+                  .build())
+              .build();
+        });
+
+    for (int i = 0; i < 11; ++i) {
+      BatchWriteItemResponse response = client.putBatch("dummyTable",
+          ImmutableMap.of("id", AttributeValue.fromS(Integer.toString(i))), 2, null, false);
+      if (response != null) {
+        Assert.assertTrue(response.unprocessedItems().isEmpty());
+      }
+    }
+    client.close();
+
+    Assert.assertEquals(11, itemsWritten.get());
+    Assert.assertTrue(client.getWriteBatchMap().isEmpty());
+  }
+
+  @Test
+  public void testPipelinedPutBatchSurfacesFailureOnClose() throws Exception {
+    conf.setInt(DynamoDBConstants.MAX_CONCURRENT_BATCH_WRITES, 2);
+    client = new DynamoDBClient(mockClient, conf);
+
+    Mockito
+        .when(mockClient.batchWriteItem(Mockito.<BatchWriteItemRequest>any()))
+        .thenThrow(new IllegalStateException("boom"));
+
+    client.putBatch("dummyTable", ImmutableMap.of("id", AttributeValue.fromS("0")), 2, null,
+        false);
+
+    RuntimeException e = Assert.assertThrows(RuntimeException.class, () -> client.close());
+    Assert.assertEquals("Pipelined batch write failed", e.getMessage());
+    Throwable cause = e.getCause();
+    while (cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    Assert.assertTrue(cause instanceof IllegalStateException);
+    Assert.assertEquals("boom", cause.getMessage());
+    Mockito.verify(mockClient).close();
+  }
+
+  @Test
+  public void testScanWithFilterExpressionUsesExpressionsOnly() {
+    Mockito.when(mockClient.scan(Mockito.<ScanRequest>any()))
+        .thenReturn(ScanResponse.builder().build());
+
+    DynamoDBQueryFilter filter = new DynamoDBQueryFilter();
+    filter.getScanFilter().put("ttl", Condition.builder()
+        .comparisonOperator(ComparisonOperator.GT)
+        .attributeValueList(AttributeValue.fromN("100"))
+        .build());
+    filter.setFilterExpression(new DynamoDBExpression("#f0 = :f0 OR #f0 = :f1",
+        ImmutableMap.of("#f0", "color"),
+        ImmutableMap.of(":f0", AttributeValue.fromS("red"), ":f1", AttributeValue.fromS("blue"))));
+
+    client.scanTable("dummyTable", filter, 0, 1, null, 10, Arrays.asList("id", "color"), null);
+
+    ArgumentCaptor<ScanRequest> captor = ArgumentCaptor.forClass(ScanRequest.class);
+    Mockito.verify(mockClient).scan(captor.capture());
+    ScanRequest request = captor.getValue();
+    Assert.assertFalse(request.hasScanFilter());
+    Assert.assertFalse(request.hasAttributesToGet());
+    Assert.assertEquals("(#r0 > :r0) AND (#f0 = :f0 OR #f0 = :f1)", request.filterExpression());
+    Assert.assertEquals("#r1, #f0", request.projectionExpression());
+    Assert.assertEquals(ImmutableMap.of("#r0", "ttl", "#r1", "id", "#f0", "color"),
+        request.expressionAttributeNames());
+    Assert.assertEquals(3, request.expressionAttributeValues().size());
+    Assert.assertEquals(AttributeValue.fromN("100"), request.expressionAttributeValues().get(":r0"));
+  }
+
+  @Test
+  public void testQueryWithFilterExpressionRendersKeyConditions() {
+    Mockito.when(mockClient.query(Mockito.<QueryRequest>any()))
+        .thenReturn(QueryResponse.builder().build());
+
+    DynamoDBQueryFilter filter = new DynamoDBQueryFilter();
+    filter.getKeyConditions().put("id", Condition.builder()
+        .comparisonOperator(ComparisonOperator.EQ)
+        .attributeValueList(AttributeValue.fromS("1"))
+        .build());
+    filter.setFilterExpression(new DynamoDBExpression("attribute_type(#f0, :f0)",
+        ImmutableMap.of("#f0", "color"), ImmutableMap.of(":f0", AttributeValue.fromS("S"))));
+
+    client.queryTable("dummyTable", filter, null, 10, null, null);
+
+    ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+    Mockito.verify(mockClient).query(captor.capture());
+    QueryRequest request = captor.getValue();
+    Assert.assertFalse(request.hasKeyConditions());
+    Assert.assertEquals("#r0 = :r0", request.keyConditionExpression());
+    Assert.assertEquals("attribute_type(#f0, :f0)", request.filterExpression());
+    Assert.assertNull(request.projectionExpression());
+    Assert.assertEquals(ImmutableMap.of("#r0", "id", "#f0", "color"),
+        request.expressionAttributeNames());
+  }
+
+  @Test
+  public void testQueryRangeKeyBoundReadsOneKeyWithoutTheFilter() {
+    Mockito.when(mockClient.query(Mockito.<QueryRequest>any()))
+        .thenReturn(QueryResponse.builder()
+            .items(ImmutableMap.of("ts", AttributeValue.fromN("42")))
+            .build())
+        .thenReturn(QueryResponse.builder().build());
+
+    DynamoDBQueryFilter filter = new DynamoDBQueryFilter();
+    filter.getKeyConditions().put("id", Condition.builder()
+        .comparisonOperator(ComparisonOperator.EQ)
+        .attributeValueList(AttributeValue.fromS("1"))
+        .build());
+    filter.setFilterExpression(new DynamoDBExpression("attribute_type(#f0, :f0)",
+        ImmutableMap.of("#f0", "color"), ImmutableMap.of(":f0", AttributeValue.fromS("S"))));
+
+    Assert.assertEquals(AttributeValue.fromN("42"),
+        client.queryRangeKeyBound("dummyTable", filter, "ts", true, null));
+    Assert.assertNull(client.queryRangeKeyBound("dummyTable", filter, "ts", false, null));
+
+    ArgumentCaptor<QueryRequest> captor = ArgumentCaptor.forClass(QueryRequest.class);
+    Mockito.verify(mockClient, Mockito.times(2)).query(captor.capture());
+    QueryRequest request = captor.getAllValues().get(0);
+    Assert.assertEquals(filter.getKeyConditions(), request.keyConditions());
+    Assert.assertNull(request.filterExpression());
+    Assert.assertEquals(Arrays.asList("ts"), request.attributesToGet());
+    Assert.assertEquals(Integer.valueOf(1), request.limit());
+    Assert.assertFalse(request.scanIndexForward());
+    Assert.assertTrue(captor.getAllValues().get(1).scanIndexForward());
+  }
+
   private void setTestProxyHostAndPort(Configuration conf) {
     setProxyHostAndPort(conf, TEST_PROXY_HOST, TEST_PROXY_PORT);
   }
@@ -13,6 +13,8 @@
 
 package org.apache.hadoop.dynamodb;
 
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.atMost;
@@ -67,6 +69,30 @@ public class DynamoDBFibonacciRetryerTest {
     }
   }
 
+  @Test
+  public void testThrottleExceptionNotRetried() throws Exception {
+    AwsServiceException ase = AwsServiceException.builder()
+        .message("Test")
+        .awsErrorDetails(AwsErrorDetails.builder()
+            .errorCode("ThrottlingException")
+            .sdkHttpResponse(SdkHttpResponse.builder()
+                .statusCode(400)
+                .build())
+            .build())
+        .build();
+    when(call.call()).thenThrow(ase);
+    DynamoDBFibonacciRetryer retryer = new DynamoDBFibonacciRetryer(Duration.standardSeconds(10),
+        false);
+
+    try {
+      retryer.runWithRetry(call, null, null);
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(DynamoDBFibonacciRetryer.isThrottleException(e));
+    }
+    verify(call).call();
+  }
+
   @Test(expected = RuntimeException.class)
   public void testRetryableASEException() throws Exception {
     AwsServiceException ase = AwsServiceException.builder()
@@ -95,6 +95,58 @@ public class DynamoDBItemWritableTest {
     assertEquals(item.getItem(), new HashMap<String, AttributeValue>());
   }
 
+  @Test
+  public void testSerializationChunkedFormatCompatibility() throws IOException {
+    setTestData();
+
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(outStream);
+    // The chunked format written by previous versions
+    out.writeChar(0x0001);
+    out.writeByte(0x00);
+    String json = item.writeStream();
+    out.writeInt(2);
+    out.writeUTF(json.substring(0, 10));
+    out.writeUTF(json.substring(10));
+    outStream.close();
+
+    item.setItem(null);
+    item.readFields(new DataInputStream(new ByteArrayInputStream(outStream.toByteArray())));
+    checkReturnedItem();
+  }
+
+  @Test
+  public void testSerializationOfAllTypes() throws IOException {
+    Map<String, AttributeValue> nested = new HashMap<>();
+    nested.put("b", AttributeValue.fromB(SdkBytes.fromByteArray(new byte[]{0, 1, (byte) 0xff})));
+    nested.put("null", AttributeValue.fromNul(true));
+    Map<String, AttributeValue> sampleData = new HashMap<>();
+    sampleData.put("s", AttributeValue.fromS("caf\u00e9 \ud83d\ude00"));
+    sampleData.put("n", AttributeValue.fromN("-1.5E+10"));
+    sampleData.put("bool", AttributeValue.fromBool(false));
+    sampleData.put("ss", AttributeValue.fromSs(Arrays.asList("a", "")));
+    sampleData.put("bs", AttributeValue.fromBs(Arrays.asList(
+        SdkBytes.fromByteArray(new byte[0]), SdkBytes.fromByteArray(new byte[300]))));
+    sampleData.put("m", AttributeValue.fromM(nested));
+    sampleData.put("l", AttributeValue.fromL(Arrays.asList(
+        AttributeValue.fromN("1"), AttributeValue.fromL(new ArrayList<>()))));
+    item.setItem(sampleData);
+
+    DynamoDBItemWritable copy = new DynamoDBItemWritable();
+    copy.readFields(new DataInputStream(new ByteArrayInputStream(serialize(item))));
+    assertEquals(sampleData, copy.getItem());
+
+    item.setItem(null);
+    copy.readFields(new DataInputStream(new ByteArrayInputStream(serialize(item))));
+    assertNull(copy.getItem());
+  }
+
+  private static byte[] serialize(DynamoDBItemWritable item) throws IOException {
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    item.write(new DataOutputStream(outStream));
+    return outStream.toByteArray();
+  }
+
   private void checkReturnedItem() {
     assertNotNull(item.getItem());
     Map<String, AttributeValue> returnedData = item.getItem();
@@ -16,6 +16,8 @@ package org.apache.hadoop.dynamodb;
 import static org.apache.hadoop.dynamodb.DynamoDBConstants.DEFAULT_MAX_ITEMS_PER_BATCH;
 import static org.apache.hadoop.dynamodb.DynamoDBUtil.getBoundedBatchLimit;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -39,6 +41,13 @@ import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.regions.internal.util.EC2MetadataUtils;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.LocalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest({EC2MetadataUtils.class})
@@ -196,6 +205,49 @@ public class DynamoDBUtilTest {
         getBoundedBatchLimit(conf, DEFAULT_MAX_ITEMS_PER_BATCH));
   }
 
+  @Test
+  public void testTableSchemaRoundTrip() {
+    TableDescription description = TableDescription.builder()
+        .tableName("test-table")
+        .itemCount(10L)
+        .keySchema(
+            KeySchemaElement.builder().attributeName("hashKey").keyType(KeyType.HASH).build(),
+            KeySchemaElement.builder().attributeName("rangeKey").keyType(KeyType.RANGE).build())
+        .localSecondaryIndexes(LocalSecondaryIndexDescription.builder()
+            .indexName("lsi")
+            .keySchema(
+                KeySchemaElement.builder().attributeName("hashKey").keyType(KeyType.HASH).build(),
+                KeySchemaElement.builder().attributeName("other").keyType(KeyType.RANGE).build())
+            .projection(Projection.builder()
+                .projectionType(ProjectionType.INCLUDE)
+                .nonKeyAttributes("a", "b")
+                .build())
+            .build())
+        .globalSecondaryIndexes(GlobalSecondaryIndexDescription.builder()
+            .indexName("gsi")
+            .keySchema(
+                KeySchemaElement.builder().attributeName("other").keyType(KeyType.HASH).build())
+            .projection(Projection.builder().projectionType(ProjectionType.KEYS_ONLY).build())
+            .build())
+        .build();
+
+    TableDescription schema =
+        DynamoDBUtil.deserializeTableSchema(DynamoDBUtil.serializeTableSchema(description));
+    assertEquals(description.tableName(), schema.tableName());
+    assertEquals(description.keySchema(), schema.keySchema());
+    assertEquals(description.localSecondaryIndexes(), schema.localSecondaryIndexes());
+    assertEquals(description.globalSecondaryIndexes(), schema.globalSecondaryIndexes());
+    assertNull(schema.itemCount());
+
+    TableDescription withoutIndexes = DynamoDBUtil.deserializeTableSchema(
+        DynamoDBUtil.serializeTableSchema(description.toBuilder()
+            .localSecondaryIndexes((List<LocalSecondaryIndexDescription>) null)
+            .globalSecondaryIndexes((List<GlobalSecondaryIndexDescription>) null)
+            .build()));
+    assertFalse(withoutIndexes.hasLocalSecondaryIndexes());
+    assertFalse(withoutIndexes.hasGlobalSecondaryIndexes());
+  }
+
   private int getExpectedItemSize(List<String> strings) {
     int size = 0;
     for (String str : strings) {
@@ -0,0 +1,125 @@
+package org.apache.hadoop.dynamodb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.hadoop.dynamodb.util.MockTimeSource;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TableCapacityLeasesTest {
+
+  private static final double EPSILON = 0.001;
+  private static final String TABLE_NAME = "Test";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final MockTimeSource time = new MockTimeSource();
+
+  @Test
+  public void testLeasesAreOffByDefault() throws IOException {
+    assertNull(TableCapacityLeases.open(new JobConf(), TABLE_NAME, DynamoDBOperationType.READ, 1.0,
+        time));
+  }
+
+  @Test
+  public void testLeasesAreHeldByTaskAttempts() {
+    JobConf conf = new JobConf();
+    conf.set(DynamoDBConstants.TABLE_CAPACITY_LEASE_DIR, folder.getRoot().getAbsolutePath());
+    assertThrows(IOException.class,
+        () -> TableCapacityLeases.open(conf, TABLE_NAME, DynamoDBOperationType.READ, 1.0, time));
+  }
+
+  @Test
+  public void testJobsGetWeightedShares() throws IOException {
+    TableCapacityLeases job1Task1 = open("job_1", "attempt_1_m_0", 1, DynamoDBOperationType.READ);
+    TableCapacityLeases job1Task2 = open("job_1", "attempt_1_m_1", 1, DynamoDBOperationType.READ);
+    TableCapacityLeases job2Task1 = open("job_2", "attempt_2_m_0", 3, DynamoDBOperationType.READ);
+    TableCapacityLeases writer = open("job_3", "attempt_3_r_0", 1, DynamoDBOperationType.WRITE);
+
+    assertEquals(1.0, job1Task1.renew(), EPSILON);
+    // The tasks of a job share the lease of the job
+    assertEquals(1.0, job1Task2.renew(), EPSILON);
+    assertEquals(0.75, job2Task1.renew(), EPSILON);
+    assertEquals(0.25, job1Task1.renew(), EPSILON);
+    // Reads and writes do not share capacity
+    assertEquals(1.0, writer.renew(), EPSILON);
+
+    job2Task1.close();
+    assertEquals(1.0, job1Task2.renew(), EPSILON);
+  }
+
+  @Test
+  public void testJobsShareTheLowestPercent() throws IOException {
+    TableCapacityLeases job1Task1 = open("job_1", "attempt_1_m_0", 1, 0.8);
+    TableCapacityLeases job2Task1 = open("job_2", "attempt_2_m_0", 1, 0.4);
+
+    assertEquals(0.8, job1Task1.renew(), EPSILON);
+    // Both jobs get the same share of the table, whichever percentage they were given
+    assertEquals(0.2, job2Task1.renew(), EPSILON);
+    assertEquals(0.2, job1Task1.renew(), EPSILON);
+
+    job2Task1.close();
+    assertEquals(0.8, job1Task1.renew(), EPSILON);
+  }
+
+  @Test
+  public void testSharesAreRenewedOncePerInterval() throws IOException {
+    TableCapacityLeases job1Task1 = open("job_1", "attempt_1_m_0", 1, DynamoDBOperationType.READ);
+    TableCapacityLeases job2Task1 = open("job_2", "attempt_2_m_0", 1, DynamoDBOperationType.READ);
+
+    assertEquals(1.0, job1Task1.getThroughputPercent(), EPSILON);
+    assertEquals(0.5, job2Task1.getThroughputPercent(), EPSILON);
+    assertEquals(1.0, job1Task1.getThroughputPercent(), EPSILON);
+
+    time.advanceByMillis(DynamoDBConstants.DEFAULT_TABLE_CAPACITY_LEASE_INTERVAL);
+    assertEquals(0.5, job1Task1.getThroughputPercent(), EPSILON);
+
+    // A closed lease is not renewed again
+    job2Task1.close();
+    time.advanceByMillis(DynamoDBConstants.DEFAULT_TABLE_CAPACITY_LEASE_INTERVAL);
+    job2Task1.getThroughputPercent();
+    assertEquals(1.0, job1Task1.getThroughputPercent(), EPSILON);
+  }
+
+  @Test
+  public void testExpiredLeasesAreDeleted() throws IOException {
+    TableCapacityLeases job1Task1 = open("job_1", "attempt_1_m_0", 1, DynamoDBOperationType.READ);
+    TableCapacityLeases job2Task1 = open("job_2", "attempt_2_m_0", 1, DynamoDBOperationType.READ);
+    job1Task1.renew();
+
+    File lease = new File(folder.getRoot(), TABLE_NAME + "/read/job_1.attempt_1_m_0");
+    assertTrue(lease.setLastModified(1000));
+    assertEquals(1.0, job2Task1.renew(), EPSILON);
+    assertFalse(lease.exists());
+  }
+
+  private TableCapacityLeases open(String jobId, String taskId, double weight,
+      DynamoDBOperationType operationType) throws IOException {
+    return open(jobId, taskId, weight, operationType, 1.0);
+  }
+
+  private TableCapacityLeases open(String jobId, String taskId, double weight,
+      double throughputPercent) throws IOException {
+    return open(jobId, taskId, weight, DynamoDBOperationType.READ, throughputPercent);
+  }
+
+  private TableCapacityLeases open(String jobId, String taskId, double weight,
+      DynamoDBOperationType operationType, double throughputPercent) throws IOException {
+    JobConf conf = new JobConf();
+    conf.set(DynamoDBConstants.TABLE_CAPACITY_LEASE_DIR, folder.getRoot().getAbsolutePath());
+    conf.set(MRJobConfig.ID, jobId);
+    conf.set(MRJobConfig.TASK_ATTEMPT_ID, taskId);
+    conf.setDouble(DynamoDBConstants.TABLE_CAPACITY_LEASE_WEIGHT, weight);
+    return TableCapacityLeases.open(conf, TABLE_NAME, operationType, throughputPercent, time);
+  }
+}
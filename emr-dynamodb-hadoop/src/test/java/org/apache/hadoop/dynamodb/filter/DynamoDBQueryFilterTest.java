@@ -0,0 +1,195 @@
+package org.apache.hadoop.dynamodb.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ComparisonOperator;
+import software.amazon.awssdk.services.dynamodb.model.Condition;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+
+public class DynamoDBQueryFilterTest {
+
+  private static final String HASH_KEY_NAME = "hashKey";
+  private static final String RANGE_KEY_NAME = "rangeKey";
+
+  @Test
+  public void testRangeKeyPartitionsOfNumbers() {
+    DynamoDBQueryFilter filter = newQueryFilter(AttributeValue.fromN("0"),
+        AttributeValue.fromN("1E+2"));
+
+    assertTrue(filter.setRangeKeyPartitions(RANGE_KEY_NAME, 4));
+    assertEquals(4, filter.getSegmentCount());
+    assertEquals(Lists.newArrayList(AttributeValue.fromN("0"), AttributeValue.fromN("25"),
+        AttributeValue.fromN("50"), AttributeValue.fromN("75"), AttributeValue.fromN("100")),
+        filter.getRangeKeyBoundaries());
+
+    DynamoDBQueryFilter segmentQuery = filter.getSegmentQuery(1);
+    assertEquals(AttributeValue.fromS("h"),
+        segmentQuery.getKeyConditions().get(HASH_KEY_NAME).attributeValueList().get(0));
+    assertEquals(Lists.newArrayList(AttributeValue.fromN("25"), AttributeValue.fromN("50")),
+        segmentQuery.getKeyConditions().get(RANGE_KEY_NAME).attributeValueList());
+
+    // The first item of the next partition is read by both queries
+    Map<String, AttributeValue> item25 = ImmutableMap.of(RANGE_KEY_NAME,
+        AttributeValue.fromN("25"));
+    Map<String, AttributeValue> item50 = ImmutableMap.of(RANGE_KEY_NAME,
+        AttributeValue.fromN("50.0"));
+    List<Map<String, AttributeValue>> items = Lists.newArrayList(item25, item50);
+    assertEquals(Lists.newArrayList(item25), segmentQuery.getSegmentItems(items));
+    assertEquals(items, filter.getSegmentQuery(3).getSegmentItems(items));
+    assertEquals(Lists.newArrayList("value", RANGE_KEY_NAME),
+        segmentQuery.getSegmentAttributes(Lists.newArrayList("value")));
+  }
+
+  @Test
+  public void testRangeKeyPartitionsOfStrings() {
+    DynamoDBQueryFilter filter = newQueryFilter(AttributeValue.fromS("2020-01"),
+        AttributeValue.fromS("2020-09"));
+
+    assertTrue(filter.setRangeKeyPartitions(RANGE_KEY_NAME, 8));
+    List<AttributeValue> boundaries = filter.getRangeKeyBoundaries();
+    assertEquals(9, boundaries.size());
+    for (int i = 1; i < boundaries.size(); i++) {
+      assertTrue(boundaries.get(i - 1).s().compareTo(boundaries.get(i).s()) < 0);
+    }
+    assertEquals("2020-02", boundaries.get(1).s());
+  }
+
+  @Test
+  public void testRangeKeyPartitionsNeedBetweenCondition() {
+    DynamoDBQueryFilter filter = newQueryFilter(AttributeValue.fromN("1"),
+        AttributeValue.fromN("1"));
+    assertFalse(filter.setRangeKeyPartitions(RANGE_KEY_NAME, 4));
+    assertFalse(filter.setRangeKeyPartitions(HASH_KEY_NAME, 4));
+    assertEquals(1, filter.getSegmentCount());
+    assertSame(filter, filter.getSegmentQuery(0));
+  }
+
+  @Test
+  public void testWriteAndReadFields() throws IOException {
+    DynamoDBQueryFilter filter = newQueryFilter(AttributeValue.fromN("0"),
+        AttributeValue.fromN("100"));
+    filter.getScanFilter().put("value", Condition.builder()
+        .comparisonOperator(ComparisonOperator.NOT_NULL)
+        .build());
+    filter.setIndex(new DynamoDBIndexInfo("index", Lists.newArrayList(KeySchemaElement.builder()
+        .attributeName(HASH_KEY_NAME).keyType(KeyType.HASH).build()),
+        Projection.builder().projectionType(ProjectionType.INCLUDE)
+            .nonKeyAttributes("value").build()));
+    filter.setFilterExpression(new DynamoDBExpression("#f0 = :f0",
+        ImmutableMap.of("#f0", "value"), ImmutableMap.of(":f0", AttributeValue.fromS("v"))));
+    assertTrue(filter.setRangeKeyPartitions(RANGE_KEY_NAME, 4));
+
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    filter.write(new DataOutputStream(outStream));
+    DynamoDBQueryFilter copy = new DynamoDBQueryFilter();
+    copy.readFields(new DataInputStream(new ByteArrayInputStream(outStream.toByteArray())));
+
+    assertEquals(filter.getKeyConditions(), copy.getKeyConditions());
+    assertEquals(filter.getScanFilter(), copy.getScanFilter());
+    assertEquals(filter.getIndex().getIndexSchema(), copy.getIndex().getIndexSchema());
+    assertEquals(filter.getIndex().getIndexProjection(), copy.getIndex().getIndexProjection());
+    assertEquals(filter.getFilterExpression().toString(), copy.getFilterExpression().toString());
+    assertEquals(filter.getRangeKeyBoundaries(), copy.getRangeKeyBoundaries());
+    assertEquals(filter.getSegmentQuery(2).getKeyConditions(),
+        copy.getSegmentQuery(2).getKeyConditions());
+    assertFalse(copy.isBatchGet());
+  }
+
+  @Test
+  public void testSampledRangeKeyPartitions() {
+    DynamoDBQueryFilter filter = new DynamoDBQueryFilter();
+    filter.getKeyConditions().put(HASH_KEY_NAME, Condition.builder()
+        .comparisonOperator(ComparisonOperator.EQ)
+        .attributeValueList(AttributeValue.fromS("h"))
+        .build());
+    filter.getKeyConditions().put(RANGE_KEY_NAME, Condition.builder()
+        .comparisonOperator(ComparisonOperator.GT)
+        .attributeValueList(AttributeValue.fromN("10"))
+        .build());
+
+    assertFalse(filter.setRangeKeyPartitions(RANGE_KEY_NAME, 2));
+    assertTrue(filter.setRangeKeyPartitions(RANGE_KEY_NAME, AttributeValue.fromN("20"),
+        AttributeValue.fromN("60"), 2));
+    assertEquals(2, filter.getSegmentCount());
+
+    // The first partition keeps the bound of the query, and the last one has none, so items
+    // written outside of the sampled range are read
+    DynamoDBQueryFilter firstQuery = filter.getSegmentQuery(0);
+    Condition firstPartition = firstQuery.getKeyConditions().get(RANGE_KEY_NAME);
+    assertEquals(ComparisonOperator.BETWEEN, firstPartition.comparisonOperator());
+    assertEquals(Lists.newArrayList(AttributeValue.fromN("10"), AttributeValue.fromN("40")),
+        firstPartition.attributeValueList());
+    Condition lastPartition = filter.getSegmentQuery(1).getKeyConditions().get(RANGE_KEY_NAME);
+    assertEquals(ComparisonOperator.GE, lastPartition.comparisonOperator());
+    assertEquals(Lists.newArrayList(AttributeValue.fromN("40")),
+        lastPartition.attributeValueList());
+
+    // The exclusive bound of the query is left out, as is the first item of the next partition
+    assertEquals(Lists.newArrayList(rangeKeyItem("15")), firstQuery.getSegmentItems(
+        Lists.newArrayList(rangeKeyItem("10"), rangeKeyItem("15"), rangeKeyItem("40"))));
+
+    // A single item can not be split
+    assertFalse(newQueryFilter(AttributeValue.fromN("1"), AttributeValue.fromN("2"))
+        .setRangeKeyPartitions(RANGE_KEY_NAME, AttributeValue.fromN("5"),
+            AttributeValue.fromN("5"), 2));
+  }
+
+  @Test
+  public void testSampledRangeKeyPartitionsWithUpperBound() {
+    DynamoDBQueryFilter filter = new DynamoDBQueryFilter();
+    filter.getKeyConditions().put(HASH_KEY_NAME, Condition.builder()
+        .comparisonOperator(ComparisonOperator.EQ)
+        .attributeValueList(AttributeValue.fromS("h"))
+        .build());
+    filter.getKeyConditions().put(RANGE_KEY_NAME, Condition.builder()
+        .comparisonOperator(ComparisonOperator.LT)
+        .attributeValueList(AttributeValue.fromN("100"))
+        .build());
+
+    assertTrue(filter.setRangeKeyPartitions(RANGE_KEY_NAME, AttributeValue.fromN("20"),
+        AttributeValue.fromN("60"), 2));
+    Condition firstPartition = filter.getSegmentQuery(0).getKeyConditions().get(RANGE_KEY_NAME);
+    assertEquals(ComparisonOperator.LE, firstPartition.comparisonOperator());
+    assertEquals(Lists.newArrayList(AttributeValue.fromN("40")),
+        firstPartition.attributeValueList());
+    DynamoDBQueryFilter lastQuery = filter.getSegmentQuery(1);
+    assertEquals(Lists.newArrayList(AttributeValue.fromN("40"), AttributeValue.fromN("100")),
+        lastQuery.getKeyConditions().get(RANGE_KEY_NAME).attributeValueList());
+    assertEquals(Lists.newArrayList(rangeKeyItem("40")), lastQuery.getSegmentItems(
+        Lists.newArrayList(rangeKeyItem("40"), rangeKeyItem("100"))));
+  }
+
+  private static Map<String, AttributeValue> rangeKeyItem(String rangeKey) {
+    return ImmutableMap.of(RANGE_KEY_NAME, AttributeValue.fromN(rangeKey));
+  }
+
+  private static DynamoDBQueryFilter newQueryFilter(AttributeValue lower, AttributeValue upper) {
+    DynamoDBQueryFilter filter = new DynamoDBQueryFilter();
+    filter.getKeyConditions().put(HASH_KEY_NAME, Condition.builder()
+        .comparisonOperator(ComparisonOperator.EQ)
+        .attributeValueList(AttributeValue.fromS("h"))
+        .build());
+    filter.getKeyConditions().put(RANGE_KEY_NAME, Condition.builder()
+        .comparisonOperator(ComparisonOperator.BETWEEN)
+        .attributeValueList(lower, upper)
+        .build());
+    return filter;
+  }
+}
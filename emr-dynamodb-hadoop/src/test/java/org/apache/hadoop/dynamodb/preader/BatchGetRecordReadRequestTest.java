@@ -0,0 +1,83 @@
+package org.apache.hadoop.dynamodb.preader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.dynamodb.DynamoDBClient;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.DynamoDBFibonacciRetryer.RetryResult;
+import org.apache.hadoop.dynamodb.preader.RateController.RequestLimit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Reporter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+
+@RunWith(MockitoJUnitRunner.class)
+public final class BatchGetRecordReadRequestTest {
+
+  private static final String TABLE_NAME = "table";
+
+  @Mock
+  DynamoDBRecordReaderContext context;
+  @Mock
+  DynamoDBClient client;
+
+  @Test
+  public void fetchPageReadsPermittedKeysAndKeepsUnprocessedKeysForTheNextRequest() {
+    Map<String, AttributeValue> key1 = ImmutableMap.of("id", AttributeValue.fromS("1"));
+    Map<String, AttributeValue> key2 = ImmutableMap.of("id", AttributeValue.fromS("2"));
+    Map<String, AttributeValue> key3 = ImmutableMap.of("id", AttributeValue.fromS("3"));
+    Map<String, AttributeValue> item1 = ImmutableMap.of("id", AttributeValue.fromS("1"),
+        "value", AttributeValue.fromN("1"));
+    when(client.batchGetItem(eq(TABLE_NAME), eq(Lists.newArrayList(key1, key2)),
+        any(Collection.class), any(Reporter.class)))
+        .thenReturn(new RetryResult<>(BatchGetItemResponse.builder()
+            .responses(ImmutableMap.of(TABLE_NAME, Lists.newArrayList(item1)))
+            .unprocessedKeys(ImmutableMap.of(TABLE_NAME, KeysAndAttributes.builder()
+                .keys(key2)
+                .build()))
+            .consumedCapacity(ConsumedCapacity.builder()
+                .tableName(TABLE_NAME)
+                .capacityUnits(0.5)
+                .build())
+            .build(), 1));
+    JobConf conf = new JobConf();
+    conf.set(DynamoDBConstants.INPUT_TABLE_NAME, TABLE_NAME);
+    when(context.getClient()).thenReturn(client);
+    when(context.getConf()).thenReturn(conf);
+
+    BatchGetReadManager readManager = Mockito.mock(BatchGetReadManager.class);
+    BatchGetRecordReadRequest readRequest = new BatchGetRecordReadRequest(readManager, context, 0,
+        Lists.newArrayList(key1, key2, key3));
+    PageResults<Map<String, AttributeValue>> pageResults =
+        readRequest.fetchPage(new RequestLimit(2, 1));
+
+    assertEquals(Lists.newArrayList(item1), pageResults.items);
+    assertEquals(0.5, pageResults.consumedRcu, 0.0);
+    assertEquals(1, pageResults.retries);
+    assertTrue(readRequest.hasNextPage(pageResults));
+
+    BatchGetRecordReadRequest nextRequest =
+        (BatchGetRecordReadRequest) readRequest.buildNextReadRequest(pageResults);
+    assertEquals(Lists.newArrayList(key2, key3), nextRequest.getKeys());
+    assertFalse(nextRequest.hasNextPage(pageResults));
+  }
+
+}
@@ -0,0 +1,114 @@
+package org.apache.hadoop.dynamodb.preader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.split.DynamoDBSegmentsSplit;
+import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CapacityBrokerTest {
+
+  private static final double EPSILON = 0.001;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testLocalBrokerHandsOverTheSharesOfEndedLeases() {
+    Map<String, LocalCapacityBroker> leases = new HashMap<>();
+    LocalCapacityBroker broker0 = new LocalCapacityBroker(leases, "0", 0.5);
+    LocalCapacityBroker broker1 = new LocalCapacityBroker(leases, "1", 0.25);
+    LocalCapacityBroker broker2 = new LocalCapacityBroker(leases, "2", 0.25);
+
+    // Tasks keep the share of their split while the others have not ended
+    assertEquals(0.5, broker0.renew(4), EPSILON);
+    assertEquals(0.25, broker1.renew(2), EPSILON);
+
+    // The share of a task that ended is split by the segments the others have left
+    broker2.end();
+    assertEquals(0.5 + 0.25 * 4 / 6, broker0.renew(4), EPSILON);
+    assertEquals(0.25 + 0.25 * 2 / 6, broker1.renew(2), EPSILON);
+  }
+
+  @Test
+  public void testFileSystemBrokerIsOffByDefault() throws IOException {
+    assertNull(FileSystemCapacityBroker.open(new JobConf(), split(0, Arrays.asList(0, 1))));
+  }
+
+  @Test
+  public void testFileSystemBrokerHandsOverTheSharesOfEndedLeases() throws IOException {
+    CapacityBroker broker0 = open(split(0, Arrays.asList(0, 1)), "attempt_1_0001_m_000000_0");
+    CapacityBroker broker1 = open(split(1, Arrays.asList(2)), "attempt_1_0001_m_000001_0");
+    CapacityBroker broker2 = open(split(2, Arrays.asList(3)), "attempt_1_0001_m_000002_0");
+
+    assertEquals(0.5, broker0.renew(2), EPSILON);
+    assertEquals(0.25, broker1.renew(1), EPSILON);
+
+    broker1.end();
+    assertEquals(0.75, broker0.renew(2), EPSILON);
+    assertEquals(0.25 + 0.25 / 3, broker2.renew(1), EPSILON);
+    assertEquals(0.5 + 0.25 * 2 / 3, broker0.renew(2), EPSILON);
+
+    // An attempt that stopped renewing its lease failed, and the share of its task is kept for the
+    // next attempt rather than handed over
+    for (File lease : new File(folder.getRoot(), "run").listFiles()) {
+      if (lease.getName().startsWith("lease-2-")) {
+        assertTrue(lease.setLastModified(1000));
+      }
+    }
+    assertEquals(0.75, broker0.renew(2), EPSILON);
+  }
+
+  @Test
+  public void testFileSystemBrokerSplitsTheShareOfSpeculativeAttempts() throws IOException {
+    CapacityBroker broker0 = open(split(0, Arrays.asList(0, 1)), "attempt_1_0001_m_000000_0");
+    CapacityBroker broker1 = open(split(1, Arrays.asList(2, 3)), "attempt_1_0001_m_000001_0");
+    CapacityBroker speculative = open(split(1, Arrays.asList(2, 3)), "attempt_1_0001_m_000001_1");
+
+    assertEquals(0.5, broker0.renew(2), EPSILON);
+    assertEquals(0.5, broker1.renew(2), EPSILON);
+    // The attempts of a task running at the same time share its share
+    assertEquals(0.25, speculative.renew(2), EPSILON);
+    assertEquals(0.25, broker1.renew(1), EPSILON);
+
+    // Once an attempt ended, the share of the task goes to the other tasks only
+    speculative.end();
+    assertEquals(0.0, broker1.renew(1), EPSILON);
+    assertEquals(1.0, broker0.renew(2), EPSILON);
+  }
+
+  @Test
+  public void testFileSystemBrokerRequiresTheTaskAttempt() {
+    JobConf conf = new JobConf();
+    conf.set(DynamoDBConstants.READ_CAPACITY_LEASE_DIR, folder.getRoot().getAbsolutePath());
+    assertThrows(IOException.class,
+        () -> FileSystemCapacityBroker.open(conf, split(0, Arrays.asList(0, 1))));
+  }
+
+  private CapacityBroker open(DynamoDBSplit split, String attempt) throws IOException {
+    JobConf conf = new JobConf();
+    conf.set(DynamoDBConstants.READ_CAPACITY_LEASE_DIR, folder.getRoot().getAbsolutePath());
+    conf.set(MRJobConfig.TASK_ATTEMPT_ID, attempt);
+    return FileSystemCapacityBroker.open(conf, split);
+  }
+
+  private static DynamoDBSplit split(int splitId, List<Integer> segments) {
+    DynamoDBSplit split = new DynamoDBSegmentsSplit(null, 0, splitId, segments, 4, 0, null);
+    split.setRunId("run");
+    return split;
+  }
+}
@@ -0,0 +1,236 @@
+package org.apache.hadoop.dynamodb.preader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.preader.RateController.RequestLimit;
+import org.apache.hadoop.dynamodb.split.DynamoDBSegmentsSplit;
+import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
+import org.apache.hadoop.dynamodb.util.MockTimeSource;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Test;
+
+/**
+ * Runs the controllers against a simulated table, which reads requests with a given latency and
+ * throttles those beyond its capacity. The simulation is driven by a {@link MockTimeSource}, so it
+ * is deterministic.
+ */
+public class ConcurrencyControllerTest {
+
+  private static final int MAX_WORKERS = 256;
+  private static final double TARGET_RATE = 20000;
+  private static final long LATENCY_MS = 200;
+  private static final long TICK_MS = 10;
+
+  @Test
+  public void testInitialWorkerCountFollowsLatency() {
+    ConcurrencyController controller = new AimdConcurrencyController();
+    assertEquals(160, controller.getInitialWorkerCount(TARGET_RATE, LATENCY_MS, MAX_WORKERS));
+    assertEquals(MAX_WORKERS, controller.getInitialWorkerCount(TARGET_RATE, 1000, MAX_WORKERS));
+    assertEquals(1, controller.getInitialWorkerCount(10, 50, 30));
+  }
+
+  @Test
+  public void testAimdConvergesOnHighLatency() {
+    assertConverges(AimdConcurrencyController.class);
+  }
+
+  @Test
+  public void testPidConvergesOnHighLatency() {
+    assertConverges(PidConcurrencyController.class);
+  }
+
+  @Test
+  public void testAimdBacksOffWhenThrottled() {
+    assertBacksOff(AimdConcurrencyController.class);
+  }
+
+  @Test
+  public void testPidBacksOffWhenThrottled() {
+    assertBacksOff(PidConcurrencyController.class);
+  }
+
+  @Test
+  public void testAimdFollowsGrowingLatency() {
+    assertFollowsGrowingLatency(AimdConcurrencyController.class);
+  }
+
+  @Test
+  public void testPidFollowsGrowingLatency() {
+    assertFollowsGrowingLatency(PidConcurrencyController.class);
+  }
+
+  /*
+   * The initial worker count is derived from the default latency estimate, which is 4 times too
+   * low, so the controller has to find the remaining workers.
+   */
+  private void assertConverges(Class<? extends ConcurrencyController> controllerClass) {
+    Simulation sim = new Simulation(controllerClass, Double.MAX_VALUE);
+    sim.run(60 * 1000);
+
+    double rate = sim.getServedRate(10 * 1000);
+    assertEquals("target=" + TARGET_RATE + ", actual=" + rate, 0,
+        Math.abs(TARGET_RATE - rate) / TARGET_RATE, 0.15);
+  }
+
+  /*
+   * The table can only serve a quarter of the target rate, which takes 40 workers.
+   */
+  private void assertBacksOff(Class<? extends ConcurrencyController> controllerClass) {
+    final double capacity = TARGET_RATE / 4;
+    Simulation sim = new Simulation(controllerClass, capacity);
+    sim.run(180 * 1000);
+
+    int workers = sim.mgr.workers.size();
+    assertTrue("workers=" + workers, workers <= 60);
+    double rate = sim.getServedRate(30 * 1000);
+    assertTrue("capacity=" + capacity + ", actual=" + rate, rate >= capacity * 0.6);
+  }
+
+  /*
+   * Once the controller converged on 16 workers, the latency of the table triples for good, as when
+   * the items read grew. Reaching the target rate again takes 48 workers, which the controller must
+   * add even though the latency stays above twice the lowest one it has seen.
+   */
+  private void assertFollowsGrowingLatency(Class<? extends ConcurrencyController> controllerClass) {
+    final double targetRate = TARGET_RATE / 10;
+    Simulation sim = new Simulation(controllerClass, targetRate, Double.MAX_VALUE);
+    sim.run(60 * 1000);
+    sim.latencyMs = LATENCY_MS * 3;
+    sim.run(300 * 1000);
+
+    double rate = sim.getServedRate(10 * 1000);
+    assertEquals("target=" + targetRate + ", actual=" + rate, 0,
+        Math.abs(targetRate - rate) / targetRate, 0.15);
+  }
+
+  private static class Simulation {
+
+    private final MockTimeSource time = new MockTimeSource();
+    private final TokenBucket table;
+    private final SimulatedReadManager mgr;
+    // Time and read units of the requests the table served
+    private final List<long[]> served = new ArrayList<>();
+    private long latencyMs = LATENCY_MS;
+
+    Simulation(Class<? extends ConcurrencyController> controllerClass, double tableCapacity) {
+      this(controllerClass, TARGET_RATE, tableCapacity);
+    }
+
+    Simulation(Class<? extends ConcurrencyController> controllerClass, double targetRate,
+        double tableCapacity) {
+      time.setNanoTime(0);
+      table = new TokenBucket(tableCapacity, tableCapacity, time);
+
+      JobConf conf = new JobConf();
+      conf.setInt(DynamoDBConstants.MAX_READ_WORKERS, MAX_WORKERS);
+      conf.set(DynamoDBConstants.READ_CONCURRENCY_CONTROLLER, controllerClass.getName());
+      DynamoDBRecordReaderContext context = new DynamoDBRecordReaderContext();
+      context.setConf(conf);
+      context.setSplit(new DynamoDBSegmentsSplit(null, 1, 1, Collections.singletonList(1), 1, 0,
+          null));
+      RateController rateController = new RateController(time, targetRate,
+          DynamoDBConstants.RATE_CONTROLLER_WINDOW_SIZE_SEC, 4000);
+      mgr = new SimulatedReadManager(rateController, time, context, this);
+    }
+
+    void run(long durationMs) {
+      long endNano = time.getNanoTime() + durationMs * MockTimeSource.NANOSECONDS_IN_MILLISECOND;
+      while (time.getNanoTime() < endNano) {
+        for (ReadWorker worker : new ArrayList<>(mgr.workers)) {
+          ((SimulatedWorker) worker).tick();
+        }
+        time.advanceByMillis(TICK_MS);
+      }
+    }
+
+    double getServedRate(long windowMs) {
+      long fromNano = time.getNanoTime() - windowMs * MockTimeSource.NANOSECONDS_IN_MILLISECOND;
+      double readUnits = 0;
+      for (long[] request : served) {
+        if (request[0] >= fromNano) {
+          readUnits += request[1];
+        }
+      }
+      return readUnits * 1000 / windowMs;
+    }
+  }
+
+  private static class SimulatedReadManager extends AbstractReadManager {
+
+    private final Simulation sim;
+
+    SimulatedReadManager(RateController rateController, AbstractTimeSource time,
+        DynamoDBRecordReaderContext context, Simulation sim) {
+      super(rateController, time, context);
+      this.sim = sim;
+      // Workers were added by the constructor before the simulation was set
+      for (ReadWorker worker : workers) {
+        ((SimulatedWorker) worker).sim = sim;
+      }
+    }
+
+    @Override
+    protected synchronized void addWorker() {
+      SimulatedWorker worker = new SimulatedWorker(this);
+      worker.sim = sim;
+      // Don't start the thread, the simulation ticks the worker
+      workers.offer(worker);
+    }
+
+    @Override
+    protected void initializeReadRequests() {
+    }
+  }
+
+  private static class SimulatedWorker extends ReadWorker {
+
+    private static final long SLEEP_TIME_MS = 50;
+
+    private Simulation sim;
+    private long nextActNano;
+    private RequestLimit reading;
+    private long readingLatencyMs;
+    private boolean throttled;
+
+    SimulatedWorker(AbstractReadManager mgr) {
+      super(mgr, null /* reporter */);
+    }
+
+    void tick() {
+      if (!alive || sim.time.getNanoTime() < nextActNano) {
+        return;
+      }
+
+      if (reading != null) {
+        if (throttled) {
+          readMgr.rateController.throttled(reading.readCapacityUnits);
+          readMgr.report(reading.readCapacityUnits, reading.readCapacityUnits, 0, 1,
+              readingLatencyMs);
+        } else {
+          sim.served.add(new long[] {sim.time.getNanoTime(), (long) reading.readCapacityUnits});
+          readMgr.report(reading.readCapacityUnits, reading.readCapacityUnits, reading.items, 0,
+              readingLatencyMs);
+        }
+        reading = null;
+      }
+
+      RequestLimit lim = readMgr.rateController.getNextRequestLimit();
+      if (lim == RequestLimit.ZERO) {
+        nextActNano = sim.time.getNanoTime() + SLEEP_TIME_MS
+            * MockTimeSource.NANOSECONDS_IN_MILLISECOND;
+        return;
+      }
+      reading = lim;
+      readingLatencyMs = sim.latencyMs;
+      throttled = sim.table.acquire(lim.readCapacityUnits, lim.readCapacityUnits)
+          < lim.readCapacityUnits;
+      nextActNano = sim.time.getNanoTime() + readingLatencyMs
+          * MockTimeSource.NANOSECONDS_IN_MILLISECOND;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package org.apache.hadoop.dynamodb.preader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+/**
+ * Measures the throughput of {@link PageResultMultiplexer} against the sleep polling
+ * {@link LegacyPageResultMultiplexer} it replaced. Producers add pages of one item as fast as they
+ * can while consumers read them back, which is the load of many segments returning small pages.
+ *
+ * The name does not match the test patterns of the build, so it only runs on demand:
+ *
+ * <pre>
+ * mvn test -pl emr-dynamodb-hadoop -Dtest=PageResultMultiplexerBenchmark
+ * </pre>
+ *
+ * The load is set with the system properties benchmark.producers, benchmark.consumers,
+ * benchmark.items, benchmark.batch.size, benchmark.capacity and benchmark.iterations, passed on
+ * the command line as -DargLine="-Dbenchmark.items=1000000".
+ */
+public class PageResultMultiplexerBenchmark {
+
+  private static final int PRODUCERS = Integer.getInteger("benchmark.producers", 30);
+  private static final int CONSUMERS = Integer.getInteger("benchmark.consumers", 1);
+  private static final int ITEMS = Integer.getInteger("benchmark.items", 1000000);
+  private static final int BATCH_SIZE = Integer.getInteger("benchmark.batch.size", 50);
+  private static final int CAPACITY = Integer.getInteger("benchmark.capacity", 600);
+  // Measured runs of each multiplexer, after one warm-up run
+  private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 3);
+
+  @Test
+  public void compareWithLegacyMultiplexer() throws Exception {
+    System.out.println("Producers: " + PRODUCERS + ", consumers: " + CONSUMERS + ", items: "
+        + ITEMS + ", batch size: " + BATCH_SIZE + ", capacity: " + CAPACITY);
+    benchmark("LegacyPageResultMultiplexer", () -> {
+      LegacyPageResultMultiplexer<Integer> mux =
+          new LegacyPageResultMultiplexer<>(BATCH_SIZE, CAPACITY);
+      return new Multiplexer() {
+        @Override
+        public void add(PageResults<Integer> page) {
+          mux.addPageResults(page);
+        }
+
+        @Override
+        public Integer next() throws IOException {
+          return mux.next();
+        }
+
+        @Override
+        public void drain() {
+          mux.setDraining(true);
+        }
+      };
+    });
+    benchmark("PageResultMultiplexer", () -> {
+      PageResultMultiplexer<Integer> mux = new PageResultMultiplexer<>(BATCH_SIZE, CAPACITY);
+      return new Multiplexer() {
+        @Override
+        public void add(PageResults<Integer> page) {
+          mux.addPageResults(page);
+        }
+
+        @Override
+        public Integer next() throws IOException {
+          return mux.next();
+        }
+
+        @Override
+        public void drain() {
+          mux.setDraining(true);
+        }
+      };
+    });
+  }
+
+  private static void benchmark(String name, Supplier<Multiplexer> multiplexers)
+      throws InterruptedException {
+    run(multiplexers.get());
+    double totalItemsPerSecond = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      double itemsPerSecond = run(multiplexers.get());
+      System.out.printf("%s run %d: %.0f items/s%n", name, i + 1, itemsPerSecond);
+      totalItemsPerSecond += itemsPerSecond;
+    }
+    System.out.printf("%s: %.0f items/s on average%n", name, totalItemsPerSecond / ITERATIONS);
+  }
+
+  /*
+   * Adds ITEMS items from the producers and reads them back from the consumers.
+   *
+   * @return the number of items read per second
+   */
+  private static double run(Multiplexer mux) throws InterruptedException {
+    AtomicLong itemsRead = new AtomicLong();
+    List<Thread> producers = new ArrayList<>(PRODUCERS);
+    for (int i = 0; i < PRODUCERS; i++) {
+      int pages = ITEMS / PRODUCERS + (i < ITEMS % PRODUCERS ? 1 : 0);
+      producers.add(new Thread(() -> {
+        for (int page = 0; page < pages; page++) {
+          mux.add(new PageResults<>(Collections.singletonList(page), null));
+        }
+      }));
+    }
+    List<Thread> consumers = new ArrayList<>(CONSUMERS);
+    for (int i = 0; i < CONSUMERS; i++) {
+      consumers.add(new Thread(() -> {
+        try {
+          long items = 0;
+          while (mux.next() != null) {
+            items++;
+          }
+          itemsRead.addAndGet(items);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }));
+    }
+
+    long startNanos = System.nanoTime();
+    consumers.forEach(Thread::start);
+    producers.forEach(Thread::start);
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    mux.drain();
+    for (Thread consumer : consumers) {
+      consumer.join();
+    }
+    long elapsedNanos = System.nanoTime() - startNanos;
+
+    assertEquals(ITEMS, itemsRead.get());
+    return ITEMS * 1e9 / elapsedNanos;
+  }
+
+  private interface Multiplexer {
+
+    void add(PageResults<Integer> page);
+
+    Integer next() throws IOException;
+
+    void drain();
+  }
+}
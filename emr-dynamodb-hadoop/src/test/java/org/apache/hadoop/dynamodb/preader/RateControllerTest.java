@@ -14,8 +14,10 @@
 package org.apache.hadoop.dynamodb.preader;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.util.MockTimeSource;
 import org.junit.Before;
@@ -42,6 +44,23 @@ public class RateControllerTest {
     time = new MockTimeSource();
   }
 
+  @Test
+  public void testBackpressureWithholdsTokens() {
+    AtomicBoolean saturated = new AtomicBoolean(true);
+    RateController rateCtr = new RateController(time, 100.0, 1, 100.0, saturated::get);
+
+    assertSame(RateController.RequestLimit.ZERO, rateCtr.getNextRequestLimit());
+
+    // Nothing was taken from the bucket while saturated
+    saturated.set(false);
+    double rcu = 0.0;
+    RateController.RequestLimit lim;
+    while ((lim = rateCtr.getNextRequestLimit()) != RateController.RequestLimit.ZERO) {
+      rcu += lim.readCapacityUnits;
+    }
+    assertEquals(100.0, rcu, 1.0);
+  }
+
   @Theory
   public void testHappyCase(@FromDataPoints("rates") double rate, @FromDataPoints("sizes") double
       itemSize, @FromDataPoints("windows") int windowSize) {
@@ -144,4 +163,18 @@ public class RateControllerTest {
     }
     assertEquals(1, ctrl.getAvgItemSize(), 0.01);
   }
+
+  @Test
+  public void targetRateIsUpdatedInPlace() {
+    time.setNanoTime(0);
+    RateController ctrl = new RateController(time, 10, 1, 1.0);
+    assertEquals(10, ctrl.getNextRequestLimit().readCapacityUnits, 0.01);
+    assertEquals(0, ctrl.getNextRequestLimit().readCapacityUnits, 0.01);
+
+    // The bucket refills at the new rate, up to the new capacity
+    ctrl.setTargetRate(20);
+    assertEquals(20, ctrl.getTargetRate(), 0.01);
+    time.advanceByMillis(5000);
+    assertEquals(20, ctrl.getNextRequestLimit().readCapacityUnits, 0.01);
+  }
 }
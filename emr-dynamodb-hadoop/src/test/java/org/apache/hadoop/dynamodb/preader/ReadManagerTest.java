@@ -14,6 +14,9 @@
 package org.apache.hadoop.dynamodb.preader;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
@@ -22,7 +25,9 @@ import org.apache.hadoop.dynamodb.split.DynamoDBSegmentsSplit;
 import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
 import org.apache.hadoop.dynamodb.util.AbstractTimeSource;
 import org.apache.hadoop.dynamodb.util.MockTimeSource;
+import org.apache.hadoop.mapred.JobConf;
 import org.junit.Before;
+import org.junit.Test;
 import org.junit.experimental.theories.DataPoints;
 import org.junit.experimental.theories.FromDataPoints;
 import org.junit.experimental.theories.Theories;
@@ -33,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
 
 @RunWith(Theories.class)
@@ -93,6 +99,87 @@ public class ReadManagerTest {
         "itemSize=" + itemSize + ", windowSize=" + windowSize, 0, delta, 0.15);
   }
 
+  /*
+   * A single worker gets at most 25 RCU per ~50ms read. Reaching the target rate takes about 200
+   * workers, which must be reached within a few evaluations when the ceiling allows it.
+   */
+  @Test
+  public void testBeyondDefaultWorkerCount() {
+    final double RATE = 100000.0;
+    final int MAX_WORKERS = 256;
+    final int DURATION_SEC = 300; // 5 min
+    final int ADVANCE_BY_MILLIS = 50;
+
+    JobConf conf = new JobConf();
+    conf.setInt(DynamoDBConstants.MAX_READ_WORKERS, MAX_WORKERS);
+    dummyContext.setConf(conf);
+
+    MockTimeSource time = new MockTimeSource();
+    RateController rateCtr = new RateController(time, RATE, DynamoDBConstants
+        .RATE_CONTROLLER_WINDOW_SIZE_SEC, 4000);
+    MockReadManager mgr = new MockReadManager(rateCtr, time, dummyContext);
+
+    while (time.getTimeSinceMs(0) <= DURATION_SEC * 1000) {
+      mgr.tick();
+      time.advanceByMillis(ADVANCE_BY_MILLIS);
+    }
+
+    assertTrue("workers=" + mgr.workers.size(), mgr.workers.size() > DynamoDBConstants
+        .DEFAULT_MAX_READ_WORKERS);
+    assertTrue(mgr.workers.size() <= MAX_WORKERS);
+    double rateAvg = mgr.evalAvgRps.pop();
+    assertEquals("target=" + RATE + ", actual=" + rateAvg, 0, Math.abs(RATE - rateAvg) / RATE,
+        0.15);
+  }
+
+  @Test
+  public void testThrottledRequestIsDeferred() {
+    dummyContext.setConf(new JobConf());
+    MockTimeSource time = new MockTimeSource();
+    RateController rateCtr = new RateController(time, 100.0, DynamoDBConstants
+        .RATE_CONTROLLER_WINDOW_SIZE_SEC, 4000);
+    MockReadManager mgr = new MockReadManager(rateCtr, time, dummyContext);
+    AbstractRecordReadRequest req = new ScanRecordReadRequest(mgr, dummyContext, 0,
+        Optional.empty(), null);
+    RequestLimit lim = rateCtr.getNextRequestLimit();
+
+    // The request is put aside, and other requests are read in the meantime
+    assertTrue(mgr.deferThrottledReadRequest(req, lim));
+    assertNull(mgr.dequeueReadRequest());
+    time.advanceByMillis(30 * 1000);
+    assertSame(req, mgr.dequeueReadRequest());
+    assertNull(mgr.dequeueReadRequest());
+
+    // Until it has been throttled for too long
+    time.advanceByMillis(10 * 60 * 1000);
+    assertFalse(mgr.deferThrottledReadRequest(req, lim));
+  }
+
+  @Test
+  public void testTargetRateIsRefreshedPeriodically() {
+    final long REFRESH_INTERVAL_MS = 60 * 1000;
+    final int ADVANCE_BY_MILLIS = 50;
+
+    dummyContext.setConf(new JobConf());
+    dummyContext.setTaskIopsCalculator(() -> 50, REFRESH_INTERVAL_MS);
+    MockTimeSource time = new MockTimeSource();
+    RateController rateCtr = new RateController(time, 100.0, DynamoDBConstants
+        .RATE_CONTROLLER_WINDOW_SIZE_SEC, 4000);
+    MockReadManager mgr = new MockReadManager(rateCtr, time, dummyContext);
+
+    while (time.getTimeSinceMs(0) < REFRESH_INTERVAL_MS / 2) {
+      mgr.tick();
+      time.advanceByMillis(ADVANCE_BY_MILLIS);
+    }
+    assertEquals(100.0, rateCtr.getTargetRate(), 0.0);
+
+    while (time.getTimeSinceMs(0) <= REFRESH_INTERVAL_MS * 2) {
+      mgr.tick();
+      time.advanceByMillis(ADVANCE_BY_MILLIS);
+    }
+    assertEquals(50.0, rateCtr.getTargetRate(), 0.0);
+  }
+
   /**
    * Implement a dummy worker, it's states are IDLE, READING, SLEEPING.
    */
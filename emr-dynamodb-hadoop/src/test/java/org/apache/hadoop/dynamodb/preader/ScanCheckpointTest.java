@@ -0,0 +1,130 @@
+package org.apache.hadoop.dynamodb.preader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.split.DynamoDBSegmentsSplit;
+import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
+import org.apache.hadoop.dynamodb.util.MockTimeSource;
+import org.apache.hadoop.dynamodb.write.DynamoDBOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.TextOutputFormat;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+public class ScanCheckpointTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final JobConf conf = new JobConf();
+  private final DynamoDBSplit split = new DynamoDBSegmentsSplit(null, 0, 3, Arrays.asList(0, 1),
+      2, 0, null);
+  private final MockTimeSource time = new MockTimeSource();
+
+  @Before
+  public void setup() {
+    conf.set(DynamoDBConstants.SCAN_CHECKPOINT_DIR, folder.getRoot().getAbsolutePath());
+    conf.set(DynamoDBConstants.READ_STATE_GROUP, "query");
+    split.setRunId("run");
+  }
+
+  @Test
+  public void testCheckpointIsOffByDefault() throws IOException {
+    assertNull(ScanCheckpoint.open(new JobConf(), split, time));
+  }
+
+  @Test
+  public void testOnlyJobsWritingAsTheyReadMayResume() {
+    // Spark jobs do not name an output format
+    ScanCheckpoint.checkJob(conf);
+
+    conf.setOutputFormat(DynamoDBOutputFormat.class);
+    conf.setNumReduceTasks(0);
+    ScanCheckpoint.checkJob(conf);
+
+    // The output of a failed map task feeding reducers is discarded
+    conf.setNumReduceTasks(1);
+    assertThrows(IllegalArgumentException.class, () -> ScanCheckpoint.checkJob(conf));
+
+    // So is the output of a failed task writing files
+    conf.setNumReduceTasks(0);
+    conf.setOutputFormat(TextOutputFormat.class);
+    assertThrows(IllegalArgumentException.class, () -> ScanCheckpoint.checkJob(conf));
+  }
+
+  @Test
+  public void testResumeFromConsumedPages() throws IOException {
+    ScanCheckpoint checkpoint = ScanCheckpoint.open(conf, split, time);
+    assertNull(checkpoint.getLastEvaluatedKey(0));
+
+    // The second page of segment 0 is consumed before the first one
+    checkpoint.pageConsumed(0, 1, key("b"), 10);
+    checkpoint.pageConsumed(1, 0, null, 5);
+    checkpoint.acknowledge();
+    checkpoint.persist();
+
+    ScanCheckpoint resumed = ScanCheckpoint.open(conf, split, time);
+    assertNull(resumed.getLastEvaluatedKey(0));
+    assertFalse(resumed.isComplete(0));
+    assertTrue(resumed.isComplete(1));
+
+    checkpoint.pageConsumed(0, 0, key("a"), 10);
+    checkpoint.acknowledge();
+    checkpoint.maybePersist();
+    assertNull(ScanCheckpoint.open(conf, split, time).getLastEvaluatedKey(0));
+
+    time.advanceByMillis(DynamoDBConstants.DEFAULT_SCAN_CHECKPOINT_INTERVAL);
+    checkpoint.maybePersist();
+    resumed = ScanCheckpoint.open(conf, split, time);
+    assertEquals(key("b"), resumed.getLastEvaluatedKey(0));
+    assertFalse(resumed.isComplete(0));
+  }
+
+  @Test
+  public void testOnlyAcknowledgedPagesArePersisted() throws IOException {
+    ScanCheckpoint checkpoint = ScanCheckpoint.open(conf, split, time);
+
+    // The last item of the page was returned, but the caller failed before it asked for more
+    checkpoint.pageConsumed(0, 0, key("a"), 10);
+    checkpoint.persist();
+    assertNull(ScanCheckpoint.open(conf, split, time).getLastEvaluatedKey(0));
+
+    checkpoint.acknowledge();
+    checkpoint.pageConsumed(0, 1, key("b"), 10);
+    checkpoint.persist();
+    assertEquals(key("a"), ScanCheckpoint.open(conf, split, time).getLastEvaluatedKey(0));
+  }
+
+  @Test
+  public void testRunsDoNotShareCheckpoints() throws IOException {
+    ScanCheckpoint checkpoint = ScanCheckpoint.open(conf, split, time);
+    checkpoint.pageConsumed(0, 0, null, 10);
+    checkpoint.acknowledge();
+    checkpoint.persist();
+    assertTrue(ScanCheckpoint.open(conf, split, time).isComplete(0));
+
+    DynamoDBSplit otherRun = new DynamoDBSegmentsSplit(null, 0, 3, Arrays.asList(0, 1), 2, 0,
+        null);
+    otherRun.setRunId("other run");
+    assertFalse(ScanCheckpoint.open(conf, otherRun, time).isComplete(0));
+
+    ReadStateDirs.deleteGroup(conf, "query");
+    assertFalse(ScanCheckpoint.open(conf, split, time).isComplete(0));
+  }
+
+  private static Map<String, AttributeValue> key(String value) {
+    return Collections.singletonMap("id", AttributeValue.fromS(value));
+  }
+}
@@ -5,6 +5,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.when;
 
 import org.apache.hadoop.dynamodb.DynamoDBClient;
@@ -20,6 +21,8 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -54,6 +57,32 @@ public final class ScanRecordReadRequestTest {
     assertEquals(0.0, pageResults.consumedRcu, 0.0);
   }
 
+  @Test
+  public void subdividedRequestScansHalfOfTheSegment() {
+    RetryResult stubbedResult = new RetryResult<>(ScanResponse.builder()
+        .items(new HashMap<String, AttributeValue>())
+        .lastEvaluatedKey(Collections.singletonMap("id", AttributeValue.fromS("a")))
+        .build(), 0);
+    stubScanTableWith(stubbedResult);
+
+    when(context.getClient()).thenReturn(client);
+    when(context.getConf()).thenReturn(new JobConf());
+    when(context.getSplit()).thenReturn(new DynamoDBSegmentsSplit(null, 0, 0,
+        Collections.singletonList(3), 4, 0, null));
+    ScanReadManager readManager = Mockito.mock(ScanReadManager.class);
+    ScanRecordReadRequest readRequest = new ScanRecordReadRequest(readManager, context, 3,
+        Optional.empty(), null);
+    assertTrue(readRequest.canSubdivide());
+
+    ScanRecordReadRequest half = readRequest.subdivide(1);
+    PageResults<Map<String, AttributeValue>> pageResults = half.fetchPage(new RequestLimit(0, 0));
+    Mockito.verify(client).scanTable(anyString(), any(DynamoDBQueryFilter.class), eq(7), eq(8),
+        any(Map.class), anyLong(), any(Collection.class), any(Reporter.class));
+
+    // A segment can not be subdivided once its scan started
+    assertFalse(((ScanRecordReadRequest) half.buildNextReadRequest(pageResults)).canSubdivide());
+  }
+
   private void stubScanTableWith(RetryResult<ScanResponse> scanResultRetryResult) {
     when(client.scanTable(
         anyString(),
@@ -62,6 +91,7 @@ public final class ScanRecordReadRequestTest {
         anyInt(),
         any(Map.class),
         anyLong(),
+        any(Collection.class),
         any(Reporter.class))
     ).thenReturn(scanResultRetryResult);
   }
@@ -0,0 +1,122 @@
+package org.apache.hadoop.dynamodb.preader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.split.DynamoDBSegmentsSplit;
+import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.TaskAttemptID;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentClaimsTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final JobConf conf = new JobConf();
+  private final DynamoDBSplit split0 = new DynamoDBSegmentsSplit(null, 0, 0, Arrays.asList(0, 2),
+      4, 0, null);
+  private final DynamoDBSplit split1 = new DynamoDBSegmentsSplit(null, 0, 1, Arrays.asList(1, 3),
+      4, 0, null);
+
+  @Before
+  public void setup() {
+    conf.set(DynamoDBConstants.SCAN_SEGMENT_CLAIM_DIR, folder.getRoot().getAbsolutePath());
+    split0.setRunId("run");
+    split1.setRunId("run");
+  }
+
+  @Test
+  public void testClaimsAreOffByDefault() throws IOException {
+    assertNull(SegmentClaims.open(new JobConf(), split0));
+  }
+
+  @Test(expected = IOException.class)
+  public void testClaimsRequireTheTaskAttempt() throws IOException {
+    SegmentClaims.open(conf, split0);
+  }
+
+  @Test
+  public void testSegmentsAreClaimedOnce() throws IOException {
+    SegmentClaims claims0 = SegmentClaims.open(attemptConf(0, 0), split0);
+    assertEquals(Arrays.asList(0, 2), claims0.claimInitialSegments());
+
+    // The first reader runs out of work before the second one starts, and takes over its segments
+    assertEquals(Integer.valueOf(1), claims0.claimNextSegment());
+
+    SegmentClaims claims1 = SegmentClaims.open(attemptConf(1, 0), split1);
+    assertEquals(Collections.singletonList(3), claims1.claimInitialSegments());
+    assertNull(claims1.claimNextSegment());
+    assertNull(claims0.claimNextSegment());
+    assertEquals(Collections.emptyList(), claims0.finish());
+    assertEquals(Collections.emptyList(), claims1.finish());
+  }
+
+  @Test
+  public void testRetriedTaskTakesOverItsClaims() throws IOException {
+    SegmentClaims claims0 = SegmentClaims.open(attemptConf(0, 0), split0);
+    claims0.claimInitialSegments();
+    claims0.claimNextSegment();
+
+    Set<Integer> retried = new HashSet<>(SegmentClaims.open(attemptConf(0, 1), split0)
+        .claimInitialSegments());
+    assertEquals(new HashSet<>(Arrays.asList(0, 1, 2)), retried);
+  }
+
+  @Test
+  public void testEachAttemptReadsAllTheClaimsOfItsTask() throws IOException {
+    // A speculative attempt runs next to the first attempt of the task
+    SegmentClaims first = SegmentClaims.open(attemptConf(0, 0), split0);
+    SegmentClaims speculative = SegmentClaims.open(attemptConf(0, 1), split0);
+    assertEquals(Arrays.asList(0, 2), first.claimInitialSegments());
+    assertEquals(new HashSet<>(Arrays.asList(0, 2)),
+        new HashSet<>(speculative.claimInitialSegments()));
+    assertEquals(Integer.valueOf(1), speculative.claimNextSegment());
+    assertEquals(Integer.valueOf(3), first.claimNextSegment());
+
+    // Either attempt may commit, so each reads the segment the other one claimed
+    assertNull(first.claimNextSegment());
+    assertEquals(Collections.singletonList(1), first.finish());
+    assertNull(speculative.claimNextSegment());
+    assertEquals(Collections.singletonList(3), speculative.finish());
+
+    SegmentClaims claims1 = SegmentClaims.open(attemptConf(1, 0), split1);
+    assertEquals(Collections.emptyList(), claims1.claimInitialSegments());
+    assertEquals(Collections.emptyList(), claims1.finish());
+  }
+
+  @Test
+  public void testAttemptsClaimNoMoreOnceTheirTaskIsSealed() throws IOException {
+    SegmentClaims first = SegmentClaims.open(attemptConf(0, 0), split0);
+    SegmentClaims speculative = SegmentClaims.open(attemptConf(0, 1), split0);
+    first.claimInitialSegments();
+    speculative.claimInitialSegments();
+    assertEquals(Collections.emptyList(), first.finish());
+
+    // Had the speculative attempt claimed a segment, the first one would have committed without it
+    assertNull(speculative.claimNextSegment());
+    assertEquals(Collections.emptyList(), speculative.finish());
+
+    SegmentClaims claims1 = SegmentClaims.open(attemptConf(1, 0), split1);
+    assertEquals(Arrays.asList(1, 3), claims1.claimInitialSegments());
+  }
+
+  private JobConf attemptConf(int task, int attempt) {
+    JobConf attemptConf = new JobConf(conf);
+    attemptConf.set(MRJobConfig.TASK_ATTEMPT_ID,
+        new TaskAttemptID("1", 1, TaskType.MAP, task, attempt).toString());
+    return attemptConf;
+  }
+}
@@ -12,6 +12,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 
 public class DynamoDBInputFormatTest {
 
@@ -55,6 +56,36 @@ public class DynamoDBInputFormatTest {
     checkSplits(conf, 2);
   }
 
+  @Test
+  public void testClusterMapCapacityIsCarriedToTheTasks() throws IOException {
+    JobConf conf = makeJobConf(
+        234 * 1024L * 1024L, // 234 MB
+        Optional.of(25), // 25 provisioned RCUs
+        Optional.empty() // No configured scan segments
+    );
+    DynamoDBInputFormat inputFormat = new DynamoDBInputFormat() {
+      @Override
+      int calculateClusterMapCapacity(JobConf conf) {
+        return 12;
+      }
+    };
+    inputFormat.getSplits(conf, 1);
+    assertEquals(12, conf.getInt(DynamoDBConstants.CLUSTER_MAP_CAPACITY, 0));
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testFormerSignaturesStillWork() throws IOException {
+    JobConf conf = makeJobConf(
+        234 * 1024L * 1024L, // 234 MB
+        Optional.of(25), // 25 provisioned RCUs
+        Optional.empty() // No configured scan segments
+    );
+    DynamoDBInputFormat inputFormat = new DynamoDBInputFormat();
+    assertEquals(2, inputFormat.getNumSegments(102400, 1, 234 * 1024L * 1024L, conf));
+    assertEquals(2, inputFormat.getNumMappers(2, 102400, conf));
+  }
+
   private JobConf makeJobConf(
       long tableSizeBytes,
       Optional<Integer> provisionedReadCapacityUnits,
@@ -93,6 +124,9 @@ public class DynamoDBInputFormatTest {
     assertEquals(expectedSplitNumber, splits.size());
     // By default, each partition is assigned exactly one scan segment
     splits.forEach(split -> assertEquals(1, split.getSegments().size()));
+    // The splits of one planning share their run
+    assertNotNull(splits.get(0).getRunId());
+    splits.forEach(split -> assertEquals(splits.get(0).getRunId(), split.getRunId()));
   }
 
 }
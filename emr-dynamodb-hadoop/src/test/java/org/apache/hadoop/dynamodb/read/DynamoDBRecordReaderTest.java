@@ -33,6 +33,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -71,7 +72,8 @@ public class DynamoDBRecordReaderTest {
       @Override
       public RetryResult<ScanResponse> scanTable(String tableName, DynamoDBQueryFilter
           dynamoDBQueryFilter, Integer segment, Integer totalSegments, Map<String,
-          AttributeValue> exclusiveStartKey, long limit, Reporter reporter) {
+          AttributeValue> exclusiveStartKey, long limit, Collection<String> attributesToGet,
+          Reporter reporter) {
 
         List<Map<String, AttributeValue>> items = getItems();
         if (i == 0) {
@@ -143,7 +145,8 @@ public class DynamoDBRecordReaderTest {
       @Override
       public RetryResult<ScanResponse> scanTable(String tableName, DynamoDBQueryFilter
           dynamoDBQueryFilter, Integer segment, Integer totalSegments, Map<String,
-          AttributeValue> exclusiveStartKey, long limit, Reporter reporter) {
+          AttributeValue> exclusiveStartKey, long limit, Collection<String> attributesToGet,
+          Reporter reporter) {
         return new RetryResult<>(getHashNumberRangeKeyItems(HASH_KEYS, "S"), 0);
       }
     });
@@ -185,7 +188,8 @@ public class DynamoDBRecordReaderTest {
       @Override
       public RetryResult<ScanResponse> scanTable(String tableName, DynamoDBQueryFilter
           dynamoDBQueryFilter, Integer segment, Integer totalSegments, Map<String,
-          AttributeValue> exclusiveStartKey, long limit, Reporter reporter) {
+          AttributeValue> exclusiveStartKey, long limit, Collection<String> attributesToGet,
+          Reporter reporter) {
         assertNull(exclusiveStartKey);
         return new RetryResult<>(getHashNumberRangeKeyItems(HASH_KEYS, "S"), 0);
       }
@@ -227,7 +231,8 @@ public class DynamoDBRecordReaderTest {
       @Override
       public RetryResult<ScanResponse> scanTable(String tableName, DynamoDBQueryFilter
           dynamoDBQueryFilter, Integer segment, Integer totalSegments, Map<String,
-          AttributeValue> exclusiveStartKey, long limit, Reporter reporter) {
+          AttributeValue> exclusiveStartKey, long limit, Collection<String> attributesToGet,
+          Reporter reporter) {
         assertEquals(0, (int) segment);
         assertEquals(4, (int) totalSegments);
         return new RetryResult<>(getHashKeyItems(HASH_KEYS), 0);
@@ -266,7 +271,8 @@ public class DynamoDBRecordReaderTest {
       @Override
       public RetryResult<ScanResponse> scanTable(String tableName, DynamoDBQueryFilter
           dynamoDBQueryFilter, Integer segment, Integer totalSegments, Map<String,
-          AttributeValue> exclusiveStartKey, long limit, Reporter reporter) {
+          AttributeValue> exclusiveStartKey, long limit, Collection<String> attributesToGet,
+          Reporter reporter) {
         throw new RuntimeException("Unrecoverable Exception");
       }
     });
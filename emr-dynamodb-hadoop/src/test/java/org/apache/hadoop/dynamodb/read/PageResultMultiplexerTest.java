@@ -131,6 +131,53 @@ public class PageResultMultiplexerTest {
     Assert.assertNull(mux.next());
   }
 
+  /*
+   * Test that a consumer blocked on the batch condition is woken up as soon as the mux starts
+   * draining, and that pages added while it waits are handed out in order.
+   */
+  @Test(timeout = 2000)
+  public void testDrainingWakesUpConsumer() throws InterruptedException {
+    final int BATCH_SIZE = 10;
+
+    PageResultMultiplexer<Integer> mux = new PageResultMultiplexer<>(BATCH_SIZE, DEFAULT_CAPACITY);
+    MuxConsumer consumer = new MuxConsumer(mux);
+    consumer.start();
+
+    mux.addPageResults(new PageResults<>(Arrays.asList(1, 1), null));
+    mux.addPageResults(new PageResults<>(Arrays.asList(2), null));
+    Assert.assertEquals(0, consumer.out.size());
+
+    mux.setDraining(true);
+    consumer.jobFinishLatch.await();
+    Assert.assertArrayEquals(new Integer[]{1, 2, 1}, consumer.out.toArray());
+  }
+
+  /*
+   * Test that the byte budget marks the mux saturated, and that a saturated mux is consumed even
+   * though fewer than BATCH_SIZE pages are buffered.
+   */
+  @Test(timeout = 2000)
+  public void testByteCapacity() throws IOException {
+    final int BATCH_SIZE = 10;
+    final long CAPACITY_BYTES = 1000;
+
+    PageResultMultiplexer<Integer> mux = new PageResultMultiplexer<>(BATCH_SIZE, DEFAULT_CAPACITY,
+        CAPACITY_BYTES);
+
+    mux.addPageResults(new PageResults<>(Arrays.asList(1, 1), null), 500);
+    Assert.assertFalse(mux.isSaturated());
+    mux.addPageResults(new PageResults<>(Arrays.asList(2), null), 500);
+    Assert.assertTrue(mux.isSaturated());
+
+    Assert.assertEquals(Integer.valueOf(1), mux.next());
+    Assert.assertEquals(Integer.valueOf(2), mux.next());
+    Assert.assertFalse(mux.isSaturated());
+
+    mux.setDraining(true);
+    Assert.assertEquals(Integer.valueOf(1), mux.next());
+    Assert.assertNull(mux.next());
+  }
+
   @Test(timeout = 100000)
   public void testWithMultipleThreads() throws InterruptedException, IOException {
     final int BATCH_SIZE = 10;
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package org.apache.hadoop.dynamodb.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClusterMapCapacityTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final JobConf conf = new JobConf();
+
+  @Test
+  public void testCapacityCarriedByJobConf() throws IOException {
+    assertEquals(0, ClusterMapCapacity.get(conf));
+
+    conf.setInt(DynamoDBConstants.CLUSTER_MAP_CAPACITY, 20);
+    // Already computed, e.g. by the input format of the same job
+    assertEquals(20, ClusterMapCapacity.configure(conf));
+    assertEquals(20, ClusterMapCapacity.get(conf));
+  }
+
+  @Test
+  public void testCapacityFileOverridesJobConf() throws IOException {
+    File capacityFile = new File(temporaryFolder.getRoot(), "capacity");
+    conf.setInt(DynamoDBConstants.CLUSTER_MAP_CAPACITY, 20);
+    conf.set(DynamoDBConstants.CLUSTER_MAP_CAPACITY_FILE, capacityFile.toURI().toString());
+
+    // A missing file falls back to the job configuration
+    assertEquals(20, ClusterMapCapacity.get(conf));
+
+    Files.write(capacityFile.toPath(), "8\n".getBytes(StandardCharsets.UTF_8));
+    assertEquals(8, ClusterMapCapacity.get(conf));
+
+    Files.write(capacityFile.toPath(), "not a number".getBytes(StandardCharsets.UTF_8));
+    assertEquals(20, ClusterMapCapacity.get(conf));
+  }
+}
@@ -19,11 +19,17 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -46,6 +52,9 @@ public class WriteIopsCalculatorTest {
   @Mock
   private JobClient jobClient;
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private WriteIopsCalculator writeIopsCalculator;
 
   @Test
@@ -83,6 +92,29 @@ public class WriteIopsCalculatorTest {
     verify(spyIopsCalculator, times(1)).getThroughput();
   }
 
+  @Test
+  public void testClusterMapCapacityFromJobConf() throws IOException {
+    JobConf jobConf = new JobConf();
+    jobConf.setNumMapTasks(TOTAL_MAP_TASKS);
+    jobConf.set("mapreduce.task.attempt.id", "attempt_m_1");
+    jobConf.set(DynamoDBConstants.WRITE_THROUGHPUT, String.valueOf(WRITE_CAPACITY_UNITS));
+    jobConf.set(DynamoDBConstants.THROUGHPUT_WRITE_PERCENT,
+        String.valueOf(THROUGHPUT_WRITE_PERCENT));
+    jobConf.setInt(DynamoDBConstants.CLUSTER_MAP_CAPACITY, 4);
+    File capacityFile = temporaryFolder.newFile();
+    jobConf.set(DynamoDBConstants.CLUSTER_MAP_CAPACITY_FILE, capacityFile.toURI().toString());
+
+    // The capacity computed at submission is used without contacting the resource manager
+    writeIopsCalculator = new WriteIopsCalculator(jobConf, dynamoDBClient, TABLE_NAME);
+    assertEquals((long) (WRITE_CAPACITY_UNITS * THROUGHPUT_WRITE_PERCENT / 4),
+        writeIopsCalculator.calculateTargetIops());
+
+    // A capacity republished to the capacity file is picked up on the next calculation
+    Files.write(capacityFile.toPath(), "5".getBytes(StandardCharsets.UTF_8));
+    assertEquals((long) (WRITE_CAPACITY_UNITS * THROUGHPUT_WRITE_PERCENT / 5),
+        writeIopsCalculator.calculateTargetIops());
+  }
+
   private WriteIopsCalculator getWriteIopsCalculator(JobConf jobConf) {
     when(dynamoDBClient.describeTable(TABLE_NAME)).thenReturn(TableDescription.builder()
         .billingModeSummary(BillingModeSummary.builder()
@@ -75,7 +75,7 @@ public class DynamoDBExportSerDe extends DynamoDBSerDe {
         item.put(dynamoDBAttributeName, deserializedAttributeValue);
       }
 
-      return new DynamoDBItemWritable(item);
+      return toRow(new DynamoDBItemWritable(item));
     } else {
       throw new SerDeException(getClass().toString() + ": expects Text object!");
     }
@@ -68,10 +68,21 @@ public class DynamoDBObjectInspector extends StructObjectInspector {
 
   @Override
   public Object getStructFieldData(Object data, StructField fieldRef) {
+    if (data instanceof LazyDynamoDBRow) {
+      return getColumnData(fieldRef, (LazyDynamoDBRow) data);
+    }
     DynamoDBItemWritable rowData = (DynamoDBItemWritable) data;
     return getColumnData(fieldRef, rowData);
   }
 
+  private Object getColumnData(StructField fieldRef, LazyDynamoDBRow row) {
+    int column = fieldRef.getFieldID();
+    if (!row.isConverted(column)) {
+      row.setColumn(column, getColumnData(fieldRef, row.getItem()));
+    }
+    return row.getColumn(column);
+  }
+
   private Object getColumnData(StructField fieldRef, DynamoDBItemWritable rowData) {
     try {
       /* Get the hive data type for this column. */
@@ -85,7 +96,7 @@ public class DynamoDBObjectInspector extends StructObjectInspector {
       if (HiveDynamoDBTypeFactory.isHiveDynamoDBItemMapType(ddType)) {
         /*
          * User has mapped a DynamoDB item to a single hive column of
-         * type map<string,string>.
+         * type map<string,string>. The attributes are serialized as they are looked up.
          */
         HiveDynamoDBItemType ddItemType = (HiveDynamoDBItemType) ddType;
         return ddItemType.buildHiveData(rowData.getItem());
@@ -111,10 +122,9 @@ public class DynamoDBObjectInspector extends StructObjectInspector {
 
   @Override
   public List<Object> getStructFieldsDataAsList(Object data) {
-    DynamoDBItemWritable rowData = (DynamoDBItemWritable) data;
     List<Object> columnData = new ArrayList<>();
     for (String columnName : columnNames) {
-      columnData.add(getColumnData(columnNameStructFieldMap.get(columnName), rowData));
+      columnData.add(getStructFieldData(data, columnNameStructFieldMap.get(columnName)));
     }
 
     return columnData;
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.hive.dynamodb;
+
+import java.io.IOException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.preader.ReadStateDirs;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.ql.hooks.ExecuteWithHookContext;
+import org.apache.hadoop.hive.ql.hooks.HookContext;
+
+/**
+ * Deletes the state the record readers of a query shared, e.g. scan checkpoints, once the query is
+ * over. To be registered in both {@code hive.exec.post.hooks} and {@code hive.exec.failure.hooks}
+ * when any of the directories of {@link ReadStateDirs} is set.
+ */
+public class DynamoDBReadStateCleanupHook implements ExecuteWithHookContext {
+
+  private static final Log log = LogFactory.getLog(DynamoDBReadStateCleanupHook.class);
+
+  @Override
+  public void run(HookContext hookContext) throws Exception {
+    HiveConf conf = hookContext.getConf();
+    String group = conf.get(DynamoDBConstants.READ_STATE_GROUP,
+        hookContext.getQueryPlan().getQueryId());
+    try {
+      ReadStateDirs.deleteGroup(conf, group);
+    } catch (IOException e) {
+      // The query itself is over, and the state is only left behind
+      log.warn("Could not delete the read state of " + group, e);
+    }
+  }
+}
@@ -15,9 +15,11 @@ package org.apache.hadoop.hive.dynamodb;
 
 import com.google.common.collect.Maps;
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -25,6 +27,7 @@ import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
 import org.apache.hadoop.dynamodb.DynamoDBUtil;
+import org.apache.hadoop.dynamodb.util.ClusterMapCapacity;
 import org.apache.hadoop.hive.dynamodb.shims.SerDeParametersShim;
 import org.apache.hadoop.hive.dynamodb.shims.ShimsLoader;
 import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBItemType;
@@ -48,6 +51,7 @@ import org.apache.hadoop.mapred.JobConf;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.BillingMode;
 import software.amazon.awssdk.services.dynamodb.model.BillingModeSummary;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
 
 public class DynamoDBSerDe extends AbstractSerDe {
 
@@ -58,6 +62,10 @@ public class DynamoDBSerDe extends AbstractSerDe {
 
   protected SerDeParametersShim serdeParams;
   private DynamoDBObjectInspector objectInspector;
+  private LazyDynamoDBRow row;
+  private ObjectInspector serializerInspector;
+  private ColumnSerializer[] columnSerializers;
+  private Set<String> mappedAttributeNames;
   private Map<String, String> columnMappings;
   private Map<String, HiveDynamoDBType> typeMappings;
   private boolean nullSerialization;
@@ -74,11 +82,14 @@ public class DynamoDBSerDe extends AbstractSerDe {
     log.info("Column mapping: " + columnMappings);
     typeMappings = HiveDynamoDBUtil.getHiveToDynamoDBTypeMapping(columnNames, columnTypes, tbl);
     log.info("Type mapping: " + typeMappings);
+    mappedAttributeNames = new HashSet<>(columnMappings.values());
     nullSerialization = HiveDynamoDBUtil.getHiveToDynamoDBNullSerialization(tbl);
     log.info("Null serialization: " + nullSerialization);
 
     objectInspector =
         new DynamoDBObjectInspector(columnNames, columnTypes, columnMappings, typeMappings);
+    serializerInspector = null;
+    row = new LazyDynamoDBRow(columnNames.size());
 
     verifyDynamoDBWriteThroughput(conf, tbl);
   }
@@ -89,7 +100,15 @@ public class DynamoDBSerDe extends AbstractSerDe {
       throw new SerDeException("Expected DynamoDBMapWritable data type, got "
           + dataMap.getClass().getName() + " data: " + dataMap.toString());
     }
-    return dataMap;
+    return toRow((DynamoDBItemWritable) dataMap);
+  }
+
+  /**
+   * Wraps an item in the row returned to Hive. The row is reused for every item, as the columns
+   * of the previous item are not read once Hive asks for the next one.
+   */
+  protected Object toRow(DynamoDBItemWritable item) {
+    return row.reset(item);
   }
 
   @Override
@@ -104,17 +123,48 @@ public class DynamoDBSerDe extends AbstractSerDe {
 
   @Override
   public Writable serialize(Object obj, ObjectInspector objInspector) throws SerDeException {
-    // Prepare the field ObjectInspectors
-    StructObjectInspector soi = (StructObjectInspector) objInspector;
-    List<? extends StructField> fields = soi.getAllStructFieldRefs();
-    List<Object> rowData = soi.getStructFieldsDataAsList(obj);
-    Map<String, AttributeValue> item = Maps.newHashMap();
+    // Hive passes the same ObjectInspector for every row, so the columns are only compiled once
+    if (objInspector != serializerInspector) {
+      columnSerializers = compileColumnSerializers((StructObjectInspector) objInspector);
+      serializerInspector = objInspector;
+    }
+    if (obj == null) {
+      throw new RuntimeException("No data found in the row.");
+    }
+    // Rows are usually lists or arrays of the column values, which must not miss any of them
+    int fieldCount = obj instanceof List ? ((List<?>) obj).size()
+        : obj instanceof Object[] ? ((Object[]) obj).length : columnSerializers.length;
+    if (fieldCount != columnSerializers.length) {
+      throw new SerDeException("Number of data objects do not match number of columns. Expected "
+          + columnSerializers.length + " but found " + fieldCount + ". Data: " + obj);
+    }
+
+    Map<String, AttributeValue> item = Maps.newHashMapWithExpectedSize(columnSerializers.length);
+    for (ColumnSerializer columnSerializer : columnSerializers) {
+      columnSerializer.serialize(obj, item);
+    }
 
-    validateData(fields, rowData);
+    return new DynamoDBItemWritable(item);
+  }
 
+  /**
+   * Resolves the ObjectInspector, DynamoDB type and attribute name of every column of the rows
+   * that are serialized with the given inspector.
+   */
+  private ColumnSerializer[] compileColumnSerializers(StructObjectInspector soi)
+      throws SerDeException {
+    List<? extends StructField> fields = soi.getAllStructFieldRefs();
+    if (fields == null) {
+      throw new RuntimeException("Field information not available");
+    }
+    if (fields.size() != columnNames.size()) {
+      throw new SerDeException("Number of row fields do not match number of columns. Expected "
+          + columnNames.size() + " but found " + fields.size() + ". Fields: " + fields);
+    }
+
+    ColumnSerializer[] serializers = new ColumnSerializer[fields.size()];
     for (int i = 0; i < fields.size(); i++) {
       StructField field = fields.get(i);
-      Object data = rowData.get(i);
       String columnName = columnNames.get(i);
       ObjectInspector fieldOI = field.getFieldObjectInspector();
 
@@ -124,32 +174,38 @@ public class DynamoDBSerDe extends AbstractSerDe {
       // Check if this column maps a DynamoDB item.
       if (HiveDynamoDBTypeFactory.isHiveDynamoDBItemMapType(ddType)) {
         HiveDynamoDBItemType ddItemType = (HiveDynamoDBItemType) ddType;
-        Map<String, AttributeValue> backupItem = ddItemType.parseDynamoDBData(data, fieldOI);
-
-        // We give higher priority to attributes directly mapped to
-        // columns. So we do not update the value of an attribute if
-        // it already exists. This can happen in case of partial schemas
-        // when there is a full backup column and attribute mapped
-        // columns.
-        for (Map.Entry<String, AttributeValue> entry : backupItem.entrySet()) {
-          if (!columnMappings.containsValue(entry.getKey())) {
-            item.put(entry.getKey(), entry.getValue());
+        serializers[i] = (row, item) -> {
+          Map<String, AttributeValue> backupItem =
+              ddItemType.parseDynamoDBData(soi.getStructFieldData(row, field), fieldOI);
+
+          // We give higher priority to attributes directly mapped to
+          // columns. So we do not update the value of an attribute if
+          // it already exists. This can happen in case of partial schemas
+          // when there is a full backup column and attribute mapped
+          // columns.
+          for (Map.Entry<String, AttributeValue> entry : backupItem.entrySet()) {
+            if (!mappedAttributeNames.contains(entry.getKey())) {
+              item.put(entry.getKey(), entry.getValue());
+            }
           }
-        }
+        };
       } else {
         // User has mapped individual attribute in DynamoDB to
         // corresponding Hive columns.
-        AttributeValue attributeValue = data == null
-            ? DynamoDBDataParser.getNullAttribute(nullSerialization)
-            : ddType.getDynamoDBData(data, fieldOI, nullSerialization);
-
-        if (attributeValue != null) {
-          item.put(columnMappings.get(columnName), attributeValue);
-        }
+        String attributeName = columnMappings.get(columnName);
+        serializers[i] = (row, item) -> {
+          Object data = soi.getStructFieldData(row, field);
+          AttributeValue attributeValue = data == null
+              ? DynamoDBDataParser.getNullAttribute(nullSerialization)
+              : ddType.getDynamoDBData(data, fieldOI, nullSerialization);
+
+          if (attributeValue != null) {
+            item.put(attributeName, attributeValue);
+          }
+        };
       }
     }
-
-    return new DynamoDBItemWritable(item);
+    return serializers;
   }
 
   @Override
@@ -158,21 +214,6 @@ public class DynamoDBSerDe extends AbstractSerDe {
     return null;
   }
 
-  private void validateData(List<? extends StructField> fields, List<Object> rowData) {
-    if (rowData == null) {
-      throw new RuntimeException("No data found in the row.");
-    }
-
-    if (fields == null) {
-      throw new RuntimeException("Field information not available");
-    }
-
-    if (rowData.size() != fields.size()) {
-      throw new RuntimeException("Number of data objects do not match number of columns. Data: "
-          + rowData);
-    }
-  }
-
   private void verifyDynamoDBWriteThroughput(Configuration conf, Properties tbl) {
     if (conf == null) {
       // In a lot of places Hive creates a SerDe with null conf.
@@ -194,25 +235,27 @@ public class DynamoDBSerDe extends AbstractSerDe {
 
     log.info("Table Properties:" + tbl);
     DynamoDBClient client = new DynamoDBClient(conf, tbl.getProperty(DynamoDBConstants.REGION));
-    long writesPerSecond = client.describeTable(dynamoDBTableName).provisionedThroughput()
-        .writeCapacityUnits();
+    TableDescription description = client.describeTable(dynamoDBTableName);
+    long writesPerSecond = description.provisionedThroughput().writeCapacityUnits();
 
     // skip verification when current resource manager is not Yarn
     if (!DynamoDBUtil.isYarnEnabled(conf)) {
       return;
     }
 
-    long maxMapTasks;
-
-    try {
-      JobClient jc = new JobClient(new JobConf(conf));
-      maxMapTasks = jc.getClusterStatus().getMaxMapTasks();
-    } catch (IOException e) {
-      throw new RuntimeException("Could not get cluster capacity.", e);
+    JobConf jobConf = new JobConf(conf);
+    // Computed once when the job is submitted, the serde is also initialized by every task
+    long maxMapTasks = ClusterMapCapacity.get(jobConf);
+    if (maxMapTasks < 1) {
+      try {
+        JobClient jc = new JobClient(jobConf);
+        maxMapTasks = jc.getClusterStatus().getMaxMapTasks();
+      } catch (IOException e) {
+        throw new RuntimeException("Could not get cluster capacity.", e);
+      }
     }
 
-    BillingModeSummary billingModeSummary =
-        client.describeTable(dynamoDBTableName).billingModeSummary();
+    BillingModeSummary billingModeSummary = description.billingModeSummary();
     if (maxMapTasks > writesPerSecond
         && (billingModeSummary == null
         || billingModeSummary.billingMode() == BillingMode.PROVISIONED)) {
@@ -228,4 +271,9 @@ public class DynamoDBSerDe extends AbstractSerDe {
       warningPrinted = true;
     }
   }
+
+  private interface ColumnSerializer {
+
+    void serialize(Object row, Map<String, AttributeValue> item) throws SerDeException;
+  }
 }
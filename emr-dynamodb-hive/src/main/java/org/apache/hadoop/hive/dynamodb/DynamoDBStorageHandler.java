@@ -26,6 +26,7 @@ import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
 import org.apache.hadoop.dynamodb.DynamoDBUtil;
+import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.dynamodb.filter.DynamoDBFilterPushdown;
 import org.apache.hadoop.hive.dynamodb.read.HiveDynamoDBInputFormat;
 import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBType;
@@ -84,7 +85,7 @@ public class DynamoDBStorageHandler
 
       String tableName = HiveDynamoDBUtil.getDynamoDBTableName(table.getParameters()
           .get(DynamoDBConstants.TABLE_NAME), table.getTableName());
-      TableDescription tableDescription = client.describeTable(tableName);
+      TableDescription tableDescription = client.refreshTableDescription(tableName);
 
       checkTableStatus(tableDescription);
       checkTableSchemaMapping(tableDescription, table);
@@ -147,10 +148,20 @@ public class DynamoDBStorageHandler
       jobProperties.put(DynamoDBConstants.INPUT_TABLE_NAME, tableName);
       jobProperties.put(DynamoDBConstants.TABLE_NAME, tableName);
 
+      // The record readers of the query share their state under its ID, which is deleted by
+      // DynamoDBReadStateCleanupHook once the query is over
+      String queryId = conf.get(HiveConf.ConfVars.HIVEQUERYID.varname);
+      if (conf.get(DynamoDBConstants.READ_STATE_GROUP) == null
+          && !Strings.isNullOrEmpty(queryId)) {
+        jobProperties.put(DynamoDBConstants.READ_STATE_GROUP, queryId);
+      }
+
       jobProperties.put(DynamoDBConstants.DYNAMODB_TABLE_KEY_NAMES,
           description.keySchema().stream()
               .map(KeySchemaElement::attributeName)
               .collect(Collectors.joining(DynamoDBConstants.DYNAMODB_TABLE_KEY_NAMES_SEPARATOR)));
+      jobProperties.put(DynamoDBConstants.DYNAMODB_TABLE_SCHEMA,
+          DynamoDBUtil.serializeTableSchema(description));
 
       Map<String, String> hiveToDynamoDBSchemaMapping = HiveDynamoDBUtil
           .getHiveToDynamoDBMapping(tableDesc.getProperties().getProperty(DynamoDBConstants
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package org.apache.hadoop.hive.dynamodb;
+
+import java.util.Arrays;
+import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
+
+/**
+ * A row handed to Hive by {@link DynamoDBSerDe}. The columns of the row are converted to Hive
+ * objects by {@link DynamoDBObjectInspector} the first time they are read, and are then reused
+ * until the row is reset to the next item, so that only the columns a query reads are converted.
+ */
+final class LazyDynamoDBRow {
+
+  private static final Object NOT_CONVERTED = new Object();
+
+  private final Object[] columns;
+  private DynamoDBItemWritable item;
+
+  LazyDynamoDBRow(int columnCount) {
+    columns = new Object[columnCount];
+  }
+
+  LazyDynamoDBRow reset(DynamoDBItemWritable item) {
+    this.item = item;
+    Arrays.fill(columns, NOT_CONVERTED);
+    return this;
+  }
+
+  DynamoDBItemWritable getItem() {
+    return item;
+  }
+
+  boolean isConverted(int column) {
+    return columns[column] != NOT_CONVERTED;
+  }
+
+  Object getColumn(int column) {
+    return columns[column];
+  }
+
+  void setColumn(int column, Object value) {
+    columns[column] = value;
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(item);
+  }
+}
@@ -0,0 +1,548 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+package org.apache.hadoop.hive.dynamodb.filter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.apache.hadoop.dynamodb.filter.DynamoDBExpression;
+import org.apache.hadoop.dynamodb.filter.DynamoDBExpressionBuilder;
+import org.apache.hadoop.dynamodb.filter.DynamoDBFilterOperator;
+import org.apache.hadoop.dynamodb.type.DynamoDBTypeConstants;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBTypeFactory;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.udf.UDFLike;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFBetween;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFBridge;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFIn;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNot;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNotNull;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNull;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPOr;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Compiles a Hive predicate into a DynamoDB filter expression.
+ *
+ * <p>The compiled expression is a relaxation of the predicate: every row on which the predicate
+ * is true satisfies the expression, but the expression may let through rows the predicate
+ * rejects. Hive still evaluates the whole predicate on the rows it reads, so the expression only
+ * needs to be sound, not exact. Conjuncts that cannot be compiled are dropped, while a
+ * disjunction is only compiled when all of its operands are.
+ *
+ * <p>IS [NOT] NULL compiles to {@code attribute_type} checks rather than
+ * {@code attribute_exists}: Hive also reads NULL-typed attributes, which the connector writes
+ * when null serialization is enabled, and attributes of an unexpected type as NULL.
+ */
+public class DynamoDBFilterExpressionCompiler {
+
+  static final String PLACEHOLDER_PREFIX = "f";
+
+  // DynamoDB limits the IN operator to 100 operands
+  private static final int MAX_IN_OPERANDS = 100;
+
+  private static final char LIKE_ANY = '%';
+  private static final char LIKE_ONE = '_';
+  private static final char LIKE_ESCAPE = '\\';
+
+  private final Map<String, String> hiveDynamoDBMapping;
+  private final Map<String, String> hiveTypeMapping;
+  private final Set<String> excludedAttributes;
+
+  /**
+   * @param excludedAttributes DynamoDB attributes the expression must not reference, e.g. the key
+   *                           attributes of a Query
+   */
+  public DynamoDBFilterExpressionCompiler(Map<String, String> hiveDynamoDBMapping,
+      Map<String, String> hiveTypeMapping, Set<String> excludedAttributes) {
+    this.hiveDynamoDBMapping = hiveDynamoDBMapping;
+    this.hiveTypeMapping = hiveTypeMapping;
+    this.excludedAttributes = excludedAttributes;
+  }
+
+  public DynamoDBFilterExpressionCompiler(Map<String, String> hiveDynamoDBMapping,
+      Map<String, String> hiveTypeMapping) {
+    this(hiveDynamoDBMapping, hiveTypeMapping, Collections.emptySet());
+  }
+
+  /**
+   * @return the filter expression, or null if no part of the predicate can be pushed down
+   */
+  public DynamoDBExpression compile(ExprNodeDesc predicate) {
+    Term term = compileTerm(predicate);
+    if (term == null) {
+      return null;
+    }
+    // Placeholders are only allocated once the whole tree is known to compile, as DynamoDB rejects
+    // requests with unused expression attribute names or values
+    DynamoDBExpressionBuilder builder = new DynamoDBExpressionBuilder(PLACEHOLDER_PREFIX);
+    return builder.build(term.render(builder));
+  }
+
+  /**
+   * Collects the values an attribute is restricted to by equalities, IN lists or disjunctions of
+   * those among the conjuncts of the predicate.
+   *
+   * @return the distinct values in the order they appear in the predicate, or null if the
+   *         predicate does not restrict the attribute to a list of values
+   */
+  public List<AttributeValue> getEqualityValues(ExprNodeDesc predicate, String attributeName) {
+    List<AttributeValue> values = null;
+    for (ExprNodeDesc conjunct : getConjuncts(predicate)) {
+      List<AttributeValue> conjunctValues = collectEqualityValues(conjunct, attributeName);
+      if (conjunctValues == null) {
+        continue;
+      }
+      if (values == null) {
+        values = new ArrayList<>(new LinkedHashSet<>(conjunctValues));
+      } else {
+        values.retainAll(conjunctValues);
+      }
+    }
+    return values;
+  }
+
+  private static List<ExprNodeDesc> getConjuncts(ExprNodeDesc node) {
+    if (node instanceof ExprNodeGenericFuncDesc
+        && ((ExprNodeGenericFuncDesc) node).getGenericUDF() instanceof GenericUDFOPAnd) {
+      List<ExprNodeDesc> conjuncts = new ArrayList<>();
+      for (ExprNodeDesc child : node.getChildren()) {
+        conjuncts.addAll(getConjuncts(child));
+      }
+      return conjuncts;
+    }
+    return Collections.singletonList(node);
+  }
+
+  private List<AttributeValue> collectEqualityValues(ExprNodeDesc node, String attributeName) {
+    if (!(node instanceof ExprNodeGenericFuncDesc)) {
+      return null;
+    }
+    GenericUDF udf = ((ExprNodeGenericFuncDesc) node).getGenericUDF();
+    List<ExprNodeDesc> children = node.getChildren();
+    List<AttributeValue> values = new ArrayList<>();
+
+    if (udf instanceof GenericUDFOPOr) {
+      for (ExprNodeDesc child : children) {
+        List<AttributeValue> childValues = collectEqualityValues(child, attributeName);
+        if (childValues == null) {
+          return null;
+        }
+        values.addAll(childValues);
+      }
+      return values;
+    }
+    if (udf instanceof GenericUDFOPAnd) {
+      return getEqualityValues(node, attributeName);
+    }
+
+    List<ExprNodeDesc> constants;
+    Column column;
+    if (udf instanceof GenericUDFIn) {
+      column = getColumn(children.get(0));
+      constants = children.subList(1, children.size());
+    } else if (udf instanceof GenericUDFOPEqual && children.size() == 2) {
+      column = getColumn(children.get(0));
+      constants = children.subList(1, 2);
+      if (column == null) {
+        column = getColumn(children.get(1));
+        constants = children.subList(0, 1);
+      }
+    } else {
+      return null;
+    }
+    if (column == null || !column.attributeName.equals(attributeName)) {
+      return null;
+    }
+    for (ExprNodeDesc constant : constants) {
+      AttributeValue value = getAttributeValue(column, constant);
+      if (value == null) {
+        return null;
+      }
+      values.add(value);
+    }
+    return values;
+  }
+
+  private Term compileTerm(ExprNodeDesc node) {
+    if (!(node instanceof ExprNodeGenericFuncDesc)) {
+      return null;
+    }
+    ExprNodeGenericFuncDesc function = (ExprNodeGenericFuncDesc) node;
+    GenericUDF udf = function.getGenericUDF();
+    List<ExprNodeDesc> children = function.getChildren();
+
+    if (udf instanceof GenericUDFOPAnd) {
+      return compileAnd(children);
+    } else if (udf instanceof GenericUDFOPOr) {
+      return compileOr(children);
+    } else if (udf instanceof GenericUDFOPNot) {
+      return compileNot(children.get(0));
+    } else if (udf instanceof GenericUDFOPNull) {
+      return compileNullCheck(children.get(0), true);
+    } else if (udf instanceof GenericUDFOPNotNull) {
+      return compileNullCheck(children.get(0), false);
+    } else if (udf instanceof GenericUDFIn) {
+      return compileIn(children);
+    } else if (udf instanceof GenericUDFBetween) {
+      return compileBetween(children);
+    } else if (udf instanceof GenericUDFBridge
+        && UDFLike.class.getName().equals(((GenericUDFBridge) udf).getUdfClassName())) {
+      return compileLike(children);
+    }
+
+    DynamoDBFilterOperator op =
+        DynamoDBFilterOperator.getFilterOperationFromHiveClass(udf.getClass().getName());
+    if (op != null && flip(op) != null) {
+      return compileComparison(op, children);
+    }
+    return null;
+  }
+
+  private Term compileAnd(List<ExprNodeDesc> children) {
+    List<Term> operands = new ArrayList<>(children.size());
+    boolean exact = true;
+    for (ExprNodeDesc child : children) {
+      Term operand = compileTerm(child);
+      if (operand == null) {
+        exact = false;
+      } else {
+        operands.add(operand);
+        exact &= operand.exact;
+      }
+    }
+    if (operands.isEmpty()) {
+      return null;
+    }
+    return new Term(exact, builder -> DynamoDBExpressionBuilder.and(render(operands, builder)));
+  }
+
+  private Term compileOr(List<ExprNodeDesc> children) {
+    List<Term> operands = new ArrayList<>(children.size());
+    boolean exact = true;
+    for (ExprNodeDesc child : children) {
+      Term operand = compileTerm(child);
+      if (operand == null) {
+        return null;
+      }
+      operands.add(operand);
+      exact &= operand.exact;
+    }
+    return new Term(exact, builder -> DynamoDBExpressionBuilder.or(render(operands, builder)));
+  }
+
+  private Term compileNot(ExprNodeDesc child) {
+    // Negating a relaxed expression would drop matching rows. The negation of an exact one may
+    // still keep rows on which the operand is NULL, hence is not exact itself.
+    Term operand = compileTerm(child);
+    if (operand == null || !operand.exact) {
+      return null;
+    }
+    return new Term(false, builder -> "NOT (" + operand.render(builder) + ")");
+  }
+
+  private Term compileNullCheck(ExprNodeDesc child, boolean isNull) {
+    Column column = getColumn(child);
+    if (column == null) {
+      return null;
+    }
+    String type = column.type.getDynamoDBType();
+    if (isNull) {
+      return new Term(true, builder -> "NOT attribute_type(" + builder.name(column.attributeName)
+          + ", " + builder.value(AttributeValue.fromS(type)) + ")");
+    } else {
+      return new Term(true, builder -> "attribute_type(" + builder.name(column.attributeName)
+          + ", " + builder.value(AttributeValue.fromS(type)) + ")");
+    }
+  }
+
+  private Term compileComparison(DynamoDBFilterOperator op, List<ExprNodeDesc> children) {
+    if (children.size() != 2) {
+      return null;
+    }
+    Column column = getColumn(children.get(0));
+    ExprNodeDesc constant = children.get(1);
+    if (column == null) {
+      column = getColumn(children.get(1));
+      constant = children.get(0);
+      op = flip(op);
+    }
+    if (column == null || op == null) {
+      return null;
+    }
+    AttributeValue value = getAttributeValue(column, constant);
+    if (value == null) {
+      return null;
+    }
+    Column c = column;
+    String symbol = op.getOperatorSymbol();
+    // A missing attribute is NULL for Hive but not equal to anything for DynamoDB
+    boolean exact = op != DynamoDBFilterOperator.NE;
+    return new Term(exact,
+        builder -> builder.name(c.attributeName) + " " + symbol + " " + builder.value(value));
+  }
+
+  private Term compileIn(List<ExprNodeDesc> children) {
+    Column column = getColumn(children.get(0));
+    if (column == null || children.size() - 1 > MAX_IN_OPERANDS) {
+      return null;
+    }
+    List<AttributeValue> values = new ArrayList<>(children.size() - 1);
+    for (ExprNodeDesc child : children.subList(1, children.size())) {
+      AttributeValue value = getAttributeValue(column, child);
+      if (value == null) {
+        return null;
+      }
+      values.add(value);
+    }
+    return new Term(true, builder -> {
+      List<String> placeholders = new ArrayList<>(values.size());
+      for (AttributeValue value : values) {
+        placeholders.add(builder.value(value));
+      }
+      return builder.name(column.attributeName) + " IN (" + String.join(", ", placeholders) + ")";
+    });
+  }
+
+  private Term compileBetween(List<ExprNodeDesc> children) {
+    // The first operand tells whether the range is inverted, i.e. NOT BETWEEN
+    if (children.size() != 4 || !(children.get(0) instanceof ExprNodeConstantDesc)) {
+      return null;
+    }
+    boolean invert = Boolean.TRUE.equals(((ExprNodeConstantDesc) children.get(0)).getValue());
+    Column column = getColumn(children.get(1));
+    if (column == null) {
+      return null;
+    }
+    AttributeValue lower = getAttributeValue(column, children.get(2));
+    AttributeValue upper = getAttributeValue(column, children.get(3));
+    // DynamoDB rejects a BETWEEN whose lower bound is greater than its upper bound
+    if (lower == null || upper == null || compare(lower, upper) > 0) {
+      return null;
+    }
+    if (invert) {
+      return new Term(false, builder -> "NOT (" + builder.name(column.attributeName)
+          + " BETWEEN " + builder.value(lower) + " AND " + builder.value(upper) + ")");
+    }
+    return new Term(true, builder -> builder.name(column.attributeName)
+        + " BETWEEN " + builder.value(lower) + " AND " + builder.value(upper));
+  }
+
+  /*
+   * Patterns compile to a begins_with on the leading literal and a contains on each of the other
+   * literals, which is exact for 'x' and 'x%' only. Patterns with single character wildcards or
+   * escapes are left to Hive.
+   */
+  private Term compileLike(List<ExprNodeDesc> children) {
+    Column column = getColumn(children.get(0));
+    if (column == null || !(children.get(1) instanceof ExprNodeConstantDesc)
+        || !DynamoDBTypeConstants.STRING.equals(column.type.getDynamoDBType())) {
+      return null;
+    }
+    Object value = ((ExprNodeConstantDesc) children.get(1)).getValue();
+    if (value == null) {
+      return null;
+    }
+    String pattern = value.toString();
+    if (pattern.indexOf(LIKE_ONE) >= 0 || pattern.indexOf(LIKE_ESCAPE) >= 0) {
+      return null;
+    }
+
+    int firstWildcard = pattern.indexOf(LIKE_ANY);
+    if (firstWildcard < 0) {
+      AttributeValue literal = AttributeValue.fromS(pattern);
+      return new Term(true,
+          builder -> builder.name(column.attributeName) + " = " + builder.value(literal));
+    }
+
+    String prefix = pattern.substring(0, firstWildcard);
+    List<String> fragments = new ArrayList<>();
+    for (String fragment : pattern.substring(firstWildcard).split(String.valueOf(LIKE_ANY))) {
+      if (!fragment.isEmpty()) {
+        fragments.add(fragment);
+      }
+    }
+    if (prefix.isEmpty() && fragments.isEmpty()) {
+      // Matches any string
+      return compileNullCheck(children.get(0), false);
+    }
+    boolean exact = fragments.isEmpty();
+    return new Term(exact, builder -> {
+      List<String> conditions = new ArrayList<>(fragments.size() + 1);
+      String name = builder.name(column.attributeName);
+      if (!prefix.isEmpty()) {
+        conditions.add("begins_with(" + name + ", "
+            + builder.value(AttributeValue.fromS(prefix)) + ")");
+      }
+      for (String fragment : fragments) {
+        conditions.add("contains(" + name + ", "
+            + builder.value(AttributeValue.fromS(fragment)) + ")");
+      }
+      return DynamoDBExpressionBuilder.and(conditions);
+    });
+  }
+
+  private Column getColumn(ExprNodeDesc node) {
+    if (!(node instanceof ExprNodeColumnDesc)) {
+      return null;
+    }
+    String hiveColumnName = ((ExprNodeColumnDesc) node).getColumn();
+    String attributeName = hiveDynamoDBMapping.get(hiveColumnName);
+    String hiveType = hiveTypeMapping.get(hiveColumnName);
+    if (attributeName == null || hiveType == null || excludedAttributes.contains(attributeName)) {
+      return null;
+    }
+    switch (hiveType) {
+      case serdeConstants.STRING_TYPE_NAME:
+      case serdeConstants.BIGINT_TYPE_NAME:
+      case serdeConstants.DOUBLE_TYPE_NAME:
+      case serdeConstants.BINARY_TYPE_NAME:
+        return new Column(attributeName, HiveDynamoDBTypeFactory.getTypeObjectFromHiveType(
+            hiveType));
+      default:
+        return null;
+    }
+  }
+
+  /*
+   * Only constants whose Java type matches the column are encoded. Hive compares mismatched types
+   * after a conversion, e.g. a string column with a number as doubles, which DynamoDB can not
+   * reproduce.
+   */
+  private static AttributeValue getAttributeValue(Column column, ExprNodeDesc node) {
+    if (!(node instanceof ExprNodeConstantDesc)) {
+      return null;
+    }
+    Object value = ((ExprNodeConstantDesc) node).getValue();
+    if (value == null) {
+      return null;
+    }
+    switch (column.type.getDynamoDBType()) {
+      case DynamoDBTypeConstants.STRING:
+        return value instanceof String ? column.type.getAttributeValue((String) value) : null;
+      case DynamoDBTypeConstants.NUMBER:
+        if (!(value instanceof Number) && !(value instanceof HiveDecimal)) {
+          return null;
+        }
+        try {
+          // Normalizes the notation, and rejects NaN and infinities
+          return column.type.getAttributeValue(new BigDecimal(value.toString()).toPlainString());
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      case DynamoDBTypeConstants.BINARY:
+        return value instanceof byte[]
+            ? column.type.getAttributeValue(Base64.getEncoder().encodeToString((byte[]) value))
+            : null;
+      default:
+        return null;
+    }
+  }
+
+  /*
+   * Orders values the way DynamoDB does: numbers by value, strings and binaries by their unsigned
+   * bytes.
+   */
+  private static int compare(AttributeValue left, AttributeValue right) {
+    if (left.n() != null) {
+      return new BigDecimal(left.n()).compareTo(new BigDecimal(right.n()));
+    }
+    byte[] leftBytes = left.s() != null ? left.s().getBytes(StandardCharsets.UTF_8)
+        : left.b().asByteArray();
+    byte[] rightBytes = right.s() != null ? right.s().getBytes(StandardCharsets.UTF_8)
+        : right.b().asByteArray();
+    for (int i = 0; i < Math.min(leftBytes.length, rightBytes.length); i++) {
+      int diff = (leftBytes[i] & 0xff) - (rightBytes[i] & 0xff);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return leftBytes.length - rightBytes.length;
+  }
+
+  /*
+   * Returns the operator to use when swapping the operands of a comparison, or null if the operator
+   * is not a comparison.
+   */
+  private static DynamoDBFilterOperator flip(DynamoDBFilterOperator op) {
+    switch (op) {
+      case EQ:
+      case NE:
+        return op;
+      case LT:
+        return DynamoDBFilterOperator.GT;
+      case LE:
+        return DynamoDBFilterOperator.GE;
+      case GT:
+        return DynamoDBFilterOperator.LT;
+      case GE:
+        return DynamoDBFilterOperator.LE;
+      default:
+        return null;
+    }
+  }
+
+  private static List<String> render(List<Term> terms, DynamoDBExpressionBuilder builder) {
+    List<String> expressions = new ArrayList<>(terms.size());
+    for (Term term : terms) {
+      expressions.add(term.render(builder));
+    }
+    return expressions;
+  }
+
+  private static final class Column {
+    final String attributeName;
+    final HiveDynamoDBType type;
+
+    Column(String attributeName, HiveDynamoDBType type) {
+      this.attributeName = attributeName;
+      this.type = type;
+    }
+  }
+
+  /*
+   * A compiled predicate. The expression is rendered lazily, once the whole tree is known to
+   * compile. An exact term is true exactly when the predicate is, otherwise it may also be true
+   * when the predicate is false or NULL.
+   */
+  private static final class Term {
+    final boolean exact;
+    final Function<DynamoDBExpressionBuilder, String> renderer;
+
+    Term(boolean exact, Function<DynamoDBExpressionBuilder, String> renderer) {
+      this.exact = exact;
+      this.renderer = renderer;
+    }
+
+    String render(DynamoDBExpressionBuilder builder) {
+      return renderer.apply(builder);
+    }
+  }
+}
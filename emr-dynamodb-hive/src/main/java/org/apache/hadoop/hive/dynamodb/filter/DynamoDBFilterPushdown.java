@@ -23,16 +23,22 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.filter.DynamoDBExpression;
 import org.apache.hadoop.dynamodb.filter.DynamoDBFilter;
 import org.apache.hadoop.dynamodb.filter.DynamoDBFilterOperator;
 import org.apache.hadoop.dynamodb.filter.DynamoDBIndexInfo;
 import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
+import org.apache.hadoop.dynamodb.filter.DynamoDBRangeKeySampler;
 import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
 import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
 import org.apache.hadoop.hive.ql.metadata.HiveStoragePredicateHandler.DecomposedPredicate;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
 import org.apache.hadoop.hive.serde.serdeConstants;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ComparisonOperator;
+import software.amazon.awssdk.services.dynamodb.model.Condition;
 import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
 import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
 import software.amazon.awssdk.services.dynamodb.model.KeyType;
@@ -52,7 +58,41 @@ public class DynamoDBFilterPushdown {
   private static final int RANGE_KEY_INDEX = 1;
   private static final String DYNAMODB_KEY_TYPE_HASH = "HASH";
 
+  private final int maxHashKeyFanOut;
+  private final int maxBatchGetKeys;
+  private final int rangeKeySegments;
+  private final DynamoDBRangeKeySampler rangeKeySampler;
+
   public DynamoDBFilterPushdown() {
+    this(DynamoDBConstants.DEFAULT_MAX_QUERY_FAN_OUT);
+  }
+
+  public DynamoDBFilterPushdown(int maxHashKeyFanOut) {
+    this(maxHashKeyFanOut, DynamoDBConstants.DEFAULT_MAX_BATCH_GET_KEYS);
+  }
+
+  public DynamoDBFilterPushdown(int maxHashKeyFanOut, int maxBatchGetKeys) {
+    this(maxHashKeyFanOut, maxBatchGetKeys, DynamoDBConstants.DEFAULT_QUERY_RANGE_SEGMENTS);
+  }
+
+  public DynamoDBFilterPushdown(int maxHashKeyFanOut, int maxBatchGetKeys,
+      int rangeKeySegments) {
+    this(maxHashKeyFanOut, maxBatchGetKeys, rangeKeySegments, null);
+  }
+
+  /**
+   * @param maxHashKeyFanOut the largest number of hash key values to run one Query for each
+   * @param maxBatchGetKeys  the largest number of primary keys to read with BatchGetItem
+   * @param rangeKeySegments the number of Query requests to split a range key range into
+   * @param rangeKeySampler  reads the range of queries without a range key BETWEEN condition, or
+   *                         null to only split BETWEEN conditions
+   */
+  public DynamoDBFilterPushdown(int maxHashKeyFanOut, int maxBatchGetKeys,
+      int rangeKeySegments, DynamoDBRangeKeySampler rangeKeySampler) {
+    this.maxHashKeyFanOut = maxHashKeyFanOut;
+    this.maxBatchGetKeys = maxBatchGetKeys;
+    this.rangeKeySegments = rangeKeySegments;
+    this.rangeKeySampler = rangeKeySampler;
     eligibleHiveTypes.add(serdeConstants.DOUBLE_TYPE_NAME);
     eligibleHiveTypes.add(serdeConstants.BIGINT_TYPE_NAME);
     eligibleHiveTypes.add(serdeConstants.STRING_TYPE_NAME);
@@ -73,14 +113,23 @@ public class DynamoDBFilterPushdown {
     List<IndexSearchCondition> searchConditions = getGenericSearchConditions(hiveTypeMapping,
         predicate);
     log.info("Pushed predicates: " + searchConditions);
-    if (searchConditions.isEmpty()) {
+    // The column mapping is not known yet, so only tell whether the predicate can be compiled
+    DynamoDBExpression filterExpression = new DynamoDBFilterExpressionCompiler(
+        getIdentityMapping(hiveTypeMapping), hiveTypeMapping).compile(predicate);
+    log.info("Pushed filter expression: " + filterExpression);
+    if (searchConditions.isEmpty() && filterExpression == null) {
       return null;
     } else {
-      List<IndexSearchCondition> finalSearchCondition =
-          prioritizeSearchConditions(searchConditions);
       DecomposedPredicate decomposedPredicate = new DecomposedPredicate();
-      decomposedPredicate.pushedPredicate =
-          analyzer.translateSearchConditions(finalSearchCondition);
+      if (filterExpression != null) {
+        // The whole predicate is handed to the input format, which compiles the parts it can
+        decomposedPredicate.pushedPredicate = (ExprNodeGenericFuncDesc) predicate;
+      } else {
+        List<IndexSearchCondition> finalSearchCondition =
+            prioritizeSearchConditions(searchConditions);
+        decomposedPredicate.pushedPredicate =
+            analyzer.translateSearchConditions(finalSearchCondition);
+      }
       decomposedPredicate.residualPredicate = (ExprNodeGenericFuncDesc) predicate;
       return decomposedPredicate;
     }
@@ -92,12 +141,10 @@ public class DynamoDBFilterPushdown {
       Map<String, String> hiveDynamoDBMapping,
       Map<String, String> hiveTypeMapping,
       ExprNodeDesc predicate) {
-    List<IndexSearchCondition> searchConditions = getGenericSearchConditions(hiveTypeMapping,
-        predicate);
-
-    if (searchConditions.isEmpty()) {
-      return null;
-    }
+    // The pushed predicate may hold several conditions on the same column when it is the whole
+    // predicate, so prioritize them as the storage handler would
+    List<IndexSearchCondition> searchConditions =
+        prioritizeSearchConditions(getGenericSearchConditions(hiveTypeMapping, predicate));
 
     Map<String, DynamoDBFilter> filterMap = new HashMap<>();
     DynamoDBFilterFactory factory = new DynamoDBFilterFactory();
@@ -127,11 +174,181 @@ public class DynamoDBFilterPushdown {
       }
     }
 
-    return getDynamoDBQueryFilter(schema,
+    DynamoDBQueryFilter queryFilter = getDynamoDBQueryFilter(schema,
         localSecondaryIndexes,
         globalSecondaryIndexes,
         hiveDynamoDBMapping,
         filterMap);
+
+    if (setBatchGetKeys(schema, hiveDynamoDBMapping, hiveTypeMapping, predicate, queryFilter)) {
+      // BatchGetItem can not filter the items, so the other conditions are left to Hive
+      return queryFilter;
+    }
+
+    if (!queryFilter.isQuery()) {
+      setHashKeyFanOut(schema, hiveDynamoDBMapping, hiveTypeMapping, predicate, filterMap,
+          queryFilter);
+    } else if (rangeKeySegments > 1) {
+      setRangeKeyPartitions(schema, queryFilter);
+    }
+
+    // DynamoDB does not allow a Query filter expression to reference key attributes
+    DynamoDBExpression filterExpression = new DynamoDBFilterExpressionCompiler(
+        hiveDynamoDBMapping, hiveTypeMapping, getQueriedKeyAttributes(schema, queryFilter))
+        .compile(predicate);
+    if (filterExpression != null) {
+      log.info("Setting filter expression: " + filterExpression);
+      // The filter expression covers every scan filter condition, and can not be combined with
+      // them in a request
+      queryFilter.getScanFilter().clear();
+      queryFilter.setFilterExpression(filterExpression);
+    }
+    return queryFilter;
+  }
+
+  /*
+   * Reads the items with BatchGetItem when the predicate restricts every table key attribute to a
+   * list of values, e.g. with equalities or IN lists. The keys are all the combinations of the
+   * values, some of which may not match the predicate when it is a disjunction.
+   */
+  private boolean setBatchGetKeys(List<KeySchemaElement> schema,
+      Map<String, String> hiveDynamoDBMapping,
+      Map<String, String> hiveTypeMapping,
+      ExprNodeDesc predicate,
+      DynamoDBQueryFilter queryFilter) {
+    if (schema.isEmpty()) {
+      return false;
+    }
+    DynamoDBFilterExpressionCompiler compiler =
+        new DynamoDBFilterExpressionCompiler(hiveDynamoDBMapping, hiveTypeMapping);
+    List<Map<String, AttributeValue>> keys = new ArrayList<>();
+    keys.add(new HashMap<>());
+    for (KeySchemaElement keySchemaElement : schema) {
+      String keyName = keySchemaElement.attributeName();
+      List<AttributeValue> keyValues = compiler.getEqualityValues(predicate, keyName);
+      if (keyValues == null || keyValues.isEmpty()
+          || (long) keys.size() * keyValues.size() > maxBatchGetKeys) {
+        return false;
+      }
+      List<Map<String, AttributeValue>> extendedKeys = new ArrayList<>();
+      for (Map<String, AttributeValue> key : keys) {
+        for (AttributeValue keyValue : keyValues) {
+          Map<String, AttributeValue> extendedKey = new HashMap<>(key);
+          extendedKey.put(keyName, keyValue);
+          extendedKeys.add(extendedKey);
+        }
+      }
+      keys = extendedKeys;
+    }
+
+    log.info("Reading the items of " + keys.size() + " keys with BatchGetItem");
+    queryFilter.setBatchGetKeys(keys);
+    return true;
+  }
+
+  /*
+   * Fans the query out to one Query per hash key value when the predicate restricts the table
+   * hash key to a list of values, e.g. with an IN list or a disjunction of equalities. A condition
+   * on the range key that the Query API supports is shared by all of the queries.
+   */
+  private void setHashKeyFanOut(List<KeySchemaElement> schema,
+      Map<String, String> hiveDynamoDBMapping,
+      Map<String, String> hiveTypeMapping,
+      ExprNodeDesc predicate,
+      Map<String, DynamoDBFilter> filterMap,
+      DynamoDBQueryFilter queryFilter) {
+    if (schema.isEmpty() || KeyType.HASH != schema.get(HASH_KEY_INDEX).keyType()) {
+      return;
+    }
+    String hashKeyName = schema.get(HASH_KEY_INDEX).attributeName();
+    List<AttributeValue> hashKeyValues =
+        new DynamoDBFilterExpressionCompiler(hiveDynamoDBMapping, hiveTypeMapping)
+            .getEqualityValues(predicate, hashKeyName);
+    if (hashKeyValues == null || hashKeyValues.isEmpty()) {
+      return;
+    }
+    if (hashKeyValues.size() > maxHashKeyFanOut) {
+      log.info("Not fanning out " + hashKeyValues.size() + " hash key values, more than "
+          + maxHashKeyFanOut);
+      return;
+    }
+
+    log.info("Fanning out to one query per hash key value: " + hashKeyValues.size());
+    queryFilter.setHashKeyValues(hashKeyName, hashKeyValues);
+    if (schema.size() > 1) {
+      DynamoDBFilter rangeKeyFilter = filterMap.get(schema.get(RANGE_KEY_INDEX).attributeName());
+      if (rangeKeyFilter != null
+          && eligibleOperatorsForRange.contains(rangeKeyFilter.getOperator())) {
+        queryFilter.getScanFilter().remove(rangeKeyFilter.getColumnName());
+        queryFilter.addKeyCondition(rangeKeyFilter);
+      }
+    }
+  }
+
+  /*
+   * Splits a query on the table or on an index into one Query per partition of its range key
+   * range, so that the partitions are read in parallel. The range is the one of a BETWEEN
+   * condition, or else the one the sampler reads from the table, which splits queries on a hot
+   * hash key with no or a one sided range key condition.
+   */
+  private void setRangeKeyPartitions(List<KeySchemaElement> schema,
+      DynamoDBQueryFilter queryFilter) {
+    List<KeySchemaElement> querySchema = queryFilter.getIndex() == null
+        ? schema : queryFilter.getIndex().getIndexSchema();
+    for (KeySchemaElement keySchemaElement : querySchema) {
+      if (KeyType.RANGE != keySchemaElement.keyType()) {
+        continue;
+      }
+      String rangeKeyName = keySchemaElement.attributeName();
+      if (queryFilter.setRangeKeyPartitions(rangeKeyName, rangeKeySegments)
+          || setSampledRangeKeyPartitions(rangeKeyName, queryFilter)) {
+        log.info("Splitting the range of " + rangeKeyName + " into "
+            + queryFilter.getSegmentCount() + " queries: "
+            + queryFilter.getRangeKeyBoundaries());
+      }
+    }
+  }
+
+  private boolean setSampledRangeKeyPartitions(String rangeKeyName,
+      DynamoDBQueryFilter queryFilter) {
+    Condition condition = queryFilter.getKeyConditions().get(rangeKeyName);
+    if (rangeKeySampler == null || (condition != null
+        && (condition.comparisonOperator() == ComparisonOperator.EQ
+        || condition.comparisonOperator() == ComparisonOperator.BETWEEN))) {
+      return false;
+    }
+    AttributeValue first = rangeKeySampler.getRangeKeyBound(queryFilter, rangeKeyName, false);
+    if (first == null) {
+      return false;
+    }
+    AttributeValue last = rangeKeySampler.getRangeKeyBound(queryFilter, rangeKeyName, true);
+    return last != null
+        && queryFilter.setRangeKeyPartitions(rangeKeyName, first, last, rangeKeySegments);
+  }
+
+  private static Map<String, String> getIdentityMapping(Map<String, String> hiveTypeMapping) {
+    Map<String, String> mapping = new HashMap<>();
+    for (String column : hiveTypeMapping.keySet()) {
+      mapping.put(column, column);
+    }
+    return mapping;
+  }
+
+  private Set<String> getQueriedKeyAttributes(List<KeySchemaElement> schema,
+      DynamoDBQueryFilter queryFilter) {
+    Set<String> keyAttributes = new HashSet<>();
+    if (!queryFilter.isQuery()) {
+      return keyAttributes;
+    }
+    for (KeySchemaElement keySchemaElement : schema) {
+      keyAttributes.add(keySchemaElement.attributeName());
+    }
+    if (queryFilter.getIndex() != null) {
+      for (KeySchemaElement keySchemaElement : queryFilter.getIndex().getIndexSchema()) {
+        keyAttributes.add(keySchemaElement.attributeName());
+      }
+    }
+    return keyAttributes;
   }
 
   private boolean isBetweenFilter(DynamoDBFilterOperator op1, DynamoDBFilterOperator op2) {
@@ -14,6 +14,7 @@
 package org.apache.hadoop.hive.dynamodb.read;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -22,7 +23,9 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
+import org.apache.hadoop.dynamodb.DynamoDBUtil;
 import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
+import org.apache.hadoop.dynamodb.filter.DynamoDBRangeKeySampler;
 import org.apache.hadoop.dynamodb.preader.DynamoDBRecordReaderContext;
 import org.apache.hadoop.dynamodb.read.DefaultDynamoDBRecordReader;
 import org.apache.hadoop.dynamodb.read.DynamoDBInputFormat;
@@ -32,9 +35,17 @@ import org.apache.hadoop.hive.dynamodb.filter.DynamoDBFilterPushdown;
 import org.apache.hadoop.hive.dynamodb.shims.ShimsLoader;
 import org.apache.hadoop.hive.dynamodb.split.HiveDynamoDBSplitGenerator;
 import org.apache.hadoop.hive.dynamodb.util.HiveDynamoDBUtil;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedInputFormatInterface;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatchCtx;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedSupport;
 import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
 import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.InputSplit;
 import org.apache.hadoop.mapred.JobConf;
@@ -42,7 +53,8 @@ import org.apache.hadoop.mapred.RecordReader;
 import org.apache.hadoop.mapred.Reporter;
 import software.amazon.awssdk.services.dynamodb.model.TableDescription;
 
-public class HiveDynamoDBInputFormat extends DynamoDBInputFormat {
+public class HiveDynamoDBInputFormat extends DynamoDBInputFormat
+    implements VectorizedInputFormatInterface {
 
   private static final Log log = LogFactory.getLog(HiveDynamoDBInputFormat.class);
 
@@ -67,6 +79,7 @@ public class HiveDynamoDBInputFormat extends DynamoDBInputFormat {
   }
 
   @Override
+  @SuppressWarnings({"unchecked", "rawtypes"})
   public RecordReader<Text, DynamoDBItemWritable> getRecordReader(InputSplit split, JobConf conf,
       Reporter reporter) throws
       IOException {
@@ -75,36 +88,53 @@ public class HiveDynamoDBInputFormat extends DynamoDBInputFormat {
     Map<String, String> columnMapping =
         HiveDynamoDBUtil.fromJsonString(conf.get(DynamoDBConstants.DYNAMODB_COLUMN_MAPPING));
     Map<String, String> hiveTypeMapping = HiveDynamoDBUtil.extractHiveTypeMapping(conf);
-    DynamoDBQueryFilter queryFilter = getQueryFilter(conf, columnMapping, hiveTypeMapping);
+    // The filter was compiled when the job was planned, and the split carries it
     DynamoDBSplit bbSplit = (DynamoDBSplit) split;
-    bbSplit.setDynamoDBFilterPushdown(queryFilter);
 
-    Collection<String> attributes = (columnMapping == null ? null : columnMapping.values());
+    Collection<String> attributes =
+        HiveDynamoDBUtil.getProjectedAttributes(conf, columnMapping, hiveTypeMapping);
+    log.info("Attributes to fetch: " + (attributes == null ? "all" : attributes));
     DynamoDBRecordReaderContext context = buildHiveDynamoDBRecordReaderContext(bbSplit, conf,
         reporter, attributes);
+    if (ShimsLoader.getHiveShims().isVectorizedInputFileFormat(conf, getClass())) {
+      // Hive reads VectorizedRowBatch values from the input formats it runs vectorized
+      log.info("Reading vectorized row batches");
+      return (RecordReader) getVectorizedRecordReader(context, conf, columnMapping);
+    }
     return new DefaultDynamoDBRecordReader(context);
   }
 
+  @Override
+  public VectorizedSupport.Support[] getSupportedFeatures() {
+    return new VectorizedSupport.Support[0];
+  }
+
   @Override
   protected int getNumSegments(int tableNormalizedReadThroughput, int
-      tableNormalizedWriteThroughput, long currentTableSizeBytes, JobConf conf) throws IOException {
-    if (isQuery(conf)) {
-      log.info("Defaulting to 1 segment because there are key conditions");
-      return 1;
+      tableNormalizedWriteThroughput, long currentTableSizeBytes, JobConf conf,
+      DynamoDBQueryFilter filter) throws IOException {
+    if (filter.isBatchGet()) {
+      log.info("Using one segment per batch get because all key attributes are fixed: "
+          + filter.getSegmentCount());
+      return filter.getSegmentCount();
+    } else if (filter.isQuery()) {
+      log.info("Using one segment per query because there are key conditions: "
+          + filter.getSegmentCount());
+      return filter.getSegmentCount();
     } else {
       return super.getNumSegments(tableNormalizedReadThroughput, tableNormalizedWriteThroughput,
-          currentTableSizeBytes, conf);
+          currentTableSizeBytes, conf, filter);
     }
   }
 
   @Override
-  protected int getNumMappers(int numSegments, int configuredReadThroughput, JobConf conf)
-      throws IOException {
-    if (isQuery(conf)) {
+  protected int getNumMappers(int numSegments, int configuredReadThroughput, JobConf conf,
+      DynamoDBQueryFilter filter) throws IOException {
+    if ((filter.isBatchGet() || filter.isQuery()) && filter.getSegmentCount() == 1) {
       log.info("Defaulting to 1 mapper because there are key conditions");
       return 1;
     } else {
-      return super.getNumMappers(numSegments, configuredReadThroughput, conf);
+      return super.getNumMappers(numSegments, configuredReadThroughput, conf, filter);
     }
   }
 
@@ -115,19 +145,47 @@ public class HiveDynamoDBInputFormat extends DynamoDBInputFormat {
 
   private DynamoDBRecordReaderContext buildHiveDynamoDBRecordReaderContext(InputSplit split,
       JobConf conf, Reporter reporter, Collection<String> attributes) {
-    DynamoDBRecordReaderContext context = super.buildDynamoDBRecordReaderContext(split, conf,
+    DynamoDBRecordReaderContext context = buildDynamoDBRecordReaderContext(split, conf,
         reporter);
     context.setAttributes(attributes);
     return context;
   }
 
-  private boolean isQuery(JobConf conf) throws IOException {
+  private RecordReader<NullWritable, VectorizedRowBatch> getVectorizedRecordReader(
+      DynamoDBRecordReaderContext context, JobConf conf, Map<String, String> columnMapping)
+      throws IOException {
+    VectorizedRowBatchCtx batchContext = Utilities.getVectorizedRowBatchCtx(conf);
+    int dataColumnCount = batchContext.getDataColumnCount();
+    List<Integer> readColumns = new ArrayList<>();
+    if (ColumnProjectionUtils.isReadAllColumns(conf)) {
+      for (int column = 0; column < dataColumnCount; column++) {
+        readColumns.add(column);
+      }
+    } else {
+      for (int column : ColumnProjectionUtils.getReadColumnIDs(conf)) {
+        if (column < dataColumnCount) {
+          readColumns.add(column);
+        }
+      }
+    }
+
+    try {
+      HiveDynamoDBRowBatchAssigner assigner = new HiveDynamoDBRowBatchAssigner(
+          batchContext.getRowColumnNames(), batchContext.getRowColumnTypeInfos(), readColumns,
+          columnMapping,
+          HiveDynamoDBUtil.fromJsonString(conf.get(DynamoDBConstants.DYNAMODB_TYPE_MAPPING)));
+      return new HiveDynamoDBVectorizedRecordReader(context, batchContext, assigner);
+    } catch (HiveException e) {
+      throw new IOException("Could not set up the vectorized record reader", e);
+    }
+  }
+
+  @Override
+  protected DynamoDBQueryFilter getQueryFilter(JobConf conf) throws IOException {
     Map<String, String> hiveDynamoDBMapping =
         HiveDynamoDBUtil.fromJsonString(conf.get(DynamoDBConstants.DYNAMODB_COLUMN_MAPPING));
     Map<String, String> hiveTypeMapping = HiveDynamoDBUtil.extractHiveTypeMapping(conf);
-    DynamoDBQueryFilter filter = getQueryFilter(conf, hiveDynamoDBMapping, hiveTypeMapping);
-
-    return filter.getKeyConditions().size() >= 1;
+    return getQueryFilter(conf, hiveDynamoDBMapping, hiveTypeMapping);
   }
 
   private DynamoDBQueryFilter getQueryFilter(JobConf conf, Map<String, String>
@@ -140,7 +198,6 @@ public class HiveDynamoDBInputFormat extends DynamoDBInputFormat {
       return new DynamoDBQueryFilter();
     }
 
-    DynamoDBClient client = new DynamoDBClient(conf);
     String filterExprSerialized = conf.get(TableScanDesc.FILTER_EXPR_CONF_STR);
     if (filterExprSerialized == null) {
       return new DynamoDBQueryFilter();
@@ -148,14 +205,39 @@ public class HiveDynamoDBInputFormat extends DynamoDBInputFormat {
     ExprNodeDesc filterExpr =
         ShimsLoader.getHiveShims().deserializeExpression(filterExprSerialized);
 
-    DynamoDBFilterPushdown pushdown = new DynamoDBFilterPushdown();
-    TableDescription tableDescription =
-        client.describeTable(conf.get(DynamoDBConstants.TABLE_NAME));
-    DynamoDBQueryFilter queryFilter = pushdown.predicateToDynamoDBFilter(
-        tableDescription.keySchema(),
-        tableDescription.localSecondaryIndexes(),
-        tableDescription.globalSecondaryIndexes(),
-        hiveDynamoDBMapping, hiveTypeMapping, filterExpr);
+    int rangeKeySegments = conf.getInt(DynamoDBConstants.QUERY_RANGE_SEGMENTS,
+        DynamoDBConstants.DEFAULT_QUERY_RANGE_SEGMENTS);
+    String tableName = conf.get(DynamoDBConstants.TABLE_NAME);
+    // The table schema is described once when the job is planned, rather than by every task
+    String tableSchema = conf.get(DynamoDBConstants.DYNAMODB_TABLE_SCHEMA);
+    DynamoDBClient client = tableSchema == null || rangeKeySegments > 1
+        ? new DynamoDBClient(conf) : null;
+    DynamoDBQueryFilter queryFilter;
+    try {
+      TableDescription tableDescription = tableSchema != null
+          ? DynamoDBUtil.deserializeTableSchema(tableSchema)
+          : client.describeTable(tableName);
+      // Queries without range key bounds of their own are split over the range the table holds
+      DynamoDBRangeKeySampler rangeKeySampler = rangeKeySegments > 1
+          ? (query, rangeKeyName, last) -> client.queryRangeKeyBound(tableName, query,
+              rangeKeyName, last, Reporter.NULL)
+          : null;
+      DynamoDBFilterPushdown pushdown = new DynamoDBFilterPushdown(
+          conf.getInt(DynamoDBConstants.MAX_QUERY_FAN_OUT,
+              DynamoDBConstants.DEFAULT_MAX_QUERY_FAN_OUT),
+          conf.getInt(DynamoDBConstants.MAX_BATCH_GET_KEYS,
+              DynamoDBConstants.DEFAULT_MAX_BATCH_GET_KEYS),
+          rangeKeySegments, rangeKeySampler);
+      queryFilter = pushdown.predicateToDynamoDBFilter(
+          tableDescription.keySchema(),
+          tableDescription.localSecondaryIndexes(),
+          tableDescription.globalSecondaryIndexes(),
+          hiveDynamoDBMapping, hiveTypeMapping, filterExpr);
+    } finally {
+      if (client != null) {
+        client.close();
+      }
+    }
     return queryFilter;
   }
 
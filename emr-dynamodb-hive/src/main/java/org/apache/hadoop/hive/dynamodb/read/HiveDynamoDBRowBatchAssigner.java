@@ -0,0 +1,227 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package org.apache.hadoop.hive.dynamodb.read;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBBinaryType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBBooleanType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBItemType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBNumberType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBStringType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBTypeFactory;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorAssignRow;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils.ObjectInspectorCopyOption;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Copies DynamoDB items into the rows of a VectorizedRowBatch, converting attributes the way
+ * DynamoDBObjectInspector does for row mode reads.
+ *
+ * String, binary, number and boolean columns are written straight into their column vectors.
+ * Other columns, such as lists, maps, structs and a column holding the whole item, are converted
+ * to Hive objects and assigned with Hive's VectorAssignRow.
+ */
+final class HiveDynamoDBRowBatchAssigner {
+
+  private final List<ColumnAssigner> columnAssigners = new ArrayList<>();
+  private final VectorAssignRow objectAssignRow = new VectorAssignRow();
+
+  /**
+   * @param columnNames   names of the Hive columns, in the order of the batch columns
+   * @param columnTypes   types of the Hive columns
+   * @param readColumns   indexes of the columns read by the query
+   * @param columnMapping Hive column to DynamoDB attribute name mapping, may be null when the table
+   *                      only has a column for the whole item
+   * @param typeMapping   Hive column to DynamoDB type mapping for columns which are not mapped to
+   *                      the default DynamoDB type of their Hive type, may be null
+   */
+  HiveDynamoDBRowBatchAssigner(String[] columnNames, TypeInfo[] columnTypes,
+      Collection<Integer> readColumns, Map<String, String> columnMapping,
+      Map<String, String> typeMapping) throws HiveException {
+    List<String> objectColumnNames = new ArrayList<>();
+    List<ObjectInspector> objectColumnInspectors = new ArrayList<>();
+    List<Integer> objectColumns = new ArrayList<>();
+
+    for (int column : readColumns) {
+      String columnName = columnNames[column];
+      TypeInfo typeInfo = columnTypes[column];
+      HiveDynamoDBType ddType = typeMapping != null && typeMapping.containsKey(columnName)
+          ? HiveDynamoDBTypeFactory.getTypeObjectFromDynamoDBType(typeMapping.get(columnName))
+          : HiveDynamoDBTypeFactory.getTypeObjectFromHiveType(typeInfo);
+      String attributeName = columnMapping == null ? null : columnMapping.get(columnName);
+
+      ValueWriter writer = HiveDynamoDBTypeFactory.isHiveDynamoDBItemMapType(ddType)
+          ? null : getValueWriter(ddType, typeInfo);
+      if (writer != null) {
+        columnAssigners.add(attributeAssigner(column, attributeName, writer));
+        continue;
+      }
+
+      ObjectInspector javaInspector =
+          TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(typeInfo);
+      Function<Map<String, AttributeValue>, Object> toHiveData;
+      if (HiveDynamoDBTypeFactory.isHiveDynamoDBItemMapType(ddType)) {
+        toHiveData = ((HiveDynamoDBItemType) ddType)::buildHiveData;
+      } else {
+        toHiveData = item -> {
+          AttributeValue value = item.get(attributeName);
+          return value == null ? null : ddType.getHiveData(value, javaInspector);
+        };
+      }
+      columnAssigners.add(objectAssigner(column, objectColumns.size(), toHiveData,
+          javaInspector));
+      objectColumnNames.add(columnName);
+      objectColumnInspectors.add(
+          TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(typeInfo));
+      objectColumns.add(column);
+    }
+
+    if (!objectColumns.isEmpty()) {
+      objectAssignRow.init(ObjectInspectorFactory.getStandardStructObjectInspector(
+          objectColumnNames, objectColumnInspectors), objectColumns);
+    }
+  }
+
+  /**
+   * Assigns an item to a row of the batch.
+   */
+  void assign(Map<String, AttributeValue> item, VectorizedRowBatch batch, int row) {
+    try {
+      for (ColumnAssigner columnAssigner : columnAssigners) {
+        columnAssigner.assign(item, batch, row);
+      }
+    } catch (Exception e) {
+      throw new RuntimeException("Exception while processing record: " + item, e);
+    }
+  }
+
+  /**
+   * Returns a writer for the columns that are written straight into their column vector, or null
+   * if the values of the column have to be converted to Hive objects.
+   */
+  private static ValueWriter getValueWriter(HiveDynamoDBType ddType, TypeInfo typeInfo) {
+    if (ddType instanceof HiveDynamoDBStringType) {
+      return (value, vector, row) -> {
+        if (value.s() == null) {
+          return false;
+        }
+        byte[] bytes = value.s().getBytes(StandardCharsets.UTF_8);
+        ((BytesColumnVector) vector).setRef(row, bytes, 0, bytes.length);
+        return true;
+      };
+    } else if (ddType instanceof HiveDynamoDBBinaryType) {
+      return (value, vector, row) -> {
+        if (value.b() == null) {
+          return false;
+        }
+        byte[] bytes = value.b().asByteArray();
+        ((BytesColumnVector) vector).setRef(row, bytes, 0, bytes.length);
+        return true;
+      };
+    } else if (ddType instanceof HiveDynamoDBBooleanType) {
+      return (value, vector, row) -> {
+        if (value.bool() == null) {
+          return false;
+        }
+        ((LongColumnVector) vector).vector[row] = value.bool() ? 1 : 0;
+        return true;
+      };
+    } else if (ddType instanceof HiveDynamoDBNumberType
+        && typeInfo.equals(TypeInfoFactory.longTypeInfo)) {
+      return (value, vector, row) -> {
+        if (value.n() == null) {
+          return false;
+        }
+        ((LongColumnVector) vector).vector[row] = Long.parseLong(value.n());
+        return true;
+      };
+    } else if (ddType instanceof HiveDynamoDBNumberType
+        && typeInfo.equals(TypeInfoFactory.doubleTypeInfo)) {
+      return (value, vector, row) -> {
+        if (value.n() == null) {
+          return false;
+        }
+        ((DoubleColumnVector) vector).vector[row] = Double.parseDouble(value.n());
+        return true;
+      };
+    }
+    return null;
+  }
+
+  private static ColumnAssigner attributeAssigner(int column, String attributeName,
+      ValueWriter writer) {
+    return (item, batch, row) -> {
+      ColumnVector vector = batch.cols[column];
+      AttributeValue value = item.get(attributeName);
+      if (value != null && writer.write(value, vector, row)) {
+        vector.isNull[row] = false;
+      } else {
+        setNull(vector, row);
+      }
+    };
+  }
+
+  private ColumnAssigner objectAssigner(int column, int objectColumn,
+      Function<Map<String, AttributeValue>, Object> toHiveData, ObjectInspector javaInspector) {
+    return (item, batch, row) -> {
+      Object hiveData = toHiveData.apply(item);
+      if (hiveData == null) {
+        setNull(batch.cols[column], row);
+      } else {
+        objectAssignRow.assignRowColumn(batch, row, objectColumn,
+            ObjectInspectorUtils.copyToStandardObject(hiveData, javaInspector,
+                ObjectInspectorCopyOption.WRITABLE));
+      }
+    };
+  }
+
+  private static void setNull(ColumnVector vector, int row) {
+    vector.noNulls = false;
+    vector.isNull[row] = true;
+  }
+
+  private interface ColumnAssigner {
+
+    void assign(Map<String, AttributeValue> item, VectorizedRowBatch batch, int row);
+  }
+
+  private interface ValueWriter {
+
+    /**
+     * Writes an attribute value to a row of the column vector.
+     *
+     * @return false if the value is null in Hive, in which case nothing was written
+     */
+    boolean write(AttributeValue value, ColumnVector vector, int row);
+  }
+}
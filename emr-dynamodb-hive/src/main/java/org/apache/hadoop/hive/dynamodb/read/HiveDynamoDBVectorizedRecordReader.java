@@ -0,0 +1,73 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package org.apache.hadoop.hive.dynamodb.read;
+
+import java.io.IOException;
+import java.util.Map;
+import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
+import org.apache.hadoop.dynamodb.preader.DynamoDBRecordReaderContext;
+import org.apache.hadoop.dynamodb.read.AbstractDynamoDBRecordReader;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatchCtx;
+import org.apache.hadoop.io.NullWritable;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Record reader used when Hive runs the query vectorized. Items are taken from the read workers
+ * and copied straight into the column vectors of a batch, without going through DynamoDBSerDe.
+ */
+class HiveDynamoDBVectorizedRecordReader extends
+    AbstractDynamoDBRecordReader<NullWritable, VectorizedRowBatch> {
+
+  private final VectorizedRowBatchCtx batchContext;
+  private final HiveDynamoDBRowBatchAssigner assigner;
+
+  HiveDynamoDBVectorizedRecordReader(DynamoDBRecordReaderContext context,
+      VectorizedRowBatchCtx batchContext, HiveDynamoDBRowBatchAssigner assigner) {
+    super(context);
+    this.batchContext = batchContext;
+    this.assigner = assigner;
+  }
+
+  @Override
+  public NullWritable createKey() {
+    return NullWritable.get();
+  }
+
+  @Override
+  public VectorizedRowBatch createValue() {
+    return batchContext.createVectorizedRowBatch();
+  }
+
+  @Override
+  public boolean next(NullWritable key, VectorizedRowBatch batch) throws IOException {
+    acknowledgeItems();
+    batch.reset();
+    while (batch.size < batch.getMaxSize()) {
+      Map<String, AttributeValue> item = nextItem();
+      if (item == null) {
+        break;
+      }
+      assigner.assign(item, batch, batch.size++);
+    }
+    return batch.size > 0;
+  }
+
+  @Override
+  protected void convertDynamoDBItemToValue(DynamoDBItemWritable item,
+      VectorizedRowBatch toValue) {
+    assigner.assign(item.getItem(), toValue, toValue.size++);
+  }
+}
@@ -43,6 +43,7 @@ public class HiveDynamoDBSegmentsSplit extends FileSplit implements DynamoDBSpli
   private int totalSegments;
   private long estimateLength;
   private DynamoDBQueryFilter filterPushdown;
+  private String runId;
 
   public HiveDynamoDBSegmentsSplit() {
     super(null, 0, 0, (String[]) null);
@@ -72,8 +73,12 @@ public class HiveDynamoDBSegmentsSplit extends FileSplit implements DynamoDBSpli
       segments.add(in.readInt());
     }
     totalSegments = in.readInt();
-    filterPushdown = new DynamoDBQueryFilter();
     estimateLength = in.readLong();
+    filterPushdown = new DynamoDBQueryFilter();
+    if (in.readBoolean()) {
+      filterPushdown.readFields(in);
+    }
+    runId = in.readBoolean() ? in.readUTF() : null;
   }
 
   @Override
@@ -88,6 +93,14 @@ public class HiveDynamoDBSegmentsSplit extends FileSplit implements DynamoDBSpli
     }
     out.writeInt(totalSegments);
     out.writeLong(estimateLength);
+    out.writeBoolean(filterPushdown != null);
+    if (filterPushdown != null) {
+      filterPushdown.write(out);
+    }
+    out.writeBoolean(runId != null);
+    if (runId != null) {
+      out.writeUTF(runId);
+    }
   }
 
   @Override
@@ -123,4 +136,12 @@ public class HiveDynamoDBSegmentsSplit extends FileSplit implements DynamoDBSpli
   public void setDynamoDBFilterPushdown(DynamoDBQueryFilter filterPushdown) {
     this.filterPushdown = filterPushdown;
   }
+
+  public String getRunId() {
+    return runId;
+  }
+
+  public void setRunId(String runId) {
+    this.runId = runId;
+  }
 }
@@ -14,6 +14,7 @@
 package org.apache.hadoop.hive.dynamodb.split;
 
 import java.util.List;
+import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
 import org.apache.hadoop.dynamodb.split.DynamoDBSplit;
 import org.apache.hadoop.dynamodb.split.DynamoDBSplitGenerator;
 import org.apache.hadoop.fs.Path;
@@ -36,9 +37,10 @@ public class HiveDynamoDBSplitGenerator extends DynamoDBSplitGenerator {
 
   @Override
   protected DynamoDBSplit createDynamoDBSplit(Path path, long approxItemCount, int splitId,
-      List<Integer> segments, int totalSegments, long estimateLength) {
+      List<Integer> segments, int totalSegments, long estimateLength,
+      DynamoDBQueryFilter queryFilter) {
     return new HiveDynamoDBSegmentsSplit(path, approxItemCount, splitId, segments,
-        totalSegments, estimateLength, null);
+        totalSegments, estimateLength, queryFilter);
   }
 
 }
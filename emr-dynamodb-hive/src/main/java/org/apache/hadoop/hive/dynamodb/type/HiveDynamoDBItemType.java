@@ -16,9 +16,14 @@ package org.apache.hadoop.hive.dynamodb.type;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import org.apache.hadoop.dynamodb.DynamoDBUtil;
 import org.apache.hadoop.dynamodb.key.DynamoDBKey;
 import org.apache.hadoop.dynamodb.type.DynamoDBItemType;
@@ -76,7 +81,9 @@ public class HiveDynamoDBItemType implements DynamoDBItemType, HiveDynamoDBType
    * Converts a DynamoDB item to a Map&lt;String, String&gt;.
    *
    * The keys in this new map are attribute names of the item. The values in the map are JSON
-   * serialization of corresponding AttributeValue in the DynamoDB item.
+   * serialization of corresponding AttributeValue in the DynamoDB item. The map is a view of the
+   * item: each value is serialized the first time it is read, so that looking up a few attributes
+   * of a wide item does not serialize all of them.
    *
    * @param dynamoDBItem Map representing the DynamoDB AttributeValue
    * @return A Map&lt;String, String&gt; type for Hive to store.
@@ -87,14 +94,7 @@ public class HiveDynamoDBItemType implements DynamoDBItemType, HiveDynamoDBType
       throw new RuntimeException("DynamoDB item cannot be null or empty.");
     }
 
-    Map<String, String> hiveData = new HashMap<>(dynamoDBItem.size());
-
-    for (Entry<String, AttributeValue> attributeNameValue : dynamoDBItem.entrySet()) {
-      hiveData.put(attributeNameValue.getKey(), serializeAttributeValue(attributeNameValue
-          .getValue()));
-    }
-
-    return hiveData;
+    return new SerializedItemMap(dynamoDBItem);
   }
 
   /**
@@ -170,4 +170,78 @@ public class HiveDynamoDBItemType implements DynamoDBItemType, HiveDynamoDBType
     return (AttributeValue) fromJson;
   }
 
+  /**
+   * Read-only view of an item whose values are the JSON serialization of its attribute values.
+   * Values are serialized on first access and memoized.
+   */
+  private static class SerializedItemMap extends AbstractMap<String, String> {
+
+    private final Map<String, AttributeValue> item;
+    private final Map<String, String> serialized;
+    private Set<Entry<String, String>> entrySet;
+
+    SerializedItemMap(Map<String, AttributeValue> item) {
+      this.item = item;
+      this.serialized = new HashMap<>();
+    }
+
+    @Override
+    public String get(Object key) {
+      if (!item.containsKey(key)) {
+        return null;
+      }
+      String value = serialized.get(key);
+      if (value == null) {
+        value = serializeAttributeValue(item.get(key));
+        serialized.put((String) key, value);
+      }
+      return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return item.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+      return item.size();
+    }
+
+    @Override
+    public Set<String> keySet() {
+      return Collections.unmodifiableSet(item.keySet());
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+      if (entrySet == null) {
+        entrySet = new AbstractSet<Entry<String, String>>() {
+          @Override
+          public Iterator<Entry<String, String>> iterator() {
+            Iterator<String> keys = item.keySet().iterator();
+            return new Iterator<Entry<String, String>>() {
+              @Override
+              public boolean hasNext() {
+                return keys.hasNext();
+              }
+
+              @Override
+              public Entry<String, String> next() {
+                String key = keys.next();
+                return new SimpleImmutableEntry<>(key, get(key));
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return item.size();
+          }
+        };
+      }
+      return entrySet;
+    }
+  }
+
 }
@@ -15,9 +15,12 @@ package org.apache.hadoop.hive.dynamodb.util;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.type.DynamoDBTypeConstants;
@@ -39,6 +42,9 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 public class DynamoDBDataParser {
   private static final Log log = LogFactory.getLog(DynamoDBDataParser.class);
+  // Standard ObjectInspectors are shared, so there is one decoder per struct type
+  private static final Map<ObjectInspector, StructDecoder> STRUCT_DECODERS =
+      new ConcurrentHashMap<>();
 
   public static String getNumber(Object data, ObjectInspector objectInspector) {
     if (objectInspector.getTypeName().equals(serdeConstants.DOUBLE_TYPE_NAME)) {
@@ -275,26 +281,47 @@ public class DynamoDBDataParser {
 
   public static Object getStructObject(Map<String, AttributeValue> data,
       ObjectInspector objectInspector) {
-    StructObjectInspector structOI = (StructObjectInspector) objectInspector;
-    List<? extends StructField> structFields = structOI.getAllStructFieldRefs();
+    StructDecoder decoder = STRUCT_DECODERS.computeIfAbsent(objectInspector,
+        structOI -> new StructDecoder((StructObjectInspector) structOI));
+    return decoder.decode(data);
+  }
 
-    List<Object> values = new ArrayList<>();
-    for (StructField field : structFields) {
-      values.add(getStructFieldObject(data, field));
+  /**
+   * Converts DynamoDB maps to the Hive objects of a struct type. Attributes are matched to the
+   * struct fields by name, ignoring case; fields without a matching attribute are null.
+   */
+  private static final class StructDecoder {
+
+    private final Map<String, Integer> fieldIndexes = new HashMap<>();
+    private final ObjectInspector[] fieldOIs;
+    private final HiveDynamoDBType[] fieldTypes;
+
+    StructDecoder(StructObjectInspector structOI) {
+      List<? extends StructField> structFields = structOI.getAllStructFieldRefs();
+      fieldOIs = new ObjectInspector[structFields.size()];
+      fieldTypes = new HiveDynamoDBType[structFields.size()];
+      for (int i = 0; i < structFields.size(); i++) {
+        StructField field = structFields.get(i);
+        fieldIndexes.putIfAbsent(field.getFieldName().toLowerCase(Locale.ROOT), i);
+        fieldOIs[i] = field.getFieldObjectInspector();
+        fieldTypes[i] = HiveDynamoDBTypeFactory.getTypeObjectFromHiveType(fieldOIs[i]);
+      }
     }
 
-    return values;
-  }
-
-  private static Object getStructFieldObject(Map<String, AttributeValue> data, StructField field) {
-    String fieldName = field.getFieldName();
-    ObjectInspector fieldOI = field.getFieldObjectInspector();
-    HiveDynamoDBType ddType = HiveDynamoDBTypeFactory.getTypeObjectFromHiveType(fieldOI);
-    for (Map.Entry<String, AttributeValue> entry : data.entrySet()) {
-      if (entry.getKey().equalsIgnoreCase(fieldName)) {
-        return ddType.getHiveData(entry.getValue(), fieldOI);
+    List<Object> decode(Map<String, AttributeValue> data) {
+      Object[] values = new Object[fieldOIs.length];
+      boolean[] matched = new boolean[fieldOIs.length];
+      for (Map.Entry<String, AttributeValue> entry : data.entrySet()) {
+        Integer index = fieldIndexes.get(entry.getKey().toLowerCase(Locale.ROOT));
+        // As attribute names are case sensitive, the first attribute matching a field is used
+        if (index != null && !matched[index]) {
+          matched[index] = true;
+          AttributeValue value = entry.getValue();
+          values[index] = value == null ? null : fieldTypes[index].getHiveData(value,
+              fieldOIs[index]);
+        }
       }
+      return Arrays.asList(values);
     }
-    throw new NullPointerException("Field name not found in map: " + fieldName);
   }
 }
@@ -19,7 +19,10 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -29,6 +32,7 @@ import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBType;
 import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBTypeFactory;
 import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 import org.apache.hadoop.mapred.JobConf;
 
@@ -146,6 +150,69 @@ public final class HiveDynamoDBUtil {
     return map;
   }
 
+  /**
+   * Determines the DynamoDB attributes backing the Hive columns read by the query, so that only
+   * those are fetched. If no mapped column is read, e.g. for a count, only the key attributes are
+   * fetched.
+   *
+   * @param jobConf             a job configuration
+   * @param hiveDynamoDBMapping mapping between Hive columns and DynamoDB attributes
+   * @param hiveTypeMapping     mapping between Hive columns and Hive types
+   * @return the attributes to fetch, or null if whole items must be fetched because a column
+   *     holding the full item is read or the read columns cannot be determined
+   */
+  public static Collection<String> getProjectedAttributes(JobConf jobConf,
+      Map<String, String> hiveDynamoDBMapping, Map<String, String> hiveTypeMapping) {
+    if (hiveDynamoDBMapping == null || hiveDynamoDBMapping.isEmpty()) {
+      return null;
+    }
+
+    Collection<String> readColumns;
+    if (ColumnProjectionUtils.isReadAllColumns(jobConf)) {
+      readColumns = hiveTypeMapping.keySet();
+      if (readColumns.isEmpty()) {
+        return null;
+      }
+    } else {
+      readColumns = Arrays.asList(ColumnProjectionUtils.getReadColumnNames(jobConf));
+    }
+
+    Map<String, String> dynamoDBTypeMapping =
+        fromJsonString(jobConf.get(DynamoDBConstants.DYNAMODB_TYPE_MAPPING));
+    Collection<String> attributes = new LinkedHashSet<>();
+    for (String column : readColumns) {
+      String columnName = column.toLowerCase();
+      HiveDynamoDBType ddType = null;
+      if (dynamoDBTypeMapping != null && dynamoDBTypeMapping.containsKey(columnName)) {
+        ddType = HiveDynamoDBTypeFactory.getTypeObjectFromDynamoDBType(
+            dynamoDBTypeMapping.get(columnName));
+      } else if (hiveTypeMapping.containsKey(columnName)) {
+        ddType = HiveDynamoDBTypeFactory.getTypeObjectFromHiveType(
+            hiveTypeMapping.get(columnName));
+      }
+      if (ddType != null && HiveDynamoDBTypeFactory.isHiveDynamoDBItemMapType(ddType)) {
+        return null;
+      }
+
+      // Virtual columns have no mapping
+      String attributeName = hiveDynamoDBMapping.get(columnName);
+      if (attributeName != null) {
+        attributes.add(attributeName);
+      }
+    }
+
+    if (attributes.isEmpty()) {
+      String keyNames = jobConf.get(DynamoDBConstants.DYNAMODB_TABLE_KEY_NAMES);
+      if (keyNames == null || keyNames.isEmpty()) {
+        return null;
+      }
+      attributes.addAll(
+          Arrays.asList(keyNames.split(DynamoDBConstants.DYNAMODB_TABLE_KEY_NAMES_SEPARATOR)));
+    }
+
+    return attributes;
+  }
+
   private static String[] splitStructs(String str, char separator) {
     if (str == null) {
       return null;
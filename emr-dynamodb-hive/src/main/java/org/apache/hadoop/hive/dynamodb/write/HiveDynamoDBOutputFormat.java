@@ -15,7 +15,11 @@ package org.apache.hadoop.hive.dynamodb.write;
 
 import java.io.IOException;
 import java.util.Properties;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
+import org.apache.hadoop.dynamodb.DynamoDBUtil;
+import org.apache.hadoop.dynamodb.util.ClusterMapCapacity;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.exec.FileSinkOperator.RecordWriter;
@@ -27,6 +31,8 @@ import org.apache.hadoop.util.Progressable;
 
 public class HiveDynamoDBOutputFormat implements HiveOutputFormat<Text, DynamoDBItemWritable> {
 
+  private static final Log log = LogFactory.getLog(HiveDynamoDBOutputFormat.class);
+
   @Override
   public RecordWriter getHiveRecordWriter(JobConf jc, Path finalOutPath, Class<? extends
       Writable> valueClass, boolean isCompressed, Properties tableProperties, Progressable
@@ -35,7 +41,15 @@ public class HiveDynamoDBOutputFormat implements HiveOutputFormat<Text, DynamoDB
   }
 
   @Override
-  public void checkOutputSpecs(FileSystem arg0, JobConf arg1) throws IOException {
+  public void checkOutputSpecs(FileSystem ignored, JobConf job) throws IOException {
+    // Computed once here for all the record writers of the job
+    if (DynamoDBUtil.isYarnEnabled(job)) {
+      try {
+        ClusterMapCapacity.configure(job);
+      } catch (IOException e) {
+        log.warn("Exception calculating cluster map capacity", e);
+      }
+    }
   }
 
   @Override
@@ -252,6 +252,43 @@ public class DynamoDBObjectInspectorTest {
     assertEquals(expectedRowData, actualRowData);
   }
 
+  @Test
+  public void testLazyRow() {
+    List<String> colNames = Lists.newArrayList("animal", "height", "ddbitem");
+    List<TypeInfo> colTypeInfos = Lists.newArrayList(STRING_TYPE_INFO, DOUBLE_TYPE_INFO,
+        STRING_MAP_TYPE_INFO);
+    Map<String, String> colMapping = Maps.newHashMap();
+    Map<String, HiveDynamoDBType> typeMapping = Maps.newHashMap();
+    for (int i = 0; i < colNames.size(); i++) {
+      colMapping.put(colNames.get(i), colNames.get(i));
+      typeMapping.put(colNames.get(i),
+          HiveDynamoDBTypeFactory.getTypeObjectFromHiveType(colTypeInfos.get(i)));
+    }
+    DynamoDBObjectInspector ddbOI =
+        new DynamoDBObjectInspector(colNames, colTypeInfos, colMapping, typeMapping);
+
+    Map<String, AttributeValue> itemMap = Maps.newHashMap();
+    itemMap.put("animal", AttributeValue.fromS("giraffe"));
+    itemMap.put("height", AttributeValue.fromN("5.5"));
+    LazyDynamoDBRow row = new LazyDynamoDBRow(colNames.size())
+        .reset(new DynamoDBItemWritable(itemMap));
+
+    // Only the columns that are read are converted, once per row
+    assertEquals("giraffe", ddbOI.getStructFieldData(row, ddbOI.getStructFieldRef("animal")));
+    assertEquals(false, row.isConverted(1));
+    itemMap.put("animal", AttributeValue.fromS("zebra"));
+    assertEquals("giraffe", ddbOI.getStructFieldData(row, ddbOI.getStructFieldRef("animal")));
+
+    Map<?, ?> item = (Map<?, ?>) ddbOI.getStructFieldData(row, ddbOI.getStructFieldRef("ddbitem"));
+    assertEquals("{\"n\":\"5.5\"}", item.get("height"));
+    assertEquals(null, item.get("weight"));
+    assertEquals(2, item.size());
+
+    row.reset(new DynamoDBItemWritable(itemMap));
+    assertEquals(Lists.newArrayList("zebra", 5.5),
+        ddbOI.getStructFieldsDataAsList(row).subList(0, 2));
+  }
+
   private List<Object> getDeserializedRow(List<String> attributeNames, List<TypeInfo> colTypeInfos,
                                           Map<String, AttributeValue> itemMap) {
     return getDeserializedRow(attributeNames, colTypeInfos, Maps.<String, HiveDynamoDBType>newHashMap(), itemMap);
@@ -35,6 +35,8 @@ import java.util.Properties;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 public class DynamoDBSerDeTest {
 
@@ -85,6 +87,65 @@ public class DynamoDBSerDeTest {
     assertEquals(expectedItemMap, actualItemMap);
   }
 
+  @Test
+  public void testSerializesSuccessiveRows() throws SerDeException {
+    Properties props = new Properties();
+    props.setProperty(serdeConstants.LIST_COLUMNS, "animal,weight,item");
+    props.setProperty(serdeConstants.LIST_COLUMN_TYPES, "string,bigint,map<string,string>");
+    props.setProperty(DynamoDBConstants.DYNAMODB_COLUMN_MAPPING, "animal:Animal,weight:Weight");
+    DynamoDBSerDe serde = new DynamoDBSerDe();
+    serde.initialize(null, props);
+    StructObjectInspector rowOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Lists.newArrayList("animal", "weight", "item"),
+        Lists.newArrayList(STRING_OBJECT_INSPECTOR, LONG_OBJECT_INSPECTOR,
+            STRING_MAP_OBJECT_INSPECTOR));
+
+    Map<String, String> backupItem = Maps.newHashMap();
+    backupItem.put("Animal", "{\"s\":\"zebra\"}");
+    backupItem.put("Legs", "{\"n\":\"4\"}");
+    Map<String, AttributeValue> first = ((DynamoDBItemWritable) serde.serialize(
+        Lists.newArrayList("giraffe", 1360L, backupItem), rowOI)).getItem();
+    Map<String, AttributeValue> second = ((DynamoDBItemWritable) serde.serialize(
+        Lists.newArrayList("okapi", null, backupItem), rowOI)).getItem();
+
+    // Attributes mapped to columns take precedence over the ones of the item column
+    Map<String, AttributeValue> expectedItemMap = Maps.newHashMap();
+    expectedItemMap.put("Animal", AttributeValue.fromS("giraffe"));
+    expectedItemMap.put("Weight", AttributeValue.fromN("1360"));
+    expectedItemMap.put("Legs", AttributeValue.fromN("4"));
+    assertEquals(expectedItemMap, first);
+    expectedItemMap.put("Animal", AttributeValue.fromS("okapi"));
+    expectedItemMap.remove("Weight");
+    assertEquals(expectedItemMap, second);
+  }
+
+  @Test
+  public void testRejectsRowsNotMatchingTheColumns() throws SerDeException {
+    Properties props = new Properties();
+    props.setProperty(serdeConstants.LIST_COLUMNS, "animal,weight");
+    props.setProperty(serdeConstants.LIST_COLUMN_TYPES, "string,bigint");
+    props.setProperty(DynamoDBConstants.DYNAMODB_COLUMN_MAPPING, "animal:Animal,weight:Weight");
+    DynamoDBSerDe serde = new DynamoDBSerDe();
+    serde.initialize(null, props);
+    StructObjectInspector rowOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Lists.newArrayList("animal", "weight"),
+        Lists.newArrayList(STRING_OBJECT_INSPECTOR, LONG_OBJECT_INSPECTOR));
+
+    SerDeException e = assertThrows(SerDeException.class,
+        () -> serde.serialize(Lists.newArrayList("giraffe"), rowOI));
+    assertTrue(e.getMessage().startsWith(
+        "Number of data objects do not match number of columns. Expected 2 but found 1"));
+
+    StructObjectInspector wideRowOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Lists.newArrayList("animal", "weight", "height"),
+        Lists.newArrayList(STRING_OBJECT_INSPECTOR, LONG_OBJECT_INSPECTOR,
+            STRING_OBJECT_INSPECTOR));
+    e = assertThrows(SerDeException.class,
+        () -> serde.serialize(Lists.newArrayList("giraffe", 1360L, "5.5"), wideRowOI));
+    assertTrue(e.getMessage().startsWith(
+        "Number of row fields do not match number of columns. Expected 2 but found 3"));
+  }
+
   @Test
   public void testNull() throws SerDeException {
     List<String> attributeNames = PRIMITIVE_FIELDS.subList(0, 2);
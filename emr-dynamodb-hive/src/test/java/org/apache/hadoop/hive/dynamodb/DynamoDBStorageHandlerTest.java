@@ -16,6 +16,7 @@ package org.apache.hadoop.hive.dynamodb;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.DynamoDBUtil;
 import org.apache.hadoop.hive.metastore.api.FieldSchema;
 import org.apache.hadoop.hive.metastore.api.MetaException;
 import org.apache.hadoop.hive.metastore.api.StorageDescriptor;
@@ -347,6 +348,8 @@ public class DynamoDBStorageHandlerTest {
     spyDynamoStorageHandler.configureTableJobProperties(testTableDesc, jobProperties1);
     assertEquals(jobProperties1.get(DynamoDBConstants.READ_THROUGHPUT), "400");
     assertEquals(jobProperties1.get(DynamoDBConstants.WRITE_THROUGHPUT), "100");
+    assertEquals(mockDescribeTableResponse.keySchema(), DynamoDBUtil.deserializeTableSchema(
+        jobProperties1.get(DynamoDBConstants.DYNAMODB_TABLE_SCHEMA)).keySchema());
     // Provisioned tables should be configured to dynamically calculate throughput during tasks
     assertTrue(Boolean.parseBoolean(jobProperties1.get(DynamoDBConstants.READ_THROUGHPUT_AUTOSCALING)));
     assertTrue(Boolean.parseBoolean(jobProperties1.get(DynamoDBConstants.WRITE_THROUGHPUT_AUTOSCALING)));
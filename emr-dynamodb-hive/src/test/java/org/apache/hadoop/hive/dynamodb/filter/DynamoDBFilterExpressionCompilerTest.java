@@ -0,0 +1,182 @@
+package org.apache.hadoop.hive.dynamodb.filter;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import java.util.Map;
+import org.apache.hadoop.dynamodb.filter.DynamoDBExpression;
+import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.udf.UDFLike;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFBetween;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFBridge;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFIn;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPAnd;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNot;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPNull;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPOr;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFUpper;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+public class DynamoDBFilterExpressionCompilerTest {
+
+  private static final Map<String, String> HIVE_DYNAMODB_MAPPING = ImmutableMap.of(
+      "id", "Id",
+      "color", "Color",
+      "size", "Size",
+      "tags", "Tags");
+  private static final Map<String, String> HIVE_TYPE_MAPPING = ImmutableMap.of(
+      "id", serdeConstants.STRING_TYPE_NAME,
+      "color", serdeConstants.STRING_TYPE_NAME,
+      "size", serdeConstants.BIGINT_TYPE_NAME,
+      "tags", "array<string>");
+
+  private final DynamoDBFilterExpressionCompiler compiler =
+      new DynamoDBFilterExpressionCompiler(HIVE_DYNAMODB_MAPPING, HIVE_TYPE_MAPPING);
+
+  @Test
+  public void testDisjunction() {
+    DynamoDBExpression expression = compiler.compile(
+        function(new GenericUDFOPOr(),
+            function(new GenericUDFOPEqual(), column("color"), constant("red")),
+            function(new GenericUDFOPGreaterThan(), column("size"), constant(10L))));
+
+    Assert.assertEquals("(#f0 = :f0) OR (#f1 > :f1)", expression.getExpression());
+    Assert.assertEquals(ImmutableMap.of("#f0", "Color", "#f1", "Size"),
+        expression.getAttributeNames());
+    Assert.assertEquals(ImmutableMap.of(":f0", AttributeValue.fromS("red"),
+        ":f1", AttributeValue.fromN("10")), expression.getAttributeValues());
+  }
+
+  @Test
+  public void testConjunctionDropsUncompilableOperands() {
+    DynamoDBExpression expression = compiler.compile(
+        function(new GenericUDFOPAnd(),
+            function(new GenericUDFOPEqual(), function(new GenericUDFUpper(), column("color")),
+                constant("RED")),
+            function(new GenericUDFOPLessThan(), constant(3L), column("size"))));
+
+    Assert.assertEquals("#f0 > :f0", expression.getExpression());
+    Assert.assertEquals(ImmutableMap.of(":f0", AttributeValue.fromN("3")),
+        expression.getAttributeValues());
+  }
+
+  @Test
+  public void testDisjunctionWithUncompilableOperandIsNotCompiled() {
+    Assert.assertNull(compiler.compile(
+        function(new GenericUDFOPOr(),
+            function(new GenericUDFOPEqual(), column("color"), constant("red")),
+            function(new GenericUDFOPEqual(), column("tags"), constant("a")))));
+    // A string column compared with a number is compared as a double by Hive
+    Assert.assertNull(compiler.compile(
+        function(new GenericUDFOPEqual(), column("color"), constant(1L))));
+  }
+
+  @Test
+  public void testNegation() {
+    DynamoDBExpression expression = compiler.compile(
+        function(new GenericUDFOPNot(),
+            function(new GenericUDFIn(), column("color"), constant("red"), constant("blue"))));
+    Assert.assertEquals("NOT (#f0 IN (:f0, :f1))", expression.getExpression());
+
+    // contains() also matches other attribute types, so it can not be negated
+    Assert.assertNull(compiler.compile(
+        function(new GenericUDFOPNot(), like(column("color"), "%e%"))));
+  }
+
+  @Test
+  public void testLike() {
+    Assert.assertEquals("begins_with(#f0, :f0)",
+        compiler.compile(like(column("color"), "re%")).getExpression());
+    Assert.assertEquals("contains(#f0, :f0)",
+        compiler.compile(like(column("color"), "%e%")).getExpression());
+    Assert.assertEquals("(begins_with(#f0, :f0)) AND (contains(#f0, :f1))",
+        compiler.compile(like(column("color"), "r%d")).getExpression());
+    Assert.assertEquals("#f0 = :f0",
+        compiler.compile(like(column("color"), "red")).getExpression());
+    Assert.assertNull(compiler.compile(like(column("color"), "r_d")));
+  }
+
+  @Test
+  public void testNullChecksMatchOnAttributeType() {
+    DynamoDBExpression expression = compiler.compile(
+        function(new GenericUDFOPNull(), column("size")));
+
+    Assert.assertEquals("NOT attribute_type(#f0, :f0)", expression.getExpression());
+    Assert.assertEquals(AttributeValue.fromS("N"), expression.getAttributeValues().get(":f0"));
+  }
+
+  @Test
+  public void testBetween() {
+    Assert.assertEquals("#f0 BETWEEN :f0 AND :f1", compiler.compile(
+        function(new GenericUDFBetween(), constant(false), column("size"), constant(1L),
+            constant(1.5e10))).getExpression());
+    Assert.assertEquals("10000000000", compiler.compile(
+        function(new GenericUDFBetween(), constant(false), column("size"), constant(1L),
+            constant(1e10))).getAttributeValues().get(":f1").n());
+    // DynamoDB rejects empty ranges
+    Assert.assertNull(compiler.compile(
+        function(new GenericUDFBetween(), constant(false), column("size"), constant(2L),
+            constant(1L))));
+  }
+
+  @Test
+  public void testExcludedAttributesAreNotReferenced() {
+    DynamoDBFilterExpressionCompiler queryCompiler = new DynamoDBFilterExpressionCompiler(
+        HIVE_DYNAMODB_MAPPING, HIVE_TYPE_MAPPING, ImmutableSet.of("Id"));
+
+    DynamoDBExpression expression = queryCompiler.compile(
+        function(new GenericUDFOPAnd(),
+            function(new GenericUDFOPEqual(), column("id"), constant("1")),
+            function(new GenericUDFOPEqual(), column("color"), constant("red"))));
+
+    Assert.assertEquals("#f0 = :f0", expression.getExpression());
+    Assert.assertEquals(ImmutableMap.of("#f0", "Color"), expression.getAttributeNames());
+  }
+
+  @Test
+  public void testEqualityValues() {
+    ExprNodeDesc predicate = function(new GenericUDFOPAnd(),
+        function(new GenericUDFOPOr(),
+            function(new GenericUDFOPEqual(), column("id"), constant("a")),
+            function(new GenericUDFIn(), column("id"), constant("b"), constant("c"))),
+        function(new GenericUDFIn(), column("id"), constant("c"), constant("b"), constant("d")),
+        function(new GenericUDFOPEqual(), column("color"), constant("red")));
+
+    Assert.assertEquals(Lists.newArrayList(AttributeValue.fromS("b"), AttributeValue.fromS("c")),
+        compiler.getEqualityValues(predicate, "Id"));
+    Assert.assertNull(compiler.getEqualityValues(predicate, "Size"));
+    Assert.assertNull(compiler.getEqualityValues(
+        function(new GenericUDFOPOr(),
+            function(new GenericUDFOPEqual(), column("id"), constant("a")),
+            function(new GenericUDFOPEqual(), column("color"), constant("red"))), "Id"));
+  }
+
+  private static ExprNodeDesc column(String name) {
+    return new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, name, null, false);
+  }
+
+  private static ExprNodeDesc constant(Object value) {
+    return new ExprNodeConstantDesc(value);
+  }
+
+  private static ExprNodeDesc like(ExprNodeDesc column, String pattern) {
+    return function(new GenericUDFBridge("like", true, UDFLike.class.getName()), column,
+        constant(pattern));
+  }
+
+  private static ExprNodeDesc function(GenericUDF udf, ExprNodeDesc... children) {
+    return new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, udf,
+        Lists.newArrayList(children));
+  }
+}
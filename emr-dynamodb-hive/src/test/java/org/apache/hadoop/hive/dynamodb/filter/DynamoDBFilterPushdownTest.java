@@ -1,10 +1,12 @@
 package org.apache.hadoop.hive.dynamodb.filter;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.filter.DynamoDBFilterOperator;
 import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
 import org.apache.hadoop.hive.ql.exec.FunctionRegistry;
@@ -13,13 +15,18 @@ import org.apache.hadoop.hive.ql.plan.ExprNodeColumnDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFIn;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPOr;
 import org.apache.hadoop.hive.serde.serdeConstants;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ComparisonOperator;
 import software.amazon.awssdk.services.dynamodb.model.Condition;
 import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
 import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
@@ -145,6 +152,224 @@ public class DynamoDBFilterPushdownTest {
     Assert.assertNull(decomposedPredicate);
   }
 
+  @Test
+  public void testPushPredicateWithDisjunction() {
+    ExprNodeDesc predicate = new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo,
+        new GenericUDFOPOr(), Lists.newArrayList(column1Predicate,
+        column2Predicate));
+
+    DecomposedPredicate decomposedPredicate =
+        dynamoDBFilterPushdown.pushPredicate(hiveTypeMapping, predicate);
+    Assert.assertEquals(predicate.toString(), decomposedPredicate.pushedPredicate.toString());
+    Assert.assertEquals(predicate.toString(), decomposedPredicate.residualPredicate.toString());
+  }
+
+  @Test
+  public void testPredicateToDynamoDBFilterWithDisjunction() {
+    ExprNodeDesc predicate = new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo,
+        new GenericUDFOPOr(), Lists.newArrayList(column1Predicate,
+        column2Predicate));
+
+    DynamoDBQueryFilter dynamoDBQueryFilter = dynamoDBFilterPushdown.predicateToDynamoDBFilter(
+        tableKeySchema, null, null,
+        hiveDynamoDBMapping, hiveTypeMapping, predicate);
+
+    Assert.assertEquals(0, dynamoDBQueryFilter.getKeyConditions().size());
+    Assert.assertEquals(0, dynamoDBQueryFilter.getScanFilter().size());
+    Assert.assertEquals("(#f0 = :f0) OR (#f1 = :f1)",
+        dynamoDBQueryFilter.getFilterExpression().getExpression());
+  }
+
+  @Test
+  public void testPredicateToDynamoDBFilterExcludesQueriedKeysFromFilterExpression() {
+    ExprNodeDesc combinedPredicate = buildPredicate(Lists.newArrayList(
+        hashKeyPredicate,
+        column1Predicate));
+
+    DynamoDBQueryFilter dynamoDBQueryFilter = dynamoDBFilterPushdown.predicateToDynamoDBFilter(
+        tableKeySchema, null, null,
+        hiveDynamoDBMapping, hiveTypeMapping, combinedPredicate);
+
+    assertKeyCondition(HASH_KEY_NAME, HASH_KEY_VALUE, dynamoDBQueryFilter);
+    Assert.assertEquals(0, dynamoDBQueryFilter.getScanFilter().size());
+    Assert.assertEquals("#f0 = :f0", dynamoDBQueryFilter.getFilterExpression().getExpression());
+    Assert.assertEquals(COLUMN1_NAME,
+        dynamoDBQueryFilter.getFilterExpression().getAttributeNames().get("#f0"));
+  }
+
+  @Test
+  public void testPredicateToDynamoDBFilterFansOutHashKeyInList() {
+    ExprNodeDesc hashKeyInPredicate = new ExprNodeGenericFuncDesc(
+        TypeInfoFactory.booleanTypeInfo, new GenericUDFIn(), Lists.newArrayList(
+        new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, HASH_KEY_NAME, null, false),
+        new ExprNodeConstantDesc(TypeInfoFactory.stringTypeInfo, "a"),
+        new ExprNodeConstantDesc(TypeInfoFactory.stringTypeInfo, "b"),
+        new ExprNodeConstantDesc(TypeInfoFactory.stringTypeInfo, "a")));
+    ExprNodeDesc combinedPredicate = buildPredicate(Lists.newArrayList(
+        hashKeyInPredicate,
+        rangeKeyPredicate,
+        column1Predicate));
+
+    // Too many keys to read them with BatchGetItem
+    DynamoDBQueryFilter dynamoDBQueryFilter = new DynamoDBFilterPushdown(
+        DynamoDBConstants.DEFAULT_MAX_QUERY_FAN_OUT, 1).predicateToDynamoDBFilter(
+        tableKeySchema, null, null,
+        hiveDynamoDBMapping, hiveTypeMapping, combinedPredicate);
+
+    Assert.assertFalse(dynamoDBQueryFilter.isBatchGet());
+    Assert.assertTrue(dynamoDBQueryFilter.isQuery());
+    Assert.assertEquals(2, dynamoDBQueryFilter.getSegmentCount());
+    Assert.assertEquals(Lists.newArrayList(AttributeValue.fromS("a"), AttributeValue.fromS("b")),
+        dynamoDBQueryFilter.getHashKeyValues());
+    assertKeyCondition(RANGE_KEY_NAME, RANGE_KEY_VALUE, dynamoDBQueryFilter);
+    Assert.assertEquals("#f0 = :f0", dynamoDBQueryFilter.getFilterExpression().getExpression());
+
+    DynamoDBQueryFilter segmentQuery = dynamoDBQueryFilter.getSegmentQuery(1);
+    Assert.assertEquals(2, segmentQuery.getKeyConditions().size());
+    assertKeyCondition(HASH_KEY_NAME, "b", segmentQuery);
+    assertKeyCondition(RANGE_KEY_NAME, RANGE_KEY_VALUE, segmentQuery);
+  }
+
+  @Test
+  public void testPredicateToDynamoDBFilterFansOutHashKeyDisjunction() {
+    ExprNodeDesc otherHashKeyPredicate = new ExprNodeGenericFuncDesc(
+        TypeInfoFactory.booleanTypeInfo,
+        new GenericUDFOPEqual(), Lists.newArrayList(
+        new ExprNodeConstantDesc(TypeInfoFactory.stringTypeInfo, "5"),
+        new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, HASH_KEY_NAME, null, false)));
+    ExprNodeDesc predicate = new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo,
+        new GenericUDFOPOr(), Lists.newArrayList(hashKeyPredicate, otherHashKeyPredicate));
+
+    DynamoDBQueryFilter dynamoDBQueryFilter = dynamoDBFilterPushdown.predicateToDynamoDBFilter(
+        tableKeySchema, null, null,
+        hiveDynamoDBMapping, hiveTypeMapping, predicate);
+
+    Assert.assertEquals(0, dynamoDBQueryFilter.getKeyConditions().size());
+    Assert.assertEquals(
+        Lists.newArrayList(AttributeValue.fromS(HASH_KEY_VALUE), AttributeValue.fromS("5")),
+        dynamoDBQueryFilter.getHashKeyValues());
+    // The hash key conditions are all covered by the queries
+    Assert.assertNull(dynamoDBQueryFilter.getFilterExpression());
+
+    DynamoDBQueryFilter limitedQueryFilter = new DynamoDBFilterPushdown(1)
+        .predicateToDynamoDBFilter(tableKeySchema, null, null,
+            hiveDynamoDBMapping, hiveTypeMapping, predicate);
+    Assert.assertFalse(limitedQueryFilter.isQuery());
+  }
+
+  @Test
+  public void testPredicateToDynamoDBFilterReadsFixedKeysWithBatchGet() {
+    ExprNodeDesc hashKeyInPredicate = new ExprNodeGenericFuncDesc(
+        TypeInfoFactory.booleanTypeInfo, new GenericUDFIn(), Lists.newArrayList(
+        new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, HASH_KEY_NAME, null, false),
+        new ExprNodeConstantDesc(TypeInfoFactory.stringTypeInfo, "a"),
+        new ExprNodeConstantDesc(TypeInfoFactory.stringTypeInfo, "b")));
+    ExprNodeDesc otherRangeKeyPredicate = new ExprNodeGenericFuncDesc(
+        TypeInfoFactory.booleanTypeInfo,
+        new GenericUDFOPEqual(), Lists.newArrayList(
+        new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, RANGE_KEY_NAME, null, false),
+        new ExprNodeConstantDesc(TypeInfoFactory.stringTypeInfo, "5")));
+    ExprNodeDesc combinedPredicate = buildPredicate(Lists.newArrayList(
+        hashKeyInPredicate,
+        new ExprNodeGenericFuncDesc(TypeInfoFactory.booleanTypeInfo, new GenericUDFOPOr(),
+            Lists.newArrayList(rangeKeyPredicate, otherRangeKeyPredicate)),
+        column1Predicate));
+
+    DynamoDBQueryFilter dynamoDBQueryFilter = dynamoDBFilterPushdown.predicateToDynamoDBFilter(
+        tableKeySchema, null, null,
+        hiveDynamoDBMapping, hiveTypeMapping, combinedPredicate);
+
+    Assert.assertTrue(dynamoDBQueryFilter.isBatchGet());
+    Assert.assertEquals(1, dynamoDBQueryFilter.getSegmentCount());
+    Assert.assertEquals(Lists.newArrayList(
+        ImmutableMap.of(HASH_KEY_NAME, AttributeValue.fromS("a"),
+            RANGE_KEY_NAME, AttributeValue.fromS(RANGE_KEY_VALUE)),
+        ImmutableMap.of(HASH_KEY_NAME, AttributeValue.fromS("a"),
+            RANGE_KEY_NAME, AttributeValue.fromS("5")),
+        ImmutableMap.of(HASH_KEY_NAME, AttributeValue.fromS("b"),
+            RANGE_KEY_NAME, AttributeValue.fromS(RANGE_KEY_VALUE)),
+        ImmutableMap.of(HASH_KEY_NAME, AttributeValue.fromS("b"),
+            RANGE_KEY_NAME, AttributeValue.fromS("5"))),
+        dynamoDBQueryFilter.getBatchGetKeys());
+
+    // Without a range key condition, the keys are not all known
+    Assert.assertFalse(dynamoDBFilterPushdown.predicateToDynamoDBFilter(
+        tableKeySchema, null, null, hiveDynamoDBMapping, hiveTypeMapping,
+        buildPredicate(Lists.newArrayList(hashKeyInPredicate, column1Predicate))).isBatchGet());
+  }
+
+  @Test
+  public void testPredicateToDynamoDBFilterSplitsRangeKeyRange() {
+    ExprNodeDesc rangeKeyLowerBound = new ExprNodeGenericFuncDesc(
+        TypeInfoFactory.booleanTypeInfo,
+        new GenericUDFOPEqualOrGreaterThan(), Lists.newArrayList(
+        new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, RANGE_KEY_NAME, null, false),
+        new ExprNodeConstantDesc(TypeInfoFactory.stringTypeInfo, "a")));
+    ExprNodeDesc rangeKeyUpperBound = new ExprNodeGenericFuncDesc(
+        TypeInfoFactory.booleanTypeInfo,
+        new GenericUDFOPEqualOrLessThan(), Lists.newArrayList(
+        new ExprNodeColumnDesc(TypeInfoFactory.stringTypeInfo, RANGE_KEY_NAME, null, false),
+        new ExprNodeConstantDesc(TypeInfoFactory.stringTypeInfo, "e")));
+    ExprNodeDesc combinedPredicate = buildPredicate(Lists.newArrayList(
+        hashKeyPredicate,
+        rangeKeyLowerBound,
+        rangeKeyUpperBound));
+
+    DynamoDBQueryFilter dynamoDBQueryFilter = new DynamoDBFilterPushdown(
+        DynamoDBConstants.DEFAULT_MAX_QUERY_FAN_OUT, DynamoDBConstants.DEFAULT_MAX_BATCH_GET_KEYS,
+        4).predicateToDynamoDBFilter(tableKeySchema, null, null,
+        hiveDynamoDBMapping, hiveTypeMapping, combinedPredicate);
+
+    Assert.assertEquals(4, dynamoDBQueryFilter.getSegmentCount());
+    DynamoDBQueryFilter segmentQuery = dynamoDBQueryFilter.getSegmentQuery(2);
+    assertKeyCondition(HASH_KEY_NAME, HASH_KEY_VALUE, segmentQuery);
+    Assert.assertEquals(Lists.newArrayList(AttributeValue.fromS("c"), AttributeValue.fromS("d")),
+        segmentQuery.getKeyConditions().get(RANGE_KEY_NAME).attributeValueList());
+
+    // Without a lower bound, the range can not be split
+    Assert.assertEquals(1, new DynamoDBFilterPushdown(
+        DynamoDBConstants.DEFAULT_MAX_QUERY_FAN_OUT, DynamoDBConstants.DEFAULT_MAX_BATCH_GET_KEYS,
+        4).predicateToDynamoDBFilter(tableKeySchema, null, null,
+        hiveDynamoDBMapping, hiveTypeMapping,
+        buildPredicate(Lists.newArrayList(hashKeyPredicate, rangeKeyUpperBound)))
+        .getSegmentCount());
+  }
+
+  @Test
+  public void testPredicateToDynamoDBFilterSplitsSampledRangeKeyRange() {
+    List<Boolean> sampled = new ArrayList<>();
+    DynamoDBQueryFilter dynamoDBQueryFilter = new DynamoDBFilterPushdown(
+        DynamoDBConstants.DEFAULT_MAX_QUERY_FAN_OUT, DynamoDBConstants.DEFAULT_MAX_BATCH_GET_KEYS,
+        4, (query, rangeKeyName, last) -> {
+          Assert.assertEquals(RANGE_KEY_NAME, rangeKeyName);
+          assertKeyCondition(HASH_KEY_NAME, HASH_KEY_VALUE, query);
+          sampled.add(last);
+          return AttributeValue.fromS(last ? "e" : "a");
+        }).predicateToDynamoDBFilter(tableKeySchema, null, null,
+        hiveDynamoDBMapping, hiveTypeMapping,
+        buildPredicate(Lists.newArrayList(hashKeyPredicate)));
+
+    Assert.assertEquals(Lists.newArrayList(false, true), sampled);
+    Assert.assertEquals(4, dynamoDBQueryFilter.getSegmentCount());
+    DynamoDBQueryFilter segmentQuery = dynamoDBQueryFilter.getSegmentQuery(0);
+    assertKeyCondition(HASH_KEY_NAME, HASH_KEY_VALUE, segmentQuery);
+    // The outer partitions are left open, so items written after sampling are still read
+    Condition firstPartition = segmentQuery.getKeyConditions().get(RANGE_KEY_NAME);
+    Assert.assertEquals(ComparisonOperator.LE, firstPartition.comparisonOperator());
+    Assert.assertEquals(Lists.newArrayList(AttributeValue.fromS("b")),
+        firstPartition.attributeValueList());
+    Assert.assertEquals(ComparisonOperator.GE, dynamoDBQueryFilter.getSegmentQuery(3)
+        .getKeyConditions().get(RANGE_KEY_NAME).comparisonOperator());
+
+    // A hash key without items leaves the query as is
+    Assert.assertEquals(1, new DynamoDBFilterPushdown(
+        DynamoDBConstants.DEFAULT_MAX_QUERY_FAN_OUT, DynamoDBConstants.DEFAULT_MAX_BATCH_GET_KEYS,
+        4, (query, rangeKeyName, last) -> null).predicateToDynamoDBFilter(tableKeySchema, null,
+        null, hiveDynamoDBMapping, hiveTypeMapping,
+        buildPredicate(Lists.newArrayList(hashKeyPredicate)))
+        .getSegmentCount());
+  }
+
   @Test
   public void testPredicateToDynamoDBFilterWithNoIndexesAndNoHashKey() {
     ExprNodeDesc combinedPredicate = buildPredicate(Lists.newArrayList(
@@ -0,0 +1,204 @@
+package org.apache.hadoop.hive.dynamodb.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.dynamodb.DynamoDBClient;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
+import org.apache.hadoop.dynamodb.DynamoDBFibonacciRetryer.RetryResult;
+import org.apache.hadoop.dynamodb.filter.DynamoDBQueryFilter;
+import org.apache.hadoop.dynamodb.preader.DynamoDBRecordReaderContext;
+import org.apache.hadoop.dynamodb.preader.ScanCheckpoint;
+import org.apache.hadoop.dynamodb.read.DefaultDynamoDBRecordReader;
+import org.apache.hadoop.dynamodb.split.DynamoDBSegmentsSplit;
+import org.apache.hadoop.dynamodb.util.TimeSource;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
+import org.apache.hadoop.hive.dynamodb.util.HiveDynamoDBUtil;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatchCtx;
+import org.apache.hadoop.hive.ql.metadata.VirtualColumn;
+import org.apache.hadoop.hive.ql.plan.MapWork;
+import org.apache.hadoop.hive.ql.plan.PartitionDesc;
+import org.apache.hadoop.hive.ql.plan.VectorPartitionDesc;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputDescription;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+public class HiveDynamoDBInputFormatTest {
+
+  private static final List<String> NAMES = Lists.newArrayList("panda", "koala", "otter");
+
+  private final HiveDynamoDBInputFormat inputFormat = new HiveDynamoDBInputFormat() {
+    @Override
+    protected DynamoDBRecordReaderContext buildDynamoDBRecordReaderContext(InputSplit split,
+        JobConf conf, Reporter reporter) {
+      DynamoDBRecordReaderContext context = new DynamoDBRecordReaderContext();
+      context.setConf(conf);
+      context.setSplit(split);
+      context.setClient(new ItemsClient());
+      context.setReporter(reporter);
+      return context;
+    }
+  };
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private JobConf conf;
+  private MapWork mapWork;
+
+  @Before
+  public void setUp() {
+    conf = new JobConf();
+    conf.set(DynamoDBConstants.DEFAULT_ACCESS_KEY_CONF, "abc");
+    conf.set(DynamoDBConstants.DEFAULT_SECRET_KEY_CONF, "abcd");
+    conf.set(DynamoDBConstants.DYNAMODB_COLUMN_MAPPING,
+        HiveDynamoDBUtil.toJsonString(ImmutableMap.of("name", "Name")));
+    conf.set(serdeConstants.LIST_COLUMNS, "name");
+    conf.set(serdeConstants.LIST_COLUMN_TYPES, "string");
+    conf.setBoolean(ConfVars.HIVE_VECTORIZATION_ENABLED.varname, true);
+    conf.set(ConfVars.PLAN.varname, "file:/tmp/" + getClass().getSimpleName());
+
+    PartitionDesc partition = new PartitionDesc();
+    partition.setInputFileFormatClass(inputFormat.getClass());
+    partition.setVectorPartitionDesc(VectorPartitionDesc.createVectorizedInputFileFormat(
+        inputFormat.getClass().getName(), false));
+    mapWork = new MapWork();
+    mapWork.setVectorMode(true);
+    mapWork.setUseVectorizedInputFileFormat(true);
+    mapWork.setVectorizedRowBatchCtx(new VectorizedRowBatchCtx(new String[] {"name"},
+        new TypeInfo[] {TypeInfoFactory.stringTypeInfo}, null, null, 0, 0,
+        new VirtualColumn[0], new String[0], null));
+    mapWork.addPathToPartitionInfo(new Path("file:/dynamodb"), partition);
+    Utilities.setMapWork(conf, mapWork);
+  }
+
+  @After
+  public void tearDown() {
+    Utilities.clearWork(conf);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void readsRowBatchesWhenVectorizedInput() throws IOException {
+    RecordReader<?, ?> reader = inputFormat.getRecordReader(newSplit(), conf, Reporter.NULL);
+    try {
+      assertTrue(reader instanceof HiveDynamoDBVectorizedRecordReader);
+      RecordReader<NullWritable, VectorizedRowBatch> batchReader =
+          (RecordReader<NullWritable, VectorizedRowBatch>) reader;
+      VectorizedRowBatch batch = batchReader.createValue();
+      assertTrue(batchReader.next(batchReader.createKey(), batch));
+      assertEquals(NAMES.size(), batch.size);
+      BytesColumnVector names = (BytesColumnVector) batch.cols[0];
+      for (int row = 0; row < NAMES.size(); row++) {
+        assertEquals(NAMES.get(row), new String(names.vector[row], names.start[row],
+            names.length[row], StandardCharsets.UTF_8));
+      }
+      assertFalse(batchReader.next(batchReader.createKey(), batch));
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void checkpointsOnlyRowBatchesThatWereProcessed() throws IOException {
+    conf.set(DynamoDBConstants.SCAN_CHECKPOINT_DIR, folder.getRoot().getAbsolutePath());
+    conf.setLong(DynamoDBConstants.SCAN_CHECKPOINT_INTERVAL, 0);
+    DynamoDBSegmentsSplit split = newSplit();
+    split.setRunId("run");
+
+    RecordReader<?, ?> rowReader = inputFormat.getRecordReader(split, conf, Reporter.NULL);
+    RecordReader<NullWritable, VectorizedRowBatch> reader =
+        (RecordReader<NullWritable, VectorizedRowBatch>) rowReader;
+    try {
+      VectorizedRowBatch batch = new VectorizedRowBatch(1, 2);
+      batch.cols[0] = new BytesColumnVector(2);
+      assertTrue(reader.next(reader.createKey(), batch));
+      assertEquals(2, batch.size);
+      // The batch ends the page, but a failure while it is processed must read the page again
+      assertTrue(reader.next(reader.createKey(), batch));
+      assertEquals(1, batch.size);
+      assertFalse(ScanCheckpoint.open(conf, split, new TimeSource()).isComplete(0));
+
+      assertFalse(reader.next(reader.createKey(), batch));
+      assertTrue(ScanCheckpoint.open(conf, split, new TimeSource()).isComplete(0));
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void readsRowsWhenVectorizerDeserializesRows() throws IOException {
+    mapWork.getPathToPartitionInfo().values().iterator().next().setVectorPartitionDesc(
+        VectorPartitionDesc.createRowDeserialize(inputFormat.getClass().getName(), false,
+            null));
+
+    RecordReader<?, ?> reader = inputFormat.getRecordReader(newSplit(), conf, Reporter.NULL);
+    try {
+      assertTrue(reader instanceof DefaultDynamoDBRecordReader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static DynamoDBSegmentsSplit newSplit() {
+    return new DynamoDBSegmentsSplit(null, NAMES.size(), 0, Collections.singletonList(0), 1, 0,
+        new DynamoDBQueryFilter());
+  }
+
+  private static final class ItemsClient extends DynamoDBClient {
+
+    @Override
+    public TableDescription describeTable(String tableName) {
+      return TableDescription.builder()
+          .provisionedThroughput(ProvisionedThroughputDescription.builder()
+              .readCapacityUnits(1000L)
+              .writeCapacityUnits(1000L)
+              .build())
+          .build();
+    }
+
+    @Override
+    public RetryResult<ScanResponse> scanTable(String tableName,
+        DynamoDBQueryFilter dynamoDBQueryFilter, Integer segment, Integer totalSegments,
+        Map<String, AttributeValue> exclusiveStartKey, long limit,
+        Collection<String> attributesToGet, Reporter reporter) {
+      List<Map<String, AttributeValue>> items = Lists.newArrayList();
+      for (String name : NAMES) {
+        items.add(ImmutableMap.of("Name", AttributeValue.fromS(name)));
+      }
+      return new RetryResult<>(ScanResponse.builder()
+          .items(items)
+          .scannedCount(items.size())
+          .consumedCapacity(ConsumedCapacity.builder().capacityUnits(1d).build())
+          .build(), 0);
+    }
+  }
+}
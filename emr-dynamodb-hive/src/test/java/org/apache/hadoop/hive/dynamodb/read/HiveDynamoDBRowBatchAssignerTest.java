@@ -0,0 +1,139 @@
+/**
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file
+ * except in compliance with the License. A copy of the License is located at
+ *
+ *     http://aws.amazon.com/apache2.0/
+ *
+ * or in the "LICENSE.TXT" file accompanying this file. This file is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under the License.
+ */
+
+
+package org.apache.hadoop.hive.dynamodb.read;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.Test;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+public class HiveDynamoDBRowBatchAssignerTest {
+
+  private static final String[] COLUMN_NAMES =
+      {"name", "height", "weight", "endangered", "photo", "tags", "item"};
+  private static final TypeInfo[] COLUMN_TYPES = {
+      TypeInfoFactory.stringTypeInfo,
+      TypeInfoFactory.doubleTypeInfo,
+      TypeInfoFactory.longTypeInfo,
+      TypeInfoFactory.booleanTypeInfo,
+      TypeInfoFactory.binaryTypeInfo,
+      TypeInfoFactory.getListTypeInfo(TypeInfoFactory.stringTypeInfo),
+      TypeInfoFactory.getMapTypeInfo(TypeInfoFactory.stringTypeInfo,
+          TypeInfoFactory.stringTypeInfo)};
+  private static final Map<String, String> COLUMN_MAPPING = ImmutableMap.<String, String>builder()
+      .put("name", "Name")
+      .put("height", "Height")
+      .put("weight", "Weight")
+      .put("endangered", "Endangered")
+      .put("photo", "Photo")
+      .put("tags", "Tags")
+      .build();
+
+  @Test
+  public void testAssign() throws Exception {
+    HiveDynamoDBRowBatchAssigner assigner = new HiveDynamoDBRowBatchAssigner(COLUMN_NAMES,
+        COLUMN_TYPES, Arrays.asList(0, 1, 2, 3, 4, 5, 6), COLUMN_MAPPING,
+        Collections.singletonMap("tags", "SS"));
+    VectorizedRowBatch batch = createBatch();
+
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("Name", AttributeValue.fromS("giraffe"));
+    item.put("Height", AttributeValue.fromN("5.5"));
+    item.put("Weight", AttributeValue.fromN("1360"));
+    item.put("Endangered", AttributeValue.fromBool(true));
+    item.put("Photo", AttributeValue.fromB(SdkBytes.fromByteArray(new byte[]{1, 2})));
+    item.put("Tags", AttributeValue.fromSs(Arrays.asList("tall", "spotted")));
+    assigner.assign(item, batch, batch.size++);
+    // The null type and missing attributes are null
+    assigner.assign(Collections.singletonMap("Name", AttributeValue.fromNul(true)), batch,
+        batch.size++);
+
+    BytesColumnVector name = (BytesColumnVector) batch.cols[0];
+    assertEquals("giraffe", name.toString(0));
+    assertEquals(5.5, ((DoubleColumnVector) batch.cols[1]).vector[0], 0);
+    assertEquals(1360, ((LongColumnVector) batch.cols[2]).vector[0]);
+    assertEquals(1, ((LongColumnVector) batch.cols[3]).vector[0]);
+    BytesColumnVector photo = (BytesColumnVector) batch.cols[4];
+    assertArrayEquals(new byte[]{1, 2}, Arrays.copyOfRange(photo.vector[0], photo.start[0],
+        photo.start[0] + photo.length[0]));
+
+    ListColumnVector tags = (ListColumnVector) batch.cols[5];
+    assertEquals(2, tags.lengths[0]);
+    assertEquals("tall", ((BytesColumnVector) tags.child).toString((int) tags.offsets[0]));
+
+    MapColumnVector itemColumn = (MapColumnVector) batch.cols[6];
+    assertEquals(6, itemColumn.lengths[0]);
+    assertFalse(itemColumn.isNull[0]);
+
+    for (int column = 0; column < 6; column++) {
+      assertFalse(batch.cols[column].noNulls);
+      assertFalse(batch.cols[column].isNull[0]);
+      assertTrue(batch.cols[column].isNull[1]);
+    }
+    assertEquals(1, itemColumn.lengths[1]);
+    int entry = (int) itemColumn.offsets[1];
+    assertEquals("Name", ((BytesColumnVector) itemColumn.keys).toString(entry));
+    assertEquals("{\"nULL\":true}", ((BytesColumnVector) itemColumn.values).toString(entry));
+  }
+
+  @Test
+  public void testOnlyReadColumnsAreAssigned() throws Exception {
+    HiveDynamoDBRowBatchAssigner assigner = new HiveDynamoDBRowBatchAssigner(COLUMN_NAMES,
+        COLUMN_TYPES, Collections.singletonList(2), COLUMN_MAPPING, null);
+    VectorizedRowBatch batch = createBatch();
+
+    assigner.assign(ImmutableMap.of("Name", AttributeValue.fromS("giraffe"),
+        "Weight", AttributeValue.fromN("1360")), batch, batch.size++);
+
+    assertEquals(1360, ((LongColumnVector) batch.cols[2]).vector[0]);
+    assertTrue(batch.cols[2].noNulls);
+    assertEquals(null, ((BytesColumnVector) batch.cols[0]).vector[0]);
+  }
+
+  private static VectorizedRowBatch createBatch() {
+    VectorizedRowBatch batch = new VectorizedRowBatch(COLUMN_NAMES.length);
+    batch.cols[0] = new BytesColumnVector();
+    batch.cols[1] = new DoubleColumnVector();
+    batch.cols[2] = new LongColumnVector();
+    batch.cols[3] = new LongColumnVector();
+    batch.cols[4] = new BytesColumnVector();
+    batch.cols[5] = new ListColumnVector(VectorizedRowBatch.DEFAULT_SIZE,
+        new BytesColumnVector());
+    batch.cols[6] = new MapColumnVector(VectorizedRowBatch.DEFAULT_SIZE,
+        new BytesColumnVector(), new BytesColumnVector());
+    for (int column = 0; column < batch.numCols; column++) {
+      batch.cols[column].init();
+    }
+    batch.reset();
+    return batch;
+  }
+}
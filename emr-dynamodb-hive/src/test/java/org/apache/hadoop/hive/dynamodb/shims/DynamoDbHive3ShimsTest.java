@@ -0,0 +1,83 @@
+package org.apache.hadoop.hive.dynamodb.shims;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.plan.MapWork;
+import org.apache.hadoop.hive.ql.plan.PartitionDesc;
+import org.apache.hadoop.hive.ql.plan.VectorPartitionDesc;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.TextInputFormat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DynamoDbHive3ShimsTest {
+
+  private final DynamoDbHive3Shims shims = new DynamoDbHive3Shims();
+  private JobConf conf;
+
+  @Before
+  public void setUp() {
+    conf = new JobConf();
+    conf.setBoolean(ConfVars.HIVE_VECTORIZATION_ENABLED.varname, true);
+  }
+
+  @After
+  public void tearDown() {
+    Utilities.clearWork(conf);
+  }
+
+  @Test
+  public void rowModeIsNotVectorizedInput() {
+    assertFalse(shims.isVectorizedInputFileFormat(conf, TextInputFormat.class));
+
+    conf.setBoolean(Utilities.VECTOR_MODE, false);
+    conf.setBoolean(Utilities.USE_VECTORIZED_INPUT_FILE_FORMAT, true);
+    assertFalse(shims.isVectorizedInputFileFormat(conf, TextInputFormat.class));
+  }
+
+  @Test
+  public void tezMapWorkFlagDecides() {
+    conf.setBoolean(Utilities.VECTOR_MODE, true);
+    conf.setBoolean(Utilities.USE_VECTORIZED_INPUT_FILE_FORMAT, false);
+    assertFalse(shims.isVectorizedInputFileFormat(conf, TextInputFormat.class));
+
+    conf.setBoolean(Utilities.USE_VECTORIZED_INPUT_FILE_FORMAT, true);
+    assertTrue(shims.isVectorizedInputFileFormat(conf, TextInputFormat.class));
+  }
+
+  @Test
+  public void mapWorkPartitionDecides() {
+    MapWork mapWork = setMapWork(
+        VectorPartitionDesc.createVectorizedInputFileFormat(TextInputFormat.class.getName(),
+            false));
+    assertTrue(shims.isVectorizedInputFileFormat(conf, TextInputFormat.class));
+
+    // The vectorizer fell back to deserializing the rows of the input
+    mapWork.getPathToPartitionInfo().values().iterator().next().setVectorPartitionDesc(
+        VectorPartitionDesc.createRowDeserialize(TextInputFormat.class.getName(), false,
+            null));
+    assertFalse(shims.isVectorizedInputFileFormat(conf, TextInputFormat.class));
+
+    mapWork.setUseVectorizedInputFileFormat(false);
+    assertFalse(shims.isVectorizedInputFileFormat(conf, TextInputFormat.class));
+  }
+
+  private MapWork setMapWork(VectorPartitionDesc vectorPartition) {
+    PartitionDesc partition = new PartitionDesc();
+    partition.setInputFileFormatClass(TextInputFormat.class);
+    partition.setVectorPartitionDesc(vectorPartition);
+    MapWork mapWork = new MapWork();
+    mapWork.setVectorMode(true);
+    mapWork.setUseVectorizedInputFileFormat(true);
+    mapWork.addPathToPartitionInfo(new Path("file:/dynamodb"), partition);
+
+    conf.set(ConfVars.PLAN.varname, "file:/tmp/" + getClass().getSimpleName());
+    Utilities.setMapWork(conf, mapWork);
+    return mapWork;
+  }
+}
@@ -267,6 +267,21 @@ public class HiveDynamoDBTypeTest {
     assertEquals(struct, actualStruct);
   }
 
+  @Test
+  public void testStructFieldsMatchIgnoringCase() {
+    Map<String, AttributeValue> structAVMap = new HashMap<>();
+    structAVMap.put("Name", AttributeValue.fromS(STRING_LIST.get(0)));
+    structAVMap.put("other", AttributeValue.fromS(STRING_LIST.get(1)));
+    ObjectInspector structObjectInspector = ObjectInspectorFactory.getStandardStructObjectInspector(
+        Lists.newArrayList("name", "count"),
+        Lists.newArrayList(STRING_OBJECT_INSPECTOR, LONG_OBJECT_INSPECTOR));
+
+    HiveDynamoDBType ddType = HiveDynamoDBTypeFactory.getTypeObjectFromHiveType(structObjectInspector);
+    Object actualStruct = ddType.getHiveData(AttributeValue.fromM(structAVMap), structObjectInspector);
+    // Fields without a matching attribute are null
+    assertEquals(Lists.newArrayList(STRING_LIST.get(0), null), actualStruct);
+  }
+
   @Test
   public void testMultipleTypeList() {
     List<AttributeValue> avList = new ArrayList<>();
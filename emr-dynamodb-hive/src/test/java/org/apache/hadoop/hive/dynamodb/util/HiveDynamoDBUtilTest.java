@@ -13,14 +13,21 @@
 
 package org.apache.hadoop.hive.dynamodb.util;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import com.google.common.collect.ImmutableMap;
+import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.mapred.JobConf;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -100,4 +107,61 @@ public class HiveDynamoDBUtilTest {
 
     assertTrue(map.isEmpty());
   }
+
+  @Test
+  public void testGetProjectedAttributesOfReadColumns() {
+    Map<String, String> mapping = ImmutableMap.of("id", "Id", "name", "Name", "blob", "Blob");
+    Map<String, String> types = ImmutableMap.of("id", "string", "name", "string", "blob",
+        "binary");
+    conf.setBoolean(ColumnProjectionUtils.READ_ALL_COLUMNS, false);
+    conf.set(ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR, "name,id");
+
+    assertEquals(Arrays.asList("Name", "Id"),
+        new ArrayList<>(HiveDynamoDBUtil.getProjectedAttributes(conf, mapping, types)));
+  }
+
+  @Test
+  public void testGetProjectedAttributesOfAllColumns() {
+    Map<String, String> mapping = ImmutableMap.of("id", "Id", "name", "Name");
+    Map<String, String> types = ImmutableMap.of("id", "string", "name", "string");
+
+    assertEquals(Arrays.asList("Id", "Name"),
+        new ArrayList<>(HiveDynamoDBUtil.getProjectedAttributes(conf, mapping, types)));
+  }
+
+  @Test
+  public void testGetProjectedAttributesFetchesKeysWhenNoColumnIsRead() {
+    Map<String, String> mapping = ImmutableMap.of("id", "Id", "name", "Name");
+    Map<String, String> types = ImmutableMap.of("id", "string", "name", "string");
+    conf.setBoolean(ColumnProjectionUtils.READ_ALL_COLUMNS, false);
+    conf.set(ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR, "");
+    conf.set(DynamoDBConstants.DYNAMODB_TABLE_KEY_NAMES, "Id,Range");
+
+    assertEquals(Arrays.asList("Id", "Range"),
+        new ArrayList<>(HiveDynamoDBUtil.getProjectedAttributes(conf, mapping, types)));
+  }
+
+  @Test
+  public void testGetProjectedAttributesFetchesWholeItemForItemColumn() {
+    Map<String, String> mapping = ImmutableMap.of("id", "Id");
+    Map<String, String> types = ImmutableMap.of("id", "string", "item", "map<string,string>");
+    conf.setBoolean(ColumnProjectionUtils.READ_ALL_COLUMNS, false);
+    conf.set(ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR, "id,item");
+
+    assertNull(HiveDynamoDBUtil.getProjectedAttributes(conf, mapping, types));
+    assertNull(HiveDynamoDBUtil.getProjectedAttributes(conf, new HashMap<>(), types));
+  }
+
+  @Test
+  public void testGetProjectedAttributesOfMapColumnWithTypeMapping() {
+    Map<String, String> mapping = ImmutableMap.of("id", "Id", "tags", "Tags");
+    Map<String, String> types = ImmutableMap.of("id", "string", "tags", "map<string,string>");
+    conf.setBoolean(ColumnProjectionUtils.READ_ALL_COLUMNS, false);
+    conf.set(ColumnProjectionUtils.READ_COLUMN_NAMES_CONF_STR, "tags");
+    conf.set(DynamoDBConstants.DYNAMODB_TYPE_MAPPING,
+        HiveDynamoDBUtil.toJsonString(ImmutableMap.of("tags", "M")));
+
+    assertEquals(Arrays.asList("Tags"),
+        new ArrayList<>(HiveDynamoDBUtil.getProjectedAttributes(conf, mapping, types)));
+  }
 }
@@ -13,9 +13,12 @@
 
 package org.apache.hadoop.dynamodb.exportformat;
 
+import java.io.BufferedWriter;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import org.apache.hadoop.dynamodb.DynamoDBItemWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapred.RecordWriter;
@@ -23,27 +26,17 @@ import org.apache.hadoop.mapred.Reporter;
 
 class ExportRecordWriter implements RecordWriter<NullWritable, DynamoDBItemWritable> {
 
-  private static final String UTF_8 = "UTF-8";
-  private static final byte[] NEWLINE;
-
-  static {
-    try {
-      NEWLINE = "\n".getBytes(UTF_8);
-    } catch (UnsupportedEncodingException uee) {
-      throw new IllegalArgumentException("can't find " + UTF_8 + " encoding");
-    }
-  }
-
-  private final DataOutputStream out;
+  // Items are encoded straight into the output stream
+  private final Writer out;
 
   public ExportRecordWriter(DataOutputStream out) throws IOException {
-    this.out = out;
+    this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
   }
 
   @Override
   public synchronized void write(NullWritable key, DynamoDBItemWritable value) throws IOException {
-    out.write(value.writeStream().getBytes(UTF_8));
-    out.write(NEWLINE);
+    value.writeStream(out);
+    out.write('\n');
   }
 
   @Override
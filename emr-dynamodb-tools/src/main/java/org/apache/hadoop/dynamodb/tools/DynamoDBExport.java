@@ -14,6 +14,7 @@
 package org.apache.hadoop.dynamodb.tools;
 
 import java.util.Date;
+import java.util.UUID;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -22,6 +23,7 @@ import org.apache.hadoop.dynamodb.DynamoDBClient;
 import org.apache.hadoop.dynamodb.DynamoDBConstants;
 import org.apache.hadoop.dynamodb.DynamoDBUtil;
 import org.apache.hadoop.dynamodb.exportformat.ExportManifestOutputFormat;
+import org.apache.hadoop.dynamodb.preader.ReadStateDirs;
 import org.apache.hadoop.dynamodb.read.DynamoDBInputFormat;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
@@ -51,6 +53,12 @@ public class DynamoDBExport extends Configured implements Tool {
     }
 
     JobConf jobConf = new JobConf(getConf(), DynamoDBExport.class);
+    if (jobConf.get(DynamoDBConstants.SCAN_CHECKPOINT_DIR) != null) {
+      // The items a failed task exported are discarded with its output, so a retried task must
+      // read them again
+      printUsage(DynamoDBConstants.SCAN_CHECKPOINT_DIR + " is not supported by the export");
+      return -1;
+    }
 
     jobConf.setJobName("dynamodb-export");
     jobConf.setOutputKeyClass(Text.class);
@@ -86,9 +94,17 @@ public class DynamoDBExport extends Configured implements Tool {
     }
     setTableProperties(jobConf, tableName, readRatio, totalSegments);
 
+    // The state the record readers share is deleted whether the job succeeds or not
+    String readStateGroup = UUID.randomUUID().toString();
+    jobConf.set(DynamoDBConstants.READ_STATE_GROUP, readStateGroup);
+
     Date startTime = new Date();
     System.out.println("Job started: " + startTime);
-    JobClient.runJob(jobConf);
+    try {
+      JobClient.runJob(jobConf);
+    } finally {
+      ReadStateDirs.deleteGroup(jobConf, readStateGroup);
+    }
     Date endTime = new Date();
     System.out.println("Job ended: " + endTime);
     System.out.println("The job took " + (endTime.getTime() - startTime.getTime()) / 1000 + " "
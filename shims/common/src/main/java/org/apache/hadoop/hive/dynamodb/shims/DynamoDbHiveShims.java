@@ -29,4 +29,10 @@ public interface DynamoDbHiveShims {
   SerDeParametersShim getSerDeParametersShim(Configuration configuration,
       Properties properties, String serDeName) throws SerDeException;
 
+  /**
+   * Whether the plan being executed reads the given input format as a vectorized input file
+   * format, i.e. expects its record readers to return VectorizedRowBatches.
+   */
+  boolean isVectorizedInputFileFormat(Configuration configuration, Class<?> inputFormatClass);
+
 }
@@ -16,6 +16,7 @@ package org.apache.hadoop.hive.dynamodb.shims;
 import java.util.Properties;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.ql.exec.SerializationUtilities;
+import org.apache.hadoop.hive.ql.exec.Utilities;
 import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
@@ -48,5 +49,11 @@ final class DynamoDbHive2Shims implements DynamoDbHiveShims {
     return new Hive2SerDeParametersShim(configuration, properties, serDeName);
   }
 
+  @Override
+  public boolean isVectorizedInputFileFormat(Configuration configuration,
+      Class<?> inputFormatClass) {
+    return Utilities.getUseVectorizedInputFileFormat(configuration);
+  }
+
 }
 
@@ -15,9 +15,14 @@ package org.apache.hadoop.hive.dynamodb.shims;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hive.ql.exec.SerializationUtilities;
+import org.apache.hadoop.hive.ql.exec.Utilities;
 import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
 import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
 import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.MapWork;
+import org.apache.hadoop.hive.ql.plan.PartitionDesc;
+import org.apache.hadoop.hive.ql.plan.VectorPartitionDesc;
+import org.apache.hadoop.hive.ql.plan.VectorPartitionDesc.VectorMapOperatorReadType;
 import org.apache.hadoop.hive.serde2.SerDeException;
 
 import java.util.Properties;
@@ -46,5 +51,42 @@ final class DynamoDbHive3Shims implements DynamoDbHiveShims {
     return new Hive3SerDeParametersShim(configuration, properties, serDeName);
   }
 
+  /**
+   * The vectorizer decides for each input of the map work whether it is read as vectorized input,
+   * and falls back to deserializing rows for the inputs it can not read that way. Tez publishes
+   * that decision for the whole map work with the job configuration, and the map work records it
+   * for each partition.
+   */
+  @Override
+  public boolean isVectorizedInputFileFormat(Configuration configuration,
+      Class<?> inputFormatClass) {
+    if (!Utilities.getIsVectorized(configuration)) {
+      return false;
+    }
+    String useVectorizedInputFileFormat =
+        configuration.get(Utilities.USE_VECTORIZED_INPUT_FILE_FORMAT);
+    if (useVectorizedInputFileFormat != null
+        && !Boolean.parseBoolean(useVectorizedInputFileFormat)) {
+      return false;
+    }
+    MapWork mapWork = Utilities.getPlanPath(configuration) == null
+        ? null : Utilities.getMapWork(configuration);
+    if (mapWork == null) {
+      return Boolean.parseBoolean(useVectorizedInputFileFormat);
+    }
+    if (!Utilities.getIsVectorized(configuration, mapWork)
+        || !mapWork.getUseVectorizedInputFileFormat()) {
+      return false;
+    }
+    for (PartitionDesc partition : mapWork.getPathToPartitionInfo().values()) {
+      if (inputFormatClass.equals(partition.getInputFileFormatClass())) {
+        VectorPartitionDesc vectorPartition = partition.getVectorPartitionDesc();
+        return vectorPartition != null && vectorPartition.getVectorMapOperatorReadType()
+            == VectorMapOperatorReadType.VECTORIZED_INPUT_FILE_FORMAT;
+      }
+    }
+    return true;
+  }
+
 }
 